@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmarks;
+
+import com.microsoft.identity.common.InMemorySharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.AccountCredentialCache;
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the queries of {@link AccountCredentialCache} against caches of 10 to 10,000 records
+ * held by an {@link InMemorySharedPreferencesFileManager}. Every query deserializes the whole cache,
+ * so the cost grows with the number of records rather than the number of results.
+ * <p>
+ * The contended variants run on four threads, as when several requests of one app hit the cache
+ * at once; other thread counts can be measured with the JMH -t option.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountCredentialCacheBenchmark {
+
+    private static final int CONTENDED_THREADS = 4;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int cacheSize;
+
+    private AccountCredentialCache mAccountCredentialCache;
+    private String mHomeAccountId;
+
+    @Setup
+    public void setUp() {
+        final CacheRecords records = new CacheRecords(cacheSize);
+        mAccountCredentialCache = new AccountCredentialCache(
+                new CacheKeyValueDelegate(),
+                new InMemorySharedPreferencesFileManager()
+        );
+        mAccountCredentialCache.saveAccountsAndCredentials(records.mAccounts, records.mCredentials);
+
+        // Look up an Account in the middle of the cache
+        mHomeAccountId = CacheRecords.homeAccountId(records.mAccounts.size() / 2);
+    }
+
+    @Benchmark
+    public List<Credential> getCredentialsFilteredBy() {
+        return getAccessTokens();
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public List<Credential> getCredentialsFilteredByContended() {
+        return getAccessTokens();
+    }
+
+    @Benchmark
+    public List<AccountRecord> getAccountsFilteredBy() {
+        return mAccountCredentialCache.getAccountsFilteredBy(
+                mHomeAccountId,
+                CacheRecords.ENVIRONMENT,
+                CacheRecords.REALM
+        );
+    }
+
+    @Benchmark
+    public List<Credential> getCredentials() {
+        return mAccountCredentialCache.getCredentials();
+    }
+
+    private List<Credential> getAccessTokens() {
+        return mAccountCredentialCache.getCredentialsFilteredBy(
+                mHomeAccountId,
+                CacheRecords.ENVIRONMENT,
+                CredentialType.AccessToken,
+                CacheRecords.CLIENT_ID,
+                CacheRecords.REALM,
+                CacheRecords.TARGET
+        );
+    }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmarks;
+
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning a single cache record into its key and value and back, the per-record cost
+ * behind every {@link AccountCredentialCacheBenchmark} query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CacheKeyValueDelegateBenchmark {
+
+    private CacheKeyValueDelegate mDelegate;
+    private AccountRecord mAccount;
+    private AccessTokenRecord mAccessToken;
+    private String mAccountValue;
+    private String mAccessTokenValue;
+
+    @Setup
+    public void setUp() {
+        mDelegate = new CacheKeyValueDelegate();
+        mAccount = CacheRecords.account(0);
+        mAccessToken = CacheRecords.accessToken(0);
+        mAccountValue = mDelegate.generateCacheValue(mAccount);
+        mAccessTokenValue = mDelegate.generateCacheValue(mAccessToken);
+    }
+
+    @Benchmark
+    public String generateAccountCacheKey() {
+        return mDelegate.generateCacheKey(mAccount);
+    }
+
+    @Benchmark
+    public String generateAccessTokenCacheKey() {
+        return mDelegate.generateCacheKey(mAccessToken);
+    }
+
+    @Benchmark
+    public String generateAccessTokenCacheValue() {
+        return mDelegate.generateCacheValue(mAccessToken);
+    }
+
+    @Benchmark
+    public AccountRecord accountFromCacheValue() {
+        return mDelegate.fromCacheValue(mAccountValue, AccountRecord.class);
+    }
+
+    @Benchmark
+    public AccessTokenRecord accessTokenFromCacheValue() {
+        return mDelegate.fromCacheValue(mAccessTokenValue, AccessTokenRecord.class);
+    }
+}
@@ -0,0 +1,129 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmarks;
+
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds cache contents shaped like those of an MSAL app: each Account has an ID token, a refresh
+ * token and one access token.
+ */
+final class CacheRecords {
+
+    static final String CLIENT_ID = "4b0db8c2-9f26-4417-8bde-3f0e3656f8e0";
+    static final String ENVIRONMENT = "login.microsoftonline.com";
+    static final String REALM = "72f988bf-86f1-41af-91ab-2d7cd011db47";
+    static final String TARGET = "user.read openid profile offline_access";
+
+    private static final int RECORDS_PER_ACCOUNT = 4;
+
+    final List<AccountRecord> mAccounts = new ArrayList<>();
+    final List<Credential> mCredentials = new ArrayList<>();
+
+    /**
+     * @param recordCount The total number of Accounts and Credentials to create.
+     */
+    CacheRecords(final int recordCount) {
+        final int accountCount = Math.max(1, recordCount / RECORDS_PER_ACCOUNT);
+
+        for (int i = 0; i < accountCount; i++) {
+            mAccounts.add(account(i));
+            mCredentials.add(idToken(i));
+            mCredentials.add(refreshToken(i));
+            mCredentials.add(accessToken(i));
+        }
+    }
+
+    static String homeAccountId(final int index) {
+        return String.format("%08x-0000-0000-66f3-3332eca7ea81.%s", index, REALM);
+    }
+
+    static AccountRecord account(final int index) {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(homeAccountId(index));
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(REALM);
+        account.setLocalAccountId(String.format("%08x-0000-0000-66f3-3332eca7ea81", index));
+        account.setUsername("user" + index + "@contoso.com");
+        account.setAuthorityType("MSSTS");
+        account.setName("User " + index);
+        return account;
+    }
+
+    static AccessTokenRecord accessToken(final int index) {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        setCredentialFields(accessToken, index, CredentialType.AccessToken);
+        accessToken.setRealm(REALM);
+        accessToken.setTarget(TARGET);
+        accessToken.setAuthority("https://" + ENVIRONMENT + "/" + REALM);
+        accessToken.setExpiresOn("1538542322");
+        accessToken.setExtendedExpiresOn("1538542322");
+        accessToken.setAccessTokenType("Bearer");
+        return accessToken;
+    }
+
+    static RefreshTokenRecord refreshToken(final int index) {
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        setCredentialFields(refreshToken, index, CredentialType.RefreshToken);
+        refreshToken.setTarget(TARGET);
+        refreshToken.setFamilyId("1");
+        return refreshToken;
+    }
+
+    static IdTokenRecord idToken(final int index) {
+        final IdTokenRecord idToken = new IdTokenRecord();
+        setCredentialFields(idToken, index, CredentialType.IdToken);
+        idToken.setRealm(REALM);
+        idToken.setAuthority("https://" + ENVIRONMENT + "/" + REALM);
+        return idToken;
+    }
+
+    private static void setCredentialFields(final Credential credential,
+                                            final int index,
+                                            final CredentialType credentialType) {
+        credential.setHomeAccountId(homeAccountId(index));
+        credential.setEnvironment(ENVIRONMENT);
+        credential.setCredentialType(credentialType.name());
+        credential.setClientId(CLIENT_ID);
+        credential.setCachedAt("1538538422");
+        // Tokens are around a kilobyte in production; the content does not matter here
+        credential.setSecret(secret(index, 1024));
+    }
+
+    private static String secret(final int index, final int length) {
+        final StringBuilder builder = new StringBuilder(length);
+        while (builder.length() < length) {
+            builder.append(Integer.toHexString(index)).append('.');
+        }
+        builder.setLength(length);
+        return builder.toString();
+    }
+}
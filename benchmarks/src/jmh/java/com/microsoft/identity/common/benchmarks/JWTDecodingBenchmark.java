@@ -0,0 +1,145 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmarks;
+
+import com.microsoft.identity.common.internal.providers.oauth2.JWTPayloadDecoder;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.JWTParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading the claims the cache needs from an ID token using the nimbus JWT parser (as
+ * IDToken.parseJWT does) and using {@link JWTPayloadDecoder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JWTDecodingBenchmark {
+
+    private static final String HEADER =
+            "{\"typ\":\"JWT\",\"alg\":\"RS256\",\"kid\":\"i6lGk3FZzxRcUb2C3nEQ7syHJlY\"}";
+
+    /**
+     * Claims of an AAD v1 ID token, as returned for a work account.
+     */
+    private static final String AAD_V1_PAYLOAD = "{"
+            + "\"aud\":\"https://graph.windows.net\","
+            + "\"iss\":\"https://sts.windows.net/72f988bf-86f1-41af-91ab-2d7cd011db47/\","
+            + "\"iat\":1538538422,\"nbf\":1538538422,\"exp\":1538542322,\"acr\":\"1\","
+            + "\"aio\":\"AVQAq/8IAAAAFxaNVZpYT3O7HrumCbP+6kN5wF5g1QMhLBtVJtOp2WiFqwTSBnQkE4JjTvTPMbIbMkBsR6X2lL6SLGnFx3gP9A==\","
+            + "\"amr\":[\"pwd\",\"mfa\"],\"appid\":\"4b0db8c2-9f26-4417-8bde-3f0e3656f8e0\",\"appidacr\":\"0\","
+            + "\"family_name\":\"Lincoln\",\"given_name\":\"Abe\",\"in_corp\":\"true\",\"ipaddr\":\"131.107.159.117\","
+            + "\"name\":\"Abe Lincoln\",\"oid\":\"00000000-0000-0000-66f3-3332eca7ea81\","
+            + "\"onprem_sid\":\"S-1-5-21-2127521184-1604012920-1887927527-12345678\",\"puid\":\"10037FFE80000000\","
+            + "\"scp\":\"User.Read\",\"sub\":\"HKZpfaHyWadeOouYlitjrI-KffTm222X5rrV3xDqfKQ\","
+            + "\"tid\":\"72f988bf-86f1-41af-91ab-2d7cd011db47\",\"unique_name\":\"abeli@microsoft.com\","
+            + "\"upn\":\"abeli@microsoft.com\",\"uti\":\"fqiBqXLPj0eQa82S-IYFAA\",\"ver\":\"1.0\"}";
+
+    /**
+     * Claims of an AAD v2 ID token.
+     */
+    private static final String AAD_V2_PAYLOAD = "{"
+            + "\"aud\":\"6731de76-14a6-49ae-97bc-6eba6914391e\","
+            + "\"iss\":\"https://login.microsoftonline.com/72f988bf-86f1-41af-91ab-2d7cd011db47/v2.0\","
+            + "\"iat\":1538538422,\"nbf\":1538538422,\"exp\":1538542322,"
+            + "\"aio\":\"AVQAq/8IAAAAFxaNVZpYT3O7HrumCbP+6kN5wF5g1QMhLBtVJtOp2WiFqwTSBnQkE4JjTvTPMbIbMkBsR6X2lL6SLGnFx3gP9A==\","
+            + "\"name\":\"Abe Lincoln\",\"oid\":\"00000000-0000-0000-66f3-3332eca7ea81\","
+            + "\"preferred_username\":\"abeli@microsoft.com\","
+            + "\"sub\":\"HKZpfaHyWadeOouYlitjrI-KffTm222X5rrV3xDqfKQ\","
+            + "\"tid\":\"72f988bf-86f1-41af-91ab-2d7cd011db47\",\"uti\":\"fqiBqXLPj0eQa82S-IYFAA\",\"ver\":\"2.0\"}";
+
+    private static final Set<String> CACHE_CLAIMS = new HashSet<>(Arrays.asList(
+            "oid", "tid", "preferred_username", "exp"
+    ));
+
+    @Param({"AAD_V1", "AAD_V2"})
+    public String tokenType;
+
+    private String mRawIdToken;
+
+    @Setup
+    public void setUp() {
+        // RS256 signatures are 256 bytes; neither path verifies them
+        final byte[] signature = new byte[256];
+        new Random(0).nextBytes(signature);
+
+        mRawIdToken = Base64URL.encode(HEADER)
+                + "." + Base64URL.encode("AAD_V1".equals(tokenType) ? AAD_V1_PAYLOAD : AAD_V2_PAYLOAD)
+                + "." + Base64URL.encode(signature);
+    }
+
+    @Benchmark
+    public Map<String, String> nimbusSelectedClaims() throws Exception {
+        final JWTClaimsSet claimsSet = JWTParser.parse(mRawIdToken).getJWTClaimsSet();
+        final Map<String, String> claims = new HashMap<>();
+
+        for (final String claim : CACHE_CLAIMS) {
+            final Object value = claimsSet.getClaim(claim);
+
+            if (null != value) {
+                claims.put(claim, value.toString());
+            }
+        }
+
+        return claims;
+    }
+
+    @Benchmark
+    public Map<String, String> nimbusAllClaims() throws Exception {
+        final Map<String, Object> claimsSet = JWTParser.parse(mRawIdToken).getJWTClaimsSet().getClaims();
+        final Map<String, String> claims = new HashMap<>();
+
+        for (final Map.Entry<String, Object> entry : claimsSet.entrySet()) {
+            claims.put(entry.getKey(), entry.getValue().toString());
+        }
+
+        return claims;
+    }
+
+    @Benchmark
+    public Map<String, String> decoderSelectedClaims() throws Exception {
+        return JWTPayloadDecoder.decodeClaims(mRawIdToken, CACHE_CLAIMS);
+    }
+
+    @Benchmark
+    public Map<String, String> decoderAllClaims() throws Exception {
+        return JWTPayloadDecoder.decodeClaims(mRawIdToken, null);
+    }
+}
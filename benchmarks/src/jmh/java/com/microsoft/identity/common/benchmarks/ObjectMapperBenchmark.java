@@ -0,0 +1,148 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmarks;
+
+import com.google.gson.annotations.SerializedName;
+import com.microsoft.identity.common.internal.net.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link ObjectMapper} conversions made for every token request: the form-encoded
+ * request body, the JSON token response and the query string of the authorization redirect.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ObjectMapperBenchmark {
+
+    private static final String TOKEN_RESPONSE = "{"
+            + "\"token_type\":\"Bearer\",\"scope\":\"User.Read openid profile\","
+            + "\"expires_in\":3599,\"ext_expires_in\":3599,"
+            + "\"access_token\":\"" + repeat('a', 1500) + "\","
+            + "\"refresh_token\":\"" + repeat('r', 800) + "\","
+            + "\"id_token\":\"" + repeat('i', 1100) + "\","
+            + "\"client_info\":\"eyJ1aWQiOiI2NmYzLTMzMzJlY2E3ZWE4MSIsInV0aWQiOiI3MmY5ODhiZiJ9\"}";
+
+    private static final String REDIRECT_QUERY = "code=" + repeat('c', 700)
+            + "&state=YTQ0ODNkNjYtOTg0ZS00NWM2LTk1YmYtOGE3OGFkOTc5OGE1"
+            + "&session_state=f0e3ad7c-3e65-4d8a-a5b4-3bb1d8dd1f16";
+
+    private TokenRequestFields mTokenRequest;
+
+    @Setup
+    public void setUp() {
+        mTokenRequest = new TokenRequestFields();
+        mTokenRequest.mClientId = CacheRecords.CLIENT_ID;
+        mTokenRequest.mGrantType = "refresh_token";
+        mTokenRequest.mRefreshToken = repeat('r', 800);
+        mTokenRequest.mScope = CacheRecords.TARGET;
+        mTokenRequest.mRedirectUri = "msauth://com.microsoft.identity.client.sample/1wIqXSqBj7w%2Bh11ZifsnqwgyKrY%3D";
+        mTokenRequest.mCorrelationId = "b2f8c6a1-3a53-4b1e-9d0f-4b0c7a9e2d11";
+    }
+
+    @Benchmark
+    public String serializeTokenRequest() throws UnsupportedEncodingException {
+        return ObjectMapper.serializeObjectToFormUrlEncoded(mTokenRequest);
+    }
+
+    @Benchmark
+    public TokenResponseFields deserializeTokenResponse() {
+        return ObjectMapper.deserializeJsonStringToObject(TOKEN_RESPONSE, TokenResponseFields.class);
+    }
+
+    @Benchmark
+    public Map<String, String> deserializeRedirectQuery() {
+        return ObjectMapper.deserializeQueryStringToMap(REDIRECT_QUERY);
+    }
+
+    private static String repeat(final char character, final int count) {
+        final StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(character);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The fields of a refresh token grant, as in MicrosoftStsTokenRequest.
+     */
+    static class TokenRequestFields {
+        @SerializedName("client_id")
+        private String mClientId;
+
+        @SerializedName("grant_type")
+        private String mGrantType;
+
+        @SerializedName("refresh_token")
+        private String mRefreshToken;
+
+        @SerializedName("scope")
+        private String mScope;
+
+        @SerializedName("redirect_uri")
+        private String mRedirectUri;
+
+        @SerializedName("client-request-id")
+        private String mCorrelationId;
+    }
+
+    /**
+     * The fields of a token response, as in MicrosoftStsTokenResponse.
+     */
+    static class TokenResponseFields {
+        @SerializedName("token_type")
+        private String mTokenType;
+
+        @SerializedName("scope")
+        private String mScope;
+
+        @SerializedName("expires_in")
+        private Long mExpiresIn;
+
+        @SerializedName("ext_expires_in")
+        private Long mExtExpiresIn;
+
+        @SerializedName("access_token")
+        private String mAccessToken;
+
+        @SerializedName("refresh_token")
+        private String mRefreshToken;
+
+        @SerializedName("id_token")
+        private String mIdToken;
+
+        @SerializedName("client_info")
+        private String mClientInfo;
+    }
+}
@@ -0,0 +1,156 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmarks;
+
+import com.nimbusds.jose.util.Base64;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Measures the AES-CBC + HMAC-SHA256 scheme StorageHelper uses for every cache value. StorageHelper
+ * itself needs an Android Context and key store, so the scheme is reproduced here with a fixed key:
+ * a blob version, the cipher text, the IV and the MAC of all three, Base64 encoded.
+ * <p>
+ * The per-call variants obtain the Cipher and Mac for every value as StorageHelper does; the
+ * reused variants show the cost of that lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StorageCryptoBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String CIPHER_ALGORITHM = "AES/CBC/PKCS5Padding";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int IV_LENGTH = 16;
+    private static final int HMAC_LENGTH = 32;
+    private static final byte[] BLOB_VERSION = "U001".getBytes(UTF8);
+
+    /**
+     * Cache values are around 2 KB for a credential and a few hundred bytes for an Account.
+     */
+    @Param({"256", "2048", "8192"})
+    public int valueSize;
+
+    private final SecureRandom mRandom = new SecureRandom();
+    private SecretKey mKey;
+    private SecretKey mHmacKey;
+    private String mClearText;
+    private String mEncrypted;
+    private Cipher mCipher;
+    private Mac mMac;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        final byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        mKey = new SecretKeySpec(keyBytes, "AES");
+        mHmacKey = new SecretKeySpec(MessageDigest.getInstance("SHA256").digest(keyBytes), "AES");
+
+        final char[] clearText = new char[valueSize];
+        Arrays.fill(clearText, 'x');
+        mClearText = new String(clearText);
+
+        mCipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        mMac = Mac.getInstance(HMAC_ALGORITHM);
+        mEncrypted = encrypt(mCipher, mMac);
+    }
+
+    @Benchmark
+    public String encrypt() throws GeneralSecurityException {
+        return encrypt(Cipher.getInstance(CIPHER_ALGORITHM), Mac.getInstance(HMAC_ALGORITHM));
+    }
+
+    @Benchmark
+    public String encryptReusingCipher() throws GeneralSecurityException {
+        return encrypt(mCipher, mMac);
+    }
+
+    @Benchmark
+    public String decrypt() throws GeneralSecurityException {
+        return decrypt(Cipher.getInstance(CIPHER_ALGORITHM), Mac.getInstance(HMAC_ALGORITHM));
+    }
+
+    @Benchmark
+    public String decryptReusingCipher() throws GeneralSecurityException {
+        return decrypt(mCipher, mMac);
+    }
+
+    private String encrypt(final Cipher cipher, final Mac mac) throws GeneralSecurityException {
+        final byte[] iv = new byte[IV_LENGTH];
+        mRandom.nextBytes(iv);
+
+        cipher.init(Cipher.ENCRYPT_MODE, mKey, new IvParameterSpec(iv));
+        final byte[] encrypted = cipher.doFinal(mClearText.getBytes(UTF8));
+
+        mac.init(mHmacKey);
+        mac.update(BLOB_VERSION);
+        mac.update(encrypted);
+        mac.update(iv);
+        final byte[] macDigest = mac.doFinal();
+
+        final byte[] blob = new byte[BLOB_VERSION.length + encrypted.length + iv.length + macDigest.length];
+        System.arraycopy(BLOB_VERSION, 0, blob, 0, BLOB_VERSION.length);
+        System.arraycopy(encrypted, 0, blob, BLOB_VERSION.length, encrypted.length);
+        System.arraycopy(iv, 0, blob, BLOB_VERSION.length + encrypted.length, iv.length);
+        System.arraycopy(macDigest, 0, blob, BLOB_VERSION.length + encrypted.length + iv.length, macDigest.length);
+
+        return Base64.encode(blob).toString();
+    }
+
+    private String decrypt(final Cipher cipher, final Mac mac) throws GeneralSecurityException {
+        final byte[] bytes = new Base64(mEncrypted).decode();
+        final int ivIndex = bytes.length - IV_LENGTH - HMAC_LENGTH;
+        final int macIndex = bytes.length - HMAC_LENGTH;
+
+        mac.init(mHmacKey);
+        mac.update(bytes, 0, macIndex);
+        final byte[] macDigest = mac.doFinal();
+        if (!MessageDigest.isEqual(macDigest, Arrays.copyOfRange(bytes, macIndex, bytes.length))) {
+            throw new GeneralSecurityException("MAC mismatch");
+        }
+
+        cipher.init(Cipher.DECRYPT_MODE, mKey, new IvParameterSpec(bytes, ivIndex, IV_LENGTH));
+        return new String(cipher.doFinal(bytes, BLOB_VERSION.length, ivIndex - BLOB_VERSION.length), UTF8);
+    }
+}
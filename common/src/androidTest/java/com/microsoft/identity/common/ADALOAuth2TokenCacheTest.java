@@ -0,0 +1,363 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.microsoft.identity.common.adal.internal.cache.CacheKey;
+import com.microsoft.identity.common.internal.cache.ADALOAuth2TokenCache;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.cache.IShareSingleSignOnState;
+import com.microsoft.identity.common.internal.cache.ISharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.logging.ILoggerCallback;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftAccount;
+import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftRefreshToken;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryAccessToken;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryAccount;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryRefreshToken;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryTokenResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.IDToken;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(AndroidJUnit4.class)
+public class ADALOAuth2TokenCacheTest {
+
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String TENANT_ID = "72f988bf-86f1-41af-91ab-2d7cd011db47";
+    private static final String AUTHORITY = "https://" + ENVIRONMENT + "/" + TENANT_ID;
+    private static final String CLIENT_ID = "4b0db8c2-9f26-4417-8bde-3f0e3656f8e0";
+    private static final String FAMILY_ID = "1";
+    private static final String RESOURCE = "https://graph.windows.net";
+    private static final String OBJECT_ID = "00000000-0000-0000-66f3-3332eca7ea81";
+    private static final String USERNAME = "Abe.Lincoln@Contoso.com";
+
+    private RecordingSharedPreferencesFileManager mStorage;
+    private AzureActiveDirectoryOAuth2Strategy mStrategy;
+    private AzureActiveDirectoryAuthorizationRequest mRequest;
+    private AzureActiveDirectoryTokenResponse mResponse;
+    private AzureActiveDirectoryAccessToken mAccessToken;
+    private AzureActiveDirectoryRefreshToken mRefreshToken;
+
+    @Before
+    public void setUp() {
+        mStorage = new RecordingSharedPreferencesFileManager(new SharedPreferencesFileManager(
+                InstrumentationRegistry.getTargetContext(),
+                "test_adal_prefs"
+        ));
+
+        final String rawIdToken = createRawIdToken();
+        mRequest = Mockito.mock(AzureActiveDirectoryAuthorizationRequest.class);
+        when(mRequest.getScope()).thenReturn(RESOURCE);
+        when(mRequest.getClientId()).thenReturn(CLIENT_ID);
+
+        mResponse = Mockito.mock(AzureActiveDirectoryTokenResponse.class);
+        when(mResponse.getIdToken()).thenReturn(rawIdToken);
+
+        mAccessToken = Mockito.mock(AzureActiveDirectoryAccessToken.class);
+        when(mAccessToken.getExpiresOn()).thenReturn(new Date());
+        mRefreshToken = Mockito.mock(AzureActiveDirectoryRefreshToken.class);
+        setTokens("access_token", "refresh_token");
+        when(mRefreshToken.getFamilyId()).thenReturn(FAMILY_ID);
+
+        mStrategy = Mockito.mock(AzureActiveDirectoryOAuth2Strategy.class);
+        when(mStrategy.getIssuerCacheIdentifier(mRequest)).thenReturn(AUTHORITY);
+        when(mStrategy.getAccessTokenFromResponse(mResponse)).thenReturn(mAccessToken);
+        when(mStrategy.getRefreshTokenFromResponse(mResponse)).thenReturn(mRefreshToken);
+        when(mStrategy.createAccount(mResponse)).thenAnswer(new Answer<AzureActiveDirectoryAccount>() {
+            @Override
+            public AzureActiveDirectoryAccount answer(final InvocationOnMock invocation) throws Throwable {
+                // A new Account per call, as the strategy creates them
+                return new AzureActiveDirectoryAccount(new IDToken(rawIdToken), OBJECT_ID, TENANT_ID);
+            }
+        });
+
+        Logger.getInstance().setAsyncMode(false);
+    }
+
+    @After
+    public void tearDown() {
+        Logger.getInstance().setExternalLogger(null);
+        mStorage.clear();
+    }
+
+    @Test
+    public void testSaveWritesEveryEntryInOneCommit() {
+        createCache(Collections.<IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken>>emptyList())
+                .save(mStrategy, mRequest, mResponse);
+
+        assertEquals(0, mStorage.mPutStringCount);
+        assertEquals(1, mStorage.mPutStrings.size());
+        final Map<String, String> writes = mStorage.mPutStrings.get(0);
+        assertEquals(mStorage.getAll(), writes);
+
+        // The RT, MRRT and FRT entries which were written one by one under each user id
+        final List<String> userIds = new ArrayList<>(createAccount().getCacheIdentifiers());
+        userIds.add(null);
+        assertEquals(3 * userIds.size(), writes.size());
+
+        final String rtJson = writes.get(CacheKey.createCacheKeyForRTEntry(AUTHORITY, RESOURCE, CLIENT_ID, null));
+        final JsonObject mrrt = parse(rtJson);
+        mrrt.remove("mResource");
+        mrrt.remove("mAccessToken");
+        final JsonObject frt = parse(mrrt.toString());
+        frt.remove("mClientId");
+
+        for (final String userId : userIds) {
+            assertEquals(rtJson, writes.get(CacheKey.createCacheKeyForRTEntry(AUTHORITY, RESOURCE, CLIENT_ID, userId)));
+            assertEquals(mrrt, parse(writes.get(CacheKey.createCacheKeyForMRRT(AUTHORITY, CLIENT_ID, userId))));
+            assertEquals(frt, parse(writes.get(CacheKey.createCacheKeyForFRT(AUTHORITY, FAMILY_ID, userId))));
+        }
+
+        final JsonObject rt = parse(rtJson);
+        assertEquals("access_token", rt.get("mAccessToken").getAsString());
+        assertEquals("refresh_token", rt.get("mRefreshtoken").getAsString());
+        assertEquals(FAMILY_ID, rt.get("mFamilyClientId").getAsString());
+    }
+
+    @Test
+    public void testSaveUpdatesIndex() {
+        final ADALOAuth2TokenCache cache = createCache(
+                Collections.<IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken>>emptyList()
+        );
+        cache.save(mStrategy, mRequest, mResponse);
+        assertEquals("access_token", cache.load(CLIENT_ID, RESOURCE, createAccountRecord()).getAccessToken().getSecret());
+        final int indexBuilds = mStorage.mGetAllCount;
+
+        setTokens("new_access_token", "new_refresh_token");
+        cache.save(mStrategy, mRequest, mResponse);
+
+        final ICacheRecord record = cache.load(CLIENT_ID, RESOURCE, createAccountRecord());
+        assertEquals("new_access_token", record.getAccessToken().getSecret());
+        assertEquals("new_refresh_token", record.getRefreshToken().getSecret());
+        // Served from the index save updated, without reading the whole file again
+        assertEquals(indexBuilds, mStorage.mGetAllCount);
+    }
+
+    @Test
+    public void testSingleSignOnStateIsSyncedOnExecutor() {
+        final List<String> errors = new ArrayList<>();
+        Logger.getInstance().setExternalLogger(new ILoggerCallback() {
+            @Override
+            public void log(String tag, Logger.LogLevel logLevel, String message, boolean containsPII) {
+                if (logLevel == Logger.LogLevel.ERROR) {
+                    errors.add(message);
+                }
+            }
+        });
+
+        final RecordingSingleSignOnState failingCache = new RecordingSingleSignOnState(true);
+        final RecordingSingleSignOnState cache = new RecordingSingleSignOnState(false);
+        final ADALOAuth2TokenCache adalCache = createCache(
+                Arrays.<IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken>>asList(failingCache, cache)
+        );
+        final List<Runnable> tasks = new ArrayList<>();
+        adalCache.setSingleSignOnStateExecutor(new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                tasks.add(command);
+            }
+        });
+
+        adalCache.save(mStrategy, mRequest, mResponse);
+
+        // Saved, with one sync task per cache left to the executor
+        assertEquals(1, mStorage.mPutStrings.size());
+        assertEquals(2, tasks.size());
+        assertEquals(0, failingCache.mCalls);
+        assertEquals(0, cache.mCalls);
+
+        for (final Runnable task : tasks) {
+            task.run();
+        }
+
+        assertEquals(1, failingCache.mCalls);
+        assertEquals(1, cache.mCalls);
+        assertSame(mRefreshToken, cache.mRefreshToken);
+        assertEquals(ENVIRONMENT, cache.mAccount.getEnvironment());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("Failed to sync SSO state to a cache."));
+        assertNotEquals(0, mStorage.getAll().size());
+    }
+
+    private ADALOAuth2TokenCache createCache(
+            final List<IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken>> sharedSSOCaches) {
+        return new ADALOAuth2TokenCache(InstrumentationRegistry.getTargetContext(), mStorage, sharedSSOCaches);
+    }
+
+    private void setTokens(final String accessToken, final String refreshToken) {
+        when(mAccessToken.getAccessToken()).thenReturn(accessToken);
+        when(mRefreshToken.getRefreshToken()).thenReturn(refreshToken);
+    }
+
+    private AzureActiveDirectoryAccount createAccount() {
+        return mStrategy.createAccount(mResponse);
+    }
+
+    private static AccountRecord createAccountRecord() {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(OBJECT_ID + "." + TENANT_ID);
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(TENANT_ID);
+        account.setLocalAccountId(OBJECT_ID);
+        account.setUsername(USERNAME);
+        return account;
+    }
+
+    private static JsonObject parse(final String json) {
+        return new JsonParser().parse(json).getAsJsonObject();
+    }
+
+    private static String createRawIdToken() {
+        final JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("HKZpfaHyWadeOouYlitjrI-KffTm222X5rrV3xDqfKQ")
+                .audience(CLIENT_ID)
+                .claim("oid", OBJECT_ID)
+                .claim("tid", TENANT_ID)
+                .claim("upn", USERNAME)
+                .build();
+
+        return new PlainJWT(claims).serialize();
+    }
+
+    /**
+     * Records the writes and full reads made through it.
+     */
+    private static final class RecordingSharedPreferencesFileManager implements ISharedPreferencesFileManager {
+        private final ISharedPreferencesFileManager mDelegate;
+        private final List<Map<String, String>> mPutStrings = new ArrayList<>();
+        private int mPutStringCount;
+        private int mGetAllCount;
+
+        RecordingSharedPreferencesFileManager(final ISharedPreferencesFileManager delegate) {
+            mDelegate = delegate;
+        }
+
+        @Override
+        public void putString(final String key, final String value) {
+            mPutStringCount++;
+            mDelegate.putString(key, value);
+        }
+
+        @Override
+        public void putStrings(final Map<String, String> entries) {
+            mPutStrings.add(new HashMap<>(entries));
+            mDelegate.putStrings(entries);
+        }
+
+        @Override
+        public String getString(final String key) {
+            return mDelegate.getString(key);
+        }
+
+        @Override
+        public String getSharedPreferencesFileName() {
+            return mDelegate.getSharedPreferencesFileName();
+        }
+
+        @Override
+        public Map<String, String> getAll() {
+            mGetAllCount++;
+            return mDelegate.getAll();
+        }
+
+        @Override
+        public Set<String> getKeys() {
+            return mDelegate.getKeys();
+        }
+
+        @Override
+        public boolean contains(final String key) {
+            return mDelegate.contains(key);
+        }
+
+        @Override
+        public void clear() {
+            mDelegate.clear();
+        }
+
+        @Override
+        public void remove(final String key) {
+            mDelegate.remove(key);
+        }
+    }
+
+    private static final class RecordingSingleSignOnState
+            implements IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken> {
+        private final boolean mFails;
+        private int mCalls;
+        private MicrosoftAccount mAccount;
+        private MicrosoftRefreshToken mRefreshToken;
+
+        RecordingSingleSignOnState(final boolean fails) {
+            mFails = fails;
+        }
+
+        @Override
+        public void setSingleSignOnState(final MicrosoftAccount account, final MicrosoftRefreshToken refreshToken) {
+            mCalls++;
+            mAccount = account;
+            mRefreshToken = refreshToken;
+            if (mFails) {
+                throw new IllegalStateException("Unable to save the SSO state.");
+            }
+        }
+
+        @Override
+        public MicrosoftRefreshToken getSingleSignOnState(final MicrosoftAccount account) {
+            return null;
+        }
+    }
+}
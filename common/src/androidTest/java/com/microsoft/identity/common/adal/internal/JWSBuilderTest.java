@@ -0,0 +1,155 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.adal.internal;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Base64;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+import java.nio.charset.Charset;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(AndroidJUnit4.class)
+public class JWSBuilderTest {
+
+    private static final String NONCE = "nonce";
+    private static final String AUDIENCE = "https://login.microsoftonline.com/common/oauth2/token";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static KeyPair sKeyPair;
+
+    private final JWSBuilder mJwsBuilder = new JWSBuilder();
+    private X509Certificate mCertificate;
+    private String mThumbprint;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        sKeyPair = keyPairGenerator.generateKeyPair();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mCertificate = createCertificate();
+        // The header cache is static, so every test uses certificates of its own
+        mThumbprint = UUID.randomUUID().toString();
+    }
+
+    @Test
+    public void testHeaderReusedForThumbprint() throws Exception {
+        final String first = generate(mCertificate, mThumbprint);
+        final String second = generate(mCertificate, mThumbprint);
+
+        assertEquals(first.split("\\.")[0], second.split("\\.")[0]);
+        verify(mCertificate, times(1)).getEncoded();
+    }
+
+    @Test
+    public void testHeaderNotReusedWithoutThumbprint() throws Exception {
+        generate(mCertificate, null);
+        generate(mCertificate, null);
+
+        verify(mCertificate, times(2)).getEncoded();
+    }
+
+    @Test
+    public void testCachedOutputMatchesUncached() throws Exception {
+        // Warm the cache so the second token below is built from the cached header
+        generate(mCertificate, mThumbprint);
+
+        String uncached;
+        String cached;
+        do {
+            // RS256 signatures are deterministic, so only a change of iat can tell them apart
+            uncached = generate(mCertificate, null);
+            cached = generate(mCertificate, mThumbprint);
+        } while (!uncached.split("\\.")[1].equals(cached.split("\\.")[1]));
+
+        assertEquals(uncached, cached);
+        verify(mCertificate, times(2)).getEncoded();
+    }
+
+    @Test
+    public void testSignatureVerifies() throws Exception {
+        generate(mCertificate, mThumbprint);
+        final String jwt = generate(mCertificate, mThumbprint);
+
+        final int signatureStart = jwt.lastIndexOf('.');
+        final Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(sKeyPair.getPublic());
+        verifier.update(jwt.substring(0, signatureStart).getBytes(UTF8));
+
+        assertTrue(verifier.verify(Base64.decode(
+                jwt.substring(signatureStart + 1),
+                Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP
+        )));
+    }
+
+    @Test
+    public void testHeaderCacheIsBounded() throws Exception {
+        generate(mCertificate, mThumbprint);
+
+        // Enough other certificates to push the first one out of the cache
+        for (int i = 0; i < 8; i++) {
+            generate(createCertificate(), UUID.randomUUID().toString());
+        }
+        generate(mCertificate, mThumbprint);
+
+        verify(mCertificate, times(2)).getEncoded();
+    }
+
+    private String generate(final X509Certificate certificate, final String thumbprint) throws Exception {
+        return mJwsBuilder.generateSignedJWT(
+                NONCE,
+                AUDIENCE,
+                (RSAPrivateKey) sKeyPair.getPrivate(),
+                (RSAPublicKey) sKeyPair.getPublic(),
+                certificate,
+                thumbprint
+        );
+    }
+
+    private static X509Certificate createCertificate() throws Exception {
+        final X509Certificate certificate = Mockito.mock(X509Certificate.class);
+        when(certificate.getEncoded()).thenReturn(UUID.randomUUID().toString().getBytes(UTF8));
+        return certificate;
+    }
+}
@@ -0,0 +1,208 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.broker;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.Signature;
+import android.net.Uri;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Base64;
+
+import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.lang.reflect.Field;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(AndroidJUnit4.class)
+public class BrokerValidatorTest {
+
+    private static final String BROKER_PACKAGE_NAME = "com.microsoft.windowsintune.companyportal";
+
+    /**
+     * A self-signed certificate standing in for the broker signing certificate.
+     */
+    private static final String BROKER_CERTIFICATE = ""
+            + "MIIB0TCCATqgAwIBAgIJAKaSuxgbiXr9MA0GCSqGSIb3DQEBCwUAMBgxFjAUBgNVBAMTDUJyb2tl"
+            + "ciBUZXN0IDEwIBcNMjYxMDE5MTQzMTEyWhgPMjEyNjA5MjUxNDMxMTJaMBgxFjAUBgNVBAMTDUJy"
+            + "b2tlciBUZXN0IDEwgZ8wDQYJKoZIhvcNAQEBBQADgY0AMIGJAoGBAJKyJ4EflM2u4ArtTJl75G0m"
+            + "4vur6JbtgVRs/qsSW8JpEPsBXGegzmNlZq2/GOm6xmmlqoChgGypf48aJpGw10QcxfNjMAmewsP5"
+            + "gpgDreSJrZpOLTRVFtBhZ9KQvIzXYhw4nROBsGkG9VpuxKfeuwPZOeFVGDBGc0Ab+5PvldZFAgMB"
+            + "AAGjITAfMB0GA1UdDgQWBBRBywxaN1BciGmrNikq1vGsY7yj+jANBgkqhkiG9w0BAQsFAAOBgQB8"
+            + "YYhFROuf82A6SsqWQl5p7DeQ1YftqjjkCNoDwQocYqUxOsm+MhnFQwlRvVV6ZDK2BsbLNxJVxZwj"
+            + "ogYfaAdaLBV9AL7BdU3yESavV5XKaSwezimQDzWmNLEyszIo1l7xNX8sOIYfXLUB5jovRHBNqknj"
+            + "tuT71dy81EKviELrtw==";
+
+    /**
+     * A self-signed certificate which is not trusted.
+     */
+    private static final String OTHER_CERTIFICATE = ""
+            + "MIIB0TCCATqgAwIBAgIJAN0v0OzECwKxMA0GCSqGSIb3DQEBCwUAMBgxFjAUBgNVBAMTDUJyb2tl"
+            + "ciBUZXN0IDIwIBcNMjYxMDE5MTQzMTE0WhgPMjEyNjA5MjUxNDMxMTRaMBgxFjAUBgNVBAMTDUJy"
+            + "b2tlciBUZXN0IDIwgZ8wDQYJKoZIhvcNAQEBBQADgY0AMIGJAoGBAIyISlo++ZS7f2xajmtsuloa"
+            + "vReUsVlP3rihFRUmI0G2M4dJs8C9VUnLUWfd9vFfj0KXF7uCqg6W0tcGJomfSlCGDBDVrzwMwUFB"
+            + "XSPYkJW7iKlZnjaKDsSQ64T+mqyK+7Pzmzwu4Fchzyqz4tlOXUht4V4UHQfWaZUCdxXubWR7AgMB"
+            + "AAGjITAfMB0GA1UdDgQWBBSLYfnnolG4imPJ6sufQOvnJyiv7zANBgkqhkiG9w0BAQsFAAOBgQA7"
+            + "yeo3Lgv7pN6JKPQVRL9KYnQQo8eeWsnKURmCe0z1ZHrD1LdrRDTnJnpkLmC6OKhg8VuOZDv4H1Z2"
+            + "AelkCCg12vJYUqSVWlwVw29/QvKCi2AuKkUq9tmEwWaGrclorq0+zos/Jhgh/dlbJhzSwPQz1rXo"
+            + "HcN3LwIyVJ9d8n/UEw==";
+
+    private String mBrokerSignature;
+    private Context mContext;
+    private PackageManager mPackageManager;
+    private PackageInfo mPackageInfo;
+
+    @Before
+    public void setUp() throws Exception {
+        mBrokerSignature = AuthenticationSettings.INSTANCE.getBrokerSignature();
+        AuthenticationSettings.INSTANCE.setBrokerSignature(signatureHash(BROKER_CERTIFICATE));
+        BrokerValidator.clearCache();
+        // The package receiver is registered once per process; register it again on the mock
+        setPackageReceiverRegistered(false);
+
+        mPackageInfo = new PackageInfo();
+        mPackageInfo.packageName = BROKER_PACKAGE_NAME;
+        mPackageInfo.lastUpdateTime = 1000L;
+        mPackageInfo.versionCode = 1;
+        mPackageInfo.signatures = new Signature[]{new Signature(Base64.decode(BROKER_CERTIFICATE, Base64.DEFAULT))};
+
+        mPackageManager = Mockito.mock(PackageManager.class);
+        when(mPackageManager.getPackageInfo(BROKER_PACKAGE_NAME, 0)).thenReturn(mPackageInfo);
+        when(mPackageManager.getPackageInfo(BROKER_PACKAGE_NAME, PackageManager.GET_SIGNATURES)).thenReturn(mPackageInfo);
+
+        mContext = Mockito.mock(Context.class);
+        when(mContext.getPackageManager()).thenReturn(mPackageManager);
+        when(mContext.getApplicationContext()).thenReturn(mContext);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AuthenticationSettings.INSTANCE.setBrokerSignature(mBrokerSignature);
+        BrokerValidator.clearCache();
+        setPackageReceiverRegistered(false);
+    }
+
+    @Test
+    public void testCacheHit() throws Exception {
+        final BrokerValidator brokerValidator = new BrokerValidator(mContext);
+
+        assertTrue(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+        assertTrue(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+        assertTrue(new BrokerValidator(mContext).verifySignature(BROKER_PACKAGE_NAME));
+
+        verify(mPackageManager, times(1)).getPackageInfo(BROKER_PACKAGE_NAME, PackageManager.GET_SIGNATURES);
+    }
+
+    @Test
+    public void testRevalidatedAfterLastUpdateTimeChange() throws Exception {
+        final BrokerValidator brokerValidator = new BrokerValidator(mContext);
+        assertTrue(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+
+        mPackageInfo.lastUpdateTime++;
+
+        assertTrue(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+        verify(mPackageManager, times(2)).getPackageInfo(BROKER_PACKAGE_NAME, PackageManager.GET_SIGNATURES);
+    }
+
+    @Test
+    public void testRevalidatedAfterVersionCodeChange() throws Exception {
+        final BrokerValidator brokerValidator = new BrokerValidator(mContext);
+        assertTrue(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+
+        mPackageInfo.versionCode++;
+
+        assertTrue(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+        verify(mPackageManager, times(2)).getPackageInfo(BROKER_PACKAGE_NAME, PackageManager.GET_SIGNATURES);
+    }
+
+    @Test
+    public void testRejectedAfterSignatureChange() throws Exception {
+        final BrokerValidator brokerValidator = new BrokerValidator(mContext);
+        assertTrue(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+
+        // A package signed with another certificate replaces the broker
+        mPackageInfo.lastUpdateTime++;
+        mPackageInfo.signatures = new Signature[]{new Signature(Base64.decode(OTHER_CERTIFICATE, Base64.DEFAULT))};
+
+        assertFalse(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+        // The rejection is not cached as a success either
+        assertFalse(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+    }
+
+    @Test
+    public void testPackageReplacedBroadcastInvalidatesCache() throws Exception {
+        assertPackageBroadcastInvalidatesCache(Intent.ACTION_PACKAGE_REPLACED);
+    }
+
+    @Test
+    public void testPackageRemovedBroadcastInvalidatesCache() throws Exception {
+        assertPackageBroadcastInvalidatesCache(Intent.ACTION_PACKAGE_REMOVED);
+    }
+
+    private void assertPackageBroadcastInvalidatesCache(final String action) throws Exception {
+        final BrokerValidator brokerValidator = new BrokerValidator(mContext);
+        final ArgumentCaptor<BroadcastReceiver> receiver = ArgumentCaptor.forClass(BroadcastReceiver.class);
+        verify(mContext).registerReceiver(receiver.capture(), any(IntentFilter.class));
+        assertTrue(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+
+        // A broadcast for another package leaves the cached validation alone
+        receiver.getValue().onReceive(mContext, new Intent(action, Uri.parse("package:com.contoso.app")));
+        assertTrue(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+        verify(mPackageManager, times(1)).getPackageInfo(BROKER_PACKAGE_NAME, PackageManager.GET_SIGNATURES);
+
+        // The package info is unchanged, so only the broadcast can drop the cached validation
+        receiver.getValue().onReceive(mContext, new Intent(action, Uri.parse("package:" + BROKER_PACKAGE_NAME)));
+        assertTrue(brokerValidator.verifySignature(BROKER_PACKAGE_NAME));
+        verify(mPackageManager, times(2)).getPackageInfo(BROKER_PACKAGE_NAME, PackageManager.GET_SIGNATURES);
+    }
+
+    private static String signatureHash(final String encodedCertificate) throws Exception {
+        final MessageDigest messageDigest = MessageDigest.getInstance("SHA");
+        messageDigest.update(Base64.decode(encodedCertificate, Base64.DEFAULT));
+        return Base64.encodeToString(messageDigest.digest(), Base64.NO_WRAP);
+    }
+
+    private static void setPackageReceiverRegistered(final boolean registered) throws Exception {
+        final Field field = BrokerValidator.class.getDeclaredField("sPackageReceiverRegistered");
+        field.setAccessible(true);
+        field.setBoolean(null, registered);
+    }
+}
@@ -0,0 +1,176 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.broker;
+
+import android.accounts.AccountManager;
+import android.accounts.AuthenticatorDescription;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@RunWith(AndroidJUnit4.class)
+public class MicrosoftAuthServiceHandlerTest {
+
+    private static final String BROKER_PACKAGE_NAME = "com.microsoft.identity.testbroker";
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final AtomicReference<CountDownLatch> mCallStarted = new AtomicReference<>();
+    private final AtomicReference<CountDownLatch> mCallReleased = new AtomicReference<>();
+    private final AtomicReference<Thread> mCallThread = new AtomicReference<>();
+    private final Bundle mCapabilities = new Bundle();
+    private Context mContext;
+
+    @Before
+    public void setUp() throws Exception {
+        final IMicrosoftAuthService authService = Mockito.mock(IMicrosoftAuthService.class);
+        when(authService.getCapabilities()).thenAnswer(new Answer<Bundle>() {
+            @Override
+            public Bundle answer(final InvocationOnMock invocation) throws Throwable {
+                // Stands in for a binder transaction which only returns once released
+                mCallThread.set(Thread.currentThread());
+                mCallStarted.get().countDown();
+                mCallReleased.get().await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                return mCapabilities;
+            }
+        });
+
+        final IBinder binder = Mockito.mock(IBinder.class);
+        when(binder.queryLocalInterface(anyString())).thenReturn(authService);
+
+        final AccountManager accountManager = Mockito.mock(AccountManager.class);
+        when(accountManager.getAuthenticatorTypes()).thenReturn(new AuthenticatorDescription[]{
+                new AuthenticatorDescription(AuthenticationConstants.Broker.BROKER_ACCOUNT_TYPE, BROKER_PACKAGE_NAME, 0, 0, 0, 0)
+        });
+
+        mContext = Mockito.mock(Context.class);
+        when(mContext.getApplicationContext()).thenReturn(mContext);
+        when(mContext.getSystemService(Context.ACCOUNT_SERVICE)).thenReturn(accountManager);
+        when(mContext.bindService(any(Intent.class), any(ServiceConnection.class), anyInt())).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(final InvocationOnMock invocation) {
+                final Intent intent = invocation.getArgument(0);
+                final ServiceConnection connection = invocation.getArgument(1);
+                // The system connects services on the main thread
+                new Handler(Looper.getMainLooper()).post(new Runnable() {
+                    @Override
+                    public void run() {
+                        connection.onServiceConnected(intent.getComponent(), binder);
+                    }
+                });
+                return true;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        final CountDownLatch released = mCallReleased.get();
+        if (released != null) {
+            released.countDown();
+        }
+    }
+
+    @Test
+    public void testReusedConnectionDoesNotCallOnCallingThread() throws Exception {
+        final MicrosoftAuthServiceHandler handler = MicrosoftAuthServiceHandler.getInstance();
+
+        // The first call binds and leaves the binding alive for the next one
+        mCallStarted.set(new CountDownLatch(1));
+        mCallReleased.set(new CountDownLatch(0));
+        assertSame(mCapabilities, handler.getCapabilities(mContext));
+
+        mCallStarted.set(new CountDownLatch(1));
+        mCallReleased.set(new CountDownLatch(1));
+        final RecordingCallback callback = new RecordingCallback();
+        final Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                handler.getCapabilities(mContext, callback);
+            }
+        });
+        caller.start();
+
+        // The caller returns while the broker call is still blocked
+        caller.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(caller.isAlive());
+        assertTrue(mCallStarted.get().await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNotSame(caller, mCallThread.get());
+        assertEquals(1, callback.mCompleted.getCount());
+
+        mCallReleased.get().countDown();
+        assertTrue(callback.mCompleted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(callback.mThrowable);
+        assertSame(mCapabilities, callback.mResult);
+        Mockito.verify(mContext, Mockito.times(1))
+                .bindService(any(Intent.class), any(ServiceConnection.class), anyInt());
+    }
+
+    private static final class RecordingCallback implements Callback<Bundle> {
+        private final CountDownLatch mCompleted = new CountDownLatch(1);
+        private volatile Bundle mResult;
+        private volatile Throwable mThrowable;
+
+        @Override
+        public void onSuccess(final Bundle result) {
+            mResult = result;
+            mCompleted.countDown();
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            mThrowable = throwable;
+            mCompleted.countDown();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.ui.browser;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.content.pm.Signature;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(AndroidJUnit4.class)
+public class BrowserSelectorTest {
+
+    private static final String CHROME = "com.android.chrome";
+    private static final String FIREFOX = "org.mozilla.firefox";
+
+    private Context mContext;
+    private PackageManager mPackageManager;
+
+    @Before
+    public void setUp() throws Exception {
+        BrowserSelector.invalidate();
+
+        mPackageManager = Mockito.mock(PackageManager.class);
+        when(mPackageManager.getPackageInfo(anyString(), anyInt())).thenAnswer(new Answer<PackageInfo>() {
+            @Override
+            public PackageInfo answer(final InvocationOnMock invocation) {
+                final PackageInfo packageInfo = new PackageInfo();
+                packageInfo.packageName = invocation.getArgument(0);
+                packageInfo.versionName = "1.0";
+                packageInfo.signatures = new Signature[]{new Signature(new byte[]{1, 2, 3})};
+                return packageInfo;
+            }
+        });
+        when(mPackageManager.queryIntentServices(any(Intent.class), anyInt()))
+                .thenReturn(Collections.<ResolveInfo>emptyList());
+
+        mContext = Mockito.mock(Context.class);
+        when(mContext.getApplicationContext()).thenReturn(mContext);
+        when(mContext.getPackageManager()).thenReturn(mPackageManager);
+    }
+
+    @After
+    public void tearDown() {
+        BrowserSelector.invalidate();
+    }
+
+    @Test
+    public void testBrowsersAreCachedUntilInvalidated() {
+        setDefaultBrowser(CHROME);
+        setInstalledBrowsers(CHROME, FIREFOX);
+
+        final List<Browser> browsers = BrowserSelector.getAllBrowsers(mContext);
+        assertEquals(2, browsers.size());
+        assertSame(browsers, BrowserSelector.getAllBrowsers(mContext));
+        verify(mPackageManager, times(1)).queryIntentActivities(any(Intent.class), anyInt());
+
+        BrowserSelector.invalidate();
+        assertNotSame(browsers, BrowserSelector.getAllBrowsers(mContext));
+        verify(mPackageManager, times(2)).queryIntentActivities(any(Intent.class), anyInt());
+    }
+
+    @Test
+    public void testDefaultBrowserChangeQueriesAgain() {
+        setDefaultBrowser(CHROME);
+        setInstalledBrowsers(CHROME, FIREFOX);
+        assertEquals(CHROME, BrowserSelector.getAllBrowsers(mContext).get(0).getPackageName());
+
+        // Changing the default browser does not broadcast a package change
+        setDefaultBrowser(FIREFOX);
+        setInstalledBrowsers(FIREFOX, CHROME);
+        assertEquals(FIREFOX, BrowserSelector.getAllBrowsers(mContext).get(0).getPackageName());
+        verify(mPackageManager, times(2)).queryIntentActivities(any(Intent.class), anyInt());
+    }
+
+    @Test
+    public void testQueryRacingWithInvalidateIsNotCached() {
+        setDefaultBrowser(CHROME);
+        final List<ResolveInfo> installed = Arrays.asList(createBrowser(CHROME), createBrowser(FIREFOX));
+        when(mPackageManager.queryIntentActivities(any(Intent.class), anyInt()))
+                .thenAnswer(new Answer<List<ResolveInfo>>() {
+                    @Override
+                    public List<ResolveInfo> answer(final InvocationOnMock invocation) {
+                        // A package change arrives while the query is running
+                        BrowserSelector.invalidate();
+                        return installed;
+                    }
+                })
+                .thenReturn(installed);
+
+        assertEquals(2, BrowserSelector.getAllBrowsers(mContext).size());
+
+        final List<Browser> browsers = BrowserSelector.getAllBrowsers(mContext);
+        assertSame(browsers, BrowserSelector.getAllBrowsers(mContext));
+        verify(mPackageManager, times(2)).queryIntentActivities(any(Intent.class), anyInt());
+    }
+
+    private void setDefaultBrowser(final String packageName) {
+        when(mPackageManager.resolveActivity(any(Intent.class), anyInt())).thenReturn(createBrowser(packageName));
+    }
+
+    private void setInstalledBrowsers(final String... packageNames) {
+        final ResolveInfo[] browsers = new ResolveInfo[packageNames.length];
+        for (int i = 0; i < packageNames.length; i++) {
+            browsers[i] = createBrowser(packageNames[i]);
+        }
+        when(mPackageManager.queryIntentActivities(any(Intent.class), anyInt())).thenReturn(Arrays.asList(browsers));
+    }
+
+    private static ResolveInfo createBrowser(final String packageName) {
+        final IntentFilter filter = new IntentFilter(Intent.ACTION_VIEW);
+        filter.addCategory(Intent.CATEGORY_BROWSABLE);
+        filter.addDataScheme("http");
+        filter.addDataScheme("https");
+
+        final ResolveInfo resolveInfo = new ResolveInfo();
+        resolveInfo.filter = filter;
+        resolveInfo.activityInfo = new ActivityInfo();
+        resolveInfo.activityInfo.packageName = packageName;
+        return resolveInfo;
+    }
+}
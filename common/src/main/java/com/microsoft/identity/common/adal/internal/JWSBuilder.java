@@ -23,6 +23,7 @@
 
 package com.microsoft.identity.common.adal.internal;
 
+import android.support.annotation.Nullable;
 import android.util.Base64;
 
 import com.google.gson.Gson;
@@ -41,6 +42,8 @@ import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * JWS response builder for certificate challenge response.
@@ -60,6 +63,26 @@ public class JWSBuilder {
 
     private static final String TAG = "JWSBuilder";
 
+    private static final Gson GSON = new Gson();
+
+    /**
+     * A device normally has a single workplace join certificate, so only a few headers are kept.
+     */
+    private static final int MAX_CACHED_HEADERS = 4;
+
+    /**
+     * BASE64URL(UTF8(JWS Protected Header)) per certificate thumbprint, least recently used first.
+     * The header only depends on the certificate, so it is built and encoded once rather than for
+     * every challenge.
+     */
+    private static final Map<String, String> sEncodedHeaderCache =
+            new LinkedHashMap<String, String>(MAX_CACHED_HEADERS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+                    return size() > MAX_CACHED_HEADERS;
+                }
+            };
+
     /**
      * Payload for JWS.
      */
@@ -107,6 +130,18 @@ public class JWSBuilder {
      */
     public String generateSignedJWT(String nonce, String audience, RSAPrivateKey privateKey,
                                     RSAPublicKey pubKey, X509Certificate cert) throws ClientException {
+        return generateSignedJWT(nonce, audience, privateKey, pubKey, cert, null);
+    }
+
+    /**
+     * Generate the signed JWT, reusing the encoded header of a certificate seen before.
+     *
+     * @param certThumbprint the thumbprint of the certificate, under which its encoded header is
+     *                       cached, or null to encode the header every time
+     */
+    public String generateSignedJWT(String nonce, String audience, RSAPrivateKey privateKey,
+                                    RSAPublicKey pubKey, X509Certificate cert,
+                                    @Nullable String certThumbprint) throws ClientException {
         // http://tools.ietf.org/html/draft-ietf-jose-json-web-signature-25
         // In the JWS Compact Serialization, a JWS object is represented as the
         // combination of these three string values,
@@ -116,7 +151,6 @@ public class JWSBuilder {
         // concatenated in that order, with the three strings being separated by
         // two period ('.') characters.
         // Base64 encoding without padding, wrapping and urlsafe.
-        final String methodName = ":generateSignedJWT";
         if (StringExtensions.isNullOrBlank(nonce)) {
             throw new IllegalArgumentException("nonce");
         }
@@ -130,39 +164,16 @@ public class JWSBuilder {
             throw new IllegalArgumentException("pubKey");
         }
 
-        Gson gson = new Gson();
-        Claims claims = new Claims();
+        final Claims claims = new Claims();
         claims.mNonce = nonce;
         claims.mAudience = audience;
         claims.mIssueAt = System.currentTimeMillis() / SECONDS_MS;
 
-        JwsHeader header = new JwsHeader();
-        header.mAlgorithm = JWS_HEADER_ALG;
-        header.mType = "JWT"; // recommended UpperCase in JWT Spec
-
         final String signingInput;
         final String signature;
         try {
-
-            // Server side expects x5c in the header to verify the signer and
-            // lookup the certificate from device registration
-            // Each string in the array is a base64
-            // encoded ([RFC4648] Section 4 -- not base64url encoded) DER
-            // [ITU.X690.1994] PKIX certificate value. The certificate
-            // containing the public key corresponding to the key used
-            // to digitally sign the JWS MUST be the first certificate
-            // http://tools.ietf.org/html/draft-ietf-jose-json-web-signature-27
-            header.mCert = new String[1];
-            header.mCert[0] = new String(Base64.encode(cert.getEncoded(), Base64.NO_WRAP),
-                    AuthenticationConstants.ENCODING_UTF8);
-
-            // redundant but current ADFS code base is looking for
-            String headerJsonString = gson.toJson(header);
-            String claimsJsonString = gson.toJson(claims);
-            Logger.verbosePII(TAG + methodName, "Generate client certificate challenge response JWS Header. ",
-                    "Header: " + headerJsonString);
-            signingInput = StringExtensions.encodeBase64URLSafeString(headerJsonString
-                    .getBytes(AuthenticationConstants.ENCODING_UTF8))
+            final String claimsJsonString = GSON.toJson(claims);
+            signingInput = getEncodedHeader(cert, certThumbprint)
                     + "."
                     + StringExtensions.encodeBase64URLSafeString(claimsJsonString
                     .getBytes(AuthenticationConstants.ENCODING_UTF8));
@@ -179,6 +190,68 @@ public class JWSBuilder {
         return signingInput + "." + signature;
     }
 
+    /**
+     * Returns the encoded JWS header for the certificate, building it on first use of the
+     * thumbprint.
+     *
+     * @param cert           the certificate to put in the x5c header
+     * @param certThumbprint the thumbprint of the certificate, or null to skip the cache
+     * @return BASE64URL(UTF8(JWS Protected Header))
+     */
+    private String getEncodedHeader(final X509Certificate cert, @Nullable final String certThumbprint)
+            throws CertificateEncodingException, UnsupportedEncodingException {
+        if (StringExtensions.isNullOrBlank(certThumbprint)) {
+            return encodeHeader(cert);
+        }
+
+        synchronized (sEncodedHeaderCache) {
+            final String cachedHeader = sEncodedHeaderCache.get(certThumbprint);
+            if (cachedHeader != null) {
+                return cachedHeader;
+            }
+        }
+
+        final String encodedHeader = encodeHeader(cert);
+        synchronized (sEncodedHeaderCache) {
+            sEncodedHeaderCache.put(certThumbprint, encodedHeader);
+        }
+
+        return encodedHeader;
+    }
+
+    /**
+     * Builds and encodes the JWS header for the certificate.
+     *
+     * @param cert the certificate to put in the x5c header
+     * @return BASE64URL(UTF8(JWS Protected Header))
+     */
+    private String encodeHeader(final X509Certificate cert)
+            throws CertificateEncodingException, UnsupportedEncodingException {
+        final String methodName = ":encodeHeader";
+        final JwsHeader header = new JwsHeader();
+        header.mAlgorithm = JWS_HEADER_ALG;
+        header.mType = "JWT"; // recommended UpperCase in JWT Spec
+
+        // Server side expects x5c in the header to verify the signer and
+        // lookup the certificate from device registration
+        // Each string in the array is a base64
+        // encoded ([RFC4648] Section 4 -- not base64url encoded) DER
+        // [ITU.X690.1994] PKIX certificate value. The certificate
+        // containing the public key corresponding to the key used
+        // to digitally sign the JWS MUST be the first certificate
+        // http://tools.ietf.org/html/draft-ietf-jose-json-web-signature-27
+        header.mCert = new String[1];
+        header.mCert[0] = new String(Base64.encode(cert.getEncoded(), Base64.NO_WRAP),
+                AuthenticationConstants.ENCODING_UTF8);
+
+        // redundant but current ADFS code base is looking for
+        final String headerJsonString = GSON.toJson(header);
+        Logger.verbosePII(TAG + methodName, "Generate client certificate challenge response JWS Header. ",
+                "Header: " + headerJsonString);
+        return StringExtensions.encodeBase64URLSafeString(headerJsonString
+                .getBytes(AuthenticationConstants.ENCODING_UTF8));
+    }
+
     /**
      * Signs the input with the private key.
      *
@@ -34,6 +34,8 @@ import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
 import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -165,6 +167,7 @@ public class StorageHelper implements IStorageHelper {
     public String encrypt(final String clearText)
             throws GeneralSecurityException, IOException {
         Log.v(TAG, "Starting encryption");
+        final long startTime = Metrics.startTimer();
 
         if (StringExtensions.isNullOrBlank(clearText)) {
             throw new IllegalArgumentException("Input is empty or null");
@@ -213,6 +216,7 @@ public class StorageHelper implements IStorageHelper {
         final String encryptedText = new String(Base64.encode(blobVerAndEncryptedDataAndIVAndMacDigest,
                 Base64.NO_WRAP), AuthenticationConstants.ENCODING_UTF8);
         Log.v(TAG, "Finished encryption");
+        Metrics.stopTimer(MetricNames.CRYPTO_ENCRYPT_TIME, startTime);
 
         return getEncodeVersionLengthPrefix() + ENCODE_VERSION + encryptedText;
     }
@@ -221,6 +225,7 @@ public class StorageHelper implements IStorageHelper {
     public String decrypt(final String encryptedBlob)
             throws GeneralSecurityException, IOException {
         Log.v(TAG, "Starting decryption");
+        final long startTime = Metrics.startTimer();
 
         if (StringExtensions.isNullOrBlank(encryptedBlob)) {
             throw new IllegalArgumentException("Input is empty or null");
@@ -281,6 +286,7 @@ public class StorageHelper implements IStorageHelper {
         final String decrypted = new String(cipher.doFinal(bytes, KEY_VERSION_BLOB_LENGTH,
                 encryptedLength), AuthenticationConstants.ENCODING_UTF8);
         Log.v(TAG, "Finished decryption");
+        Metrics.stopTimer(MetricNames.CRYPTO_DECRYPT_TIME, startTime);
         return decrypted;
     }
 
@@ -279,4 +279,20 @@ public final class ErrorStrings {
      * No available browser installed on the device.
      */
     public static final String NO_AVAILABLE_BROWSER_FOUND = "No available browser installed on the device.";
+
+    /**
+     * No refresh token was found in the cache for the requested account.
+     */
+    public static final String NO_TOKENS_FOUND = "no_tokens_found";
+
+    /**
+     * The authorization request did not return an authorization code.
+     */
+    public static final String AUTHORIZATION_FAILED = "authorization_failed";
+
+    /**
+     * The redeemed tokens were not saved, e.g. because the account was removed while they were
+     * being requested.
+     */
+    public static final String TOKENS_DISCARDED = "tokens_discarded";
 }
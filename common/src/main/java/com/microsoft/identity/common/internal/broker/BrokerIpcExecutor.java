@@ -0,0 +1,109 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.broker;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.internal.logging.RequestContextPropagator;
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor for broker IPC calls which records how long tasks wait in its queue.
+ * <p>
+ * A hung broker process can only tie up {@link #MAX_THREADS} threads; once the queue is full
+ * further tasks are rejected instead of piling up more threads. Tasks run with the
+ * DiagnosticContext of the thread which submitted them.
+ */
+final class BrokerIpcExecutor extends ThreadPoolExecutor {
+    private static final String TAG = BrokerIpcExecutor.class.getSimpleName();
+
+    /**
+     * Maximum number of threads making broker calls at the same time.
+     */
+    static final int MAX_THREADS = 4;
+
+    /**
+     * Maximum number of broker calls waiting for a thread.
+     */
+    static final int QUEUE_CAPACITY = 32;
+
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    BrokerIpcExecutor() {
+        super(
+                MAX_THREADS,
+                MAX_THREADS,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY),
+                new BrokerThreadFactory()
+        );
+        allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(@NonNull final Runnable command) {
+        final long enqueuedTime = Metrics.startTimer();
+        final Runnable task = RequestContextPropagator.wrap(command);
+        if (Metrics.isEnabled()) {
+            Metrics.recordValue(MetricNames.BROKER_QUEUE_DEPTH, getQueue().size());
+        }
+
+        try {
+            super.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Metrics.stopTimer(MetricNames.BROKER_QUEUE_WAIT_TIME, enqueuedTime);
+                    if (Metrics.isEnabled()) {
+                        // getActiveCount() takes the pool's main lock, so skip it when not measured
+                        Metrics.recordValue(MetricNames.BROKER_ACTIVE_THREADS, getActiveCount());
+                    }
+
+                    task.run();
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            Metrics.increment(MetricNames.BROKER_CALLS_REJECTED);
+            throw e;
+        }
+    }
+
+    static class BrokerThreadFactory implements ThreadFactory {
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, TAG + "-" + mThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -23,11 +23,15 @@
 package com.microsoft.identity.common.internal.broker;
 
 import android.annotation.SuppressLint;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.Signature;
+import android.net.Uri;
 import android.util.Base64;
 
 import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
@@ -53,11 +57,21 @@ import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BrokerValidator {
 
     private static final String TAG = "BrokerValidator";
 
+    /**
+     * Successful validations per package name. An entry is only used while the installed package
+     * still has the same lastUpdateTime and versionCode, and is dropped when the package is
+     * replaced or removed.
+     */
+    private static final Map<String, ValidatedPackage> sValidatedPackages = new ConcurrentHashMap<>();
+    private static boolean sPackageReceiverRegistered;
+
     private final Context mContext;
     private final String mCompanyPortalSignature;
 
@@ -69,6 +83,14 @@ public class BrokerValidator {
     public BrokerValidator(final Context context) {
         mContext = context;
         mCompanyPortalSignature = AuthenticationSettings.INSTANCE.getBrokerSignature();
+        registerPackageReceiver(context);
+    }
+
+    /**
+     * Clears the cached validation results.
+     */
+    public static void clearCache() {
+        sValidatedPackages.clear();
     }
 
     /**
@@ -81,6 +103,15 @@ public class BrokerValidator {
     public boolean verifySignature(final String brokerPackageName) {
         final String methodName = ":verifySignature";
         try {
+            // Reading the package info without signatures is cheap; the certificates only need to
+            // be read and validated again when the package was updated since the last validation.
+            final PackageInfo packageInfo = mContext.getPackageManager().getPackageInfo(brokerPackageName, 0);
+            final ValidatedPackage validatedPackage = sValidatedPackages.get(brokerPackageName);
+            if (validatedPackage != null && validatedPackage.matches(packageInfo, mCompanyPortalSignature)) {
+                Logger.verbose(TAG + methodName, "Using the cached signature validation of the broker package.");
+                return true;
+            }
+
             // Read all the certificates associated with the package name. In higher version of
             // android sdk, package manager will only returned the cert that is used to sign the
             // APK. Even a cert is claimed to be issued by another certificates, sdk will return
@@ -97,6 +128,10 @@ public class BrokerValidator {
                 verifyCertificateChain(certs);
             }
 
+            if (packageInfo != null) {
+                sValidatedPackages.put(brokerPackageName, new ValidatedPackage(packageInfo, mCompanyPortalSignature));
+            }
+
             return true;
         } catch (NameNotFoundException e) {
             Logger.error(TAG + methodName, "Broker related package does not exist", e);
@@ -196,4 +231,56 @@ public class BrokerValidator {
 
         return selfSignedCert;
     }
+
+    private static synchronized void registerPackageReceiver(final Context context) {
+        final String methodName = ":registerPackageReceiver";
+        if (sPackageReceiverRegistered || context == null) {
+            return;
+        }
+
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addDataScheme("package");
+
+        try {
+            context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+                @Override
+                public void onReceive(final Context receiverContext, final Intent intent) {
+                    final Uri data = intent.getData();
+                    final String packageName = data == null ? null : data.getSchemeSpecificPart();
+                    if (packageName != null && sValidatedPackages.remove(packageName) != null) {
+                        Logger.verbose(TAG + methodName, "Broker package changed, dropping the cached signature validation.");
+                    }
+                }
+            }, filter);
+            sPackageReceiverRegistered = true;
+        } catch (final RuntimeException e) {
+            // Without the receiver the lastUpdateTime and versionCode checks still detect updates.
+            Logger.warn(TAG + methodName, "Unable to register the package change receiver: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The installed version of a package whose signature was validated.
+     */
+    private static final class ValidatedPackage {
+        private final long mLastUpdateTime;
+        private final int mVersionCode;
+        private final String mCompanyPortalSignature;
+
+        ValidatedPackage(final PackageInfo packageInfo, final String companyPortalSignature) {
+            mLastUpdateTime = packageInfo.lastUpdateTime;
+            mVersionCode = packageInfo.versionCode;
+            mCompanyPortalSignature = companyPortalSignature;
+        }
+
+        boolean matches(final PackageInfo packageInfo, final String companyPortalSignature) {
+            return packageInfo != null
+                    && packageInfo.lastUpdateTime == mLastUpdateTime
+                    && packageInfo.versionCode == mVersionCode
+                    && mCompanyPortalSignature.equals(companyPortalSignature);
+        }
+    }
 }
@@ -24,9 +24,9 @@
 package com.microsoft.identity.common.internal.broker;
 
 /**
- * internal Callback for handling asynchronous call.
+ * Callback for handling asynchronous call.
  */
-interface Callback<T> {
+public interface Callback<T> {
     /**
      * Will be invoked if event triggered is correctly processed.
      *
@@ -26,24 +26,30 @@ package com.microsoft.identity.common.internal.broker;
 import android.os.Handler;
 import android.os.Looper;
 
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
+import com.microsoft.identity.common.internal.logging.IRequestContext;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.logging.RequestContextPropagator;
 
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * ADAL internal class for handling callback to be executed on the correct thread and message queue.
+ * The callback runs with the {@link DiagnosticContext} of the thread which created this executor.
  */
 final class CallbackExecutor<T> {
     private static final String TAG = CallbackExecutor.class.getSimpleName();
 
     private final AtomicReference<Callback<T>> mCallbackReference = new AtomicReference<>(null);
     private final Handler mHandler;
+    private final IRequestContext mRequestContext;
 
     CallbackExecutor(final Callback<T> callback) {
         // check if the current thread has the looper; if so, create Handler with the current thread looper to send message
         // back to the correct thread.
         mHandler = Looper.myLooper() == null ? null : new Handler();
         mCallbackReference.set(callback);
+        mRequestContext = DiagnosticContext.snapshot();
     }
 
     public void onSuccess(final T result) {
@@ -53,15 +59,17 @@ final class CallbackExecutor<T> {
             return;
         }
 
+        final Runnable runnable = RequestContextPropagator.wrap(mRequestContext, new Runnable() {
+            @Override
+            public void run() {
+                callback.onSuccess(result);
+            }
+        });
+
         if (mHandler == null) {
-            callback.onSuccess(result);
+            runnable.run();
         } else {
-            mHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    callback.onSuccess(result);
-                }
-            });
+            mHandler.post(runnable);
         }
     }
 
@@ -72,15 +80,17 @@ final class CallbackExecutor<T> {
             return;
         }
 
+        final Runnable runnable = RequestContextPropagator.wrap(mRequestContext, new Runnable() {
+            @Override
+            public void run() {
+                callback.onError(throwable);
+            }
+        });
+
         if (mHandler == null) {
-            callback.onError(throwable);
+            runnable.run();
         } else {
-            mHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    callback.onError(throwable);
-                }
-            });
+            mHandler.post(runnable);
         }
     }
 }
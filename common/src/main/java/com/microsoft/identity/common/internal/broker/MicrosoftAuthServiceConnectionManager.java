@@ -0,0 +1,372 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.broker;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a single binding to the MicrosoftAuthService alive across broker calls.
+ * <p>
+ * Concurrent calls share the same binding; calls made while the service is connecting are queued
+ * and dispatched once it connects. The binding is released after it has been idle for the
+ * configured timeout. If the broker process dies the system reconnects the kept binding, and
+ * calls made in the meantime wait for that reconnection.
+ */
+final class MicrosoftAuthServiceConnectionManager {
+    private static final String TAG = MicrosoftAuthServiceConnectionManager.class.getSimpleName();
+
+    /**
+     * Default time an unused binding is kept alive, in milliseconds.
+     */
+    static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 1000L;
+
+    private final Object mLock = new Object();
+    private Handler mMainHandler;
+    private long mIdleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    private MicrosoftAuthServiceConnection mConnection;
+
+    /**
+     * Sets how long an unused binding is kept alive. A value of 0 unbinds as soon as the last
+     * call completes.
+     *
+     * @param idleTimeoutMillis The idle timeout in milliseconds.
+     */
+    void setIdleTimeoutMillis(final long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("idleTimeoutMillis");
+        }
+
+        synchronized (mLock) {
+            mIdleTimeoutMillis = idleTimeoutMillis;
+        }
+    }
+
+    /**
+     * Delivers a connected {@link MicrosoftAuthServiceConnection} to the callback, binding to the
+     * service first if needed. Every successful acquire must be paired with a call to
+     * {@link #release(MicrosoftAuthServiceConnection, long)}.
+     *
+     * @param context           The application {@link Context}.
+     * @param authServiceToBind The intent of the MicrosoftAuthService to bind to.
+     * @param callback          Receives the connection once the service is connected.
+     */
+    void acquire(@NonNull final Context context,
+                 final Intent authServiceToBind,
+                 @NonNull final Callback<MicrosoftAuthServiceConnection> callback) {
+        final String methodName = ":acquire";
+        if (authServiceToBind == null) {
+            callback.onError(new ClientException(ErrorStrings.BROKER_BIND_SERVICE_FAILED));
+            return;
+        }
+
+        final MicrosoftAuthServiceConnection connection;
+        final boolean connected;
+        final boolean shouldBind;
+        MicrosoftAuthServiceConnection staleConnection = null;
+
+        synchronized (mLock) {
+            if (mConnection != null && !mConnection.isBoundTo(authServiceToBind.getComponent())) {
+                // The active broker changed, drop the binding to the previous one.
+                staleConnection = mConnection;
+                mConnection = null;
+            }
+
+            if (mConnection == null) {
+                mConnection = new MicrosoftAuthServiceConnection(context.getApplicationContext(), authServiceToBind);
+                if (staleConnection != null) {
+                    mConnection.mPendingCallbacks.addAll(staleConnection.drainPendingCallbacks());
+                }
+            }
+
+            connection = mConnection;
+            getMainHandler().removeCallbacks(connection.mIdleUnbind);
+
+            connected = connection.mMicrosoftAuthService != null;
+            if (connected) {
+                connection.mActiveCalls++;
+            } else {
+                connection.mPendingCallbacks.add(new CallbackExecutor<>(callback));
+            }
+
+            shouldBind = !connected && !connection.mBound;
+            if (shouldBind) {
+                connection.mBound = true;
+                connection.mBindStartNanos = System.nanoTime();
+            }
+        }
+
+        if (staleConnection != null) {
+            staleConnection.unbindOnMainThread();
+        }
+
+        if (connected) {
+            Metrics.increment(MetricNames.BROKER_CONNECTION_REUSED);
+            Logger.verbose(TAG + methodName, "Reusing the existing MicrosoftAuthService binding.");
+            callback.onSuccess(connection);
+            return;
+        }
+
+        if (shouldBind) {
+            connection.bind();
+        }
+    }
+
+    /**
+     * Releases a connection handed out by {@link #acquire(Context, Intent, Callback)}. Once no call
+     * is using the connection the idle timeout starts.
+     *
+     * @param connection    The connection used by the call.
+     * @param callTimeNanos How long the call took, in nanoseconds.
+     */
+    void release(@NonNull final MicrosoftAuthServiceConnection connection, final long callTimeNanos) {
+        Metrics.recordTime(MetricNames.BROKER_CALL_TIME, callTimeNanos);
+
+        synchronized (mLock) {
+            connection.mActiveCalls--;
+            if (connection.mActiveCalls <= 0 && connection.mPendingCallbacks.isEmpty()) {
+                connection.mActiveCalls = 0;
+                getMainHandler().postDelayed(connection.mIdleUnbind, mIdleTimeoutMillis);
+            }
+        }
+    }
+
+    private Handler getMainHandler() {
+        // Called with mLock held.
+        if (mMainHandler == null) {
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        return mMainHandler;
+    }
+
+    /**
+     * A binding to the MicrosoftAuthService shared by all calls made while it is alive.
+     */
+    final class MicrosoftAuthServiceConnection implements android.content.ServiceConnection {
+        private final Context mContext;
+        private final Intent mAuthServiceIntent;
+        private final List<CallbackExecutor<MicrosoftAuthServiceConnection>> mPendingCallbacks = new ArrayList<>();
+
+        // The following fields are guarded by mLock.
+        private IMicrosoftAuthService mMicrosoftAuthService;
+        private boolean mBound;
+        private int mActiveCalls;
+        private long mBindStartNanos;
+
+        private final Runnable mIdleUnbind = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (mLock) {
+                    if (mActiveCalls > 0 || !mPendingCallbacks.isEmpty()) {
+                        return;
+                    }
+
+                    if (mConnection == MicrosoftAuthServiceConnection.this) {
+                        mConnection = null;
+                    }
+                }
+
+                Logger.verbose(TAG, "MicrosoftAuthService binding is idle, unbinding.");
+                unbind();
+            }
+        };
+
+        MicrosoftAuthServiceConnection(final Context context, final Intent authServiceIntent) {
+            mContext = context;
+            mAuthServiceIntent = authServiceIntent;
+        }
+
+        public IMicrosoftAuthService getMicrosoftAuthServiceProvider() {
+            synchronized (mLock) {
+                return mMicrosoftAuthService;
+            }
+        }
+
+        boolean isBoundTo(final ComponentName componentName) {
+            final ComponentName boundComponent = mAuthServiceIntent.getComponent();
+            return boundComponent == null ? componentName == null : boundComponent.equals(componentName);
+        }
+
+        void bind() {
+            final String methodName = ":bind";
+            Logger.verbose(TAG + methodName, "Binding to MicrosoftAuthService for caller uid. ", "uid: " + android.os.Process.myUid());
+
+            boolean serviceBound;
+            try {
+                serviceBound = mContext.bindService(mAuthServiceIntent, this, Context.BIND_AUTO_CREATE);
+            } catch (final SecurityException exception) {
+                Logger.error(TAG + methodName, null, "Not allowed to bind to MicrosoftAuthService.", exception);
+                serviceBound = false;
+            }
+            Logger.verbose(TAG + methodName, "The status for MicrosoftAuthService bindService call is: " + Boolean.valueOf(serviceBound));
+
+            if (!serviceBound) {
+                final List<CallbackExecutor<MicrosoftAuthServiceConnection>> pendingCallbacks;
+                synchronized (mLock) {
+                    if (mConnection == this) {
+                        mConnection = null;
+                    }
+                    pendingCallbacks = drainPendingCallbacks();
+                }
+
+                unbindOnMainThread();
+                for (final CallbackExecutor<MicrosoftAuthServiceConnection> callbackExecutor : pendingCallbacks) {
+                    callbackExecutor.onError(new ClientException(ErrorStrings.BROKER_BIND_SERVICE_FAILED));
+                }
+            }
+        }
+
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            Logger.verbose(TAG, "MicrosoftAuthService is connected.");
+            final List<CallbackExecutor<MicrosoftAuthServiceConnection>> pendingCallbacks;
+            synchronized (mLock) {
+                mMicrosoftAuthService = IMicrosoftAuthService.Stub.asInterface(service);
+                if (mBindStartNanos != 0) {
+                    final long bindTimeNanos = System.nanoTime() - mBindStartNanos;
+                    mBindStartNanos = 0;
+                    Metrics.recordTime(MetricNames.BROKER_BIND_TIME, bindTimeNanos);
+                }
+
+                pendingCallbacks = drainPendingCallbacks();
+                mActiveCalls += pendingCallbacks.size();
+                if (mActiveCalls == 0) {
+                    getMainHandler().postDelayed(mIdleUnbind, mIdleTimeoutMillis);
+                }
+            }
+
+            if (pendingCallbacks.isEmpty()) {
+                Logger.verbose(TAG, "No callback is found.");
+            }
+
+            for (final CallbackExecutor<MicrosoftAuthServiceConnection> callbackExecutor : pendingCallbacks) {
+                callbackExecutor.onSuccess(this);
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            // The binding is kept; the system calls onServiceConnected again once the service
+            // restarts, and calls made until then are queued.
+            Logger.verbose(TAG, "MicrosoftAuthService is disconnected.");
+            Metrics.increment(MetricNames.BROKER_DISCONNECTS);
+            synchronized (mLock) {
+                mMicrosoftAuthService = null;
+                if (mBound) {
+                    mBindStartNanos = System.nanoTime();
+                }
+            }
+        }
+
+        @Override
+        public void onBindingDied(ComponentName name) {
+            // The system will not reconnect this binding, so bind again if calls are waiting.
+            Logger.verbose(TAG, "MicrosoftAuthService binding died.");
+            final boolean rebind;
+            synchronized (mLock) {
+                mMicrosoftAuthService = null;
+                if (mConnection == this) {
+                    mConnection = null;
+                }
+                rebind = !mPendingCallbacks.isEmpty();
+            }
+
+            unbind();
+
+            if (rebind) {
+                final List<CallbackExecutor<MicrosoftAuthServiceConnection>> pendingCallbacks;
+                final MicrosoftAuthServiceConnection connection;
+                synchronized (mLock) {
+                    pendingCallbacks = drainPendingCallbacks();
+                    if (mConnection == null) {
+                        mConnection = new MicrosoftAuthServiceConnection(mContext, mAuthServiceIntent);
+                    }
+                    connection = mConnection;
+                    connection.mPendingCallbacks.addAll(pendingCallbacks);
+                    if (connection.mBound) {
+                        return;
+                    }
+                    connection.mBound = true;
+                    connection.mBindStartNanos = System.nanoTime();
+                }
+
+                connection.bind();
+            }
+        }
+
+        private List<CallbackExecutor<MicrosoftAuthServiceConnection>> drainPendingCallbacks() {
+            // Called with mLock held.
+            final List<CallbackExecutor<MicrosoftAuthServiceConnection>> pendingCallbacks = new ArrayList<>(mPendingCallbacks);
+            mPendingCallbacks.clear();
+            return pendingCallbacks;
+        }
+
+        void unbindOnMainThread() {
+            // Service disconnect is async operation, in case of race condition, having the service binding check queued up
+            // in main message looper and unbind it.
+            final Handler handler;
+            synchronized (mLock) {
+                handler = getMainHandler();
+            }
+
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    unbind();
+                }
+            });
+        }
+
+        private void unbind() {
+            synchronized (mLock) {
+                if (!mBound) {
+                    return;
+                }
+                mBound = false;
+                mMicrosoftAuthService = null;
+                mBindStartNanos = 0;
+            }
+
+            try {
+                mContext.unbindService(this);
+            } catch (final IllegalArgumentException exception) {
+                Logger.error(TAG, null, "Unbind threw IllegalArgumentException", exception);
+            }
+        }
+    }
+}
@@ -25,38 +25,48 @@ package com.microsoft.identity.common.internal.broker;
 
 import android.accounts.AccountManager;
 import android.accounts.AuthenticatorDescription;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.IBinder;
-import android.os.Looper;
 import android.os.RemoteException;
 
 import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
 import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.internal.broker.MicrosoftAuthServiceConnectionManager.MicrosoftAuthServiceConnection;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.logging.RequestContextPropagator;
+import com.microsoft.identity.common.internal.logging.TraceSpan;
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MicrosoftAuthServiceHandler {
     private static final String TAG = MicrosoftAuthServiceHandler.class.getSimpleName();
     private static final String MICROSOFT_AUTH_SERVICE_INTENT_FILTER = "com.microsoft.workaccount.brokeraccount.MicrosoftAuth";
     private static final String MICROSOFT_AUTH_SERVICE_CLASS_NAME = "com.microsoft.workaccount.brokeraccount.MicrosoftAuthService";
 
-    private ConcurrentMap<MicrosoftAuthServiceConnection, CallbackExecutor<MicrosoftAuthServiceConnection>> mPendingConnections = new ConcurrentHashMap<>();
-    private static ExecutorService sThreadExecutor = Executors.newCachedThreadPool();
+    /**
+     * Default time a broker call may take, including binding to the service, in milliseconds.
+     */
+    public static final long DEFAULT_CALL_TIMEOUT_MILLIS = 30 * 1000L;
+
+    private final MicrosoftAuthServiceConnectionManager mConnectionManager = new MicrosoftAuthServiceConnectionManager();
+    private static final BrokerIpcExecutor sThreadExecutor = new BrokerIpcExecutor();
+    private static final ScheduledExecutorService sDeadlineScheduler =
+            Executors.newSingleThreadScheduledExecutor(new BrokerIpcExecutor.BrokerThreadFactory());
+    private volatile long mCallTimeoutMillis = DEFAULT_CALL_TIMEOUT_MILLIS;
 
     private static final MicrosoftAuthServiceHandler sInstance = new MicrosoftAuthServiceHandler();
 
@@ -68,6 +78,31 @@ public class MicrosoftAuthServiceHandler {
         return sInstance;
     }
 
+    /**
+     * Sets how long the binding to the MicrosoftAuthService is kept alive after the last call,
+     * so that subsequent calls do not pay the bind cost again. Defaults to 30 seconds.
+     *
+     * @param idleTimeoutMillis The idle timeout in milliseconds, 0 to unbind after every call.
+     */
+    public void setIdleTimeoutMillis(final long idleTimeoutMillis) {
+        mConnectionManager.setIdleTimeoutMillis(idleTimeoutMillis);
+    }
+
+    /**
+     * Sets the deadline of each broker call, including binding to the service. A call which does
+     * not complete in time fails with {@link ErrorStrings#BROKER_APP_NOT_RESPONDING}.
+     * Defaults to {@link #DEFAULT_CALL_TIMEOUT_MILLIS}.
+     *
+     * @param callTimeoutMillis The call timeout in milliseconds.
+     */
+    public void setCallTimeoutMillis(final long callTimeoutMillis) {
+        if (callTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("callTimeoutMillis");
+        }
+
+        mCallTimeoutMillis = callTimeoutMillis;
+    }
+
     /**
      * Silently acquire the token from MicrosoftAuthService
      *
@@ -78,37 +113,11 @@ public class MicrosoftAuthServiceHandler {
      */
     public Bundle getAuthToken(final Context context, final Bundle requestBundle) throws ClientException {
         final String methodName = ":getAuthToken";
-        final CountDownLatch countDownLatch = new CountDownLatch(1);
-        final AtomicReference<Bundle> bundleResult = new AtomicReference<>(null);
-        final AtomicReference<Throwable> exception = new AtomicReference<>(null);
+        final BlockingCallback<Bundle> callback = new BlockingCallback<>();
+        getAuthToken(context, requestBundle, callback);
+        callback.await();
 
-        performAsyncCallOnBound(context, new Callback<MicrosoftAuthServiceConnection>() {
-            @Override
-            public void onSuccess(MicrosoftAuthServiceConnection result) {
-                final IMicrosoftAuthService authService = result.getMicrosoftAuthServiceProvider();
-                try {
-                    bundleResult.set(authService.acquireTokenSilently(prepareGetAuthTokenRequestData(context, requestBundle)));
-                } catch (final RemoteException remoteException) {
-                    exception.set(remoteException);
-                }
-
-                countDownLatch.countDown();
-            }
-
-            @Override
-            public void onError(Throwable throwable) {
-                exception.set(throwable);
-                countDownLatch.countDown();
-            }
-        });
-
-        try {
-            countDownLatch.await();
-        } catch (final InterruptedException e) {
-            exception.set(e);
-        }
-
-        final Throwable throwable = exception.getAndSet(null);
+        final Throwable throwable = callback.getThrowable();
         //ClientException with error code BROKER_APP_NOT_RESPONDING will be thrown if there is any exception thrown during binding the service.
         if (throwable != null) {
             if (throwable instanceof RemoteException) {
@@ -123,51 +132,59 @@ public class MicrosoftAuthServiceHandler {
             }
         }
 
-        return bundleResult.getAndSet(null);
+        return callback.getResult();
     }
 
     /**
-     * Get Broker users is a blocking call, cannot be executed on the main thread.
+     * Silently acquire the token from MicrosoftAuthService without blocking the calling thread.
+     * The callback is invoked on a background thread.
      *
-     * @return A bundle in the broker. If no user exists in the broker, empty array will be returned.
+     * @param context       The application {@link Context}.
+     * @param requestBundle The request data for the silent request.
+     * @param callback      Receives the {@link Bundle} result from the MicrosoftAuthService, or the
+     *                      {@link RemoteException} or {@link ClientException} if the call failed.
      */
-    public Bundle getBrokerUsers(final Context context) throws IOException {
-        final CountDownLatch countDownLatch = new CountDownLatch(1);
-        final AtomicReference<Bundle> userBundle = new AtomicReference<>(null);
-        final AtomicReference<Throwable> exception = new AtomicReference<>(null);
-
-        performAsyncCallOnBound(context, new Callback<MicrosoftAuthServiceConnection>() {
+    public void getAuthToken(final Context context, final Bundle requestBundle, final Callback<Bundle> callback) {
+        performBrokerCall(context, ":getAuthToken", new BrokerOperation<Bundle>() {
             @Override
-            public void onSuccess(MicrosoftAuthServiceConnection connection) {
-                final IMicrosoftAuthService authService = connection.getMicrosoftAuthServiceProvider();
-                try {
-                    userBundle.set(authService.getBrokerUsers());
-                } catch (final RemoteException ex) {
-                    exception.set(ex);
-                }
-
-                countDownLatch.countDown();
-            }
-
-            @Override
-            public void onError(Throwable throwable) {
-                exception.set(throwable);
-                countDownLatch.countDown();
+            public Bundle perform(final IMicrosoftAuthService authService) throws RemoteException {
+                return authService.acquireTokenSilently(prepareGetAuthTokenRequestData(context, requestBundle));
             }
-        });
+        }, callback);
+    }
 
-        try {
-            countDownLatch.await();
-        } catch (final InterruptedException e) {
-            exception.set(e);
-        }
+    /**
+     * Get Broker users is a blocking call, cannot be executed on the main thread.
+     *
+     * @return A bundle in the broker. If no user exists in the broker, empty array will be returned.
+     */
+    public Bundle getBrokerUsers(final Context context) throws IOException {
+        final BlockingCallback<Bundle> callback = new BlockingCallback<>();
+        getBrokerUsers(context, callback);
+        callback.await();
 
-        final Throwable exceptionForRetrievingBrokerUsers = exception.getAndSet(null);
+        final Throwable exceptionForRetrievingBrokerUsers = callback.getThrowable();
         if (exceptionForRetrievingBrokerUsers != null) {
             throw new IOException(exceptionForRetrievingBrokerUsers.getMessage(), exceptionForRetrievingBrokerUsers);
         }
 
-        return userBundle.getAndSet(null);
+        return callback.getResult();
+    }
+
+    /**
+     * Get the broker users without blocking the calling thread. The callback is invoked on a
+     * background thread.
+     *
+     * @param context  The application {@link Context}.
+     * @param callback Receives the users bundle, or the error if the call failed.
+     */
+    public void getBrokerUsers(final Context context, final Callback<Bundle> callback) {
+        performBrokerCall(context, ":getBrokerUsers", new BrokerOperation<Bundle>() {
+            @Override
+            public Bundle perform(final IMicrosoftAuthService authService) throws RemoteException {
+                return authService.getBrokerUsers();
+            }
+        }, callback);
     }
 
     /**
@@ -177,42 +194,35 @@ public class MicrosoftAuthServiceHandler {
      * @return A bundle in the broker.
      */
     public Bundle getCapabilities(final Context context) throws ClientException {
-        final CountDownLatch countDownLatch = new CountDownLatch(1);
-        final AtomicReference<Bundle> capabilityBundle = new AtomicReference<>(null);
-        final AtomicReference<Throwable> exception = new AtomicReference<>(null);
-
-        performAsyncCallOnBound(context, new Callback<MicrosoftAuthServiceConnection>() {
-            @Override
-            public void onSuccess(MicrosoftAuthServiceConnection connection) {
-                final IMicrosoftAuthService authService = connection.getMicrosoftAuthServiceProvider();
-                try {
-                    capabilityBundle.set(authService.getCapabilities());
-                } catch (final RemoteException ex) {
-                    exception.set(ex);
-                }
-
-                countDownLatch.countDown();
-            }
-
-            @Override
-            public void onError(Throwable throwable) {
-                exception.set(throwable);
-                countDownLatch.countDown();
-            }
-        });
-
-        try {
-            countDownLatch.await();
-        } catch (final InterruptedException e) {
-            exception.set(e);
-        }
+        final BlockingCallback<Bundle> callback = new BlockingCallback<>();
+        getCapabilities(context, callback);
+        callback.await();
 
-        final Throwable exceptionGetCapabilities = exception.getAndSet(null);
+        final Throwable exceptionGetCapabilities = callback.getThrowable();
         if (exceptionGetCapabilities != null) {
+            if (isBrokerNotResponding(exceptionGetCapabilities)) {
+                throw (ClientException) exceptionGetCapabilities;
+            }
             throw new ClientException(ErrorStrings.FAILED_TO_GET_CAPABILITIES, exceptionGetCapabilities.getMessage(), exceptionGetCapabilities);
         }
 
-        return capabilityBundle.getAndSet(null);
+        return callback.getResult();
+    }
+
+    /**
+     * Get the capabilities of the broker app without blocking the calling thread. The callback
+     * is invoked on a background thread.
+     *
+     * @param context  The application {@link Context}.
+     * @param callback Receives the capabilities bundle, or the error if the call failed.
+     */
+    public void getCapabilities(final Context context, final Callback<Bundle> callback) {
+        performBrokerCall(context, ":getCapabilities", new BrokerOperation<Bundle>() {
+            @Override
+            public Bundle perform(final IMicrosoftAuthService authService) throws RemoteException {
+                return authService.getCapabilities();
+            }
+        }, callback);
     }
 
     /**
@@ -222,37 +232,11 @@ public class MicrosoftAuthServiceHandler {
      * @return The {@link Intent} to launch the interactive request.
      */
     public Intent getIntentForInteractiveRequest(final Context context) throws ClientException {
-        final CountDownLatch countDownLatch = new CountDownLatch(1);
-        final AtomicReference<Intent> bundleResult = new AtomicReference<>(null);
-        final AtomicReference<Throwable> exception = new AtomicReference<>(null);
-
-        performAsyncCallOnBound(context, new Callback<MicrosoftAuthServiceConnection>() {
-            @Override
-            public void onSuccess(MicrosoftAuthServiceConnection result) {
-                final IMicrosoftAuthService authService = result.getMicrosoftAuthServiceProvider();
-                try {
-                    bundleResult.set(authService.getIntentForInteractiveRequest());
-                } catch (final RemoteException remoteException) {
-                    exception.set(remoteException);
-                }
-
-                countDownLatch.countDown();
-            }
-
-            @Override
-            public void onError(Throwable throwable) {
-                exception.set(throwable);
-                countDownLatch.countDown();
-            }
-        });
-
-        try {
-            countDownLatch.await();
-        } catch (final InterruptedException e) {
-            exception.set(e);
-        }
+        final BlockingCallback<Intent> callback = new BlockingCallback<>();
+        getIntentForInteractiveRequest(context, callback);
+        callback.await();
 
-        final Throwable throwable = exception.getAndSet(null);
+        final Throwable throwable = callback.getThrowable();
         //ClientException with error code BROKER_APP_NOT_RESPONDING will be thrown if there is any exception thrown during binding the service.
         if (throwable != null) {
             if (throwable instanceof RemoteException) {
@@ -273,7 +257,23 @@ public class MicrosoftAuthServiceHandler {
             }
         }
 
-        return bundleResult.getAndSet(null);
+        return callback.getResult();
+    }
+
+    /**
+     * Get the intent for launching the interactive request with broker without blocking the
+     * calling thread. The callback is invoked on a background thread.
+     *
+     * @param context  The application {@link Context}.
+     * @param callback Receives the {@link Intent} to launch, or the error if the call failed.
+     */
+    public void getIntentForInteractiveRequest(final Context context, final Callback<Intent> callback) {
+        performBrokerCall(context, ":getIntentForInteractiveRequest", new BrokerOperation<Intent>() {
+            @Override
+            public Intent perform(final IMicrosoftAuthService authService) throws RemoteException {
+                return authService.getIntentForInteractiveRequest();
+            }
+        }, callback);
     }
 
 
@@ -284,14 +284,10 @@ public class MicrosoftAuthServiceHandler {
      */
     public void removeAccounts(final Context context) {
         final String methodName = ":removeAccounts";
-        performAsyncCallOnBound(context, new Callback<MicrosoftAuthServiceConnection>() {
+        removeAccounts(context, new Callback<Void>() {
             @Override
-            public void onSuccess(MicrosoftAuthServiceConnection result) {
-                try {
-                    result.getMicrosoftAuthServiceProvider().removeAccounts();
-                } catch (final RemoteException remoteException) {
-                    Logger.error(TAG + methodName, null, remoteException.getMessage(), remoteException);
-                }
+            public void onSuccess(Void result) {
+                Logger.verbose(TAG + methodName, "Removed the accounts from broker.");
             }
 
             @Override
@@ -301,22 +297,106 @@ public class MicrosoftAuthServiceHandler {
         });
     }
 
+    /**
+     * Removing all the accounts from broker. The callback is invoked on a background thread.
+     *
+     * @param context  The application {@link Context}.
+     * @param callback Notified once the accounts are removed, or of the error if the call failed.
+     */
+    public void removeAccounts(final Context context, final Callback<Void> callback) {
+        performBrokerCall(context, ":removeAccounts", new BrokerOperation<Void>() {
+            @Override
+            public Void perform(final IMicrosoftAuthService authService) throws RemoteException {
+                authService.removeAccounts();
+                return null;
+            }
+        }, callback);
+    }
+
+    private static boolean isBrokerNotResponding(final Throwable throwable) {
+        return throwable instanceof ClientException
+                && ErrorStrings.BROKER_APP_NOT_RESPONDING.equals(((ClientException) throwable).getErrorCode());
+    }
+
+    /**
+     * Runs the operation on the bound MicrosoftAuthService, failing the callback with
+     * {@link ErrorStrings#BROKER_APP_NOT_RESPONDING} if it does not complete before the deadline.
+     */
+    private <T> void performBrokerCall(final Context context,
+                                       final String operationName,
+                                       final BrokerOperation<T> operation,
+                                       final Callback<T> callback) {
+        final long timeoutMillis = mCallTimeoutMillis;
+        final TraceSpan span = TraceSpan.start("broker" + operationName);
+        try {
+            performBrokerCall(context, operationName, operation, new BrokerCall<>(callback, span), timeoutMillis);
+        } finally {
+            // The call completes on a broker or Handler thread, which ends the span.
+            span.detach();
+        }
+    }
+
+    private <T> void performBrokerCall(final Context context,
+                                       final String operationName,
+                                       final BrokerOperation<T> operation,
+                                       final BrokerCall<T> call,
+                                       final long timeoutMillis) {
+        final String methodName = ":performBrokerCall";
+        call.setDeadline(sDeadlineScheduler.schedule(RequestContextPropagator.wrap(new Runnable() {
+            @Override
+            public void run() {
+                Logger.warn(TAG + methodName, operationName + " did not complete within " + timeoutMillis + " ms.");
+                Metrics.increment(MetricNames.BROKER_CALL_TIMEOUTS);
+                call.onError(new ClientException(ErrorStrings.BROKER_APP_NOT_RESPONDING,
+                        "The broker did not respond within " + timeoutMillis + " ms."));
+            }
+        }), timeoutMillis, TimeUnit.MILLISECONDS));
+
+        performAsyncCallOnBound(context, new Callback<MicrosoftAuthServiceConnection>() {
+            @Override
+            public void onSuccess(final MicrosoftAuthServiceConnection connection) {
+                if (call.isCompleted()) {
+                    Logger.verbose(TAG + methodName, "Skipping " + operationName + ", the call already timed out.");
+                    return;
+                }
+
+                final IMicrosoftAuthService authService = connection.getMicrosoftAuthServiceProvider();
+                if (authService == null) {
+                    call.onError(new RemoteException("MicrosoftAuthService is disconnected."));
+                    return;
+                }
+
+                try {
+                    call.onSuccess(operation.perform(authService));
+                } catch (final RemoteException | RuntimeException exception) {
+                    call.onError(exception);
+                }
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                call.onError(throwable);
+            }
+        });
+    }
 
     private void performAsyncCallOnBound(final Context context, final Callback<MicrosoftAuthServiceConnection> callback) {
-        bindToAuthService(context, new Callback<MicrosoftAuthServiceConnection>() {
+        mConnectionManager.acquire(context, getIntentForAuthService(context), new Callback<MicrosoftAuthServiceConnection>() {
             @Override
             public void onSuccess(final MicrosoftAuthServiceConnection result) {
-                if (Looper.myLooper() != Looper.getMainLooper()) {
-                    callback.onSuccess(result);
-                    result.unBindService(context);
-                } else {
+                // A reused binding is delivered on the calling thread, so the call always goes to
+                // the executor; otherwise a hung broker would block the caller past its deadline.
+                try {
                     sThreadExecutor.execute(new Runnable() {
                         @Override
                         public void run() {
-                            callback.onSuccess(result);
-                            result.unBindService(context);
+                            performCall(result, callback);
                         }
                     });
+                } catch (final RejectedExecutionException exception) {
+                    mConnectionManager.release(result, 0);
+                    callback.onError(new ClientException(ErrorStrings.BROKER_APP_NOT_RESPONDING,
+                            "Too many pending broker calls.", exception));
                 }
             }
 
@@ -327,20 +407,13 @@ public class MicrosoftAuthServiceHandler {
         });
     }
 
-    private void bindToAuthService(final Context context, final Callback<MicrosoftAuthServiceConnection> callback) {
-        final String methodName = ":bindToAuthService";
-        Logger.verbose(TAG + methodName, "Binding to MicrosoftAuthService for caller uid. ", "uid: " + android.os.Process.myUid());
-        final Intent authServiceToBind = getIntentForAuthService(context);
-
-        final MicrosoftAuthServiceConnection connection = new MicrosoftAuthServiceConnection();
-        final CallbackExecutor<MicrosoftAuthServiceConnection> callbackExecutor = new CallbackExecutor<>(callback);
-        mPendingConnections.put(connection, callbackExecutor);
-        final boolean serviceBound = context.bindService(authServiceToBind, connection, Context.BIND_AUTO_CREATE);
-        Logger.verbose(TAG + methodName, "The status for MicrosoftAuthService bindService call is: " + Boolean.valueOf(serviceBound));
-
-        if (!serviceBound) {
-            connection.unBindService(context);
-            callback.onError(new ClientException(ErrorStrings.BROKER_BIND_SERVICE_FAILED));
+    private void performCall(final MicrosoftAuthServiceConnection connection,
+                             final Callback<MicrosoftAuthServiceConnection> callback) {
+        final long startTimeNanos = System.nanoTime();
+        try {
+            callback.onSuccess(connection);
+        } finally {
+            mConnectionManager.release(connection, System.nanoTime() - startTimeNanos);
         }
     }
 
@@ -385,53 +458,97 @@ public class MicrosoftAuthServiceHandler {
         return null;
     }
 
-    private class MicrosoftAuthServiceConnection implements android.content.ServiceConnection {
-        private IMicrosoftAuthService mMicrosoftAuthService;
-        private boolean mBound;
+    /**
+     * A single call to the MicrosoftAuthService.
+     */
+    private interface BrokerOperation<T> {
+        T perform(IMicrosoftAuthService authService) throws RemoteException;
+    }
+
+    /**
+     * Completes the wrapped callback once, either with the result of the call or when its
+     * deadline passes, whichever comes first.
+     */
+    private static final class BrokerCall<T> implements Callback<T> {
+        private final Callback<T> mCallback;
+        private final TraceSpan mSpan;
+        private final AtomicBoolean mCompleted = new AtomicBoolean(false);
+        private volatile ScheduledFuture<?> mDeadline;
+
+        BrokerCall(final Callback<T> callback, final TraceSpan span) {
+            mCallback = callback;
+            mSpan = span;
+        }
+
+        void setDeadline(final ScheduledFuture<?> deadline) {
+            mDeadline = deadline;
+        }
 
-        public IMicrosoftAuthService getMicrosoftAuthServiceProvider() {
-            return mMicrosoftAuthService;
+        boolean isCompleted() {
+            return mCompleted.get();
         }
 
         @Override
-        public void onServiceConnected(ComponentName name, IBinder service) {
-            Logger.verbose(TAG, "MicrosoftAuthService is connected.");
-            mMicrosoftAuthService = IMicrosoftAuthService.Stub.asInterface(service);
-            mBound = true;
-
-            final CallbackExecutor<MicrosoftAuthServiceConnection> callbackExecutor = mPendingConnections.remove(this);
-            if (callbackExecutor != null) {
-                callbackExecutor.onSuccess(this);
-            } else {
-                Logger.verbose(TAG, "No callback is found.");
+        public void onSuccess(final T result) {
+            if (mCompleted.compareAndSet(false, true)) {
+                cancelDeadline();
+                mSpan.end();
+                mCallback.onSuccess(result);
             }
         }
 
         @Override
-        public void onServiceDisconnected(ComponentName name) {
-            Logger.verbose(TAG, "MicrosoftAuthService is disconnected.");
-            mBound = false;
+        public void onError(final Throwable throwable) {
+            if (mCompleted.compareAndSet(false, true)) {
+                cancelDeadline();
+                mSpan.end();
+                mCallback.onError(throwable);
+            }
         }
 
-        public void unBindService(final Context context) {
-            // Service disconnect is async operation, in case of race condition, having the service binding check queued up
-            // in main message looper and unbind it.
-            final Handler handler = new Handler(Looper.getMainLooper());
-            handler.post(new Runnable() {
-                @Override
-                public void run() {
-                    if (mBound) {
-                        try {
-                            context.unbindService(MicrosoftAuthServiceConnection.this);
-                        } catch (final IllegalArgumentException exception) {
-                            Logger.error(TAG, null, "Unbind threw IllegalArgumentException", exception);
-                        } finally {
-                            mBound = false;
-                        }
-                    }
-                }
-            });
+        private void cancelDeadline() {
+            final ScheduledFuture<?> deadline = mDeadline;
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
         }
     }
 
+    /**
+     * Callback used by the blocking methods to wait for the result of the asynchronous call.
+     */
+    private static final class BlockingCallback<T> implements Callback<T> {
+        private final CountDownLatch mCountDownLatch = new CountDownLatch(1);
+        private volatile T mResult;
+        private volatile Throwable mThrowable;
+
+        @Override
+        public void onSuccess(final T result) {
+            mResult = result;
+            mCountDownLatch.countDown();
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            mThrowable = throwable;
+            mCountDownLatch.countDown();
+        }
+
+        void await() {
+            try {
+                // The broker call completes or fails at its deadline, so this does not hang.
+                mCountDownLatch.await();
+            } catch (final InterruptedException e) {
+                mThrowable = e;
+            }
+        }
+
+        T getResult() {
+            return mResult;
+        }
+
+        Throwable getThrowable() {
+            return mThrowable;
+        }
+    }
 }
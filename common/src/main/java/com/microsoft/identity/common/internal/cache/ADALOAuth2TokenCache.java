@@ -26,31 +26,50 @@ import android.app.Application;
 import android.content.Context;
 import android.net.Uri;
 import android.os.Build;
+import android.support.annotation.Nullable;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.microsoft.identity.common.BaseAccount;
+import com.microsoft.identity.common.exception.ServiceException;
 import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
 import com.microsoft.identity.common.adal.internal.cache.CacheKey;
 import com.microsoft.identity.common.adal.internal.cache.DateTimeAdapter;
 import com.microsoft.identity.common.adal.internal.cache.StorageHelper;
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
 import com.microsoft.identity.common.internal.dto.AccountRecord;
 import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.logging.RequestContextPropagator;
 import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftAccount;
+import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftIdToken;
 import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftRefreshToken;
 import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryAccount;
 import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryAuthorizationRequest;
 import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryOAuth2Strategy;
 import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryRefreshToken;
 import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryTokenResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.IDToken;
 import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
 import com.microsoft.identity.common.internal.providers.oauth2.RefreshToken;
 
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * Class responsible for saving oAuth2 Tokens for use in future requests.  Ideally this class would
@@ -59,7 +78,6 @@ import java.util.List;
 public class ADALOAuth2TokenCache
         extends OAuth2TokenCache<AzureActiveDirectoryOAuth2Strategy, AzureActiveDirectoryAuthorizationRequest, AzureActiveDirectoryTokenResponse>
         implements IShareSingleSignOnState {
-    private static final String ERR_UNSUPPORTED_OPERATION = "This method is unsupported by the ADALOAuth2TokenCache";
     private ISharedPreferencesFileManager mISharedPreferencesFileManager;
 
     private static final String TAG = ADALOAuth2TokenCache.class.getSimpleName();
@@ -71,6 +89,29 @@ public class ADALOAuth2TokenCache
 
     private List<IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken>> mSharedSSOCaches;
 
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    private volatile Executor mSingleSignOnStateExecutor;
+
+    /**
+     * Guards {@link #mIndex} and keeps it consistent with the writes made by this instance.
+     */
+    private final Object mIndexLock = new Object();
+
+    /**
+     * Index of the cache file, built on the first read. The file is shared with ADAL and other
+     * instances, whose writes the index does not see. Lookups rebuild the index if the keys of the
+     * file changed or if an entry they select is stale. Scans of every entry rebuild it first.
+     */
+    private ADALTokenCacheIndex mIndex;
+
+    /**
+     * The keys of the cache file as indexed by {@link #mIndex}. Comparing them with the keys of
+     * the file tells whether entries were added or removed by another writer without reading or
+     * decrypting any value.
+     */
+    private Set<String> mIndexedKeys;
+
     /**
      * Constructor of ADALOAuth2TokenCache.
      *
@@ -94,15 +135,43 @@ public class ADALOAuth2TokenCache
                                 final List<IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken>> sharedSSOCaches) {
         super(context);
         Logger.verbose(TAG, "Init: " + TAG);
-        Logger.info(TAG, "Context is an Application? [" + (context instanceof Application) + "]");
+        Logger.infoFormat(TAG, "Context is an Application? [%s]", (context instanceof Application));
         validateSecretKeySetting();
         initializeSharedPreferencesFileManager(ADALOAuth2TokenCache.SHARED_PREFERENCES_FILENAME);
         mSharedSSOCaches = sharedSSOCaches;
     }
 
+    /**
+     * Constructor of ADALOAuth2TokenCache over the supplied storage. Encryption of the storage,
+     * and hence the secret key setting, is up to the caller.
+     *
+     * @param context                      Context
+     * @param sharedPreferencesFileManager The storage of the ADAL cache entries.
+     * @param sharedSSOCaches              List<IShareSingleSignOnState>
+     */
+    public ADALOAuth2TokenCache(final Context context,
+                                final ISharedPreferencesFileManager sharedPreferencesFileManager,
+                                final List<IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken>> sharedSSOCaches) {
+        super(context);
+        Logger.verbose(TAG, "Init: " + TAG);
+        mISharedPreferencesFileManager = sharedPreferencesFileManager;
+        mSharedSSOCaches = sharedSSOCaches;
+    }
+
+    /**
+     * Sets the executor on which {@link #save} syncs the SSO state to the shared SSO caches, one
+     * task per cache, so that save returns once the ADAL entries are written. By default, or when
+     * set to null, the caches are synced on the thread calling save.
+     *
+     * @param executor The executor, or null to sync synchronously.
+     */
+    public void setSingleSignOnStateExecutor(@Nullable final Executor executor) {
+        mSingleSignOnStateExecutor = executor;
+    }
+
     protected void initializeSharedPreferencesFileManager(final String fileName) {
         Logger.verbose(TAG, "Initializing SharedPreferencesFileManager");
-        Logger.verbosePII(TAG, "Initializing with name: " + fileName);
+        Logger.verbosePIIFormat(TAG, "Initializing with name: %s", fileName);
         mISharedPreferencesFileManager =
                 new SharedPreferencesFileManager(
                         getContext(),
@@ -137,6 +206,10 @@ public class ADALOAuth2TokenCache
         final ADALTokenCacheItem cacheItem = new ADALTokenCacheItem(strategy, request, response);
         logTokenCacheItem(cacheItem);
 
+        // Each variant of the item is serialized once and written under every user id in one commit
+        final SerializedCacheItem serializedItem = serialize(cacheItem);
+        final Map<String, String> writes = new LinkedHashMap<>();
+
         //There is more than one valid user identifier for some accounts... AAD Accounts as of this writing have 3
         Logger.info(TAG + ":" + methodName, "Setting items to cache for user...");
         for (final String cacheIdentifier : account.getCacheIdentifiers()) {
@@ -144,109 +217,578 @@ public class ADALOAuth2TokenCache
             final String scope = request.getScope();
             final String clientId = request.getClientId();
 
-            Logger.infoPII(TAG + ":" + methodName, "issuerCacheIdentifier: [" + issuerCacheIdentifier + "]");
-            Logger.infoPII(TAG + ":" + methodName, "scope: [" + scope + "]");
-            Logger.infoPII(TAG + ":" + methodName, "clientId: [" + clientId + "]");
-            Logger.infoPII(TAG + ":" + methodName, "cacheIdentifier: [" + cacheIdentifier + "]");
+            Logger.infoPIIFormat(TAG + ":" + methodName, "issuerCacheIdentifier: [%s]", issuerCacheIdentifier);
+            Logger.infoPIIFormat(TAG + ":" + methodName, "scope: [%s]", scope);
+            Logger.infoPIIFormat(TAG + ":" + methodName, "clientId: [%s]", clientId);
+            Logger.infoPIIFormat(TAG + ":" + methodName, "cacheIdentifier: [%s]", cacheIdentifier);
 
-            setItemToCacheForUser(issuerCacheIdentifier, scope, clientId, cacheItem, cacheIdentifier);
+            addItemsForUser(writes, issuerCacheIdentifier, scope, clientId, serializedItem, cacheIdentifier);
         }
 
         //For legacy reasons creating a cache entry where the userid is null
         //ADAL supported a single user mode where it was not necessary for the developer to provide the user id
         //on calls to acquireTokenSilentAsync
-        setItemToCacheForUser(issuerCacheIdentifier, request.getScope(), request.getClientId(), cacheItem, null);
+        addItemsForUser(writes, issuerCacheIdentifier, request.getScope(), request.getClientId(), serializedItem, null);
 
-        // TODO At some point, the type-safety of this call needs to get beefed-up
-        Logger.info(TAG + ":" + methodName, "Syncing SSO state to caches...");
-        for (final IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken> sharedSsoCache : mSharedSSOCaches) {
-            sharedSsoCache.setSingleSignOnState(account, refreshToken);
-        }
+        Logger.info(TAG + ":" + methodName, "Writing " + writes.size() + " entries.");
+        setItems(writes);
+
+        syncSingleSignOnState(account, refreshToken);
 
         return null; // Returning null, since the ADAL cache's schema doesn't support this return type.
     }
 
+    /**
+     * Loads the tokens of the Account for the client and resource from the ADAL cache: the access
+     * token and refresh token of the resource's RT entry, falling back to the client's MRRT and then
+     * to an FRT for the refresh token. Entries of the Account's realm are preferred over those of
+     * other tenants.
+     *
+     * @param clientId The client id.
+     * @param target   The resource.
+     * @param account  The Account whose tokens are sought.
+     * @return The tokens found, any of which may be null.
+     */
     @Override
     public ICacheRecord load(
             final String clientId,
             final String target,
             final AccountRecord account) {
-        throw new UnsupportedOperationException(
-                ERR_UNSUPPORTED_OPERATION
-        );
+        final String methodName = ":load";
+        Logger.verbose(TAG + methodName, "Loading tokens from the ADAL cache...");
+
+        final CacheRecord result = new CacheRecord();
+        result.setAccount(account);
+
+        synchronized (mIndexLock) {
+            ADALTokenCacheIndex.Entry[] entries = selectEntries(getCurrentIndex(), clientId, target, account);
+            if (!isCurrent(Arrays.asList(entries))) {
+                Logger.verbose(TAG + methodName, "The index is stale, rebuilding it.");
+                entries = selectEntries(rebuildIndex(), clientId, target, account);
+            }
+
+            final ADALTokenCacheIndex index = mIndex;
+            final ADALTokenCacheIndex.Entry rtEntry = entries[0];
+            final ADALTokenCacheItem rtItem = rtEntry == null ? null : index.getItem(rtEntry, mGson);
+            if (rtItem != null && !StringExtensions.isNullOrBlank(rtItem.getAccessToken())) {
+                result.setAccessToken(createAccessTokenRecord(account, rtItem));
+            }
+
+            for (final ADALTokenCacheIndex.Entry entry : entries) {
+                final ADALTokenCacheItem item = entry == null ? null : index.getItem(entry, mGson);
+                if (item == null || StringExtensions.isNullOrBlank(item.getRefreshToken())) {
+                    continue;
+                }
+
+                if (result.getRefreshToken() == null) {
+                    result.setRefreshToken(createRefreshTokenRecord(account, item, clientId));
+                }
+
+                if (result.getIdToken() == null && !StringExtensions.isNullOrBlank(item.getRawIdToken())) {
+                    result.setIdToken(createIdTokenRecord(account, item, clientId));
+                }
+            }
+        }
+
+        return result;
     }
 
+    /**
+     * Removes a refresh token from every entry holding it, or an access token from the RT entry
+     * holding it. ID tokens are stored as part of those entries and cannot be removed on their own.
+     *
+     * @param credential The Credential to remove.
+     * @return True if an entry was changed.
+     */
     @Override
-    public boolean removeCredential(Credential credential) {
-        throw new UnsupportedOperationException(
-                ERR_UNSUPPORTED_OPERATION
-        );
+    public boolean removeCredential(final Credential credential) {
+        final String methodName = ":removeCredential";
+        final CredentialType credentialType = CredentialType.fromString(credential.getCredentialType());
+        Logger.info(TAG + methodName, "Removing credential of type: " + credentialType);
+
+        if (credentialType != CredentialType.RefreshToken && credentialType != CredentialType.AccessToken) {
+            Logger.warn(TAG + methodName, "Only refresh tokens and access tokens can be removed from the ADAL cache.");
+            return false;
+        }
+
+        boolean removed = false;
+        synchronized (mIndexLock) {
+            final ADALTokenCacheIndex index = rebuildIndex();
+
+            for (final ADALTokenCacheIndex.Entry entry : new ArrayList<>(index.getAll())) {
+                if (!isInEnvironment(entry, credential.getEnvironment())
+                        || !(entry.isFamilyRefreshToken() || isForClient(entry, credential.getClientId()))) {
+                    continue;
+                }
+
+                final ADALTokenCacheItem item = index.getItem(entry, mGson);
+                if (item == null) {
+                    continue;
+                }
+
+                if (credentialType == CredentialType.RefreshToken
+                        && credential.getSecret().equals(item.getRefreshToken())) {
+                    removeItem(entry.getKey());
+                    removed = true;
+                } else if (credentialType == CredentialType.AccessToken
+                        && credential.getSecret().equals(item.getAccessToken())) {
+                    item.setAccessToken(null);
+                    setItem(entry.getKey(), item);
+                    removed = true;
+                }
+            }
+        }
+
+        Logger.info(TAG + methodName, "Credential removed? [" + removed + "]");
+        return removed;
     }
 
+    /**
+     * The ADAL cache does not store client_info, so the home account id of an Account is derived
+     * from the oid and tid claims of its ID token, as for a home account in AAD.
+     */
     @Override
     public AccountRecord getAccount(final String environment,
                                     final String clientId,
                                     final String homeAccountId) {
-        throw new UnsupportedOperationException(
-                ERR_UNSUPPORTED_OPERATION
-        );
+        final String methodName = ":getAccount";
+        Logger.infoPII(TAG + methodName, "HomeAccountId: [" + homeAccountId + "]");
+
+        // The home account id starts with the oid, which is one of the user ids of the cache keys
+        final int separator = homeAccountId.indexOf('.');
+        if (separator > 0) {
+            synchronized (mIndexLock) {
+                final String userId = homeAccountId.substring(0, separator);
+                List<ADALTokenCacheIndex.Entry> entries = getCurrentIndex().getByUserId(userId);
+                if (!isCurrent(entries)) {
+                    Logger.verbose(TAG + methodName, "The index is stale, rebuilding it.");
+                    entries = rebuildIndex().getByUserId(userId);
+                }
+
+                final List<AccountRecord> accounts = getAccounts(entries, environment, clientId);
+
+                for (final AccountRecord account : accounts) {
+                    if (homeAccountId.equals(account.getHomeAccountId())) {
+                        return account;
+                    }
+                }
+            }
+        }
+
+        // Entries saved with only the displayable id as user id
+        synchronized (mIndexLock) {
+            for (final AccountRecord account : getAccounts(getCurrentIndex().getAll(), environment, clientId)) {
+                if (homeAccountId.equals(account.getHomeAccountId())) {
+                    return account;
+                }
+            }
+        }
+
+        return null;
     }
 
     @Override
     public List<AccountRecord> getAccounts(final String environment,
                                            final String clientId) {
-        throw new UnsupportedOperationException(
-                ERR_UNSUPPORTED_OPERATION
-        );
+        final String methodName = ":getAccounts";
+        final List<AccountRecord> accounts;
+        synchronized (mIndexLock) {
+            accounts = getAccounts(rebuildIndex().getAll(), environment, clientId);
+        }
+
+        Logger.info(TAG + methodName, "Found " + accounts.size() + " accounts");
+        return accounts;
     }
 
+    /**
+     * Removes the client's entries of the Account, including those saved without a user id. FRT
+     * entries are left in place, as they are shared with the other apps of the family.
+     */
     @Override
     public boolean removeAccount(final String environment,
                                  final String clientId,
                                  final String homeAccountId) {
-        throw new UnsupportedOperationException(
-                ERR_UNSUPPORTED_OPERATION
-        );
+        final String methodName = ":removeAccount";
+        final AccountRecord account = getAccount(environment, clientId, homeAccountId);
+        if (account == null) {
+            Logger.info(TAG + methodName, "Account not found.");
+            return false;
+        }
+
+        int removed = 0;
+        synchronized (mIndexLock) {
+            final ADALTokenCacheIndex index = rebuildIndex();
+
+            for (final ADALTokenCacheIndex.Entry entry : new ArrayList<>(index.getAll())) {
+                if (entry.isFamilyRefreshToken()
+                        || !isForClient(entry, clientId)
+                        || !isInEnvironment(entry, environment)) {
+                    continue;
+                }
+
+                final ADALTokenCacheItem item = index.getItem(entry, mGson);
+                if (item != null
+                        && item.getUserInfo() != null
+                        && account.getLocalAccountId().equalsIgnoreCase(item.getUserInfo().getUserId())) {
+                    removeItem(entry.getKey());
+                    removed++;
+                }
+            }
+        }
+
+        Logger.info(TAG + methodName, "Removed " + removed + " entries.");
+        return removed > 0;
+    }
+
+    private ADALTokenCacheIndex getIndex() {
+        // Called holding mIndexLock
+        if (mIndex == null) {
+            Logger.verbose(TAG, "Building the ADAL cache index.");
+            final Map<String, String> entries = mISharedPreferencesFileManager.getAll();
+            mIndex = new ADALTokenCacheIndex();
+            mIndex.putAll(entries);
+            mIndexedKeys = new HashSet<>(entries.keySet());
+        }
+
+        return mIndex;
+    }
+
+    /**
+     * Returns the index, rebuilt first if entries were added to or removed from the cache file
+     * since it was built. Called holding mIndexLock.
+     */
+    private ADALTokenCacheIndex getCurrentIndex() {
+        if (mIndex != null && !mIndexedKeys.equals(mISharedPreferencesFileManager.getKeys())) {
+            Logger.verbose(TAG, "The keys of the ADAL cache changed, rebuilding the index.");
+            return rebuildIndex();
+        }
+
+        return getIndex();
+    }
+
+    private ADALTokenCacheIndex rebuildIndex() {
+        // Called holding mIndexLock
+        mIndex = null;
+        return getIndex();
+    }
+
+    /**
+     * Checks the entries against the cache file. Called holding mIndexLock.
+     *
+     * @param entries The entries, any of which may be null.
+     * @return True if every entry is still stored with the value it was indexed with.
+     */
+    private boolean isCurrent(final List<ADALTokenCacheIndex.Entry> entries) {
+        for (final ADALTokenCacheIndex.Entry entry : entries) {
+            if (entry != null && !entry.isStoredAs(mISharedPreferencesFileManager.getString(entry.getKey()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Selects the entries of the Account for the client and resource, preferring those of the
+     * Account's realm.
+     *
+     * @return The RT, MRRT and FRT entries, any of which may be null.
+     */
+    private static ADALTokenCacheIndex.Entry[] selectEntries(final ADALTokenCacheIndex index,
+                                                             final String clientId,
+                                                             final String target,
+                                                             final AccountRecord account) {
+        ADALTokenCacheIndex.Entry rtEntry = null;
+        ADALTokenCacheIndex.Entry mrrtEntry = null;
+        ADALTokenCacheIndex.Entry frtEntry = null;
+
+        for (final ADALTokenCacheIndex.Entry entry : getEntriesForAccount(index, account)) {
+            if (!isInEnvironment(entry, account.getEnvironment())) {
+                continue;
+            }
+
+            if (entry.isFamilyRefreshToken()) {
+                frtEntry = preferRealm(frtEntry, entry, account.getRealm());
+            } else if (!isForClient(entry, clientId)) {
+                continue;
+            } else if (entry.isMultiResourceRefreshToken()) {
+                mrrtEntry = preferRealm(mrrtEntry, entry, account.getRealm());
+            } else if (target != null && target.equals(entry.getResource())) {
+                rtEntry = preferRealm(rtEntry, entry, account.getRealm());
+            }
+        }
+
+        return new ADALTokenCacheIndex.Entry[]{rtEntry, mrrtEntry, frtEntry};
+    }
+
+    private static List<ADALTokenCacheIndex.Entry> getEntriesForAccount(final ADALTokenCacheIndex index,
+                                                                        final AccountRecord account) {
+        final List<ADALTokenCacheIndex.Entry> entries = new ArrayList<>(index.getByUserId(account.getLocalAccountId()));
+
+        if (account.getUsername() != null && !account.getUsername().equalsIgnoreCase(account.getLocalAccountId())) {
+            entries.addAll(index.getByUserId(account.getUsername()));
+        }
+
+        return entries;
+    }
+
+    private List<AccountRecord> getAccounts(final Iterable<ADALTokenCacheIndex.Entry> entries,
+                                            final String environment,
+                                            final String clientId) {
+        // Called holding mIndexLock; keyed by home account id
+        final Map<String, AccountRecord> accounts = new LinkedHashMap<>();
+
+        for (final ADALTokenCacheIndex.Entry entry : entries) {
+            if (entry.isFamilyRefreshToken()
+                    || !isForClient(entry, clientId)
+                    || !isInEnvironment(entry, environment)) {
+                continue;
+            }
+
+            final ADALTokenCacheItem item = mIndex.getItem(entry, mGson);
+            final AccountRecord account = item == null ? null : createAccountRecord(entry, item);
+            if (account != null) {
+                accounts.put(account.getHomeAccountId(), account);
+            }
+        }
+
+        return accounts.isEmpty()
+                ? Collections.<AccountRecord>emptyList()
+                : new ArrayList<>(accounts.values());
+    }
+
+    private static AccountRecord createAccountRecord(final ADALTokenCacheIndex.Entry entry,
+                                                     final ADALTokenCacheItem item) {
+        final ADALUserInfo userInfo = item.getUserInfo();
+        if (userInfo == null || StringExtensions.isNullOrBlank(userInfo.getUserId())) {
+            return null;
+        }
+
+        String objectId = userInfo.getUserId();
+        String tenantId = item.getTenantId();
+        if (!StringExtensions.isNullOrBlank(item.getRawIdToken())) {
+            try {
+                final Map<String, String> claims = new IDToken(item.getRawIdToken()).getTokenClaims();
+                if (claims.get(MicrosoftIdToken.OJBECT_ID) != null) {
+                    objectId = claims.get(MicrosoftIdToken.OJBECT_ID);
+                }
+                if (claims.get(MicrosoftIdToken.TENANT_ID) != null) {
+                    tenantId = claims.get(MicrosoftIdToken.TENANT_ID);
+                }
+            } catch (final ServiceException e) {
+                Logger.warn(TAG, "Unable to parse the ID token of a cache item.");
+            }
+        }
+
+        if (StringExtensions.isNullOrBlank(tenantId)) {
+            return null;
+        }
+
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(objectId + "." + tenantId);
+        account.setEnvironment(getHost(entry.getAuthority()));
+        account.setRealm(tenantId);
+        account.setLocalAccountId(userInfo.getUserId());
+        account.setUsername(userInfo.getDisplayableId());
+        account.setAuthorityType(MicrosoftAccount.AUTHORITY_TYPE_V1_V2);
+        account.setFirstName(userInfo.getGivenName());
+        account.setFamilyName(userInfo.getFamilyName());
+        return account;
+    }
+
+    private static AccessTokenRecord createAccessTokenRecord(final AccountRecord account,
+                                                             final ADALTokenCacheItem item) {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId(account.getHomeAccountId());
+        accessToken.setEnvironment(account.getEnvironment());
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId(item.getClientId());
+        accessToken.setSecret(item.getAccessToken());
+        accessToken.setRealm(item.getTenantId());
+        accessToken.setTarget(item.getResource());
+        accessToken.setAuthority(item.getAuthority());
+        accessToken.setExpiresOn(toEpochSeconds(item.getExpiresOn()));
+        accessToken.setExtendedExpiresOn(toEpochSeconds(item.getExtendedExpiresOn()));
+        return accessToken;
+    }
+
+    private static RefreshTokenRecord createRefreshTokenRecord(final AccountRecord account,
+                                                               final ADALTokenCacheItem item,
+                                                               final String clientId) {
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        refreshToken.setHomeAccountId(account.getHomeAccountId());
+        refreshToken.setEnvironment(account.getEnvironment());
+        refreshToken.setCredentialType(CredentialType.RefreshToken.name());
+        // FRTs are saved without a client id
+        refreshToken.setClientId(item.getClientId() == null ? clientId : item.getClientId());
+        refreshToken.setSecret(item.getRefreshToken());
+        refreshToken.setFamilyId(item.getFamilyClientId());
+        return refreshToken;
+    }
+
+    private static IdTokenRecord createIdTokenRecord(final AccountRecord account,
+                                                     final ADALTokenCacheItem item,
+                                                     final String clientId) {
+        final IdTokenRecord idToken = new IdTokenRecord();
+        idToken.setHomeAccountId(account.getHomeAccountId());
+        idToken.setEnvironment(account.getEnvironment());
+        idToken.setCredentialType(CredentialType.IdToken.name());
+        idToken.setClientId(item.getClientId() == null ? clientId : item.getClientId());
+        idToken.setSecret(item.getRawIdToken());
+        idToken.setRealm(item.getTenantId());
+        idToken.setAuthority(item.getAuthority());
+        return idToken;
+    }
+
+    private static ADALTokenCacheIndex.Entry preferRealm(final ADALTokenCacheIndex.Entry current,
+                                                         final ADALTokenCacheIndex.Entry candidate,
+                                                         final String realm) {
+        if (current == null) {
+            return candidate;
+        }
+
+        return !isInRealm(current, realm) && isInRealm(candidate, realm) ? candidate : current;
+    }
+
+    private static boolean isInRealm(final ADALTokenCacheIndex.Entry entry, final String realm) {
+        return realm != null && entry.getAuthority().endsWith("/" + realm.toLowerCase(Locale.US));
+    }
+
+    private static boolean isForClient(final ADALTokenCacheIndex.Entry entry, final String clientId) {
+        return clientId != null && clientId.equalsIgnoreCase(entry.getClientId());
+    }
+
+    private static boolean isInEnvironment(final ADALTokenCacheIndex.Entry entry, final String environment) {
+        // A null environment matches all
+        return environment == null || environment.equalsIgnoreCase(getHost(entry.getAuthority()));
+    }
+
+    private static String getHost(final String authority) {
+        try {
+            return new URL(authority).getHost();
+        } catch (final MalformedURLException e) {
+            return null;
+        }
+    }
+
+    private static String toEpochSeconds(final Date date) {
+        return date == null ? null : String.valueOf(date.getTime() / MILLIS_PER_SECOND);
     }
 
     private static void logTokenCacheItem(final ADALTokenCacheItem tokenCacheItem) {
         Logger.info(TAG, "Logging TokenCacheItem");
-        Logger.infoPII(TAG, "resource: [" + tokenCacheItem.getResource() + "]");
-        Logger.infoPII(TAG, "authority: [" + tokenCacheItem.getAuthority() + "]");
-        Logger.infoPII(TAG, "clientId: [" + tokenCacheItem.getClientId() + "]");
-        Logger.infoPII(TAG, "expiresOn: [" + tokenCacheItem.getExpiresOn() + "]");
-        Logger.infoPII(TAG, "isMrrt: [" + tokenCacheItem.getIsMultiResourceRefreshToken() + "]");
-        Logger.infoPII(TAG, "tenantId: [" + tokenCacheItem.getTenantId() + "]");
-        Logger.infoPII(TAG, "foci: [" + tokenCacheItem.getFamilyClientId() + "]");
-        Logger.infoPII(TAG, "extendedExpires: [" + tokenCacheItem.getExtendedExpiresOn() + "]");
-        Logger.infoPII(TAG, "speRing: [" + tokenCacheItem.getSpeRing() + "]");
-    }
-
-    private void setItemToCacheForUser(final String issuer,
-                                       final String resource,
-                                       final String clientId,
-                                       final ADALTokenCacheItem cacheItem,
-                                       final String userId) {
-        final String methodName = "setItemToCacheForUser";
+        if (!Logger.isLoggable(Logger.LogLevel.INFO, true)) {
+            return;
+        }
+
+        Logger.infoPIIFormat(TAG, "resource: [%s]", tokenCacheItem.getResource());
+        Logger.infoPIIFormat(TAG, "authority: [%s]", tokenCacheItem.getAuthority());
+        Logger.infoPIIFormat(TAG, "clientId: [%s]", tokenCacheItem.getClientId());
+        Logger.infoPIIFormat(TAG, "expiresOn: [%s]", tokenCacheItem.getExpiresOn());
+        Logger.infoPIIFormat(TAG, "isMrrt: [%s]", tokenCacheItem.getIsMultiResourceRefreshToken());
+        Logger.infoPIIFormat(TAG, "tenantId: [%s]", tokenCacheItem.getTenantId());
+        Logger.infoPIIFormat(TAG, "foci: [%s]", tokenCacheItem.getFamilyClientId());
+        Logger.infoPIIFormat(TAG, "extendedExpires: [%s]", tokenCacheItem.getExtendedExpiresOn());
+        Logger.infoPIIFormat(TAG, "speRing: [%s]", tokenCacheItem.getSpeRing());
+    }
+
+    private void addItemsForUser(final Map<String, String> writes,
+                                 final String issuer,
+                                 final String resource,
+                                 final String clientId,
+                                 final SerializedCacheItem serializedItem,
+                                 final String userId) {
+        final String methodName = "addItemsForUser";
 
         Logger.info(TAG + ":" + methodName, "Setting cacheitem for RT entry.");
-        setItem(CacheKey.createCacheKeyForRTEntry(issuer, resource, clientId, userId), cacheItem);
+        writes.put(CacheKey.createCacheKeyForRTEntry(issuer, resource, clientId, userId), serializedItem.mRefreshToken);
 
-        if (cacheItem.getIsMultiResourceRefreshToken()) {
+        if (serializedItem.mMultiResourceRefreshToken != null) {
             Logger.info(TAG + ":" + methodName, "CacheItem is an MRRT.");
-            setItem(CacheKey.createCacheKeyForMRRT(issuer, clientId, userId), ADALTokenCacheItem.getAsMRRTTokenCacheItem(cacheItem));
+            writes.put(CacheKey.createCacheKeyForMRRT(issuer, clientId, userId), serializedItem.mMultiResourceRefreshToken);
         }
 
-        if (!StringExtensions.isNullOrBlank(cacheItem.getFamilyClientId())) {
+        if (serializedItem.mFamilyRefreshToken != null) {
             Logger.info(TAG + ":" + methodName, "CacheItem is an FRT.");
-            setItem(CacheKey.createCacheKeyForFRT(issuer, cacheItem.getFamilyClientId(), userId), ADALTokenCacheItem.getAsFRTTokenCacheItem(cacheItem));
+            writes.put(CacheKey.createCacheKeyForFRT(issuer, serializedItem.mFamilyClientId, userId), serializedItem.mFamilyRefreshToken);
+        }
+    }
+
+    private SerializedCacheItem serialize(final ADALTokenCacheItem cacheItem) {
+        final SerializedCacheItem serializedItem = new SerializedCacheItem();
+        serializedItem.mRefreshToken = mGson.toJson(cacheItem);
+
+        if (cacheItem.getIsMultiResourceRefreshToken()) {
+            serializedItem.mMultiResourceRefreshToken = mGson.toJson(ADALTokenCacheItem.getAsMRRTTokenCacheItem(cacheItem));
+        }
+
+        if (!StringExtensions.isNullOrBlank(cacheItem.getFamilyClientId())) {
+            serializedItem.mFamilyClientId = cacheItem.getFamilyClientId();
+            serializedItem.mFamilyRefreshToken = mGson.toJson(ADALTokenCacheItem.getAsFRTTokenCacheItem(cacheItem));
+        }
+
+        return serializedItem;
+    }
+
+    private void setItems(final Map<String, String> entries) {
+        synchronized (mIndexLock) {
+            mISharedPreferencesFileManager.putStrings(entries);
+
+            if (mIndex != null) {
+                mIndex.putAll(entries);
+                mIndexedKeys.addAll(entries.keySet());
+            }
+        }
+    }
+
+    private void syncSingleSignOnState(final AzureActiveDirectoryAccount account,
+                                       final AzureActiveDirectoryRefreshToken refreshToken) {
+        final String methodName = "syncSingleSignOnState";
+        final Executor executor = mSingleSignOnStateExecutor;
+
+        if (executor == null) {
+            // TODO At some point, the type-safety of this call needs to get beefed-up
+            Logger.info(TAG + ":" + methodName, "Syncing SSO state to caches...");
+            for (final IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken> sharedSsoCache : mSharedSSOCaches) {
+                sharedSsoCache.setSingleSignOnState(account, refreshToken);
+            }
+            return;
+        }
+
+        Logger.info(TAG + ":" + methodName, "Syncing SSO state to caches asynchronously...");
+        for (final IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken> sharedSsoCache : mSharedSSOCaches) {
+            executor.execute(RequestContextPropagator.wrap(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sharedSsoCache.setSingleSignOnState(account, refreshToken);
+                    } catch (final RuntimeException e) {
+                        // Nobody waits on this thread, so the failure is only logged
+                        Logger.error(TAG + ":" + methodName, "Failed to sync SSO state to a cache.", e);
+                    }
+                }
+            }));
         }
     }
 
     private void setItem(final String key, final ADALTokenCacheItem cacheItem) {
         Logger.info(TAG, "Setting item to cache");
         String json = mGson.toJson(cacheItem);
-        mISharedPreferencesFileManager.putString(key, json);
+        synchronized (mIndexLock) {
+            mISharedPreferencesFileManager.putString(key, json);
+
+            if (mIndex != null) {
+                mIndex.put(key, json);
+                mIndexedKeys.add(key);
+            }
+        }
+    }
+
+    private void removeItem(final String key) {
+        // Called holding mIndexLock
+        mISharedPreferencesFileManager.remove(key);
+        mIndex.remove(key);
+        mIndexedKeys.remove(key);
     }
 
     private void validateSecretKeySetting() {
@@ -272,4 +814,14 @@ public class ADALOAuth2TokenCache
         final RefreshToken refreshToken = null;
         return refreshToken;
     }
+
+    /**
+     * The serialized RT, MRRT and FRT variants of an {@link ADALTokenCacheItem}.
+     */
+    private static final class SerializedCacheItem {
+        private String mRefreshToken;
+        private String mMultiResourceRefreshToken;
+        private String mFamilyRefreshToken;
+        private String mFamilyClientId;
+    }
 }
@@ -0,0 +1,278 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.microsoft.identity.common.adal.internal.cache.CacheKey;
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory index of the entries of the ADAL cache, keyed by the components of their
+ * {@link CacheKey}. Entries keep the serialized {@link ADALTokenCacheItem}, so that they can be
+ * checked against the cache file, and deserialize it on first use.
+ * <p>
+ * Not thread safe; {@link ADALOAuth2TokenCache} guards access.
+ */
+final class ADALTokenCacheIndex {
+
+    private static final String TAG = ADALTokenCacheIndex.class.getSimpleName();
+
+    /**
+     * Separator of the components of a cache key, see {@link CacheKey#toString()}.
+     */
+    private static final char KEY_SEPARATOR = '$';
+
+    /**
+     * Formatted value of a component which was not set.
+     */
+    private static final String NULL_COMPONENT = "null";
+
+    private static final String MRRT_FLAG = "y";
+
+    private final Map<String, Entry> mEntriesByKey = new HashMap<>();
+    private final Map<String, List<Entry>> mEntriesByUserId = new HashMap<>();
+
+    /**
+     * One entry of the ADAL cache.
+     */
+    static final class Entry {
+        private final String mKey;
+        private final String mAuthority;
+        private final String mResource;
+        private final String mClientId;
+        private final boolean mIsMultiResourceRefreshToken;
+        private final String mUserId;
+        private final String mFamilyClientId;
+
+        private final String mJson;
+        private ADALTokenCacheItem mItem;
+
+        private Entry(@NonNull final String key,
+                      @NonNull final String[] components,
+                      @NonNull final String json) {
+            mKey = key;
+            mAuthority = components[0];
+            mResource = components[1];
+            mClientId = components[2];
+            mIsMultiResourceRefreshToken = MRRT_FLAG.equals(components[3]);
+            mUserId = components[4];
+            mFamilyClientId = components.length > 5 ? components[5] : null;
+            mJson = json;
+        }
+
+        String getKey() {
+            return mKey;
+        }
+
+        /**
+         * @return The lower case authority, without a trailing slash.
+         */
+        String getAuthority() {
+            return mAuthority;
+        }
+
+        /**
+         * @return The resource, or null for an MRRT or FRT.
+         */
+        String getResource() {
+            return mResource;
+        }
+
+        /**
+         * @return The lower case client id, or null for an FRT.
+         */
+        String getClientId() {
+            return mClientId;
+        }
+
+        boolean isMultiResourceRefreshToken() {
+            return mIsMultiResourceRefreshToken;
+        }
+
+        boolean isFamilyRefreshToken() {
+            return mFamilyClientId != null;
+        }
+
+        /**
+         * @return The lower case user id, or null for the legacy entry without a user.
+         */
+        String getUserId() {
+            return mUserId;
+        }
+
+        /**
+         * @param json The serialized item currently stored under the key, or null if none is.
+         * @return True if the entry was indexed with that value.
+         */
+        boolean isStoredAs(@Nullable final String json) {
+            return mJson.equals(json);
+        }
+    }
+
+    /**
+     * Indexes all the supplied entries of the ADAL cache. Keys which are not cache keys are
+     * skipped.
+     *
+     * @param entries The keys and serialized items of the cache file.
+     */
+    void putAll(@NonNull final Map<String, String> entries) {
+        for (final Map.Entry<String, String> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Adds or replaces an entry. Its item is deserialized on first use.
+     *
+     * @param key  The cache key.
+     * @param json The serialized {@link ADALTokenCacheItem}.
+     */
+    void put(@NonNull final String key, @Nullable final String json) {
+        final String[] components = split(key);
+        if (components == null || json == null) {
+            Logger.verbose(TAG, "Skipping an entry which is not a token cache item.");
+            return;
+        }
+
+        remove(key);
+
+        final Entry entry = new Entry(key, components, json);
+        mEntriesByKey.put(key, entry);
+
+        List<Entry> userEntries = mEntriesByUserId.get(entry.mUserId);
+        if (userEntries == null) {
+            userEntries = new ArrayList<>();
+            mEntriesByUserId.put(entry.mUserId, userEntries);
+        }
+        userEntries.add(entry);
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param key The cache key.
+     * @return The removed entry, or null if there was none.
+     */
+    Entry remove(@NonNull final String key) {
+        final Entry entry = mEntriesByKey.remove(key);
+
+        if (entry != null) {
+            final List<Entry> userEntries = mEntriesByUserId.get(entry.mUserId);
+            userEntries.remove(entry);
+            if (userEntries.isEmpty()) {
+                mEntriesByUserId.remove(entry.mUserId);
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * @param key The cache key, as created by {@link CacheKey}.
+     * @return The entry, or null if there is none.
+     */
+    Entry get(@NonNull final String key) {
+        return mEntriesByKey.get(key);
+    }
+
+    /**
+     * @param userId A user identifier of the cache key, or null for the entries saved without one.
+     * @return The entries saved for the user id, which is matched case-insensitively.
+     */
+    List<Entry> getByUserId(@Nullable final String userId) {
+        final List<Entry> userEntries = mEntriesByUserId.get(
+                userId == null ? null : userId.toLowerCase(Locale.US)
+        );
+
+        return userEntries == null
+                ? Collections.<Entry>emptyList()
+                : Collections.unmodifiableList(userEntries);
+    }
+
+    /**
+     * @return All the entries.
+     */
+    Collection<Entry> getAll() {
+        return Collections.unmodifiableCollection(mEntriesByKey.values());
+    }
+
+    /**
+     * Deserializes the item of the entry, once.
+     *
+     * @param entry The entry.
+     * @param gson  The Gson instance the item was serialized with.
+     * @return The item, or null if it could not be deserialized.
+     */
+    ADALTokenCacheItem getItem(@NonNull final Entry entry, @NonNull final Gson gson) {
+        if (entry.mItem == null) {
+            try {
+                entry.mItem = gson.fromJson(entry.mJson, ADALTokenCacheItem.class);
+            } catch (final JsonParseException e) {
+                Logger.warn(TAG, "Unable to deserialize a token cache item.");
+            }
+        }
+
+        return entry.mItem;
+    }
+
+    /**
+     * Splits a key formatted by {@link CacheKey#toString()} into its five or six components.
+     *
+     * @return The components, with null for those which were not set, or null if the key is not
+     * a cache key.
+     */
+    private static String[] split(@NonNull final String key) {
+        final List<String> components = new ArrayList<>(6);
+        int start = 0;
+        int separator;
+        while ((separator = key.indexOf(KEY_SEPARATOR, start)) >= 0) {
+            components.add(key.substring(start, separator));
+            start = separator + 1;
+        }
+        components.add(key.substring(start));
+
+        if (components.size() != 5 && components.size() != 6) {
+            return null;
+        }
+
+        final String[] result = new String[components.size()];
+        for (int i = 0; i < result.length; i++) {
+            final String component = components.get(i);
+            result[i] = NULL_COMPONENT.equals(component) ? null : component;
+        }
+
+        return result;
+    }
+}
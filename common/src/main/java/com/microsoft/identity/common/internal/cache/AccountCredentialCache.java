@@ -34,10 +34,13 @@ import com.microsoft.identity.common.internal.dto.IAccountRecord;
 import com.microsoft.identity.common.internal.dto.IdTokenRecord;
 import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -83,9 +86,9 @@ public class AccountCredentialCache implements IAccountCredentialCache {
     @Override
     public synchronized void saveAccount(@NonNull final AccountRecord account) {
         Logger.verbose(TAG, "Saving Account...");
-        Logger.verbose(TAG, "Account type: [" + account.getClass().getSimpleName() + "]");
+        Logger.verboseFormat(TAG, "Account type: [%s]", account.getClass().getSimpleName());
         final String cacheKey = mCacheValueDelegate.generateCacheKey(account);
-        Logger.verbosePII(TAG, "Generated cache key: [" + cacheKey + "]");
+        Logger.verbosePIIFormat(TAG, "Generated cache key: [%s]", cacheKey);
         final String cacheValue = mCacheValueDelegate.generateCacheValue(account);
         mSharedPreferencesFileManager.putString(cacheKey, cacheValue);
     }
@@ -94,11 +97,35 @@ public class AccountCredentialCache implements IAccountCredentialCache {
     public synchronized void saveCredential(@NonNull Credential credential) {
         Logger.verbose(TAG, "Saving credential...");
         final String cacheKey = mCacheValueDelegate.generateCacheKey(credential);
-        Logger.verbosePII(TAG, "Generated cache key: [" + cacheKey + "]");
+        Logger.verbosePIIFormat(TAG, "Generated cache key: [%s]", cacheKey);
         final String cacheValue = mCacheValueDelegate.generateCacheValue(credential);
         mSharedPreferencesFileManager.putString(cacheKey, cacheValue);
     }
 
+    @Override
+    public synchronized void saveAccountsAndCredentials(@NonNull final List<AccountRecord> accounts,
+                                                        @NonNull final List<Credential> credentials) {
+        Logger.verbose(TAG, "Saving Accounts and Credentials...");
+        final Map<String, String> entries = new LinkedHashMap<>();
+
+        for (final AccountRecord account : accounts) {
+            entries.put(
+                    mCacheValueDelegate.generateCacheKey(account),
+                    mCacheValueDelegate.generateCacheValue(account)
+            );
+        }
+
+        for (final Credential credential : credentials) {
+            entries.put(
+                    mCacheValueDelegate.generateCacheKey(credential),
+                    mCacheValueDelegate.generateCacheValue(credential)
+            );
+        }
+
+        Logger.verboseFormat(TAG, "Saving [%s] entries.", entries.size());
+        mSharedPreferencesFileManager.putStrings(entries);
+    }
+
     @Override
     public synchronized AccountRecord getAccount(@NonNull final String cacheKey) {
         Logger.verbose(TAG, "Loading Account by key...");
@@ -122,7 +149,7 @@ public class AccountCredentialCache implements IAccountCredentialCache {
     public synchronized Credential getCredential(@NonNull final String cacheKey) {
         // TODO add support for more Credential types...
         Logger.verbose(TAG, "getCredential()");
-        Logger.verbosePII(TAG, "Using cache key: [" + cacheKey + "]");
+        Logger.verbosePIIFormat(TAG, "Using cache key: [%s]", cacheKey);
         final CredentialType type = getCredentialTypeForCredentialCacheKey(cacheKey);
         final Class<? extends Credential> clazz;
         if (CredentialType.AccessToken == type) {
@@ -159,6 +186,7 @@ public class AccountCredentialCache implements IAccountCredentialCache {
     private Map<String, AccountRecord> getAccountsWithKeys() {
         Logger.verbose(TAG, "Loading Accounts + keys...");
         final Map<String, ?> cacheValues = mSharedPreferencesFileManager.getAll();
+        Metrics.recordValue(MetricNames.CACHE_SCAN_ENTRIES, cacheValues.size());
         final Map<String, AccountRecord> accounts = new HashMap<>();
 
         for (Map.Entry<String, ?> cacheValue : cacheValues.entrySet()) {
@@ -172,7 +200,7 @@ public class AccountCredentialCache implements IAccountCredentialCache {
             }
         }
 
-        Logger.verbose(TAG, "Returning [" + accounts.size() + "] Accounts w/ keys...");
+        Logger.verboseFormat(TAG, "Returning [%s] Accounts w/ keys...", accounts.size());
 
         return accounts;
     }
@@ -183,7 +211,7 @@ public class AccountCredentialCache implements IAccountCredentialCache {
         Logger.verbose(TAG, "Loading Accounts...(no arg)");
         final Map<String, AccountRecord> allAccounts = getAccountsWithKeys();
         final List<AccountRecord> accounts = new ArrayList<>(allAccounts.values());
-        Logger.info(TAG, "Found [" + accounts.size() + "] Accounts...");
+        Logger.infoFormat(TAG, "Found [%s] Accounts...", accounts.size());
         return accounts;
     }
 
@@ -199,8 +227,8 @@ public class AccountCredentialCache implements IAccountCredentialCache {
         final boolean mustMatchOnEnvironment = !StringExtensions.isNullOrBlank(environment);
         final boolean mustMatchOnRealm = !StringExtensions.isNullOrBlank(realm);
 
-        Logger.verbose(TAG, "Account lookup filtered by home_account_id? [" + mustMatchOnHomeAccountId + "]");
-        Logger.verbose(TAG, "Account lookup filtered by realm? [" + mustMatchOnRealm + "]");
+        Logger.verboseFormat(TAG, "Account lookup filtered by home_account_id? [%s]", mustMatchOnHomeAccountId);
+        Logger.verboseFormat(TAG, "Account lookup filtered by realm? [%s]", mustMatchOnRealm);
 
         final List<AccountRecord> allAccounts = getAccounts();
         final List<AccountRecord> matchingAccounts = new ArrayList<>();
@@ -225,7 +253,9 @@ public class AccountCredentialCache implements IAccountCredentialCache {
             }
         }
 
-        Logger.info(TAG, "Found [" + matchingAccounts.size() + "] matching Accounts...");
+        Metrics.recordValue(MetricNames.CACHE_ACCOUNT_QUERY_SCANNED, allAccounts.size());
+        Metrics.recordValue(MetricNames.CACHE_ACCOUNT_QUERY_MATCHED, matchingAccounts.size());
+        Logger.infoFormat(TAG, "Found [%s] matching Accounts...", matchingAccounts.size());
 
         return matchingAccounts;
     }
@@ -234,6 +264,7 @@ public class AccountCredentialCache implements IAccountCredentialCache {
     private Map<String, Credential> getCredentialsWithKeys() {
         Logger.verbose(TAG, "Loading Credentials with keys...");
         final Map<String, ?> cacheValues = mSharedPreferencesFileManager.getAll();
+        Metrics.recordValue(MetricNames.CACHE_SCAN_ENTRIES, cacheValues.size());
         final Map<String, Credential> credentials = new HashMap<>();
 
         for (Map.Entry<String, ?> cacheValue : cacheValues.entrySet()) {
@@ -247,7 +278,7 @@ public class AccountCredentialCache implements IAccountCredentialCache {
             }
         }
 
-        Logger.verbose(TAG, "Loaded [" + credentials.size() + "] Credentials...");
+        Logger.verboseFormat(TAG, "Loaded [%s] Credentials...", credentials.size());
 
         return credentials;
     }
@@ -258,7 +289,7 @@ public class AccountCredentialCache implements IAccountCredentialCache {
         Logger.verbose(TAG, "Loading Credentials...");
         final Map<String, Credential> allCredentials = getCredentialsWithKeys();
         final List<Credential> creds = new ArrayList<>(allCredentials.values());
-        Logger.verbose(TAG, "Found [" + creds.size() + "] Credentials");
+        Logger.verboseFormat(TAG, "Found [%s] Credentials", creds.size());
         return creds;
     }
 
@@ -286,10 +317,11 @@ public class AccountCredentialCache implements IAccountCredentialCache {
         final boolean mustMatchOnRealm = !StringExtensions.isNullOrBlank(realm);
         final boolean mustMatchOnTarget = !StringExtensions.isNullOrBlank(target);
 
-        Logger.verbose(TAG, "Credential lookup filtered by home_account_id? [" + mustMatchOnHomeAccountId + "]");
-        Logger.verbose(TAG, "Credential lookup filtered by realm? [" + mustMatchOnRealm + "]");
-        Logger.verbose(TAG, "Credential lookup filtered by target? [" + mustMatchOnTarget + "]");
+        Logger.verboseFormat(TAG, "Credential lookup filtered by home_account_id? [%s]", mustMatchOnHomeAccountId);
+        Logger.verboseFormat(TAG, "Credential lookup filtered by realm? [%s]", mustMatchOnRealm);
+        Logger.verboseFormat(TAG, "Credential lookup filtered by target? [%s]", mustMatchOnTarget);
 
+        final long startTime = Metrics.startTimer();
         Logger.verbose(TAG, "Loading Credentials...");
         final List<Credential> allCredentials = getCredentials();
         final List<Credential> matchingCredentials = new ArrayList<>();
@@ -330,7 +362,10 @@ public class AccountCredentialCache implements IAccountCredentialCache {
             }
         }
 
-        Logger.info(TAG, "Found [" + matchingCredentials.size() + "] matching Credentials...");
+        Metrics.stopTimer(MetricNames.CACHE_CREDENTIAL_QUERY_TIME, startTime);
+        Metrics.recordValue(MetricNames.CACHE_CREDENTIAL_QUERY_SCANNED, allCredentials.size());
+        Metrics.recordValue(MetricNames.CACHE_CREDENTIAL_QUERY_MATCHED, matchingCredentials.size());
+        Logger.infoFormat(TAG, "Found [%s] matching Credentials...", matchingCredentials.size());
 
         return matchingCredentials;
     }
@@ -377,11 +412,11 @@ public class AccountCredentialCache implements IAccountCredentialCache {
 
         Logger.verbose(TAG, "Loading Accounts + keys...");
         final Map<String, AccountRecord> accounts = getAccountsWithKeys();
-        Logger.info(TAG, "Found [" + accounts.size() + "] Accounts...");
+        Logger.infoFormat(TAG, "Found [%s] Accounts...", accounts.size());
 
         boolean accountRemoved = false;
         for (final Map.Entry<String, AccountRecord> entry : accounts.entrySet()) {
-            Logger.infoPII(TAG, "Inspecting: [" + entry.getKey() + "]");
+            Logger.infoPIIFormat(TAG, "Inspecting: [%s]", entry.getKey());
             final IAccountRecord currentAccount = entry.getValue();
 
             if (currentAccount.equals(accountToRemove)) {
@@ -391,7 +426,7 @@ public class AccountCredentialCache implements IAccountCredentialCache {
             }
         }
 
-        Logger.info(TAG, "Account was removed? [" + accountRemoved + "]");
+        Logger.infoFormat(TAG, "Account was removed? [%s]", accountRemoved);
 
         return accountRemoved;
     }
@@ -405,11 +440,11 @@ public class AccountCredentialCache implements IAccountCredentialCache {
 
         Logger.verbose(TAG, "Loading Credentials + keys...");
         final Map<String, Credential> credentials = getCredentialsWithKeys();
-        Logger.info(TAG, "Found [" + credentials.size() + "] Credentials...");
+        Logger.infoFormat(TAG, "Found [%s] Credentials...", credentials.size());
 
         boolean credentialRemoved = false;
         for (final Map.Entry<String, Credential> entry : credentials.entrySet()) {
-            Logger.infoPII(TAG, "Inspecting: [" + entry.getKey() + "]");
+            Logger.infoPIIFormat(TAG, "Inspecting: [%s]", entry.getKey());
             final Credential currentCredential = entry.getValue();
 
             if (currentCredential.equals(credentialToRemove)) {
@@ -419,7 +454,7 @@ public class AccountCredentialCache implements IAccountCredentialCache {
             }
         }
 
-        Logger.info(TAG, "Credential was removed? [" + credentialRemoved + "]");
+        Logger.infoFormat(TAG, "Credential was removed? [%s]", credentialRemoved);
 
         return credentialRemoved;
     }
@@ -433,11 +468,11 @@ public class AccountCredentialCache implements IAccountCredentialCache {
 
     private Class<? extends Credential> credentialClassForType(@NonNull final String cacheKey) {
         Logger.verbose(TAG, "Resolving class for key/CredentialType...");
-        Logger.verbosePII(TAG, "Supplied key: [" + cacheKey + "]");
+        Logger.verbosePIIFormat(TAG, "Supplied key: [%s]", cacheKey);
 
         final CredentialType targetType = getCredentialTypeForCredentialCacheKey(cacheKey);
 
-        Logger.verbose(TAG, "CredentialType matched: [" + targetType + "]");
+        Logger.verboseFormat(TAG, "CredentialType matched: [%s]", targetType);
 
         Class<? extends Credential> credentialClass = null;
         switch (targetType) {
@@ -453,7 +488,7 @@ public class AccountCredentialCache implements IAccountCredentialCache {
             default:
                 Logger.warn(TAG, "Could not match CredentialType to class."
                         + "Did you forget to update this method with a new type?");
-                Logger.warnPII(TAG, "Sought key was: [" + cacheKey + "]");
+                Logger.warnPIIFormat(TAG, "Sought key was: [%s]", cacheKey);
         }
 
         return credentialClass;
@@ -470,7 +505,7 @@ public class AccountCredentialCache implements IAccountCredentialCache {
             throw new IllegalArgumentException("Param [cacheKey] cannot be null.");
         }
 
-        Logger.verbosePII(TAG, "Evaluating cache key for CredentialType [" + cacheKey + "]");
+        Logger.verbosePIIFormat(TAG, "Evaluating cache key for CredentialType [%s]", cacheKey);
 
         final Set<String> credentialTypesLowerCase = new HashSet<>();
 
@@ -501,22 +536,22 @@ public class AccountCredentialCache implements IAccountCredentialCache {
             }
         }
 
-        Logger.info(TAG, "Cache key was type: [" + type + "]");
+        Logger.infoFormat(TAG, "Cache key was type: [%s]", type);
 
         return type;
     }
 
     private boolean isAccount(@NonNull final String cacheKey) {
-        Logger.verbosePII(TAG, "Evaluating cache key: [" + cacheKey + "]");
+        Logger.verbosePIIFormat(TAG, "Evaluating cache key: [%s]", cacheKey);
         boolean isAccount = null == getCredentialTypeForCredentialCacheKey(cacheKey);
-        Logger.info(TAG, "isAccount? [" + isAccount + "]");
+        Logger.infoFormat(TAG, "isAccount? [%s]", isAccount);
         return isAccount;
     }
 
     private boolean isCredential(@NonNull String cacheKey) {
-        Logger.verbosePII(TAG, "Evaluating cache key: [" + cacheKey + "]");
+        Logger.verbosePIIFormat(TAG, "Evaluating cache key: [%s]", cacheKey);
         boolean isCredential = null != getCredentialTypeForCredentialCacheKey(cacheKey);
-        Logger.info(TAG, "isCredential? [" + isCredential + "]");
+        Logger.infoFormat(TAG, "isCredential? [%s]", isCredential);
         return isCredential;
     }
 
@@ -50,6 +50,16 @@ public interface IAccountCredentialCache {
      */
     void saveCredential(final Credential credential);
 
+    /**
+     * Saves the supplied Accounts and Credentials in the cache in a single write. Entries sharing
+     * a cache key are saved once, the last one supplied winning.
+     *
+     * @param accounts    The Accounts to save.
+     * @param credentials The Credentials to save.
+     */
+    void saveAccountsAndCredentials(final List<AccountRecord> accounts,
+                                    final List<Credential> credentials);
+
     /**
      * Gets the Account saved for the supplied cache key.
      *
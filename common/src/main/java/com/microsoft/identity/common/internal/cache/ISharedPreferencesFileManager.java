@@ -25,6 +25,7 @@ package com.microsoft.identity.common.internal.cache;
 import android.content.SharedPreferences;
 
 import java.util.Map;
+import java.util.Set;
 
 
 public interface ISharedPreferencesFileManager {
@@ -36,6 +37,13 @@ public interface ISharedPreferencesFileManager {
      */
     void putString(String key, String value);
 
+    /**
+     * Saves the supplied entries to the {@link SharedPreferences} file in a single write.
+     *
+     * @param entries The names (keys) and values of the Tokens to save.
+     */
+    void putStrings(Map<String, String> entries);
+
     /**
      * Retrieves a Token from the {@link SharedPreferences} file.
      *
@@ -61,6 +69,14 @@ public interface ISharedPreferencesFileManager {
      */
     Map<String, String> getAll();
 
+    /**
+     * Returns the keys of all entries in the {@link SharedPreferences} file. Unlike
+     * {@link #getAll()}, no value is read or decrypted.
+     *
+     * @return A Set of all keys.
+     */
+    Set<String> getKeys();
+
     /**
      * Tests if the {@link SharedPreferences} file contains an entry for the supplied key.
      *
@@ -98,7 +98,69 @@ public class MsalOAuth2TokenCache
     public ICacheRecord save(@NonNull final GenericOAuth2Strategy oAuth2Strategy,
                              @NonNull final GenericAuthorizationRequest request,
                              @NonNull final GenericTokenResponse response) throws ClientException {
-        final String methodName = ":save";
+        final CacheRecord result = createCacheRecord(oAuth2Strategy, request, response);
+
+        removeRefreshTokensIfMultiResourceCapable(result.getAccount(), result.getRefreshToken());
+
+        // Save the Account and Credentials...
+        saveAccounts(result.getAccount());
+        saveCredentials(result.getAccessToken(), result.getRefreshToken(), result.getIdToken());
+
+        return result;
+    }
+
+    @Override
+    public List<ICacheRecord> saveAll(@NonNull final GenericOAuth2Strategy oAuth2Strategy,
+                                      @NonNull final List<GenericAuthorizationRequest> requests,
+                                      @NonNull final List<GenericTokenResponse> responses) throws ClientException {
+        final String methodName = ":saveAll";
+        final List<ICacheRecord> result = new ArrayList<>();
+        final List<AccountRecord> accountsToSave = new ArrayList<>();
+        final List<Credential> credentialsToSave = new ArrayList<>();
+        final Set<String> accountsCleared = new HashSet<>();
+
+        // Validate everything before touching the cache, so that a bad response saves nothing
+        for (int i = 0; i < requests.size(); i++) {
+            result.add(createCacheRecord(oAuth2Strategy, requests.get(i), responses.get(i)));
+        }
+
+        for (final ICacheRecord cacheRecord : result) {
+            final AccountRecord account = cacheRecord.getAccount();
+            final RefreshTokenRecord refreshToken = cacheRecord.getRefreshToken();
+
+            if (accountsCleared.add(account.getHomeAccountId()
+                    + account.getEnvironment()
+                    + refreshToken.getClientId())) {
+                removeRefreshTokensIfMultiResourceCapable(account, refreshToken);
+            }
+
+            if (null != cacheRecord.getAccessToken()) {
+                deleteAccessTokensWithIntersectingScopes(cacheRecord.getAccessToken());
+                credentialsToSave.add(cacheRecord.getAccessToken());
+            }
+
+            accountsToSave.add(account);
+            credentialsToSave.add(refreshToken);
+            credentialsToSave.add(cacheRecord.getIdToken());
+        }
+
+        Logger.info(
+                TAG + methodName,
+                "Saving results of [" + result.size() + "] responses."
+        );
+
+        mAccountCredentialCache.saveAccountsAndCredentials(accountsToSave, credentialsToSave);
+
+        return result;
+    }
+
+    /**
+     * Creates and validates the Account and Credentials for the supplied response, without saving
+     * them.
+     */
+    private CacheRecord createCacheRecord(@NonNull final GenericOAuth2Strategy oAuth2Strategy,
+                                          @NonNull final GenericAuthorizationRequest request,
+                                          @NonNull final GenericTokenResponse response) throws ClientException {
         // Create the Account
         final AccountRecord accountToSave =
                 mAccountCredentialAdapter.createAccount(
@@ -139,6 +201,18 @@ public class MsalOAuth2TokenCache
                 idTokenToSave
         );
 
+        final CacheRecord result = new CacheRecord();
+        result.setAccount(accountToSave);
+        result.setAccessToken(accessTokenToSave);
+        result.setRefreshToken(refreshTokenToSave);
+        result.setIdToken(idTokenToSave);
+
+        return result;
+    }
+
+    private void removeRefreshTokensIfMultiResourceCapable(@NonNull final AccountRecord accountToSave,
+                                                           @NonNull final RefreshTokenRecord refreshTokenToSave) {
+        final String methodName = ":removeRefreshTokensIfMultiResourceCapable";
         final boolean isMultiResourceCapable = MicrosoftAccount.AUTHORITY_TYPE_V1_V2.equals(
                 accountToSave.getAuthorityType()
         );
@@ -173,18 +247,6 @@ public class MsalOAuth2TokenCache
                 );
             }
         }
-
-        // Save the Account and Credentials...
-        saveAccounts(accountToSave);
-        saveCredentials(accessTokenToSave, refreshTokenToSave, idTokenToSave);
-
-        final CacheRecord result = new CacheRecord();
-        result.setAccount(accountToSave);
-        result.setAccessToken(accessTokenToSave);
-        result.setRefreshToken(refreshTokenToSave);
-        result.setIdToken(idTokenToSave);
-
-        return result;
     }
 
     @Override
@@ -610,7 +672,7 @@ public class MsalOAuth2TokenCache
 
         for (final Credential accessToken : accessTokens) {
             if (scopesIntersect(referenceToken, (AccessTokenRecord) accessToken)) {
-                Logger.infoPII(TAG + ":" + methodName, "Removing credential: " + accessToken);
+                Logger.infoPIIFormat(TAG + ":" + methodName, "Removing credential: %s", accessToken);
                 mAccountCredentialCache.removeCredential(accessToken);
             }
         }
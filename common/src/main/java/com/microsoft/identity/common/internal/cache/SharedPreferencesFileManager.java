@@ -29,10 +29,13 @@ import android.content.SharedPreferences;
 import com.microsoft.identity.common.adal.internal.cache.IStorageHelper;
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Convenience class for accessing {@link SharedPreferences}.
@@ -133,7 +136,24 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
             editor.putString(key, encrypt(value));
         }
 
-        editor.commit();
+        commit(editor);
+    }
+
+    // Suppressing because cache integrity is a greater concern than perf
+    @SuppressLint("ApplySharedPref")
+    @Override
+    public final void putStrings(final Map<String, String> entries) {
+        final SharedPreferences.Editor editor = mSharedPreferences.edit();
+
+        for (final Map.Entry<String, String> entry : entries.entrySet()) {
+            if (null == mStorageHelper) {
+                editor.putString(entry.getKey(), entry.getValue());
+            } else {
+                editor.putString(entry.getKey(), encrypt(entry.getValue()));
+            }
+        }
+
+        commit(editor);
     }
 
     @Override
@@ -165,6 +185,11 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
         return entries;
     }
 
+    @Override
+    public final Set<String> getKeys() {
+        return mSharedPreferences.getAll().keySet();
+    }
+
     @Override
     public final boolean contains(final String key) {
         final boolean contains = mSharedPreferences.contains(key);
@@ -176,7 +201,7 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
     public final void clear() {
         final SharedPreferences.Editor editor = mSharedPreferences.edit();
         editor.clear();
-        editor.commit();
+        commit(editor);
     }
 
     @SuppressLint("ApplySharedPref")
@@ -184,7 +209,19 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
     public void remove(final String key) {
         final SharedPreferences.Editor editor = mSharedPreferences.edit();
         editor.remove(key);
-        editor.commit();
+        commit(editor);
+    }
+
+    // Suppressing because cache integrity is a greater concern than perf
+    @SuppressLint("ApplySharedPref")
+    private static void commit(final SharedPreferences.Editor editor) {
+        final long startTime = Metrics.startTimer();
+        final boolean committed = editor.commit();
+        Metrics.stopTimer(MetricNames.STORAGE_COMMIT_TIME, startTime);
+
+        if (!committed) {
+            Metrics.increment(MetricNames.STORAGE_COMMIT_FAILURES);
+        }
     }
 
     private String encrypt(final String clearText) {
@@ -0,0 +1,181 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.controllers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.adal.internal.util.StringExtensions;
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
+import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResponse;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link RefreshTokenRedeemer} which coalesces concurrent, identical redemptions.
+ * <p>
+ * When several threads find the same access token expired, only the first one sends the refresh
+ * token request and writes the result to the cache; the others wait for it and share its result
+ * (or its failure). Redemptions are identical if they target the same account, client id,
+ * authority and set of scopes (case-insensitive, in any order). The save condition of the first
+ * caller applies to the shared redemption.
+ */
+public class CoalescingRefreshTokenRedeemer
+        <GenericOAuth2Strategy extends OAuth2Strategy,
+                GenericAuthorizationRequest extends AuthorizationRequest,
+                GenericTokenResponse extends TokenResponse>
+        extends RefreshTokenRedeemer<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> {
+
+    private static final String TAG = CoalescingRefreshTokenRedeemer.class.getSimpleName();
+
+    private final ConcurrentMap<String, InFlightRedemption> mInFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of CoalescingRefreshTokenRedeemer.
+     *
+     * @param oAuth2Strategy The strategy used to build and send the refresh token request.
+     * @param tokenCache     The cache from which the refresh token is read and to which the
+     *                       results are written.
+     */
+    public CoalescingRefreshTokenRedeemer(@NonNull final GenericOAuth2Strategy oAuth2Strategy,
+                                          @NonNull final OAuth2TokenCache<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> tokenCache) {
+        super(oAuth2Strategy, tokenCache);
+    }
+
+    @Override
+    public ICacheRecord redeem(@NonNull final AccountRecord account,
+                               @NonNull final GenericAuthorizationRequest request,
+                               @Nullable final SaveCondition saveCondition)
+            throws IOException, ClientException, ServiceException {
+        final String methodName = ":redeem";
+        final String key = keyOf(account, request);
+        final InFlightRedemption redemption = new InFlightRedemption();
+        final InFlightRedemption existing = mInFlight.putIfAbsent(key, redemption);
+
+        if (null != existing) {
+            existing.mWaiters.incrementAndGet();
+            Metrics.increment(MetricNames.REFRESH_COALESCED_WAITERS);
+            Logger.verbose(TAG + methodName, "Joining in-flight refresh token redemption.");
+            return existing.await();
+        }
+
+        Metrics.increment(MetricNames.REFRESH_REDEMPTIONS);
+
+        try {
+            redemption.mResult = super.redeem(account, request, saveCondition);
+        } catch (final IOException | ClientException | ServiceException | RuntimeException e) {
+            redemption.mException = e;
+        } finally {
+            mInFlight.remove(key, redemption);
+            redemption.mLatch.countDown();
+        }
+
+        final int waiters = redemption.mWaiters.get();
+        Metrics.recordValue(MetricNames.REFRESH_WAITERS_PER_REDEMPTION, waiters);
+
+        if (waiters > 0) {
+            Logger.info(TAG + methodName, "Coalesced [" + waiters + "] waiters onto one redemption.");
+        }
+
+        return redemption.getResult();
+    }
+
+    private static String keyOf(@NonNull final AccountRecord account,
+                                @NonNull final AuthorizationRequest request) {
+        final String authority = request instanceof MicrosoftAuthorizationRequest
+                && null != ((MicrosoftAuthorizationRequest) request).getAuthority()
+                ? ((MicrosoftAuthorizationRequest) request).getAuthority().toString()
+                : account.getEnvironment();
+
+        return account.getHomeAccountId()
+                + "|" + account.getEnvironment()
+                + "|" + request.getClientId()
+                + "|" + authority
+                + "|" + normalizeScopes(request.getScope());
+    }
+
+    private static String normalizeScopes(final String scopes) {
+        if (StringExtensions.isNullOrBlank(scopes)) {
+            return "";
+        }
+
+        final Set<String> scopeSet = new TreeSet<>();
+
+        for (final String scope : scopes.trim().split("\\s+")) {
+            scopeSet.add(scope.toLowerCase(Locale.US));
+        }
+
+        return scopeSet.toString();
+    }
+
+    private static class InFlightRedemption {
+        private final CountDownLatch mLatch = new CountDownLatch(1);
+        private final AtomicInteger mWaiters = new AtomicInteger();
+        private volatile ICacheRecord mResult;
+        private volatile Exception mException;
+
+        ICacheRecord await() throws IOException, ClientException, ServiceException {
+            try {
+                mLatch.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for refresh token redemption.", e);
+            }
+
+            return getResult();
+        }
+
+        ICacheRecord getResult() throws IOException, ClientException, ServiceException {
+            final Exception exception = mException;
+
+            if (exception instanceof IOException) {
+                throw (IOException) exception;
+            } else if (exception instanceof ClientException) {
+                throw (ClientException) exception;
+            } else if (exception instanceof ServiceException) {
+                throw (ServiceException) exception;
+            } else if (exception instanceof RuntimeException) {
+                throw (RuntimeException) exception;
+            }
+
+            return mResult;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.controllers;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Acquires tokens for several resources of one Account at once, e.g. to warm the cache at app
+ * start.
+ * <p>
+ * The cached refresh token of the Account is redeemed once per request, in parallel with bounded
+ * concurrency. For Accounts with a multi-resource refresh token this turns N sequential round
+ * trips into roughly one. All successful results are written to the cache together using
+ * {@link com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache#saveAll}.
+ */
+public class MultiResourceTokenAcquirer
+        <GenericOAuth2Strategy extends OAuth2Strategy,
+                GenericAuthorizationRequest extends AuthorizationRequest,
+                GenericTokenResponse extends TokenResponse> {
+
+    private static final String TAG = MultiResourceTokenAcquirer.class.getSimpleName();
+
+    /**
+     * Default maximum number of token requests sent at the same time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+
+    private final RefreshTokenRedeemer<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> mRedeemer;
+
+    private final ExecutorService mExecutor;
+
+    /**
+     * Constructor of MultiResourceTokenAcquirer, using the default concurrency.
+     *
+     * @param redeemer The redeemer used to request tokens.
+     */
+    public MultiResourceTokenAcquirer(@NonNull final RefreshTokenRedeemer<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> redeemer) {
+        this(redeemer, DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * Constructor of MultiResourceTokenAcquirer.
+     *
+     * @param redeemer              The redeemer used to request tokens.
+     * @param maxConcurrentRequests Maximum number of token requests sent at the same time.
+     */
+    public MultiResourceTokenAcquirer(@NonNull final RefreshTokenRedeemer<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> redeemer,
+                                      final int maxConcurrentRequests) {
+        mRedeemer = redeemer;
+        mExecutor = Executors.newFixedThreadPool(
+                maxConcurrentRequests,
+                new AcquirerThreadFactory()
+        );
+    }
+
+    /**
+     * Acquires tokens for each of the supplied requests, one per set of scopes, by redeeming the
+     * cached refresh token of the supplied Account.
+     * <p>
+     * If some requests fail, the results of the others are still saved, then the first failure
+     * (in the order of requests) is thrown.
+     *
+     * @param account  The Account for which tokens should be acquired.
+     * @param requests The requests, one per set of scopes.
+     * @return The {@link ICacheRecord}s saved to the cache, in the order of requests.
+     * @throws IOException      If a token request could not be sent.
+     * @throws ClientException  If no refresh token is cached or the results cannot be saved.
+     * @throws ServiceException If the token endpoint returned an error.
+     */
+    public List<ICacheRecord> acquireTokens(@NonNull final AccountRecord account,
+                                            @NonNull final List<GenericAuthorizationRequest> requests)
+            throws IOException, ClientException, ServiceException {
+        final String methodName = ":acquireTokens";
+        Logger.verbose(TAG + methodName, "Requesting tokens for [" + requests.size() + "] scope sets...");
+
+        final List<Future<GenericTokenResponse>> futures = new ArrayList<>();
+
+        for (final GenericAuthorizationRequest request : requests) {
+            futures.add(mExecutor.submit(new Callable<GenericTokenResponse>() {
+                @Override
+                public GenericTokenResponse call() throws Exception {
+                    return mRedeemer.requestTokens(account, request);
+                }
+            }));
+        }
+
+        final List<GenericAuthorizationRequest> succeededRequests = new ArrayList<>();
+        final List<GenericTokenResponse> succeededResponses = new ArrayList<>();
+        Throwable firstFailure = null;
+
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                succeededResponses.add(futures.get(i).get());
+                succeededRequests.add(requests.get(i));
+            } catch (final ExecutionException e) {
+                if (null == firstFailure) {
+                    firstFailure = e.getCause();
+                }
+            } catch (final InterruptedException e) {
+                for (final Future<GenericTokenResponse> future : futures) {
+                    future.cancel(true);
+                }
+
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while acquiring tokens.", e);
+            }
+        }
+
+        Logger.info(
+                TAG + methodName,
+                "Token requests succeeded: [" + succeededResponses.size() + "/" + requests.size() + "]"
+        );
+
+        List<ICacheRecord> result = new ArrayList<>();
+
+        if (!succeededResponses.isEmpty()) {
+            result = mRedeemer.getTokenCache().saveAll(
+                    mRedeemer.getOAuth2Strategy(),
+                    succeededRequests,
+                    succeededResponses
+            );
+        }
+
+        if (firstFailure instanceof IOException) {
+            throw (IOException) firstFailure;
+        } else if (firstFailure instanceof ClientException) {
+            throw (ClientException) firstFailure;
+        } else if (firstFailure instanceof ServiceException) {
+            throw (ServiceException) firstFailure;
+        } else if (firstFailure instanceof RuntimeException) {
+            throw (RuntimeException) firstFailure;
+        } else if (firstFailure instanceof Error) {
+            throw (Error) firstFailure;
+        }
+
+        return result;
+    }
+
+    /**
+     * Stops the threads used to send token requests. Acquisitions already running are
+     * interrupted.
+     */
+    public void shutdown() {
+        mExecutor.shutdownNow();
+    }
+
+    private static class AcquirerThreadFactory implements ThreadFactory {
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, TAG + "-" + mThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.controllers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.adal.internal.util.StringExtensions;
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenErrorResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Redeems the cached refresh token of an Account for a new set of tokens and writes the result
+ * back to the cache.
+ */
+public class RefreshTokenRedeemer
+        <GenericOAuth2Strategy extends OAuth2Strategy,
+                GenericAuthorizationRequest extends AuthorizationRequest,
+                GenericTokenResponse extends TokenResponse> {
+
+    private static final String TAG = RefreshTokenRedeemer.class.getSimpleName();
+
+    /**
+     * Decides, once the token endpoint has responded, whether the redeemed tokens should still be
+     * saved.
+     */
+    public interface SaveCondition {
+
+        /**
+         * @return True to save the tokens, false to discard them.
+         */
+        boolean shouldSave();
+    }
+
+    private final GenericOAuth2Strategy mOAuth2Strategy;
+
+    private final OAuth2TokenCache<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> mTokenCache;
+
+    /**
+     * Constructor of RefreshTokenRedeemer.
+     *
+     * @param oAuth2Strategy The strategy used to build and send the refresh token request.
+     * @param tokenCache     The cache from which the refresh token is read and to which the
+     *                       results are written.
+     */
+    public RefreshTokenRedeemer(@NonNull final GenericOAuth2Strategy oAuth2Strategy,
+                                @NonNull final OAuth2TokenCache<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> tokenCache) {
+        mOAuth2Strategy = oAuth2Strategy;
+        mTokenCache = tokenCache;
+    }
+
+    /**
+     * Gets the strategy used by this redeemer.
+     *
+     * @return The OAuth2Strategy.
+     */
+    public GenericOAuth2Strategy getOAuth2Strategy() {
+        return mOAuth2Strategy;
+    }
+
+    /**
+     * Gets the cache used by this redeemer.
+     *
+     * @return The OAuth2TokenCache.
+     */
+    public OAuth2TokenCache<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> getTokenCache() {
+        return mTokenCache;
+    }
+
+    /**
+     * Redeems the refresh token of the supplied Account for the client id and scopes of the
+     * supplied request, then saves the response to the cache.
+     *
+     * @param account The Account whose refresh token should be redeemed.
+     * @param request The request whose client id, scopes and authority describe the tokens sought.
+     * @return The {@link ICacheRecord} saved to the cache.
+     * @throws IOException      If the token request could not be sent.
+     * @throws ClientException  If no refresh token is cached or the result cannot be saved.
+     * @throws ServiceException If the token endpoint returned an error.
+     */
+    public ICacheRecord redeem(@NonNull final AccountRecord account,
+                               @NonNull final GenericAuthorizationRequest request)
+            throws IOException, ClientException, ServiceException {
+        return redeem(account, request, null);
+    }
+
+    /**
+     * Redeems the refresh token of the supplied Account for the client id and scopes of the
+     * supplied request, then saves the response to the cache if the supplied condition still
+     * holds.
+     *
+     * @param account       The Account whose refresh token should be redeemed.
+     * @param request       The request whose client id, scopes and authority describe the tokens sought.
+     * @param saveCondition Checked once the token endpoint has responded, or null to always save.
+     * @return The {@link ICacheRecord} saved to the cache.
+     * @throws IOException      If the token request could not be sent.
+     * @throws ClientException  If no refresh token is cached, the result cannot be saved or the
+     *                          condition discarded it.
+     * @throws ServiceException If the token endpoint returned an error.
+     */
+    public ICacheRecord redeem(@NonNull final AccountRecord account,
+                               @NonNull final GenericAuthorizationRequest request,
+                               @Nullable final SaveCondition saveCondition)
+            throws IOException, ClientException, ServiceException {
+        final String methodName = ":redeem";
+        final GenericTokenResponse response = requestTokens(account, request);
+
+        if (null != saveCondition && !saveCondition.shouldSave()) {
+            Logger.info(TAG + methodName, "Discarding the redeemed tokens.");
+            throw new ClientException(
+                    ErrorStrings.TOKENS_DISCARDED,
+                    "The redeemed tokens were no longer wanted when the response arrived."
+            );
+        }
+
+        return save(request, response);
+    }
+
+    /**
+     * Redeems the refresh token of the supplied Account without writing the result to the cache.
+     *
+     * @param account The Account whose refresh token should be redeemed.
+     * @param request The request whose client id, scopes and authority describe the tokens sought.
+     * @return The token response returned by the token endpoint.
+     * @throws IOException      If the token request could not be sent.
+     * @throws ClientException  If no refresh token is cached for the Account.
+     * @throws ServiceException If the token endpoint returned an error.
+     */
+    @SuppressWarnings("unchecked")
+    public GenericTokenResponse requestTokens(@NonNull final AccountRecord account,
+                                              @NonNull final GenericAuthorizationRequest request)
+            throws IOException, ClientException, ServiceException {
+        final String methodName = ":requestTokens";
+
+        final ICacheRecord cacheRecord = mTokenCache.load(
+                request.getClientId(),
+                request.getScope(),
+                account
+        );
+
+        final RefreshTokenRecord refreshToken = cacheRecord.getRefreshToken();
+
+        if (null == refreshToken) {
+            Logger.warn(TAG + methodName, "No refresh token found for account.");
+            throw new ClientException(
+                    ErrorStrings.NO_TOKENS_FOUND,
+                    "No refresh token was found for the supplied account."
+            );
+        }
+
+        final TokenRequest tokenRequest = mOAuth2Strategy.createRefreshTokenRequest(
+                refreshToken,
+                scopesAsList(request.getScope())
+        );
+
+        if (null == tokenRequest.getClientId()) {
+            tokenRequest.setClientId(request.getClientId());
+        }
+
+        Logger.verbose(TAG + methodName, "Redeeming refresh token...");
+        final TokenResult tokenResult = mOAuth2Strategy.requestToken(tokenRequest);
+
+        if (!tokenResult.getSuccess()) {
+            final TokenErrorResponse errorResponse = tokenResult.getErrorResponse();
+            Logger.warn(TAG + methodName, "Refresh token redemption failed.");
+            throw new ServiceException(
+                    null == errorResponse ? ErrorStrings.UNKNOWN_ERROR : errorResponse.getError(),
+                    null == errorResponse ? null : errorResponse.getErrorDescription(),
+                    null == errorResponse ? 0 : errorResponse.getStatusCode(),
+                    null
+            );
+        }
+
+        return (GenericTokenResponse) tokenResult.getTokenResponse();
+    }
+
+    /**
+     * Saves a token response previously returned by
+     * {@link #requestTokens(AccountRecord, AuthorizationRequest)}.
+     *
+     * @param request  The request used to acquire the response.
+     * @param response The response to save.
+     * @return The {@link ICacheRecord} saved to the cache.
+     * @throws ClientException If the result cannot be saved.
+     */
+    public ICacheRecord save(@NonNull final GenericAuthorizationRequest request,
+                             @NonNull final GenericTokenResponse response) throws ClientException {
+        return mTokenCache.save(mOAuth2Strategy, request, response);
+    }
+
+    private static List<String> scopesAsList(final String scopes) {
+        if (StringExtensions.isNullOrBlank(scopes)) {
+            return new ArrayList<>();
+        }
+
+        return Arrays.asList(scopes.trim().split("\\s+"));
+    }
+}
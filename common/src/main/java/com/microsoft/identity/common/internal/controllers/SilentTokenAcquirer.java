@@ -0,0 +1,163 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.controllers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResponse;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * Acquires tokens silently: returns the cached access token if it has not expired, otherwise
+ * redeems the cached refresh token.
+ * <p>
+ * If the extended expiry fallback is enabled and the token endpoint is unavailable (a 5xx
+ * response or a network failure once {@link com.microsoft.identity.common.internal.net.HttpRequest}
+ * has exhausted its retries), a cached access token which is still within its
+ * extended_expires_on is returned instead, flagged on the {@link SilentTokenResult}, and a
+ * background retry of the refresh is scheduled. The fallback is disabled by default.
+ */
+public class SilentTokenAcquirer
+        <GenericOAuth2Strategy extends OAuth2Strategy,
+                GenericAuthorizationRequest extends AuthorizationRequest,
+                GenericTokenResponse extends TokenResponse> {
+
+    private static final String TAG = SilentTokenAcquirer.class.getSimpleName();
+
+    private final RefreshTokenRedeemer<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> mRedeemer;
+
+    private final TokenRefreshScheduler<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> mScheduler;
+
+    private volatile boolean mExtendedExpiryFallbackEnabled;
+
+    /**
+     * Constructor of SilentTokenAcquirer.
+     *
+     * @param redeemer  The redeemer used when the cached access token has expired.
+     * @param scheduler The scheduler used to retry refreshes after falling back to a token within
+     *                  its extended lifetime. May be null, in which case no retry is scheduled.
+     */
+    public SilentTokenAcquirer(@NonNull final RefreshTokenRedeemer<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> redeemer,
+                               @Nullable final TokenRefreshScheduler<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> scheduler) {
+        mRedeemer = redeemer;
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Enables or disables serving tokens within their extended lifetime when the token endpoint
+     * is unavailable.
+     *
+     * @param enabled True to enable the fallback, false to disable it.
+     */
+    public void setExtendedExpiryFallbackEnabled(final boolean enabled) {
+        mExtendedExpiryFallbackEnabled = enabled;
+    }
+
+    /**
+     * Tests whether the extended expiry fallback is enabled.
+     *
+     * @return True if enabled, false otherwise.
+     */
+    public boolean isExtendedExpiryFallbackEnabled() {
+        return mExtendedExpiryFallbackEnabled;
+    }
+
+    /**
+     * Acquires tokens for the supplied Account without user interaction.
+     *
+     * @param account The Account for which tokens should be acquired.
+     * @param request The request whose client id, scopes and authority describe the tokens sought.
+     * @return The {@link SilentTokenResult}.
+     * @throws IOException      If the token request could not be sent and no fallback was possible.
+     * @throws ClientException  If no refresh token is cached or the result cannot be saved.
+     * @throws ServiceException If the token endpoint returned an error and no fallback was possible.
+     */
+    public SilentTokenResult acquireTokenSilent(@NonNull final AccountRecord account,
+                                                @NonNull final GenericAuthorizationRequest request)
+            throws IOException, ClientException, ServiceException {
+        final String methodName = ":acquireTokenSilent";
+
+        final ICacheRecord cacheRecord = mRedeemer.getTokenCache().load(
+                request.getClientId(),
+                request.getScope(),
+                account
+        );
+
+        final AccessTokenRecord accessToken = cacheRecord.getAccessToken();
+
+        if (null != accessToken && !accessToken.isExpiredIgnoringExtendedExpiry()) {
+            Logger.verbose(TAG + methodName, "Returning cached access token.");
+            return new SilentTokenResult(cacheRecord, false);
+        }
+
+        try {
+            return new SilentTokenResult(mRedeemer.redeem(account, request), false);
+        } catch (final IOException e) {
+            if (canFallBack(accessToken)) {
+                return fallBack(cacheRecord, account, request);
+            }
+
+            throw e;
+        } catch (final ServiceException e) {
+            if (e.getHttpStatusCode() >= HttpURLConnection.HTTP_INTERNAL_ERROR
+                    && canFallBack(accessToken)) {
+                return fallBack(cacheRecord, account, request);
+            }
+
+            throw e;
+        }
+    }
+
+    private boolean canFallBack(@Nullable final AccessTokenRecord accessToken) {
+        return mExtendedExpiryFallbackEnabled
+                && null != accessToken
+                && !accessToken.isExpired();
+    }
+
+    private SilentTokenResult fallBack(@NonNull final ICacheRecord cacheRecord,
+                                       @NonNull final AccountRecord account,
+                                       @NonNull final GenericAuthorizationRequest request) {
+        final String methodName = ":fallBack";
+        Logger.warn(
+                TAG + methodName,
+                "Token endpoint unavailable, returning access token within its extended lifetime."
+        );
+
+        if (null != mScheduler) {
+            mScheduler.scheduleRetry(cacheRecord.getAccessToken(), account, request);
+        }
+
+        return new SilentTokenResult(cacheRecord, true);
+    }
+}
@@ -0,0 +1,70 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.controllers;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+
+/**
+ * The result of a silent token acquisition.
+ */
+public class SilentTokenResult {
+
+    private final ICacheRecord mCacheRecord;
+
+    private final boolean mServedFromExtendedLifetime;
+
+    /**
+     * Constructor of SilentTokenResult.
+     *
+     * @param cacheRecord                The cache record holding the tokens returned.
+     * @param servedFromExtendedLifetime True if the access token is past its expires_on and was
+     *                                   served only because the token endpoint was unavailable.
+     */
+    public SilentTokenResult(@NonNull final ICacheRecord cacheRecord,
+                             final boolean servedFromExtendedLifetime) {
+        mCacheRecord = cacheRecord;
+        mServedFromExtendedLifetime = servedFromExtendedLifetime;
+    }
+
+    /**
+     * Gets the cache record holding the tokens returned.
+     *
+     * @return The cache record.
+     */
+    public ICacheRecord getCacheRecord() {
+        return mCacheRecord;
+    }
+
+    /**
+     * Tests whether the access token was served within its extended lifetime because the token
+     * endpoint was unavailable. Such a token is still accepted by resources which honor
+     * extended_expires_on, but has not been renewed.
+     *
+     * @return True if the token was served from its extended lifetime, false otherwise.
+     */
+    public boolean isServedFromExtendedLifetime() {
+        return mServedFromExtendedLifetime;
+    }
+}
@@ -0,0 +1,535 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.controllers;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
+import com.microsoft.identity.common.adal.internal.util.StringExtensions;
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResponse;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refreshes access tokens in the background shortly before they expire, so that foreground
+ * silent requests are served from the cache.
+ * <p>
+ * Scheduled tokens are kept in a priority queue ordered by their refresh time; a single
+ * dispatcher thread hands due entries to a fixed-size pool, bounding the number of concurrent
+ * refreshes. The refresh time of each token is its expiry, less the refresh window, less a random
+ * jitter so that tokens acquired together are not all refreshed at the same instant.
+ */
+public class TokenRefreshScheduler
+        <GenericOAuth2Strategy extends OAuth2Strategy,
+                GenericAuthorizationRequest extends AuthorizationRequest,
+                GenericTokenResponse extends TokenResponse> {
+
+    private static final String TAG = TokenRefreshScheduler.class.getSimpleName();
+
+    /**
+     * Default time before expiry at which a token becomes eligible for refresh.
+     */
+    public static final long DEFAULT_REFRESH_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Default upper bound of the random jitter subtracted from each refresh time.
+     */
+    public static final long DEFAULT_MAX_JITTER_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Default number of refreshes which may run concurrently.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REFRESHES = 2;
+
+    /**
+     * Delay before a failed refresh is attempted again, if the token has not yet expired.
+     */
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private final RefreshTokenRedeemer<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> mRedeemer;
+    private final long mRefreshWindowMillis;
+    private final long mMaxJitterMillis;
+    private final ExecutorService mRefreshExecutor;
+    private final Random mRandom = new Random();
+
+    private final Object mLock = new Object();
+    private final PriorityQueue<ScheduledRefresh> mQueue = new PriorityQueue<>();
+    private final Map<String, ScheduledRefresh> mScheduled = new HashMap<>();
+    private final Map<String, Future<?>> mInFlight = new HashMap<>();
+    private Thread mDispatcher;
+    private boolean mShutdown;
+
+    /**
+     * Constructs a new TokenRefreshScheduler using the default window, jitter and concurrency.
+     *
+     * @param redeemer The redeemer used to refresh tokens.
+     */
+    public TokenRefreshScheduler(@NonNull final RefreshTokenRedeemer<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> redeemer) {
+        this(
+                redeemer,
+                DEFAULT_REFRESH_WINDOW_MILLIS,
+                DEFAULT_MAX_JITTER_MILLIS,
+                DEFAULT_MAX_CONCURRENT_REFRESHES
+        );
+    }
+
+    /**
+     * Constructs a new TokenRefreshScheduler.
+     *
+     * @param redeemer               The redeemer used to refresh tokens.
+     * @param refreshWindowMillis    Time before expiry at which a token becomes eligible for refresh.
+     * @param maxJitterMillis        Upper bound of the random jitter subtracted from each refresh time.
+     * @param maxConcurrentRefreshes Number of refreshes which may run concurrently.
+     */
+    public TokenRefreshScheduler(@NonNull final RefreshTokenRedeemer<GenericOAuth2Strategy, GenericAuthorizationRequest, GenericTokenResponse> redeemer,
+                                 final long refreshWindowMillis,
+                                 final long maxJitterMillis,
+                                 final int maxConcurrentRefreshes) {
+        if (refreshWindowMillis < 0 || maxJitterMillis < 0 || maxConcurrentRefreshes < 1) {
+            throw new IllegalArgumentException("Invalid refresh window, jitter or concurrency.");
+        }
+
+        mRedeemer = redeemer;
+        mRefreshWindowMillis = refreshWindowMillis;
+        mMaxJitterMillis = maxJitterMillis;
+        mRefreshExecutor = Executors.newFixedThreadPool(
+                maxConcurrentRefreshes,
+                new RefreshThreadFactory()
+        );
+    }
+
+    /**
+     * Schedules a background refresh of the supplied access token. Scheduling a token whose
+     * account, client id and target are already scheduled replaces the earlier entry.
+     *
+     * @param accessToken The cached access token to keep fresh.
+     * @param account     The Account which owns the token.
+     * @param request     The request used to redeem the refresh token and save the result.
+     */
+    public void schedule(@NonNull final AccessTokenRecord accessToken,
+                         @NonNull final AccountRecord account,
+                         @NonNull final GenericAuthorizationRequest request) {
+        final String methodName = ":schedule";
+
+        if (StringExtensions.isNullOrBlank(accessToken.getExpiresOn())) {
+            Logger.warn(TAG + methodName, "Access token has no expiry, not scheduling.");
+            return;
+        }
+
+        final long expiresOnMillis;
+        try {
+            expiresOnMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(accessToken.getExpiresOn()));
+        } catch (final NumberFormatException e) {
+            Logger.warn(TAG + methodName, "Access token has a malformed expiry, not scheduling.");
+            return;
+        }
+
+        final long refreshAtMillis = expiresOnMillis - mRefreshWindowMillis - nextJitter();
+
+        enqueue(new ScheduledRefresh(
+                keyOf(account, request),
+                refreshAtMillis,
+                expiresOnMillis,
+                account,
+                request
+        ));
+    }
+
+    /**
+     * Schedules a retry of a refresh which failed in the foreground, e.g. because the token
+     * endpoint was unavailable and the caller fell back to a token within its extended lifetime.
+     * The refresh is first attempted after the retry delay and retried until the extended
+     * expiry of the token.
+     *
+     * @param accessToken The cached access token being served in place of a fresh one.
+     * @param account     The Account which owns the token.
+     * @param request     The request used to redeem the refresh token and save the result.
+     */
+    public void scheduleRetry(@NonNull final AccessTokenRecord accessToken,
+                              @NonNull final AccountRecord account,
+                              @NonNull final GenericAuthorizationRequest request) {
+        final String methodName = ":scheduleRetry";
+        final String expiry = StringExtensions.isNullOrBlank(accessToken.getExtendedExpiresOn())
+                ? accessToken.getExpiresOn()
+                : accessToken.getExtendedExpiresOn();
+
+        if (StringExtensions.isNullOrBlank(expiry)) {
+            Logger.warn(TAG + methodName, "Access token has no expiry, not scheduling.");
+            return;
+        }
+
+        final long expiresOnMillis;
+        try {
+            expiresOnMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(expiry));
+        } catch (final NumberFormatException e) {
+            Logger.warn(TAG + methodName, "Access token has a malformed expiry, not scheduling.");
+            return;
+        }
+
+        enqueue(new ScheduledRefresh(
+                keyOf(account, request),
+                System.currentTimeMillis() + RETRY_DELAY_MILLIS,
+                expiresOnMillis,
+                account,
+                request
+        ));
+    }
+
+    /**
+     * Cancels queued and in-flight refreshes for the supplied Account. Should be called when the
+     * Account is removed from the cache; a refresh which is already running when the Account is
+     * removed will not write its result.
+     *
+     * @param account The Account whose refreshes should be cancelled.
+     * @return The number of refreshes cancelled.
+     */
+    public int cancel(@NonNull final AccountRecord account) {
+        final String methodName = ":cancel";
+        final String accountPrefix = accountKeyOf(account);
+        int cancelled = 0;
+
+        synchronized (mLock) {
+            final Iterator<Map.Entry<String, ScheduledRefresh>> scheduled = mScheduled.entrySet().iterator();
+
+            while (scheduled.hasNext()) {
+                final Map.Entry<String, ScheduledRefresh> entry = scheduled.next();
+
+                if (entry.getKey().startsWith(accountPrefix)) {
+                    entry.getValue().mCancelled = true;
+                    mQueue.remove(entry.getValue());
+                    scheduled.remove();
+                    cancelled++;
+                }
+            }
+
+            final Iterator<Map.Entry<String, Future<?>>> inFlight = mInFlight.entrySet().iterator();
+
+            while (inFlight.hasNext()) {
+                final Map.Entry<String, Future<?>> entry = inFlight.next();
+
+                if (entry.getKey().startsWith(accountPrefix)) {
+                    // A refresh cancelled before it starts never reaches its finally block
+                    entry.getValue().cancel(true);
+                    inFlight.remove();
+                }
+            }
+        }
+
+        Logger.info(TAG + methodName, "Refreshes cancelled: [" + cancelled + "]");
+
+        return cancelled;
+    }
+
+    /**
+     * Gets the number of refreshes which are queued or running.
+     *
+     * @return The number of pending refreshes.
+     */
+    public int getPendingCount() {
+        synchronized (mLock) {
+            return mScheduled.size();
+        }
+    }
+
+    /**
+     * Stops the dispatcher and discards all pending refreshes.
+     */
+    public void shutdown() {
+        synchronized (mLock) {
+            mShutdown = true;
+
+            for (final ScheduledRefresh refresh : mScheduled.values()) {
+                refresh.mCancelled = true;
+            }
+
+            mScheduled.clear();
+            mQueue.clear();
+            mLock.notifyAll();
+        }
+
+        mRefreshExecutor.shutdownNow();
+    }
+
+    private void enqueue(@NonNull final ScheduledRefresh refresh) {
+        synchronized (mLock) {
+            if (mShutdown) {
+                return;
+            }
+
+            final ScheduledRefresh previous = mScheduled.put(refresh.mKey, refresh);
+
+            if (null != previous) {
+                previous.mCancelled = true;
+                mQueue.remove(previous);
+            }
+
+            mQueue.add(refresh);
+            ensureDispatcherStarted();
+            mLock.notifyAll();
+        }
+    }
+
+    private void ensureDispatcherStarted() {
+        if (null == mDispatcher) {
+            mDispatcher = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch();
+                }
+            }, TAG + "-dispatcher");
+            mDispatcher.setDaemon(true);
+            mDispatcher.start();
+        }
+    }
+
+    private void dispatch() {
+        synchronized (mLock) {
+            while (!mShutdown) {
+                final ScheduledRefresh next = mQueue.peek();
+
+                try {
+                    if (null == next) {
+                        mLock.wait();
+                        continue;
+                    }
+
+                    final long delay = next.mRefreshAtMillis - System.currentTimeMillis();
+
+                    if (delay > 0) {
+                        mLock.wait(delay);
+                        continue;
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                mQueue.poll();
+                next.mFuture = mRefreshExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        refresh(next);
+                    }
+                });
+                mInFlight.put(next.mKey, next.mFuture);
+            }
+        }
+    }
+
+    private void refresh(@NonNull final ScheduledRefresh refresh) {
+        final String methodName = ":refresh";
+        Logger.verbose(TAG + methodName, "Refreshing access token in background...");
+
+        ICacheRecord cacheRecord = null;
+        ScheduledRefresh followUp = null;
+
+        try {
+            cacheRecord = redeemIfCurrent(refresh);
+        } catch (final ClientException e) {
+            // No refresh token (e.g. the account was removed) or the result could not be saved;
+            // retrying would not help.
+            Logger.warn(TAG + methodName, "Background refresh abandoned: " + e.getErrorCode());
+        } catch (final ServiceException e) {
+            if (isTransient(e)) {
+                Logger.warn(TAG + methodName, "Background refresh failed, will retry if possible.");
+                followUp = retryOf(refresh);
+            } else {
+                // e.g. invalid_grant; the refresh token will not be accepted on a retry either
+                Logger.warn(TAG + methodName, "Background refresh abandoned: " + e.getErrorCode());
+            }
+        } catch (final IOException e) {
+            Logger.warn(TAG + methodName, "Background refresh failed, will retry if possible.");
+            followUp = retryOf(refresh);
+        } finally {
+            synchronized (mLock) {
+                // The entry may already have been dropped by cancel and replaced by a newer refresh
+                if (mInFlight.get(refresh.mKey) == refresh.mFuture) {
+                    mInFlight.remove(refresh.mKey);
+                }
+
+                if (mScheduled.get(refresh.mKey) == refresh) {
+                    mScheduled.remove(refresh.mKey);
+                }
+            }
+        }
+
+        if (null != cacheRecord && null != cacheRecord.getAccessToken()) {
+            Logger.info(TAG + methodName, "Background refresh succeeded.");
+            schedule(cacheRecord.getAccessToken(), refresh.mAccount, refresh.mRequest);
+        } else if (null != followUp && !refresh.mCancelled) {
+            enqueue(followUp);
+        }
+    }
+
+    private ScheduledRefresh retryOf(@NonNull final ScheduledRefresh refresh) {
+        final long retryAtMillis = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+
+        if (retryAtMillis >= refresh.mExpiresOnMillis) {
+            return null;
+        }
+
+        return new ScheduledRefresh(
+                refresh.mKey,
+                retryAtMillis,
+                refresh.mExpiresOnMillis,
+                refresh.mAccount,
+                refresh.mRequest
+        );
+    }
+
+    /**
+     * Only throttling, server errors and failures without a status are worth retrying; OAuth errors
+     * such as invalid_grant are returned with a 4xx status and will not change on a retry.
+     */
+    private static boolean isTransient(@NonNull final ServiceException exception) {
+        final int statusCode = exception.getHttpStatusCode();
+
+        if (AuthenticationConstants.OAuth2ErrorCode.INVALID_GRANT.equals(exception.getErrorCode())
+                || AuthenticationConstants.OAuth2ErrorCode.UNAUTHORIZED_CLIENT.equals(exception.getErrorCode())) {
+            return false;
+        }
+
+        return statusCode == 0
+                || statusCode == HTTP_TOO_MANY_REQUESTS
+                || statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
+    private ICacheRecord redeemIfCurrent(@NonNull final ScheduledRefresh refresh)
+            throws IOException, ClientException, ServiceException {
+        final String methodName = ":redeemIfCurrent";
+
+        if (refresh.mCancelled) {
+            return null;
+        }
+
+        // Going through redeem() lets a foreground refresh of the same tokens share this request
+        final AccountRecord account = refresh.mAccount;
+        final RefreshTokenRedeemer.SaveCondition accountStillPresent = new RefreshTokenRedeemer.SaveCondition() {
+            @Override
+            public boolean shouldSave() {
+                // Do not resurrect tokens for an account which was removed while the request was in flight
+                if (refresh.mCancelled
+                        || Thread.currentThread().isInterrupted()
+                        || null == mRedeemer.getTokenCache().getAccount(
+                        account.getEnvironment(),
+                        refresh.mRequest.getClientId(),
+                        account.getHomeAccountId())) {
+                    Logger.info(TAG + methodName, "Account removed during refresh, discarding result.");
+                    return false;
+                }
+
+                return true;
+            }
+        };
+
+        try {
+            return mRedeemer.redeem(account, refresh.mRequest, accountStillPresent);
+        } catch (final ClientException e) {
+            if (ErrorStrings.TOKENS_DISCARDED.equals(e.getErrorCode())) {
+                return null;
+            }
+
+            throw e;
+        }
+    }
+
+    private long nextJitter() {
+        if (0 == mMaxJitterMillis) {
+            return 0;
+        }
+
+        synchronized (mRandom) {
+            return (long) (mRandom.nextDouble() * mMaxJitterMillis);
+        }
+    }
+
+    private static String accountKeyOf(@NonNull final AccountRecord account) {
+        return account.getHomeAccountId() + "|" + account.getEnvironment() + "|";
+    }
+
+    private static String keyOf(@NonNull final AccountRecord account,
+                                @NonNull final AuthorizationRequest request) {
+        return accountKeyOf(account) + request.getClientId() + "|" + request.getScope();
+    }
+
+    private class ScheduledRefresh implements Comparable<ScheduledRefresh> {
+        private final String mKey;
+        private final long mRefreshAtMillis;
+        private final long mExpiresOnMillis;
+        private final AccountRecord mAccount;
+        private final GenericAuthorizationRequest mRequest;
+        private volatile boolean mCancelled;
+        private Future<?> mFuture;
+
+        ScheduledRefresh(final String key,
+                         final long refreshAtMillis,
+                         final long expiresOnMillis,
+                         final AccountRecord account,
+                         final GenericAuthorizationRequest request) {
+            mKey = key;
+            mRefreshAtMillis = refreshAtMillis;
+            mExpiresOnMillis = expiresOnMillis;
+            mAccount = account;
+            mRequest = request;
+        }
+
+        @Override
+        public int compareTo(@NonNull final ScheduledRefresh other) {
+            return Long.compare(mRefreshAtMillis, other.mRefreshAtMillis);
+        }
+    }
+
+    private static class RefreshThreadFactory implements ThreadFactory {
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, TAG + "-" + mThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -258,6 +258,17 @@ public class AccessTokenRecord extends Credential {
         return expiresOn.before(validity);
     }
 
+    /**
+     * Tests whether the expires_on of this token has passed, without falling back to the
+     * extended_expires_on. A token for which this returns true but {@link #isExpired()} returns
+     * false should only be used while the token endpoint is unavailable.
+     *
+     * @return True if the expires_on has passed, false otherwise.
+     */
+    public boolean isExpiredIgnoringExtendedExpiry() {
+        return isExpired(getExpiresOn());
+    }
+
     @Override
     public boolean isExpired() {
         boolean isExpired = isExpired(getExpiresOn());
@@ -0,0 +1,160 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.logging;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers log events from a {@link LogEventRingBuffer} on a single background thread, so that
+ * formatting and the app's logger callback never run on the thread that logged.
+ */
+final class AsyncLogDispatcher {
+
+    /**
+     * Receives the log events on the dispatcher thread, in the order they were enqueued.
+     */
+    interface LogEventHandler {
+        void handle(@NonNull LogEvent logEvent);
+    }
+
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final LogEventRingBuffer mRingBuffer;
+    private final LogEventHandler mHandler;
+    private final Thread mDispatcherThread;
+    private final AtomicBoolean mParked = new AtomicBoolean(false);
+    private final AtomicLong mEnqueuedCount = new AtomicLong();
+    private final AtomicLong mDispatchedCount = new AtomicLong();
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private volatile Logger.OverflowPolicy mOverflowPolicy = Logger.OverflowPolicy.DROP;
+
+    AsyncLogDispatcher(final int capacity, @NonNull final LogEventHandler handler) {
+        mRingBuffer = new LogEventRingBuffer(capacity);
+        mHandler = handler;
+        mDispatcherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatchLoop();
+            }
+        }, "Logger-dispatcher");
+        mDispatcherThread.setDaemon(true);
+        mDispatcherThread.start();
+    }
+
+    void setOverflowPolicy(@NonNull final Logger.OverflowPolicy overflowPolicy) {
+        mOverflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Queues the event for the dispatcher thread. When the buffer is full the event is dropped or
+     * the caller waits for space, depending on the {@link Logger.OverflowPolicy}.
+     *
+     * @param logEvent The event to queue.
+     */
+    void enqueue(@NonNull final LogEvent logEvent) {
+        while (!mRingBuffer.offer(logEvent)) {
+            if (mOverflowPolicy == Logger.OverflowPolicy.DROP
+                    || Thread.currentThread() == mDispatcherThread) {
+                mDroppedCount.incrementAndGet();
+                return;
+            }
+
+            wakeDispatcher();
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+
+        mEnqueuedCount.incrementAndGet();
+        wakeDispatcher();
+    }
+
+    /**
+     * Waits until every event enqueued so far has been delivered, or the timeout expires.
+     *
+     * @param timeoutMillis The maximum time to wait, in milliseconds.
+     * @return True if the buffer was drained.
+     */
+    boolean flush(final long timeoutMillis) {
+        final long target = mEnqueuedCount.get();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (mDispatchedCount.get() < target) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+
+            wakeDispatcher();
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+
+        return true;
+    }
+
+    long getEnqueuedCount() {
+        return mEnqueuedCount.get();
+    }
+
+    long getDispatchedCount() {
+        return mDispatchedCount.get();
+    }
+
+    long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    private void wakeDispatcher() {
+        if (mParked.get()) {
+            LockSupport.unpark(mDispatcherThread);
+        }
+    }
+
+    private void dispatchLoop() {
+        while (true) {
+            final LogEvent logEvent = mRingBuffer.poll();
+            if (logEvent == null) {
+                mParked.set(true);
+                // Check again after announcing the park; a producer which enqueued in between either
+                // sees mParked and unparks, or its event is seen here, so no timeout is needed.
+                if (mRingBuffer.isEmpty()) {
+                    LockSupport.park(this);
+                } else {
+                    Thread.yield();
+                }
+                mParked.set(false);
+                continue;
+            }
+
+            try {
+                mHandler.handle(logEvent);
+            } catch (final RuntimeException e) {
+                // Never let a failing logger stop the dispatcher, count the event as lost instead.
+                mDroppedCount.incrementAndGet();
+            } finally {
+                mDispatchedCount.incrementAndGet();
+            }
+        }
+    }
+}
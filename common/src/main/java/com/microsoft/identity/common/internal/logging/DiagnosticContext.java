@@ -25,6 +25,7 @@ package com.microsoft.identity.common.internal.logging;
 public final class DiagnosticContext {
 
     public static final String CORRELATION_ID = "correlation_id";
+    public static final String SPAN_ID = "span_id";
     private static final String THREAD_ID = "thread_id";
 
     private DiagnosticContext() {
@@ -68,6 +69,19 @@ public final class DiagnosticContext {
         return REQUEST_CONTEXT_THREAD_LOCAL.get();
     }
 
+    /**
+     * Copy the request context of the current thread, so it can be applied to another thread with
+     * {@link #setRequestContext(IRequestContext)}. The thread id is not copied.
+     *
+     * @return IRequestContext
+     */
+    public static IRequestContext snapshot() {
+        final RequestContext snapshot = new RequestContext();
+        snapshot.putAll(REQUEST_CONTEXT_THREAD_LOCAL.get());
+        snapshot.remove(THREAD_ID);
+        return snapshot;
+    }
+
     private static void setThreadId() {
         REQUEST_CONTEXT_THREAD_LOCAL.get().put(
                 THREAD_ID,
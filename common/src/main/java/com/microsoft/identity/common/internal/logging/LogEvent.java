@@ -0,0 +1,54 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.logging;
+
+import android.support.annotation.Nullable;
+
+/**
+ * A log call captured on the caller's thread, to be formatted and delivered by the dispatcher.
+ */
+final class LogEvent {
+    final String mTag;
+    final Logger.LogLevel mLogLevel;
+    final String mCorrelationId;
+    final String mMessage;
+    final Throwable mThrowable;
+    final boolean mContainsPII;
+    final long mTimestampMillis;
+
+    LogEvent(final String tag,
+             final Logger.LogLevel logLevel,
+             @Nullable final String correlationId,
+             @Nullable final String message,
+             @Nullable final Throwable throwable,
+             final boolean containsPII,
+             final long timestampMillis) {
+        mTag = tag;
+        mLogLevel = logLevel;
+        mCorrelationId = correlationId;
+        mMessage = message;
+        mThrowable = throwable;
+        mContainsPII = containsPII;
+        mTimestampMillis = timestampMillis;
+    }
+}
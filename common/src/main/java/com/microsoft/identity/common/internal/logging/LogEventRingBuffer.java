@@ -0,0 +1,113 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer with any number of producers and a single consumer.
+ * <p>
+ * Producers claim a slot by advancing the tail and then publish the element into it; the
+ * consumer empties a slot before advancing the head, so a producer never overwrites an element
+ * which has not been consumed yet.
+ */
+final class LogEventRingBuffer {
+    private final AtomicReferenceArray<LogEvent> mSlots;
+    private final int mMask;
+    private final AtomicLong mTail = new AtomicLong();
+    private volatile long mHead;
+
+    /**
+     * @param capacity The capacity, rounded up to the next power of two.
+     */
+    LogEventRingBuffer(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity");
+        }
+
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        mSlots = new AtomicReferenceArray<>(size);
+        mMask = size - 1;
+    }
+
+    /**
+     * @return The number of elements the buffer can hold.
+     */
+    int capacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Adds the element if there is space for it. Safe to call from any thread.
+     *
+     * @param element The element to add.
+     * @return True if the element was added, false if the buffer is full.
+     */
+    boolean offer(final LogEvent element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+
+        while (true) {
+            final long tail = mTail.get();
+            if (tail - mHead > mMask) {
+                return false;
+            }
+
+            if (mTail.compareAndSet(tail, tail + 1)) {
+                mSlots.set((int) tail & mMask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest published element. Must only be called from the consumer thread.
+     *
+     * @return The element, or null if the buffer is empty or the next element is not published yet.
+     */
+    LogEvent poll() {
+        final long head = mHead;
+        final int index = (int) head & mMask;
+        final LogEvent element = mSlots.get(index);
+        if (element == null) {
+            return null;
+        }
+
+        mSlots.lazySet(index, null);
+        mHead = head + 1;
+        return element;
+    }
+
+    /**
+     * @return True if no element is claimed or published.
+     */
+    boolean isEmpty() {
+        return mTail.get() == mHead;
+    }
+}
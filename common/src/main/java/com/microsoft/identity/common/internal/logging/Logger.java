@@ -23,27 +23,37 @@
 package com.microsoft.identity.common.internal.logging;
 
 import android.os.Build;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Locale;
-import java.util.TimeZone;
 
 public final class Logger {
 
     private static final String CUSTOM_LOG_ERROR = "Custom log failed to log message:%s";
 
     private static final Logger INSTANCE = new Logger();
-    private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    /**
+     * Number of log events buffered in asynchronous mode.
+     */
+    public static final int ASYNC_BUFFER_CAPACITY = 1024;
+
+    private static final long FLUSH_ON_SYNC_TIMEOUT_MILLIS = 1000L;
 
     // Turn on the VERBOSE level logging by default.
     private LogLevel mLogLevel = LogLevel.VERBOSE;
     private ILoggerCallback mExternalLogger;
     private final Object mLock = new Object();
+    private final UtcTimestampFormatter mTimestampFormatter = new UtcTimestampFormatter();
+
+    // Log synchronously on the caller's thread by default.
+    private volatile boolean mAsyncMode = false;
+    private volatile AsyncLogDispatcher mAsyncDispatcher;
+    private OverflowPolicy mOverflowPolicy = OverflowPolicy.DROP;
 
     // Disable to log PII by default.
     private static boolean sAllowPii = false;
@@ -72,6 +82,20 @@ public final class Logger {
         VERBOSE
     }
 
+    /**
+     * What to do with a log message when the asynchronous log buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drop the message and count it in {@link #getDroppedLogCount()}.
+         */
+        DROP,
+        /**
+         * Wait on the logging thread until the dispatcher makes room for the message.
+         */
+        BLOCK
+    }
+
     /**
      * @return The single instance of {@link Logger}.
      */
@@ -139,6 +163,88 @@ public final class Logger {
         }
     }
 
+    /**
+     * Enable/Disable asynchronous logging. In asynchronous mode log messages are put in a bounded
+     * buffer and formatted and passed to logcat and the external logger on a single background
+     * thread, so a slow external logger does not hold up the threads which log. By default, the
+     * sdk logs synchronously on the caller's thread.
+     *
+     * @param asyncMode True to log asynchronously, false to log on the caller's thread.
+     */
+    public void setAsyncMode(final boolean asyncMode) {
+        synchronized (mLock) {
+            if (asyncMode && mAsyncDispatcher == null) {
+                mAsyncDispatcher = new AsyncLogDispatcher(ASYNC_BUFFER_CAPACITY, new AsyncLogDispatcher.LogEventHandler() {
+                    @Override
+                    public void handle(final LogEvent logEvent) {
+                        dispatch(logEvent);
+                    }
+                });
+                mAsyncDispatcher.setOverflowPolicy(mOverflowPolicy);
+            }
+            mAsyncMode = asyncMode;
+        }
+
+        if (!asyncMode) {
+            // Deliver what was buffered before switching, so messages are not reordered.
+            flush(FLUSH_ON_SYNC_TIMEOUT_MILLIS);
+        }
+    }
+
+    /**
+     * Set what happens to log messages when the asynchronous log buffer is full. Defaults to
+     * {@link OverflowPolicy#DROP}.
+     *
+     * @param overflowPolicy The {@link OverflowPolicy} to apply.
+     */
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("overflowPolicy");
+        }
+
+        synchronized (mLock) {
+            mOverflowPolicy = overflowPolicy;
+            if (mAsyncDispatcher != null) {
+                mAsyncDispatcher.setOverflowPolicy(overflowPolicy);
+            }
+        }
+    }
+
+    /**
+     * Wait until the log messages buffered in asynchronous mode have been delivered.
+     *
+     * @param timeoutMillis The maximum time to wait, in milliseconds.
+     * @return True if all buffered messages were delivered within the timeout.
+     */
+    public boolean flush(final long timeoutMillis) {
+        final AsyncLogDispatcher dispatcher = mAsyncDispatcher;
+        return dispatcher == null || dispatcher.flush(timeoutMillis);
+    }
+
+    /**
+     * @return The number of log messages buffered in asynchronous mode.
+     */
+    public long getEnqueuedLogCount() {
+        final AsyncLogDispatcher dispatcher = mAsyncDispatcher;
+        return dispatcher == null ? 0 : dispatcher.getEnqueuedCount();
+    }
+
+    /**
+     * @return The number of buffered log messages delivered by the background thread.
+     */
+    public long getDispatchedLogCount() {
+        final AsyncLogDispatcher dispatcher = mAsyncDispatcher;
+        return dispatcher == null ? 0 : dispatcher.getDispatchedCount();
+    }
+
+    /**
+     * @return The number of log messages dropped because the asynchronous log buffer was full.
+     */
+    public long getDroppedLogCount() {
+        final AsyncLogDispatcher dispatcher = mAsyncDispatcher;
+        return dispatcher == null ? 0 : dispatcher.getDroppedCount();
+    }
+
     /**
      * Send a {@link LogLevel#ERROR} log message without PII.
      *
@@ -150,14 +256,7 @@ public final class Logger {
     public static void error(final String tag,
                              @Nullable final String errorMessage,
                              @Nullable final Throwable exception) {
-        getInstance().log(
-                tag,
-                LogLevel.ERROR,
-                DiagnosticContext.getRequestContext().toJsonString(),
-                errorMessage,
-                exception,
-                false
-        );
+        logWithRequestContext(tag, LogLevel.ERROR, errorMessage, exception, false);
     }
 
     /**
@@ -193,14 +292,7 @@ public final class Logger {
     public static void errorPII(final String tag,
                                 @Nullable final String errorMessage,
                                 @Nullable final Throwable exception) {
-        getInstance().log(
-                tag,
-                LogLevel.ERROR,
-                DiagnosticContext.getRequestContext().toJsonString(),
-                errorMessage,
-                exception,
-                true
-        );
+        logWithRequestContext(tag, LogLevel.ERROR, errorMessage, exception, true);
     }
 
     /**
@@ -234,14 +326,7 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void warn(final String tag, @Nullable final String message) {
-        getInstance().log(
-                tag,
-                LogLevel.WARN,
-                DiagnosticContext.getRequestContext().toJsonString(),
-                message,
-                null,
-                false
-        );
+        logWithRequestContext(tag, LogLevel.WARN, message, null, false);
     }
 
     /**
@@ -273,14 +358,7 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void warnPII(final String tag, @Nullable final String message) {
-        getInstance().log(
-                tag,
-                LogLevel.WARN,
-                DiagnosticContext.getRequestContext().toJsonString(),
-                message,
-                null,
-                true
-        );
+        logWithRequestContext(tag, LogLevel.WARN, message, null, true);
     }
 
     /**
@@ -312,14 +390,7 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void info(final String tag, @Nullable final String message) {
-        getInstance().log(
-                tag,
-                LogLevel.INFO,
-                DiagnosticContext.getRequestContext().toJsonString(),
-                message,
-                null,
-                false
-        );
+        logWithRequestContext(tag, LogLevel.INFO, message, null, false);
     }
 
     /**
@@ -344,14 +415,7 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void infoPII(final String tag, @Nullable final String message) {
-        getInstance().log(
-                tag,
-                LogLevel.INFO,
-                DiagnosticContext.getRequestContext().toJsonString(),
-                message,
-                null,
-                true
-        );
+        logWithRequestContext(tag, LogLevel.INFO, message, null, true);
     }
 
     /**
@@ -376,14 +440,7 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void verbose(final String tag, @Nullable final String message) {
-        getInstance().log(
-                tag,
-                LogLevel.VERBOSE,
-                DiagnosticContext.getRequestContext().toJsonString(),
-                message,
-                null,
-                false
-        );
+        logWithRequestContext(tag, LogLevel.VERBOSE, message, null, false);
     }
 
     /**
@@ -415,14 +472,7 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void verbosePII(final String tag, @Nullable final String message) {
-        getInstance().log(
-                tag,
-                LogLevel.VERBOSE,
-                DiagnosticContext.getRequestContext().toJsonString(),
-                message,
-                null,
-                true
-        );
+        logWithRequestContext(tag, LogLevel.VERBOSE, message, null, true);
     }
 
     /**
@@ -446,6 +496,276 @@ public final class Logger {
         );
     }
 
+    /**
+     * Check whether a message of the given level would be logged. Use this to skip building
+     * expensive log messages.
+     *
+     * @param logLevel    The {@link LogLevel} of the message.
+     * @param containsPII True if the message contains PII.
+     * @return True if the message would be logged, false otherwise.
+     */
+    public static boolean isLoggable(final LogLevel logLevel, final boolean containsPII) {
+        return logLevel.compareTo(getInstance().mLogLevel) <= 0 && (sAllowPii || !containsPII);
+    }
+
+    /**
+     * Send a {@link LogLevel#ERROR} log message without PII. The message is only built if it will be logged.
+     *
+     * @param tag             Used to identify the source of a log message. It usually identifies the
+     *                        class or activity where the log call occurs.
+     * @param messageSupplier Builds the error message to log.
+     * @param exception       An exception to log.
+     */
+    public static void error(final String tag,
+                             @NonNull final ILogMessageSupplier messageSupplier,
+                             @Nullable final Throwable exception) {
+        if (isLoggable(LogLevel.ERROR, false)) {
+            logWithRequestContext(tag, LogLevel.ERROR, messageSupplier.get(), exception, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#ERROR} log message without PII, built from a format template. The message is
+     * only formatted if it will be logged.
+     *
+     * @param tag       Used to identify the source of a log message. It usually identifies the
+     *                  class or activity where the log call occurs.
+     * @param exception An exception to log.
+     * @param format    The {@link String#format(String, Object...)} template of the message.
+     * @param args      The arguments of the template.
+     */
+    public static void errorFormat(final String tag,
+                                   @Nullable final Throwable exception,
+                                   final String format,
+                                   final Object... args) {
+        if (isLoggable(LogLevel.ERROR, false)) {
+            logWithRequestContext(tag, LogLevel.ERROR, String.format(Locale.US, format, args), exception, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#ERROR} log message with PII. The message is only built if it will be logged.
+     *
+     * @param tag             Used to identify the source of a log message. It usually identifies the
+     *                        class or activity where the log call occurs.
+     * @param messageSupplier Builds the error message to log.
+     * @param exception       An exception to log.
+     */
+    public static void errorPII(final String tag,
+                                @NonNull final ILogMessageSupplier messageSupplier,
+                                @Nullable final Throwable exception) {
+        if (isLoggable(LogLevel.ERROR, true)) {
+            logWithRequestContext(tag, LogLevel.ERROR, messageSupplier.get(), exception, true);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#ERROR} log message with PII, built from a format template. The message is
+     * only formatted if it will be logged.
+     *
+     * @param tag       Used to identify the source of a log message. It usually identifies the
+     *                  class or activity where the log call occurs.
+     * @param exception An exception to log.
+     * @param format    The {@link String#format(String, Object...)} template of the message.
+     * @param args      The arguments of the template.
+     */
+    public static void errorPIIFormat(final String tag,
+                                      @Nullable final Throwable exception,
+                                      final String format,
+                                      final Object... args) {
+        if (isLoggable(LogLevel.ERROR, true)) {
+            logWithRequestContext(tag, LogLevel.ERROR, String.format(Locale.US, format, args), exception, true);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#WARN} log message without PII. The message is only built if it will be logged.
+     *
+     * @param tag             Used to identify the source of a log message. It usually identifies the
+     *                        class or activity where the log call occurs.
+     * @param messageSupplier Builds the message to log.
+     */
+    public static void warn(final String tag, @NonNull final ILogMessageSupplier messageSupplier) {
+        if (isLoggable(LogLevel.WARN, false)) {
+            logWithRequestContext(tag, LogLevel.WARN, messageSupplier.get(), null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#WARN} log message without PII, built from a format template. The message is
+     * only formatted if it will be logged.
+     *
+     * @param tag    Used to identify the source of a log message. It usually identifies the class
+     *               or activity where the log call occurs.
+     * @param format The {@link String#format(String, Object...)} template of the message.
+     * @param args   The arguments of the template.
+     */
+    public static void warnFormat(final String tag, final String format, final Object... args) {
+        if (isLoggable(LogLevel.WARN, false)) {
+            logWithRequestContext(tag, LogLevel.WARN, String.format(Locale.US, format, args), null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#WARN} log message with PII. The message is only built if it will be logged.
+     *
+     * @param tag             Used to identify the source of a log message. It usually identifies the
+     *                        class or activity where the log call occurs.
+     * @param messageSupplier Builds the message to log.
+     */
+    public static void warnPII(final String tag, @NonNull final ILogMessageSupplier messageSupplier) {
+        if (isLoggable(LogLevel.WARN, true)) {
+            logWithRequestContext(tag, LogLevel.WARN, messageSupplier.get(), null, true);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#WARN} log message with PII, built from a format template. The message is
+     * only formatted if it will be logged.
+     *
+     * @param tag    Used to identify the source of a log message. It usually identifies the class
+     *               or activity where the log call occurs.
+     * @param format The {@link String#format(String, Object...)} template of the message.
+     * @param args   The arguments of the template.
+     */
+    public static void warnPIIFormat(final String tag, final String format, final Object... args) {
+        if (isLoggable(LogLevel.WARN, true)) {
+            logWithRequestContext(tag, LogLevel.WARN, String.format(Locale.US, format, args), null, true);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#INFO} log message without PII. The message is only built if it will be logged.
+     *
+     * @param tag             Used to identify the source of a log message. It usually identifies the
+     *                        class or activity where the log call occurs.
+     * @param messageSupplier Builds the message to log.
+     */
+    public static void info(final String tag, @NonNull final ILogMessageSupplier messageSupplier) {
+        if (isLoggable(LogLevel.INFO, false)) {
+            logWithRequestContext(tag, LogLevel.INFO, messageSupplier.get(), null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#INFO} log message without PII, built from a format template. The message is
+     * only formatted if it will be logged.
+     *
+     * @param tag    Used to identify the source of a log message. It usually identifies the class
+     *               or activity where the log call occurs.
+     * @param format The {@link String#format(String, Object...)} template of the message.
+     * @param args   The arguments of the template.
+     */
+    public static void infoFormat(final String tag, final String format, final Object... args) {
+        if (isLoggable(LogLevel.INFO, false)) {
+            logWithRequestContext(tag, LogLevel.INFO, String.format(Locale.US, format, args), null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#INFO} log message with PII. The message is only built if it will be logged.
+     *
+     * @param tag             Used to identify the source of a log message. It usually identifies the
+     *                        class or activity where the log call occurs.
+     * @param messageSupplier Builds the message to log.
+     */
+    public static void infoPII(final String tag, @NonNull final ILogMessageSupplier messageSupplier) {
+        if (isLoggable(LogLevel.INFO, true)) {
+            logWithRequestContext(tag, LogLevel.INFO, messageSupplier.get(), null, true);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#INFO} log message with PII, built from a format template. The message is
+     * only formatted if it will be logged.
+     *
+     * @param tag    Used to identify the source of a log message. It usually identifies the class
+     *               or activity where the log call occurs.
+     * @param format The {@link String#format(String, Object...)} template of the message.
+     * @param args   The arguments of the template.
+     */
+    public static void infoPIIFormat(final String tag, final String format, final Object... args) {
+        if (isLoggable(LogLevel.INFO, true)) {
+            logWithRequestContext(tag, LogLevel.INFO, String.format(Locale.US, format, args), null, true);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#VERBOSE} log message without PII. The message is only built if it will be logged.
+     *
+     * @param tag             Used to identify the source of a log message. It usually identifies the
+     *                        class or activity where the log call occurs.
+     * @param messageSupplier Builds the message to log.
+     */
+    public static void verbose(final String tag, @NonNull final ILogMessageSupplier messageSupplier) {
+        if (isLoggable(LogLevel.VERBOSE, false)) {
+            logWithRequestContext(tag, LogLevel.VERBOSE, messageSupplier.get(), null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#VERBOSE} log message without PII, built from a format template. The message is
+     * only formatted if it will be logged.
+     *
+     * @param tag    Used to identify the source of a log message. It usually identifies the class
+     *               or activity where the log call occurs.
+     * @param format The {@link String#format(String, Object...)} template of the message.
+     * @param args   The arguments of the template.
+     */
+    public static void verboseFormat(final String tag, final String format, final Object... args) {
+        if (isLoggable(LogLevel.VERBOSE, false)) {
+            logWithRequestContext(tag, LogLevel.VERBOSE, String.format(Locale.US, format, args), null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#VERBOSE} log message with PII. The message is only built if it will be logged.
+     *
+     * @param tag             Used to identify the source of a log message. It usually identifies the
+     *                        class or activity where the log call occurs.
+     * @param messageSupplier Builds the message to log.
+     */
+    public static void verbosePII(final String tag, @NonNull final ILogMessageSupplier messageSupplier) {
+        if (isLoggable(LogLevel.VERBOSE, true)) {
+            logWithRequestContext(tag, LogLevel.VERBOSE, messageSupplier.get(), null, true);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#VERBOSE} log message with PII, built from a format template. The message is
+     * only formatted if it will be logged.
+     *
+     * @param tag    Used to identify the source of a log message. It usually identifies the class
+     *               or activity where the log call occurs.
+     * @param format The {@link String#format(String, Object...)} template of the message.
+     * @param args   The arguments of the template.
+     */
+    public static void verbosePIIFormat(final String tag, final String format, final Object... args) {
+        if (isLoggable(LogLevel.VERBOSE, true)) {
+            logWithRequestContext(tag, LogLevel.VERBOSE, String.format(Locale.US, format, args), null, true);
+        }
+    }
+
+    private static void logWithRequestContext(final String tag,
+                                              final LogLevel logLevel,
+                                              @Nullable final String message,
+                                              @Nullable final Throwable throwable,
+                                              final boolean containsPII) {
+        // Check before reading the request context, which is serialized for every message.
+        if (!isLoggable(logLevel, containsPII)) {
+            return;
+        }
+
+        getInstance().log(
+                tag,
+                logLevel,
+                DiagnosticContext.getRequestContext().toJsonString(),
+                message,
+                throwable,
+                containsPII
+        );
+    }
+
     private void log(final String tag,
                      final LogLevel logLevel,
                      @Nullable final String correlationID,
@@ -462,19 +782,46 @@ public final class Logger {
             return;
         }
 
+        final LogEvent logEvent = new LogEvent(
+                tag,
+                logLevel,
+                correlationID,
+                message,
+                throwable,
+                containsPII,
+                System.currentTimeMillis()
+        );
+
+        final AsyncLogDispatcher dispatcher = mAsyncDispatcher;
+        if (mAsyncMode && dispatcher != null) {
+            dispatcher.enqueue(logEvent);
+        } else {
+            dispatch(logEvent);
+        }
+    }
+
+    private void dispatch(final LogEvent logEvent) {
+        final String tag = logEvent.mTag;
+        final boolean containsPII = logEvent.mContainsPII;
+
         //Format the log message.
-        final String logMessage = formatMessage(correlationID, message, throwable);
+        final String logMessage = formatMessage(
+                logEvent.mCorrelationId,
+                logEvent.mMessage,
+                logEvent.mThrowable,
+                logEvent.mTimestampMillis
+        );
 
         // Send logs into Logcat.
         if (sAllowLogcat) {
-            sendLogcatLogs(tag, logLevel, logMessage);
+            sendLogcatLogs(tag, logEvent.mLogLevel, logMessage);
         }
 
         // Send logs into external logger callback.
         synchronized (mLock) {
             if (null != mExternalLogger) {
                 try {
-                    mExternalLogger.log(tag, logLevel, logMessage, containsPII);
+                    mExternalLogger.log(tag, logEvent.mLogLevel, logMessage, containsPII);
                 } catch (final Exception e) {
                     // log message as warning to report callback error issue
                     if (!containsPII || sAllowPii) {
@@ -495,22 +842,16 @@ public final class Logger {
      */
     private String formatMessage(@Nullable final String correlationID,
                                  @Nullable final String message,
-                                 @Nullable final Throwable throwable) {
+                                 @Nullable final Throwable throwable,
+                                 final long timestampMillis) {
         final String logMessage = StringExtensions.isNullOrBlank(message) ? "N/A" : message;
-        return " [" + getUTCDateTimeAsString()
+        return " [" + mTimestampFormatter.format(timestampMillis)
                 + (StringExtensions.isNullOrBlank(correlationID) ? "] " : " - " + correlationID + "] ")
                 + logMessage
                 + " Android " + Build.VERSION.SDK_INT
                 + (throwable == null ? "" : '\n' + Log.getStackTraceString(throwable));
     }
 
-    private static String getUTCDateTimeAsString() {
-        final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT, Locale.getDefault());
-        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-
-        return dateFormat.format(new Date());
-    }
-
     /**
      * Send logs to logcat as the default logging if developer doesn't turn off the logcat logging.
      */
@@ -29,10 +29,11 @@ import java.util.HashMap;
 // TODO I'm not wedded to this name, but the concept may work for tracking correlationIds
 public class RequestContext extends HashMap<String, String> implements IRequestContext {
 
-    private final Gson mGson = new Gson();
+    // Shared, as a context is created for every request and copied for every task it is propagated to
+    private static final Gson GSON = new Gson();
 
     @Override
     public String toJsonString() {
-        return mGson.toJson(this);
+        return GSON.toJson(this);
     }
 }
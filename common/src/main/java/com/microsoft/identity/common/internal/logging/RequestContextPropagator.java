@@ -0,0 +1,136 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.logging;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Wrappers which carry the {@link DiagnosticContext} of the thread submitting work to the thread
+ * running it, so logs written by executor threads, Handler callbacks and listeners keep the
+ * correlation id of the request that caused them.
+ * <p>
+ * The context is copied when the wrapper is created. While the wrapped work runs it is applied to
+ * the running thread, and the previous context of that thread is restored afterwards.
+ */
+public final class RequestContextPropagator {
+
+    private RequestContextPropagator() {
+        // Utility class.
+    }
+
+    /**
+     * Wraps the supplied Runnable to run with the request context of the current thread.
+     *
+     * @param runnable The Runnable to wrap.
+     * @return The wrapped Runnable.
+     */
+    public static Runnable wrap(@NonNull final Runnable runnable) {
+        return wrap(DiagnosticContext.snapshot(), runnable);
+    }
+
+    /**
+     * Wraps the supplied Runnable to run with the supplied request context.
+     *
+     * @param requestContext The request context, usually from {@link DiagnosticContext#snapshot()}.
+     * @param runnable       The Runnable to wrap.
+     * @return The wrapped Runnable.
+     */
+    public static Runnable wrap(@NonNull final IRequestContext requestContext,
+                                @NonNull final Runnable runnable) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                final IRequestContext previousContext = apply(requestContext);
+                try {
+                    runnable.run();
+                } finally {
+                    DiagnosticContext.setRequestContext(previousContext);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps the supplied Callable to run with the request context of the current thread.
+     *
+     * @param callable The Callable to wrap.
+     * @param <T>      The result type of the Callable.
+     * @return The wrapped Callable.
+     */
+    public static <T> Callable<T> wrap(@NonNull final Callable<T> callable) {
+        final IRequestContext requestContext = DiagnosticContext.snapshot();
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                final IRequestContext previousContext = apply(requestContext);
+                try {
+                    return callable.call();
+                } finally {
+                    DiagnosticContext.setRequestContext(previousContext);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps the supplied Executor so that every task runs with the request context of the thread
+     * which submitted it.
+     *
+     * @param executor The Executor to wrap.
+     * @return The wrapped Executor.
+     */
+    public static Executor wrap(@NonNull final Executor executor) {
+        if (executor instanceof ContextPropagatingExecutor) {
+            return executor;
+        }
+
+        return new ContextPropagatingExecutor(executor);
+    }
+
+    private static IRequestContext apply(final IRequestContext requestContext) {
+        final IRequestContext previousContext = DiagnosticContext.getRequestContext();
+
+        // Copy, as the same snapshot may be applied to several threads at once.
+        final RequestContext threadContext = new RequestContext();
+        threadContext.putAll(requestContext);
+        DiagnosticContext.setRequestContext(threadContext);
+
+        return previousContext;
+    }
+
+    private static final class ContextPropagatingExecutor implements Executor {
+        private final Executor mExecutor;
+
+        ContextPropagatingExecutor(final Executor executor) {
+            mExecutor = executor;
+        }
+
+        @Override
+        public void execute(@NonNull final Runnable command) {
+            mExecutor.execute(wrap(command));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.metrics.Metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A timed section of a request, such as a broker call or a token request.
+ * <p>
+ * Starting a span records its id under {@link DiagnosticContext#SPAN_ID} in the request context of
+ * the current thread, and the span that was current becomes its parent. As the id is part of the
+ * request context it is carried to other threads by {@link RequestContextPropagator}, so spans
+ * started there are linked to it. Ending the span logs its duration at verbose level and records it
+ * with {@link Metrics} as a timer named after the span.
+ */
+public final class TraceSpan {
+    private static final String TAG = TraceSpan.class.getSimpleName();
+
+    private static final AtomicLong sNextSpanId = new AtomicLong();
+
+    private final String mName;
+    private final String mSpanId;
+    private final String mParentSpanId;
+    private final long mStartTimeNanos;
+    private final AtomicBoolean mEnded = new AtomicBoolean(false);
+
+    private TraceSpan(@NonNull final String name,
+                      @NonNull final String spanId,
+                      @Nullable final String parentSpanId) {
+        mName = name;
+        mSpanId = spanId;
+        mParentSpanId = parentSpanId;
+        mStartTimeNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts a span as a child of the current span of this thread, if any.
+     *
+     * @param name The name of the span.
+     * @return The started span.
+     */
+    public static TraceSpan start(@NonNull final String name) {
+        final IRequestContext requestContext = DiagnosticContext.getRequestContext();
+        final String spanId = Long.toHexString(sNextSpanId.incrementAndGet());
+        final TraceSpan span = new TraceSpan(name, spanId, requestContext.get(DiagnosticContext.SPAN_ID));
+        requestContext.put(DiagnosticContext.SPAN_ID, spanId);
+        return span;
+    }
+
+    /**
+     * Ends the span. Only the first call has any effect. If the span is still the current span of
+     * this thread its parent becomes current again, so a span may be ended on another thread than
+     * the one which started it.
+     *
+     * @return The duration of the span in nanoseconds, or 0 if it had already ended.
+     */
+    public long end() {
+        if (!mEnded.compareAndSet(false, true)) {
+            return 0;
+        }
+
+        final long durationNanos = System.nanoTime() - mStartTimeNanos;
+        detach();
+
+        Metrics.recordTime(mName, durationNanos);
+        Logger.verboseFormat(
+                TAG,
+                "Span [%s] id: [%s] parent: [%s] ended after [%d] ms.",
+                mName,
+                mSpanId,
+                mParentSpanId,
+                TimeUnit.NANOSECONDS.toMillis(durationNanos)
+        );
+
+        return durationNanos;
+    }
+
+    /**
+     * Makes the parent of this span the current span of this thread again without ending it. Use
+     * this when the span continues on other threads after the starting thread moves on; those
+     * threads received the span with the request context and may still end it.
+     */
+    public void detach() {
+        final IRequestContext requestContext = DiagnosticContext.getRequestContext();
+        if (mSpanId.equals(requestContext.get(DiagnosticContext.SPAN_ID))) {
+            if (mParentSpanId == null) {
+                requestContext.remove(DiagnosticContext.SPAN_ID);
+            } else {
+                requestContext.put(DiagnosticContext.SPAN_ID, mParentSpanId);
+            }
+        }
+    }
+
+    /**
+     * @return The name of the span.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return The id of the span.
+     */
+    public String getSpanId() {
+        return mSpanId;
+    }
+
+    /**
+     * @return The id of the parent span, or null if this span has no parent.
+     */
+    @Nullable
+    public String getParentSpanId() {
+        return mParentSpanId;
+    }
+}
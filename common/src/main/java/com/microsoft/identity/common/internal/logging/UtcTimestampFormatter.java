@@ -0,0 +1,75 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.logging;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats log timestamps in UTC. Timestamps only have second precision, so the formatted value is
+ * kept and reused for every log within the same second.
+ */
+final class UtcTimestampFormatter {
+    private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    private final SimpleDateFormat mDateFormat;
+    private volatile CachedTimestamp mCachedTimestamp = new CachedTimestamp(Long.MIN_VALUE, null);
+
+    UtcTimestampFormatter() {
+        mDateFormat = new SimpleDateFormat(DATE_FORMAT, Locale.getDefault());
+        mDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    /**
+     * @param timestampMillis Milliseconds since the epoch.
+     * @return The timestamp formatted as yyyy-MM-dd HH:mm:ss in UTC.
+     */
+    String format(final long timestampMillis) {
+        final long second = timestampMillis / MILLIS_PER_SECOND;
+        final CachedTimestamp cachedTimestamp = mCachedTimestamp;
+        if (cachedTimestamp.mSecond == second) {
+            return cachedTimestamp.mFormatted;
+        }
+
+        final String formatted;
+        synchronized (mDateFormat) {
+            formatted = mDateFormat.format(new Date(second * MILLIS_PER_SECOND));
+        }
+
+        mCachedTimestamp = new CachedTimestamp(second, formatted);
+        return formatted;
+    }
+
+    private static final class CachedTimestamp {
+        private final long mSecond;
+        private final String mFormatted;
+
+        CachedTimestamp(final long second, final String formatted) {
+            mSecond = second;
+            mFormatted = formatted;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of non-negative values, kept in power-of-two buckets so that recording is
+ * allocation free. Percentiles are approximated by the upper bound of the bucket they fall in.
+ */
+public final class Histogram {
+    private static final int BUCKET_COUNT = 64;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMin = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong mMax = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param value The value to record. Negative values are recorded as 0.
+     */
+    public void record(final long value) {
+        final long sample = Math.max(0, value);
+        mBuckets.incrementAndGet(bucketOf(sample));
+        mCount.incrementAndGet();
+        mSum.addAndGet(sample);
+
+        long current = mMin.get();
+        while (sample < current && !mMin.compareAndSet(current, sample)) {
+            current = mMin.get();
+        }
+
+        current = mMax.get();
+        while (sample > current && !mMax.compareAndSet(current, sample)) {
+            current = mMax.get();
+        }
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * @return The sum of the recorded values.
+     */
+    public long getSum() {
+        return mSum.get();
+    }
+
+    /**
+     * @return The smallest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMin() {
+        return getCount() == 0 ? 0 : mMin.get();
+    }
+
+    /**
+     * @return The largest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return getCount() == 0 ? 0 : mMax.get();
+    }
+
+    /**
+     * @return The mean of the recorded values, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        final long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * Approximate a percentile of the recorded values.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The upper bound of the bucket containing the percentile, capped at the maximum
+     * recorded value, or 0 if nothing was recorded.
+     */
+    public long getPercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile");
+        }
+
+        final long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += mBuckets.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    private static int bucketOf(final long value) {
+        // Bucket 0 holds 0, bucket n holds [2^(n-1), 2^n - 1].
+        return Math.min(BUCKET_COUNT - 1, BUCKET_COUNT - Long.numberOfLeadingZeros(value));
+    }
+
+    private static long upperBoundOf(final int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,56 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Receives the metrics recorded by the library. Implementations are called on the thread doing
+ * the measured work, so they must be thread-safe, fast and must not throw.
+ */
+public interface IMetricsSink {
+
+    /**
+     * Called when a counter is incremented.
+     *
+     * @param name  The name of the counter, see {@link MetricNames}.
+     * @param delta The amount to add to the counter.
+     */
+    void onCount(@NonNull String name, long delta);
+
+    /**
+     * Called when an operation has been timed.
+     *
+     * @param name          The name of the timer, see {@link MetricNames}.
+     * @param durationNanos The duration of the operation, in nanoseconds.
+     */
+    void onTime(@NonNull String name, long durationNanos);
+
+    /**
+     * Called when a value is recorded into a histogram, e.g. the number of entries scanned.
+     *
+     * @param name  The name of the histogram, see {@link MetricNames}.
+     * @param value The recorded value.
+     */
+    void onValue(@NonNull String name, long value);
+}
@@ -0,0 +1,150 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sink which aggregates the metrics in memory into {@link Counter}s, {@link Timer}s and
+ * {@link Histogram}s that can be read back, e.g. for a diagnostics screen or for tests.
+ */
+public class InMemoryMetricsSink implements IMetricsSink {
+
+    private final ConcurrentMap<String, Counter> mCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> mTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> mHistograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void onCount(@NonNull final String name, final long delta) {
+        Counter counter = mCounters.get(name);
+        if (counter == null) {
+            final Counter newCounter = new Counter();
+            counter = mCounters.putIfAbsent(name, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+
+        counter.increment(delta);
+    }
+
+    @Override
+    public void onTime(@NonNull final String name, final long durationNanos) {
+        Timer timer = mTimers.get(name);
+        if (timer == null) {
+            final Timer newTimer = new Timer();
+            timer = mTimers.putIfAbsent(name, newTimer);
+            if (timer == null) {
+                timer = newTimer;
+            }
+        }
+
+        timer.record(durationNanos);
+    }
+
+    @Override
+    public void onValue(@NonNull final String name, final long value) {
+        Histogram histogram = mHistograms.get(name);
+        if (histogram == null) {
+            final Histogram newHistogram = new Histogram();
+            histogram = mHistograms.putIfAbsent(name, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+
+        histogram.record(value);
+    }
+
+    /**
+     * @param name The name of the counter.
+     * @return The counter, or null if it was never incremented.
+     */
+    @Nullable
+    public Counter getCounter(@NonNull final String name) {
+        return mCounters.get(name);
+    }
+
+    /**
+     * @param name The name of the counter.
+     * @return The count, or 0 if the counter was never incremented.
+     */
+    public long getCount(@NonNull final String name) {
+        final Counter counter = mCounters.get(name);
+        return counter == null ? 0 : counter.getCount();
+    }
+
+    /**
+     * @param name The name of the timer.
+     * @return The timer, or null if nothing was timed.
+     */
+    @Nullable
+    public Timer getTimer(@NonNull final String name) {
+        return mTimers.get(name);
+    }
+
+    /**
+     * @param name The name of the histogram.
+     * @return The histogram, or null if nothing was recorded.
+     */
+    @Nullable
+    public Histogram getHistogram(@NonNull final String name) {
+        return mHistograms.get(name);
+    }
+
+    /**
+     * @return An unmodifiable view of all counters.
+     */
+    public Map<String, Counter> getCounters() {
+        return Collections.unmodifiableMap(mCounters);
+    }
+
+    /**
+     * @return An unmodifiable view of all timers.
+     */
+    public Map<String, Timer> getTimers() {
+        return Collections.unmodifiableMap(mTimers);
+    }
+
+    /**
+     * @return An unmodifiable view of all histograms.
+     */
+    public Map<String, Histogram> getHistograms() {
+        return Collections.unmodifiableMap(mHistograms);
+    }
+
+    /**
+     * Discards all recorded metrics.
+     */
+    public void clear() {
+        mCounters.clear();
+        mTimers.clear();
+        mHistograms.clear();
+    }
+}
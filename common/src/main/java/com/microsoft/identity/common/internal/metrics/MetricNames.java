@@ -0,0 +1,196 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+/**
+ * Names of the metrics recorded by the library.
+ */
+public final class MetricNames {
+
+    /**
+     * Timer: time spent in {@code getCredentialsFilteredBy}.
+     */
+    public static final String CACHE_CREDENTIAL_QUERY_TIME = "cache.credential_query.time";
+
+    /**
+     * Histogram: number of credentials scanned by a credential query.
+     */
+    public static final String CACHE_CREDENTIAL_QUERY_SCANNED = "cache.credential_query.scanned";
+
+    /**
+     * Histogram: number of credentials matched by a credential query.
+     */
+    public static final String CACHE_CREDENTIAL_QUERY_MATCHED = "cache.credential_query.matched";
+
+    /**
+     * Histogram: number of accounts scanned by an account query.
+     */
+    public static final String CACHE_ACCOUNT_QUERY_SCANNED = "cache.account_query.scanned";
+
+    /**
+     * Histogram: number of accounts matched by an account query.
+     */
+    public static final String CACHE_ACCOUNT_QUERY_MATCHED = "cache.account_query.matched";
+
+    /**
+     * Histogram: number of cache entries read by a full scan of the cache file.
+     */
+    public static final String CACHE_SCAN_ENTRIES = "cache.scan.entries";
+
+    /**
+     * Timer: duration of a SharedPreferences commit.
+     */
+    public static final String STORAGE_COMMIT_TIME = "storage.commit.time";
+
+    /**
+     * Counter: SharedPreferences commits which failed.
+     */
+    public static final String STORAGE_COMMIT_FAILURES = "storage.commit.failures";
+
+    /**
+     * Timer: duration of {@code StorageHelper.encrypt}.
+     */
+    public static final String CRYPTO_ENCRYPT_TIME = "crypto.encrypt.time";
+
+    /**
+     * Timer: duration of {@code StorageHelper.decrypt}.
+     */
+    public static final String CRYPTO_DECRYPT_TIME = "crypto.decrypt.time";
+
+    /**
+     * Counter: http requests sent, including retries.
+     */
+    public static final String HTTP_REQUESTS = "http.requests";
+
+    /**
+     * Counter: http requests retried after a timeout or a 500/503/504 response.
+     */
+    public static final String HTTP_RETRIES = "http.retries";
+
+    /**
+     * Timer: time to open the http connection.
+     */
+    public static final String HTTP_CONNECT_TIME = "http.connect.time";
+
+    /**
+     * Timer: time from sending the request until the response headers are received.
+     */
+    public static final String HTTP_TIME_TO_FIRST_BYTE = "http.ttfb.time";
+
+    /**
+     * Timer: total time of an http request attempt, including reading the response body.
+     * Attempts which failed, timed out or were cancelled are included.
+     */
+    public static final String HTTP_TOTAL_TIME = "http.total.time";
+
+    /**
+     * Counter: http request attempts which failed with an IOException, including timeouts and
+     * cancellations.
+     */
+    public static final String HTTP_FAILURES = "http.failures";
+
+    /**
+     * Timer: time to bind to the broker's MicrosoftAuthService.
+     */
+    public static final String BROKER_BIND_TIME = "broker.bind.time";
+
+    /**
+     * Timer: duration of an IPC call to the broker's MicrosoftAuthService.
+     */
+    public static final String BROKER_CALL_TIME = "broker.call.time";
+
+    /**
+     * Timer: time a broker call waited for a thread.
+     */
+    public static final String BROKER_QUEUE_WAIT_TIME = "broker.queue_wait.time";
+
+    /**
+     * Histogram: number of broker calls already waiting for a thread when a call is queued.
+     */
+    public static final String BROKER_QUEUE_DEPTH = "broker.queue.depth";
+
+    /**
+     * Histogram: number of threads making broker calls when a call starts, including itself.
+     */
+    public static final String BROKER_ACTIVE_THREADS = "broker.active_threads";
+
+    /**
+     * Counter: broker calls served by an existing binding.
+     */
+    public static final String BROKER_CONNECTION_REUSED = "broker.connection.reused";
+
+    /**
+     * Counter: broker service disconnections.
+     */
+    public static final String BROKER_DISCONNECTS = "broker.disconnects";
+
+    /**
+     * Counter: broker calls rejected because too many calls were pending.
+     */
+    public static final String BROKER_CALLS_REJECTED = "broker.calls.rejected";
+
+    /**
+     * Counter: broker calls which did not complete before their deadline.
+     */
+    public static final String BROKER_CALL_TIMEOUTS = "broker.call.timeouts";
+
+    /**
+     * Counter: refresh token redemptions sent to the token endpoint.
+     */
+    public static final String REFRESH_REDEMPTIONS = "refresh.redemptions";
+
+    /**
+     * Counter: refresh requests which joined a redemption already in flight.
+     */
+    public static final String REFRESH_COALESCED_WAITERS = "refresh.coalesced_waiters";
+
+    /**
+     * Histogram: number of callers which shared a single refresh token redemption.
+     */
+    public static final String REFRESH_WAITERS_PER_REDEMPTION = "refresh.waiters_per_redemption";
+
+    /**
+     * Timer: time to query the package manager for the installed browsers.
+     */
+    public static final String BROWSER_QUERY_TIME = "browser.query.time";
+
+    /**
+     * Timer: time to load the WebView provider when pre-warmed.
+     */
+    public static final String WEBVIEW_PREWARM_TIME = "webview.prewarm.time";
+
+    /**
+     * Timer: time from onPageStarted to onPageFinished of a page in the authorization WebView.
+     */
+    public static final String WEBVIEW_PAGE_LOAD_TIME = "webview.page_load.time";
+
+    /**
+     * Timer: time from creating the authorization WebView client until its first page finished
+     * loading, including setting up the WebView.
+     */
+    public static final String WEBVIEW_FIRST_PAGE_TIME = "webview.first_page.time";
+
+    private MetricNames() {
+        // Constants class.
+    }
+}
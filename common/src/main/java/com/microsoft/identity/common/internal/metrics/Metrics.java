@@ -0,0 +1,145 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Entry point used by the library to record metrics. Metrics are passed to the configured
+ * {@link IMetricsSink}; by default the {@link NoOpMetricsSink} is used and nothing is measured.
+ * <p>
+ * Timing an operation:
+ * <pre>
+ *     final long startTime = Metrics.startTimer();
+ *     doWork();
+ *     Metrics.stopTimer(MetricNames.SOME_TIMER, startTime);
+ * </pre>
+ */
+public final class Metrics {
+
+    /**
+     * Returned by {@link #startTimer()} when metrics are disabled.
+     */
+    public static final long TIMER_NOT_STARTED = Long.MIN_VALUE;
+
+    private static volatile IMetricsSink sSink = NoOpMetricsSink.INSTANCE;
+
+    private Metrics() {
+        // Utility class.
+    }
+
+    /**
+     * Set the sink receiving the metrics.
+     *
+     * @param sink The {@link IMetricsSink} to use, or null to disable metrics.
+     */
+    public static void setSink(@Nullable final IMetricsSink sink) {
+        sSink = sink == null ? NoOpMetricsSink.INSTANCE : sink;
+    }
+
+    /**
+     * @return The sink receiving the metrics.
+     */
+    @NonNull
+    public static IMetricsSink getSink() {
+        return sSink;
+    }
+
+    /**
+     * @return True if a sink other than the {@link NoOpMetricsSink} is configured.
+     */
+    public static boolean isEnabled() {
+        return sSink != NoOpMetricsSink.INSTANCE;
+    }
+
+    /**
+     * Increment a counter by one.
+     *
+     * @param name The name of the counter.
+     */
+    public static void increment(@NonNull final String name) {
+        increment(name, 1);
+    }
+
+    /**
+     * Increment a counter.
+     *
+     * @param name  The name of the counter.
+     * @param delta The amount to add.
+     */
+    public static void increment(@NonNull final String name, final long delta) {
+        final IMetricsSink sink = sSink;
+        if (sink != NoOpMetricsSink.INSTANCE) {
+            sink.onCount(name, delta);
+        }
+    }
+
+    /**
+     * Record the duration of an operation.
+     *
+     * @param name          The name of the timer.
+     * @param durationNanos The duration, in nanoseconds.
+     */
+    public static void recordTime(@NonNull final String name, final long durationNanos) {
+        final IMetricsSink sink = sSink;
+        if (sink != NoOpMetricsSink.INSTANCE) {
+            sink.onTime(name, durationNanos);
+        }
+    }
+
+    /**
+     * Record a value into a histogram.
+     *
+     * @param name  The name of the histogram.
+     * @param value The value.
+     */
+    public static void recordValue(@NonNull final String name, final long value) {
+        final IMetricsSink sink = sSink;
+        if (sink != NoOpMetricsSink.INSTANCE) {
+            sink.onValue(name, value);
+        }
+    }
+
+    /**
+     * Start timing an operation.
+     *
+     * @return The start time to pass to {@link #stopTimer(String, long)}, or
+     * {@link #TIMER_NOT_STARTED} if metrics are disabled.
+     */
+    public static long startTimer() {
+        return isEnabled() ? System.nanoTime() : TIMER_NOT_STARTED;
+    }
+
+    /**
+     * Record the time elapsed since {@link #startTimer()}.
+     *
+     * @param name           The name of the timer.
+     * @param startTimeNanos The value returned by {@link #startTimer()}.
+     */
+    public static void stopTimer(@NonNull final String name, final long startTimeNanos) {
+        if (startTimeNanos != TIMER_NOT_STARTED) {
+            recordTime(name, System.nanoTime() - startTimeNanos);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Sink which discards all metrics. This is the default sink, in which case
+ * {@link Metrics#isEnabled()} is false and instrumented code skips measuring.
+ */
+public final class NoOpMetricsSink implements IMetricsSink {
+
+    /**
+     * The single instance of {@link NoOpMetricsSink}.
+     */
+    public static final NoOpMetricsSink INSTANCE = new NoOpMetricsSink();
+
+    private NoOpMetricsSink() {
+        // Use INSTANCE.
+    }
+
+    @Override
+    public void onCount(@NonNull final String name, final long delta) {
+        // Intentionally empty.
+    }
+
+    @Override
+    public void onTime(@NonNull final String name, final long durationNanos) {
+        // Intentionally empty.
+    }
+
+    @Override
+    public void onValue(@NonNull final String name, final long value) {
+        // Intentionally empty.
+    }
+}
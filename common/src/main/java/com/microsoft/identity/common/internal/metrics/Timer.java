@@ -0,0 +1,82 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribution of operation durations.
+ */
+public final class Timer {
+    private final Histogram mHistogram = new Histogram();
+
+    /**
+     * @param durationNanos The duration of the operation, in nanoseconds.
+     */
+    public void record(final long durationNanos) {
+        mHistogram.record(durationNanos);
+    }
+
+    /**
+     * @return The number of timed operations.
+     */
+    public long getCount() {
+        return mHistogram.getCount();
+    }
+
+    /**
+     * @return The total time of all operations, in milliseconds.
+     */
+    public long getTotalTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mHistogram.getSum());
+    }
+
+    /**
+     * @return The longest operation, in milliseconds.
+     */
+    public long getMaxTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mHistogram.getMax());
+    }
+
+    /**
+     * @return The mean duration, in milliseconds.
+     */
+    public double getMeanTimeMillis() {
+        return mHistogram.getMean() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @param percentile The percentile, between 0 and 100.
+     * @return The approximate duration at the percentile, in milliseconds.
+     */
+    public double getPercentileTimeMillis(final double percentile) {
+        return (double) mHistogram.getPercentile(percentile) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return The underlying distribution, in nanoseconds.
+     */
+    public Histogram getHistogram() {
+        return mHistogram;
+    }
+}
@@ -22,6 +22,11 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.net;
 
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
+import com.microsoft.identity.common.internal.util.CancellationSignal;
 import com.microsoft.identity.common.internal.util.StringUtil;
 
 import java.io.BufferedReader;
@@ -29,6 +34,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
@@ -67,6 +73,7 @@ public final class HttpRequest {
     private final String mRequestContentType;
     private final String mRequestMethod;
     private final Map<String, String> mRequestHeaders = new HashMap<>();
+    private final CancellationSignal mCancellationSignal;
 
     /**
      * Constructor for {@link HttpRequest} with request {@link URL} and request headers.
@@ -75,7 +82,7 @@ public final class HttpRequest {
      * @param requestHeaders Headers used to send the http request.
      */
     private HttpRequest(final URL requestUrl, final Map<String, String> requestHeaders, final String requestMethod) {
-        this(requestUrl, requestHeaders, requestMethod, null, null);
+        this(requestUrl, requestHeaders, requestMethod, null, null, null);
     }
 
     /**
@@ -86,10 +93,12 @@ public final class HttpRequest {
      * @param requestHeaders     Headers used to send the http request.
      * @param requestContent     Post message sent in the post request.
      * @param requestContentType Request content type.
+     * @param cancellationSignal Signal which disconnects the request when cancelled, or null.
      */
     private HttpRequest(final URL requestUrl, final Map<String, String> requestHeaders,
                         final String requestMethod, final byte[] requestContent,
-                        final String requestContentType) {
+                        final String requestContentType,
+                        @Nullable final CancellationSignal cancellationSignal) {
         mRequestUrl = requestUrl;
 
         mRequestHeaders.put(HOST, requestUrl.getAuthority());
@@ -98,7 +107,7 @@ public final class HttpRequest {
         mRequestMethod = requestMethod;
         mRequestContent = requestContent;
         mRequestContentType = requestContentType;
-
+        mCancellationSignal = cancellationSignal;
     }
 
     /**
@@ -114,8 +123,29 @@ public final class HttpRequest {
     public static HttpResponse sendPost(final URL requestUrl, final Map<String, String> requestHeaders,
                                         final byte[] requestContent, final String requestContentType)
             throws IOException {
+        return sendPost(requestUrl, requestHeaders, requestContent, requestContentType, null);
+    }
+
+    /**
+     * Send post request {@link URL}, headers, post message and the request content type. The
+     * request can be aborted from another thread by cancelling the supplied signal, which
+     * disconnects the underlying connection.
+     *
+     * @param requestUrl         The {@link URL} to make the http request.
+     * @param requestHeaders     Headers used to send the http request.
+     * @param requestContent     Post message sent in the post request.
+     * @param requestContentType Request content type.
+     * @param cancellationSignal Signal used to cancel the request, or null.
+     * @return HttpResponse
+     * @throws IOException throw if error happen during http send request, or
+     *                     {@link InterruptedIOException} if the request was cancelled.
+     */
+    public static HttpResponse sendPost(final URL requestUrl, final Map<String, String> requestHeaders,
+                                        final byte[] requestContent, final String requestContentType,
+                                        @Nullable final CancellationSignal cancellationSignal)
+            throws IOException {
         final HttpRequest httpRequest = new HttpRequest(requestUrl, requestHeaders, REQUEST_METHOD_POST,
-                requestContent, requestContentType);
+                requestContent, requestContentType, cancellationSignal);
         return httpRequest.send();
     }
 
@@ -164,12 +194,14 @@ public final class HttpRequest {
             // In android, network timeout is thrown as the SocketTimeOutException, we need to catch this and perform
             // retry. If retry also fails with timeout, the socketTimeoutException will be bubbled up
             waitBeforeRetry();
+            Metrics.increment(MetricNames.HTTP_RETRIES);
             return executeHttpSend();
         }
 
         if (isRetryableError(httpResponse.getStatusCode())) {
             // retry if we get 500/503/504
             waitBeforeRetry();
+            Metrics.increment(MetricNames.HTTP_RETRIES);
             return executeHttpSend();
         }
 
@@ -177,14 +209,36 @@ public final class HttpRequest {
     }
 
     private HttpResponse executeHttpSend() throws IOException {
+        throwIfCancelled();
+        Metrics.increment(MetricNames.HTTP_REQUESTS);
+        final long startTime = Metrics.startTimer();
+
         final HttpURLConnection urlConnection = setupConnection();
         urlConnection.setRequestMethod(mRequestMethod);
-        setRequestBody(urlConnection, mRequestContent, mRequestContentType);
+
+        if (null != mCancellationSignal) {
+            // Invoked immediately if the signal has already been cancelled
+            mCancellationSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    urlConnection.disconnect();
+                }
+            });
+        }
 
         InputStream responseStream = null;
 
         final HttpResponse response;
         try {
+            prepareRequestBody(urlConnection, mRequestContent, mRequestContentType);
+
+            final long connectStartTime = Metrics.startTimer();
+            urlConnection.connect();
+            Metrics.stopTimer(MetricNames.HTTP_CONNECT_TIME, connectStartTime);
+
+            final long requestStartTime = Metrics.startTimer();
+            writeRequestBody(urlConnection, mRequestContent);
+
             try {
                 responseStream = urlConnection.getInputStream();
             } catch (final SocketTimeoutException socketTimeoutException) {
@@ -196,17 +250,38 @@ public final class HttpRequest {
             }
 
             final int statusCode = urlConnection.getResponseCode();
+            Metrics.stopTimer(MetricNames.HTTP_TIME_TO_FIRST_BYTE, requestStartTime);
 
             String responseBody = responseStream == null ? "" : convertStreamToString(responseStream);
 
             response = new HttpResponse(statusCode, responseBody, urlConnection.getHeaderFields());
+        } catch (final IOException e) {
+            Metrics.increment(MetricNames.HTTP_FAILURES);
+            // A disconnect caused by cancellation surfaces as an arbitrary IOException
+            throwIfCancelled();
+            throw e;
         } finally {
             safeCloseStream(responseStream);
+
+            if (null != mCancellationSignal) {
+                mCancellationSignal.setOnCancelListener(null);
+            }
+
+            // Failed and timed out attempts are part of the latency callers see
+            Metrics.stopTimer(MetricNames.HTTP_TOTAL_TIME, startTime);
         }
 
+        throwIfCancelled();
+
         return response;
     }
 
+    private void throwIfCancelled() throws InterruptedIOException {
+        if (null != mCancellationSignal && mCancellationSignal.isCanceled()) {
+            throw new InterruptedIOException("Http request was cancelled.");
+        }
+    }
+
     private HttpURLConnection setupConnection() throws IOException {
         final HttpURLConnection urlConnection = HttpUrlConnectionFactory.createHttpURLConnection(mRequestUrl);
         urlConnection.setRequestProperty("Connection", "close");
@@ -226,8 +301,8 @@ public final class HttpRequest {
         return urlConnection;
     }
 
-    private static void setRequestBody(final HttpURLConnection connection, final byte[] contentRequest,
-                                       final String requestContentType) throws IOException {
+    private static void prepareRequestBody(final HttpURLConnection connection, final byte[] contentRequest,
+                                           final String requestContentType) {
         if (contentRequest == null) {
             return;
         }
@@ -239,6 +314,13 @@ public final class HttpRequest {
         }
 
         connection.setRequestProperty("Content-Length", String.valueOf(contentRequest.length));
+    }
+
+    private static void writeRequestBody(final HttpURLConnection connection, final byte[] contentRequest)
+            throws IOException {
+        if (contentRequest == null) {
+            return;
+        }
 
         OutputStream out = null;
         try {
@@ -304,11 +386,13 @@ public final class HttpRequest {
     /**
      * Having the thread wait for 1 second before doing the retry to avoid hitting server immediately.
      */
-    private void waitBeforeRetry() {
+    private void waitBeforeRetry() throws InterruptedIOException {
         try {
             Thread.sleep(RETRY_TIME_WAITING_PERIOD_MSEC);
         } catch (final InterruptedException interrupted) {
             //Fail the have the thread waiting for 1 second before doing the retry
         }
+
+        throwIfCancelled();
     }
 }
\ No newline at end of file
@@ -30,25 +30,61 @@ import com.nimbusds.jose.crypto.RSASSASigner;
 import com.nimbusds.jose.util.Base64;
 import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.SignedJWT;
 
+import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * This class is used to create a client assertion per the following documentation.
  * https://docs.microsoft.com/en-us/azure/active-directory/develop/active-directory-certificate-credentials
+ * <p>
+ * Signing is expensive, so signed assertions are cached per client id, audience and certificate
+ * thumbprint and reused until shortly before they expire. The JWS header of each certificate,
+ * including its x5c chain and thumbprint, is encoded once.
  */
 public class MicrosoftClientAssertion extends ClientAssertion {
 
     private static final String CLIENT_ASSERTION_TYPE = "urn:ietf:params:oauth:client-assertion-type:jwt-bearer";
     private static final String THUMBPRINT_ALGORITHM = "SHA-1";
-    private static final int ONE_MINUTE_MILLIS = 60000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Lifetime of a signed assertion.
+     */
+    private static final long ASSERTION_LIFETIME_MILLIS = 10 * 60 * 1000L;
+
+    /**
+     * A cached assertion is not reused once it is this close to expiry, so that it cannot expire
+     * in flight or on a server whose clock is ahead.
+     */
+    private static final long EXPIRY_MARGIN_MILLIS = 2 * 60 * 1000L;
+
+    private static final int MAX_CACHED_ASSERTIONS = 16;
+
+    /**
+     * Signed assertions, keyed by client id, audience and certificate thumbprint.
+     */
+    private static final Map<String, SignedAssertion> sAssertionCache =
+            new LinkedHashMap<String, SignedAssertion>(MAX_CACHED_ASSERTIONS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, SignedAssertion> eldest) {
+                    return size() > MAX_CACHED_ASSERTIONS;
+                }
+            };
+
+    /**
+     * Encoded JWS headers, keyed by the certificate they describe.
+     */
+    private static final Map<X509Certificate, CertificateHeader> sHeaderCache = new WeakHashMap<>();
 
     /**
      * Constructor of MicrosoftClientAssertion.
@@ -65,48 +101,111 @@ public class MicrosoftClientAssertion extends ClientAssertion {
             throw new IllegalArgumentException("certificate credential is null");
         }
 
-        SignedJWT assertion = createSignedJwt(credential.getClientId(), audience, credential);
-        setClientAssertion(assertion.serialize());
+        setClientAssertion(getOrCreateSignedJwt(credential.getClientId(), audience, credential));
         setClientAssertionType(MicrosoftClientAssertion.CLIENT_ASSERTION_TYPE);
 
     }
 
+    /**
+     * Discards all cached assertions and certificate headers.
+     */
+    public static void clearCache() {
+        synchronized (sAssertionCache) {
+            sAssertionCache.clear();
+        }
 
-    private SignedJWT createSignedJwt(String clientId, String audience, CertificateCredential credential)
+        synchronized (sHeaderCache) {
+            sHeaderCache.clear();
+        }
+    }
+
+    private static String getOrCreateSignedJwt(String clientId, String audience, CertificateCredential credential)
             throws NoSuchAlgorithmException, CertificateEncodingException {
 
-        final long time = System.currentTimeMillis();
+        final CertificateHeader header = getCertificateHeader(credential.getPublicCertificate());
+        final String cacheKey = clientId + "|" + audience + "|" + header.mThumbprint;
+        final long now = System.currentTimeMillis();
+
+        synchronized (sAssertionCache) {
+            final SignedAssertion cached = sAssertionCache.get(cacheKey);
+
+            if (cached != null && now < cached.mExpiresOnMillis - EXPIRY_MARGIN_MILLIS) {
+                return cached.mSerialized;
+            }
+        }
+
+        final SignedAssertion assertion = createSignedJwt(clientId, audience, credential, header, now);
+
+        synchronized (sAssertionCache) {
+            sAssertionCache.put(cacheKey, assertion);
+        }
+
+        return assertion.mSerialized;
+    }
+
+    private static SignedAssertion createSignedJwt(String clientId,
+                                                   String audience,
+                                                   CertificateCredential credential,
+                                                   CertificateHeader header,
+                                                   long time) {
+        final long expiresOn = time + ASSERTION_LIFETIME_MILLIS;
 
         final JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
                 .audience(audience)
                 .issuer(clientId)
                 .notBeforeTime(new Date(time))
-                .expirationTime(new Date(time
-                        + ONE_MINUTE_MILLIS))
+                .expirationTime(new Date(expiresOn))
                 .subject(clientId)
                 .build();
 
-        SignedJWT jwt;
-
         try {
-            JWSHeader.Builder builder = new JWSHeader.Builder(JWSAlgorithm.RS256);
-            List<Base64> certs = new ArrayList<Base64>();
-            certs.add(Base64.encode(credential.getPublicCertificate().getEncoded()));
-            builder.x509CertChain(certs);
-            builder.x509CertThumbprint(createSHA1ThumbPrint(credential.getPublicCertificate()));
+            final String signingInput = header.mEncodedHeader
+                    + "."
+                    + Base64URL.encode(claimsSet.toJSONObject().toJSONString());
 
-            jwt = new SignedJWT(builder.build(), claimsSet);
             final RSASSASigner signer = new RSASSASigner(credential.getPrivateKey());
+            final Base64URL signature = signer.sign(header.mHeader, signingInput.getBytes(UTF_8));
 
-            jwt.sign(signer);
+            return new SignedAssertion(signingInput + "." + signature, expiresOn);
         } catch (final Exception e) {
             throw new RuntimeException("exception in createSignedJwt", e);
         }
+    }
+
+    private static CertificateHeader getCertificateHeader(X509Certificate certificate)
+            throws CertificateEncodingException, NoSuchAlgorithmException {
+
+        synchronized (sHeaderCache) {
+            final CertificateHeader cached = sHeaderCache.get(certificate);
+
+            if (cached != null) {
+                return cached;
+            }
+        }
 
-        return jwt;
+        final Base64URL thumbprint = createSHA1ThumbPrint(certificate);
+
+        JWSHeader.Builder builder = new JWSHeader.Builder(JWSAlgorithm.RS256);
+        List<Base64> certs = new ArrayList<Base64>();
+        certs.add(Base64.encode(certificate.getEncoded()));
+        builder.x509CertChain(certs);
+        builder.x509CertThumbprint(thumbprint);
+
+        final JWSHeader jwsHeader = builder.build();
+        final CertificateHeader header = new CertificateHeader(
+                jwsHeader,
+                jwsHeader.toBase64URL().toString(),
+                thumbprint.toString()
+        );
+
+        synchronized (sHeaderCache) {
+            sHeaderCache.put(certificate, header);
+        }
+
+        return header;
     }
 
-    private Base64URL createSHA1ThumbPrint(X509Certificate clientCertificate)
+    private static Base64URL createSHA1ThumbPrint(X509Certificate clientCertificate)
             throws CertificateEncodingException, NoSuchAlgorithmException {
 
         Base64URL thumbprint;
@@ -119,5 +218,25 @@ public class MicrosoftClientAssertion extends ClientAssertion {
         return thumbprint;
     }
 
+    private static final class SignedAssertion {
+        private final String mSerialized;
+        private final long mExpiresOnMillis;
 
+        SignedAssertion(final String serialized, final long expiresOnMillis) {
+            mSerialized = serialized;
+            mExpiresOnMillis = expiresOnMillis;
+        }
+    }
+
+    private static final class CertificateHeader {
+        private final JWSHeader mHeader;
+        private final String mEncodedHeader;
+        private final String mThumbprint;
+
+        CertificateHeader(final JWSHeader header, final String encodedHeader, final String thumbprint) {
+            mHeader = header;
+            mEncodedHeader = encodedHeader;
+            mThumbprint = thumbprint;
+        }
+    }
 }
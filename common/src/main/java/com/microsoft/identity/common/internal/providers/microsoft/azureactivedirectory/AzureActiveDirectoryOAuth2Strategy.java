@@ -25,6 +25,7 @@ package com.microsoft.identity.common.internal.providers.microsoft.azureactivedi
 import android.net.Uri;
 import android.support.annotation.NonNull;
 
+import com.google.gson.JsonSyntaxException;
 import com.microsoft.identity.common.exception.ServiceException;
 import com.microsoft.identity.common.internal.dto.IAccountRecord;
 import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
@@ -137,7 +138,7 @@ public class AzureActiveDirectoryOAuth2Strategy
 
         final String issuerCacheIdentifier = authorityUri.toString();
 
-        Logger.infoPII(TAG, "Issuer cache identifier created: " + issuerCacheIdentifier);
+        Logger.infoPIIFormat(TAG, "Issuer cache identifier created: %s", issuerCacheIdentifier);
 
         return issuerCacheIdentifier;
     }
@@ -237,8 +238,19 @@ public class AzureActiveDirectoryOAuth2Strategy
 
         if (response.getStatusCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
             //An error occurred
-            Logger.warn(TAG + ":" + methodName, "Status code was: " + response.getStatusCode());
-            tokenErrorResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), MicrosoftTokenErrorResponse.class);
+            Logger.warnFormat(TAG + ":" + methodName, "Status code was: %s", response.getStatusCode());
+            try {
+                tokenErrorResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), MicrosoftTokenErrorResponse.class);
+            } catch (final JsonSyntaxException e) {
+                // e.g. an HTML error page from a gateway during an outage
+                Logger.warn(TAG + ":" + methodName, "Error response body was not JSON.");
+            }
+
+            if (null == tokenErrorResponse) {
+                tokenErrorResponse = new MicrosoftTokenErrorResponse();
+            }
+
+            tokenErrorResponse.setStatusCode(response.getStatusCode());
         } else {
             tokenResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), AzureActiveDirectoryTokenResponse.class);
         }
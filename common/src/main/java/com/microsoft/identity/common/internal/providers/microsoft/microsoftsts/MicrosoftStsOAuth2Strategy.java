@@ -25,6 +25,7 @@ package com.microsoft.identity.common.internal.providers.microsoft.microsoftsts;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.google.gson.JsonSyntaxException;
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.exception.ServiceException;
 import com.microsoft.identity.common.internal.dto.IAccountRecord;
@@ -281,7 +282,19 @@ public class MicrosoftStsOAuth2Strategy
 
         if (response.getStatusCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
             //An error occurred
-            tokenErrorResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), MicrosoftTokenErrorResponse.class);
+            try {
+                tokenErrorResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), MicrosoftTokenErrorResponse.class);
+            } catch (final JsonSyntaxException e) {
+                // e.g. an HTML error page from a gateway during an outage
+                Logger.warn(TAG + methodName, "Error response body was not JSON.");
+            }
+
+            if (null == tokenErrorResponse) {
+                // e.g. an empty body from a gateway during an outage
+                tokenErrorResponse = new MicrosoftTokenErrorResponse();
+            }
+
+            tokenErrorResponse.setStatusCode(response.getStatusCode());
         } else {
             tokenResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), MicrosoftStsTokenResponse.class);
         }
@@ -1,24 +1,59 @@
 package com.microsoft.identity.common.internal.providers.oauth2;
 
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.internal.logging.RequestContextPropagator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+/**
+ * Future for the result of an interactive authorization, completed by
+ * {@link AuthorizationStrategy#completeAuthorization(int, int, android.content.Intent)}.
+ * <p>
+ * Besides blocking on {@link #get()}, callers can register listeners which are notified on an
+ * executor of their choice, so no thread has to wait while the user signs in. A result set after
+ * the future was cancelled is dropped.
+ */
 public class AuthorizationResultFuture implements Future<AuthorizationResult> {
 
     private final CountDownLatch mCountDownLatch = new CountDownLatch(1);
     private AuthorizationResult mAuthorizationResult;
+    private boolean mCancelled;
+
+    /**
+     * Listeners waiting for completion, or null once the future is done. Guarded by this.
+     */
+    private List<Runnable> mListeners = new ArrayList<>();
 
     @Override
     public boolean cancel(boolean b) {
-        return false;
+        final List<Runnable> listeners;
+        synchronized (this) {
+            if (mListeners == null) {
+                return false;
+            }
+
+            mCancelled = true;
+            listeners = mListeners;
+            mListeners = null;
+        }
+
+        mCountDownLatch.countDown();
+        runAll(listeners);
+        return true;
     }
 
     @Override
-    public boolean isCancelled() {
-        return false;
+    public synchronized boolean isCancelled() {
+        return mCancelled;
     }
 
     @Override
@@ -29,13 +64,13 @@ public class AuthorizationResultFuture implements Future<AuthorizationResult> {
     @Override
     public AuthorizationResult get() throws InterruptedException, ExecutionException {
         mCountDownLatch.await();
-        return mAuthorizationResult;
+        return getResult();
     }
 
     @Override
     public AuthorizationResult get(long l, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
         if (mCountDownLatch.await(l, timeUnit)) {
-            return mAuthorizationResult;
+            return getResult();
         } else {
             throw new TimeoutException();
         }
@@ -43,7 +78,77 @@ public class AuthorizationResultFuture implements Future<AuthorizationResult> {
     }
 
     public void setAuthorizationResult(AuthorizationResult result) {
-        mAuthorizationResult = result;
+        final List<Runnable> listeners;
+        synchronized (this) {
+            if (mListeners == null) {
+                // Already cancelled
+                return;
+            }
+
+            mAuthorizationResult = result;
+            listeners = mListeners;
+            mListeners = null;
+        }
+
         mCountDownLatch.countDown();
+        runAll(listeners);
+    }
+
+    /**
+     * Registers a listener notified on the given executor when the future completes, or
+     * immediately if it already has. The listener runs with the DiagnosticContext of the
+     * registering thread.
+     *
+     * @param listener The listener to notify.
+     * @param executor The executor on which to notify it.
+     */
+    public void addListener(@NonNull final IAuthorizationResultListener listener,
+                            @NonNull final Executor executor) {
+        final Runnable notification = RequestContextPropagator.wrap(new Runnable() {
+            @Override
+            public void run() {
+                final boolean cancelled;
+                final AuthorizationResult result;
+                synchronized (AuthorizationResultFuture.this) {
+                    cancelled = mCancelled;
+                    result = mAuthorizationResult;
+                }
+
+                if (cancelled) {
+                    listener.onCancelled();
+                } else {
+                    listener.onAuthorizationResult(result);
+                }
+            }
+        });
+        final Runnable dispatch = new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(notification);
+            }
+        };
+
+        synchronized (this) {
+            if (mListeners != null) {
+                mListeners.add(dispatch);
+                return;
+            }
+        }
+
+        dispatch.run();
+    }
+
+    private synchronized AuthorizationResult getResult() {
+        if (mCancelled) {
+            throw new CancellationException("Authorization was cancelled.");
+        }
+
+        return mAuthorizationResult;
+    }
+
+    private static void runAll(@NonNull final List<Runnable> listeners) {
+        for (final Runnable listener : listeners) {
+            listener.run();
+        }
     }
 }
@@ -30,8 +30,7 @@ import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.JWTParser;
 
 import java.text.ParseException;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -183,6 +182,23 @@ public class IDToken {
     public static final String UPDATED_AT = "updated_at";
 
 
+    /**
+     * Maximum number of decoded ID tokens kept in {@link #sClaimsCache}.
+     */
+    private static final int CLAIMS_CACHE_SIZE = 16;
+
+    /**
+     * Claims of recently decoded ID tokens, keyed by the raw token. The same raw token is wrapped
+     * in several IDToken instances while saving and loading an Account, and is only decoded once.
+     */
+    private static final Map<String, Map<String, String>> sClaimsCache =
+            new LinkedHashMap<String, Map<String, String>>(CLAIMS_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Map<String, String>> eldest) {
+                    return size() > CLAIMS_CACHE_SIZE;
+                }
+            };
+
     private Map<String, String> mTokenClaims = null;
     private final String mRawIdToken;
 
@@ -215,10 +231,26 @@ public class IDToken {
      * @return Token claims in Map<String, String>.
      */
     public Map<String, String> getTokenClaims() {
-        return Collections.unmodifiableMap(mTokenClaims);
+        return mTokenClaims;
     }
 
+    /**
+     * Parses the claims of the supplied JWT. Results are cached, so parsing the same token again
+     * is cheap; claim values are converted to Strings on first access.
+     *
+     * @param idToken The raw JWT.
+     * @return An unmodifiable Map of the token claims.
+     * @throws ServiceException if the token is malformed.
+     */
     public static Map<String, String> parseJWT(final String idToken) throws ServiceException {
+        synchronized (sClaimsCache) {
+            final Map<String, String> cachedClaims = sClaimsCache.get(idToken);
+
+            if (null != cachedClaims) {
+                return cachedClaims;
+            }
+        }
+
         final JWTClaimsSet claimsSet;
         try {
             // Create a SignedJWT from the input token String
@@ -228,14 +260,11 @@ public class IDToken {
             throw new ServiceException("Failed to parse JWT", ErrorStrings.INVALID_JWT, e);
         }
 
-        // Grab the claims and stick them into a Map<String, Object>
-        final Map<String, Object> claimsMap = claimsSet.getClaims();
-
-        // Convert that Map<String, Object> into Map<String, String>
-        final Map<String, String> claimsMapStr = new HashMap<>();
+        // Wrap the claims (an unmodifiable Map<String, Object>) as a Map<String, String>
+        final Map<String, String> claimsMapStr = new LazyClaimsMap(claimsSet.getClaims());
 
-        for (final Map.Entry<String, Object> entry : claimsMap.entrySet()) {
-            claimsMapStr.put(entry.getKey(), entry.getValue().toString());
+        synchronized (sClaimsCache) {
+            sClaimsCache.put(idToken, claimsMapStr);
         }
 
         // Return our result
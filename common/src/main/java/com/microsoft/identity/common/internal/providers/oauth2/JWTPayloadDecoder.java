@@ -0,0 +1,199 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.providers.oauth2;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.exception.ServiceException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads claims from the payload of a JWT without building a full JWT object graph.
+ * <p>
+ * Only the payload segment is Base64URL-decoded, into a per-thread buffer which is reused across
+ * calls, and its JSON is streamed so that unrequested claims are skipped rather than
+ * materialized. The header is not parsed and the signature is not verified; use this only where
+ * {@link IDToken#parseJWT(String)} would otherwise be used to read claims.
+ * <p>
+ * Claim values are returned as Strings: numbers as their JSON literal (e.g. "1538000000" for exp),
+ * booleans as "true"/"false", objects and arrays as JSON.
+ */
+public final class JWTPayloadDecoder {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int INITIAL_BUFFER_SIZE = 2048;
+
+    private static final byte[] BASE64URL_DECODE_TABLE = new byte[128];
+
+    static {
+        Arrays.fill(BASE64URL_DECODE_TABLE, (byte) -1);
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL_DECODE_TABLE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private static final ThreadLocal<byte[]> sPayloadBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[INITIAL_BUFFER_SIZE];
+        }
+    };
+
+    private JWTPayloadDecoder() {
+        // Utility class.
+    }
+
+    /**
+     * Reads the supplied claims from the payload of a JWT.
+     *
+     * @param rawJwt     The raw (compact serialized) JWT.
+     * @param claimNames The names of the claims to read, or null to read all of them.
+     * @return A Map of the claims found. Requested claims absent from the token are not included.
+     * @throws ServiceException If the JWT is malformed.
+     */
+    public static Map<String, String> decodeClaims(@NonNull final String rawJwt,
+                                                   @Nullable final Set<String> claimNames)
+            throws ServiceException {
+        final String payload = decodePayload(rawJwt);
+        final Map<String, String> claims = new HashMap<>();
+        final JsonReader reader = new JsonReader(new StringReader(payload));
+
+        try {
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+
+                if (null == claimNames || claimNames.contains(name)) {
+                    claims.put(name, readValue(reader));
+
+                    if (null != claimNames && claims.size() == claimNames.size()) {
+                        // Everything requested has been found, skip the rest of the payload
+                        break;
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+        } catch (final IOException | IllegalStateException | JsonParseException | NumberFormatException e) {
+            throw new ServiceException(ErrorStrings.INVALID_JWT, "Failed to parse JWT payload", e);
+        }
+
+        return claims;
+    }
+
+    /**
+     * Reads a single claim from the payload of a JWT.
+     *
+     * @param rawJwt    The raw (compact serialized) JWT.
+     * @param claimName The name of the claim to read.
+     * @return The claim value, or null if the token does not contain the claim.
+     * @throws ServiceException If the JWT is malformed.
+     */
+    @Nullable
+    public static String decodeClaim(@NonNull final String rawJwt,
+                                     @NonNull final String claimName) throws ServiceException {
+        return decodeClaims(rawJwt, Collections.singleton(claimName)).get(claimName);
+    }
+
+    private static String readValue(@NonNull final JsonReader reader) throws IOException {
+        final JsonToken token = reader.peek();
+
+        switch (token) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                return new JsonParser().parse(reader).toString();
+        }
+    }
+
+    private static String decodePayload(@NonNull final String rawJwt) throws ServiceException {
+        final int payloadStart = rawJwt.indexOf('.') + 1;
+        final int payloadEnd = payloadStart == 0 ? -1 : rawJwt.indexOf('.', payloadStart);
+
+        if (payloadEnd < 0) {
+            throw new ServiceException(ErrorStrings.INVALID_JWT, "JWT is not a compact serialization", null);
+        }
+
+        int end = payloadEnd;
+
+        // Padding is optional in Base64URL
+        while (end > payloadStart && rawJwt.charAt(end - 1) == '=') {
+            end--;
+        }
+
+        final int maxDecodedLength = (end - payloadStart) * 3 / 4 + 3;
+        byte[] buffer = sPayloadBuffer.get();
+
+        if (buffer.length < maxDecodedLength) {
+            buffer = new byte[maxDecodedLength];
+            sPayloadBuffer.set(buffer);
+        }
+
+        int length = 0;
+        int bits = 0;
+        int bitCount = 0;
+
+        for (int i = payloadStart; i < end; i++) {
+            final char c = rawJwt.charAt(i);
+            final int value = c < BASE64URL_DECODE_TABLE.length ? BASE64URL_DECODE_TABLE[c] : -1;
+
+            if (value < 0) {
+                throw new ServiceException(ErrorStrings.INVALID_JWT, "JWT payload is not Base64URL encoded", null);
+            }
+
+            bits = (bits << 6) | value;
+            bitCount += 6;
+
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                buffer[length++] = (byte) (bits >> bitCount);
+            }
+        }
+
+        return new String(buffer, 0, length, UTF_8);
+    }
+}
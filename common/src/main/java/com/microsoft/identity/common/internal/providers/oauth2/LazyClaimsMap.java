@@ -0,0 +1,97 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.providers.oauth2;
+
+import android.support.annotation.NonNull;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An unmodifiable view of the claims of a JWT as Strings. Claim values are converted from their
+ * parsed JSON form on first access, so that callers reading a handful of claims do not pay to
+ * stringify nested claims (e.g. address) they never read.
+ */
+class LazyClaimsMap extends AbstractMap<String, String> {
+
+    private final Map<String, Object> mClaims;
+
+    private final Map<String, String> mDecodedClaims = new HashMap<>();
+
+    private Set<Entry<String, String>> mEntrySet;
+
+    LazyClaimsMap(@NonNull final Map<String, Object> claims) {
+        mClaims = claims;
+    }
+
+    @Override
+    public synchronized String get(final Object key) {
+        if (mDecodedClaims.containsKey(key)) {
+            return mDecodedClaims.get(key);
+        }
+
+        if (!mClaims.containsKey(key)) {
+            return null;
+        }
+
+        final Object value = mClaims.get(key);
+        final String decoded = null == value ? null : value.toString();
+        mDecodedClaims.put((String) key, decoded);
+
+        return decoded;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return mClaims.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return mClaims.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mClaims.isEmpty();
+    }
+
+    @Override
+    public synchronized Set<Entry<String, String>> entrySet() {
+        if (null == mEntrySet) {
+            final Set<Entry<String, String>> entries = new LinkedHashSet<>();
+
+            for (final String key : mClaims.keySet()) {
+                entries.add(new SimpleImmutableEntry<>(key, get(key)));
+            }
+
+            mEntrySet = Collections.unmodifiableSet(entries);
+        }
+
+        return mEntrySet;
+    }
+}
@@ -23,16 +23,23 @@
 package com.microsoft.identity.common.internal.providers.oauth2;
 
 import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.microsoft.identity.common.BaseAccount;
 import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.exception.ErrorStrings;
 import com.microsoft.identity.common.internal.dto.IAccountRecord;
 import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.logging.RequestContextPropagator;
+import com.microsoft.identity.common.internal.logging.TraceSpan;
 import com.microsoft.identity.common.internal.net.HttpRequest;
 import com.microsoft.identity.common.internal.net.HttpResponse;
 import com.microsoft.identity.common.internal.net.ObjectMapper;
 import com.microsoft.identity.common.internal.platform.Device;
+import com.microsoft.identity.common.internal.util.CancellationSignal;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -41,7 +48,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 
 /**
@@ -90,12 +100,22 @@ public abstract class OAuth2Strategy
     public Future<AuthorizationResult> requestAuthorization(
             final GenericAuthorizationRequest request,
             final GenericAuthorizationStrategy authorizationStrategy) {
+        final String methodName = ":requestAuthorization";
         validateAuthorizationRequest(request);
-        Future<AuthorizationResult> future = null;
+        Future<AuthorizationResult> future;
         try {
             future = authorizationStrategy.requestAuthorization(request, this);
         } catch (final UnsupportedEncodingException | ClientException exc) {
-            //TODO
+            Logger.error(TAG + methodName, "Failed to launch the authorization request.", exc);
+            // Surface the failure through the future rather than returning null
+            final FutureTask<AuthorizationResult> failedFuture = new FutureTask<>(new Callable<AuthorizationResult>() {
+                @Override
+                public AuthorizationResult call() throws Exception {
+                    throw exc;
+                }
+            });
+            failedFuture.run();
+            future = failedFuture;
         }
 
         return future;
@@ -109,17 +129,162 @@ public abstract class OAuth2Strategy
      * @throws IOException thrown when failed or interrupted I/O operations occur.
      */
     public GenericTokenResult requestToken(final GenericTokenRequest request) throws IOException {
+        return requestToken(request, null);
+    }
+
+    /**
+     * @param request            generic token request.
+     * @param cancellationSignal signal which aborts the request when cancelled, or null.
+     * @return GenericTokenResult
+     * @throws IOException thrown when failed or interrupted I/O operations occur, including
+     *                     cancellation.
+     */
+    public GenericTokenResult requestToken(final GenericTokenRequest request,
+                                           @Nullable final CancellationSignal cancellationSignal) throws IOException {
         final String methodName = ":requestToken";
         Logger.verbose(
                 TAG + methodName,
                 "Requesting token..."
         );
-        validateTokenRequest(request);
-        HttpResponse response = performTokenRequest(request);
-        return getTokenResultFromHttpResponse(response);
+        final TraceSpan span = TraceSpan.start("oauth2" + methodName);
+        try {
+            validateTokenRequest(request);
+            HttpResponse response = performTokenRequest(request, cancellationSignal);
+            return getTokenResultFromHttpResponse(response);
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Sends the token request on the supplied executor without blocking the calling thread. The
+     * {@link DiagnosticContext} of the calling thread is applied to the thread sending the request.
+     * Cancelling the returned future disconnects the request if it is in flight.
+     *
+     * @param request  generic token request.
+     * @param executor the executor on which to send the request.
+     * @return A future for the GenericTokenResult.
+     */
+    public Future<GenericTokenResult> requestTokenAsync(@NonNull final GenericTokenRequest request,
+                                                        @NonNull final Executor executor) {
+        return requestTokenAsync(request, executor, null);
+    }
+
+    /**
+     * Sends the token request on the supplied executor without blocking the calling thread, and
+     * notifies the supplied callback on the executor thread when it completes. The
+     * {@link DiagnosticContext} of the calling thread is applied to the thread sending the request.
+     * Cancelling the returned future disconnects the request if it is in flight and notifies the
+     * callback of the cancellation on the cancelling thread.
+     *
+     * @param request  generic token request.
+     * @param executor the executor on which to send the request.
+     * @param callback the callback to notify, or null.
+     * @return A future for the GenericTokenResult.
+     */
+    public Future<GenericTokenResult> requestTokenAsync(@NonNull final GenericTokenRequest request,
+                                                        @NonNull final Executor executor,
+                                                        @Nullable final ITokenRequestCallback<GenericTokenResult> callback) {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+
+        final TokenRequestTask<GenericTokenResult> task = new TokenRequestTask<>(
+                new Callable<GenericTokenResult>() {
+                    @Override
+                    public GenericTokenResult call() throws IOException {
+                        return requestToken(request, cancellationSignal);
+                    }
+                },
+                cancellationSignal,
+                callback
+        );
+
+        // The callback is notified on the executor thread too, so it gets the caller's context as well
+        executor.execute(RequestContextPropagator.wrap(task));
+
+        return task;
+    }
+
+    /**
+     * Redeems the authorization code for tokens once the interactive authorization completes,
+     * without blocking any thread while the user signs in. When the authorization future
+     * completes, {@link #createTokenRequest(AuthorizationRequest, AuthorizationResponse)} and
+     * {@link #requestToken(TokenRequest, CancellationSignal)} run on the supplied executor and the
+     * callback is notified there. The {@link DiagnosticContext} of the calling thread is applied.
+     * <p>
+     * Cancelling the returned future cancels the authorization future if it is still pending, or
+     * disconnects the token request if it is in flight. An unsuccessful or cancelled authorization
+     * fails the returned future.
+     *
+     * @param authorizationRequest      the authorization request which was made.
+     * @param authorizationResultFuture the future returned by the authorization strategy.
+     * @param executor                  the executor on which to send the token request.
+     * @param callback                  the callback to notify, or null.
+     * @return A future for the GenericTokenResult.
+     */
+    public Future<GenericTokenResult> requestTokenWhenAuthorized(@NonNull final GenericAuthorizationRequest authorizationRequest,
+                                                                 @NonNull final AuthorizationResultFuture authorizationResultFuture,
+                                                                 @NonNull final Executor executor,
+                                                                 @Nullable final ITokenRequestCallback<GenericTokenResult> callback) {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+
+        final TokenRequestTask<GenericTokenResult> task = new TokenRequestTask<GenericTokenResult>(
+                new Callable<GenericTokenResult>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public GenericTokenResult call() throws Exception {
+                        // Only run once the authorization future is done, so this does not block
+                        final AuthorizationResult authorizationResult = authorizationResultFuture.get();
+                        // The result factories set the status rather than the success flag
+                        if (authorizationResult == null
+                                || authorizationResult.getAuthorizationStatus() != AuthorizationStatus.SUCCESS
+                                || authorizationResult.getAuthorizationResponse() == null) {
+                            throw new ClientException(
+                                    ErrorStrings.AUTHORIZATION_FAILED,
+                                    "Authorization did not succeed, status: "
+                                            + (authorizationResult == null ? null : authorizationResult.getAuthorizationStatus())
+                            );
+                        }
+
+                        final GenericTokenRequest tokenRequest = createTokenRequest(
+                                authorizationRequest,
+                                (GenericAuthorizationResponse) authorizationResult.getAuthorizationResponse()
+                        );
+                        return requestToken(tokenRequest, cancellationSignal);
+                    }
+                },
+                cancellationSignal,
+                callback
+        ) {
+            @Override
+            public boolean cancel(final boolean mayInterruptIfRunning) {
+                final boolean cancelled = super.cancel(mayInterruptIfRunning);
+                authorizationResultFuture.cancel(mayInterruptIfRunning);
+                return cancelled;
+            }
+        };
+
+        // Registered from this thread, so the task runs with the caller's context
+        authorizationResultFuture.addListener(new IAuthorizationResultListener() {
+            @Override
+            public void onAuthorizationResult(final AuthorizationResult result) {
+                task.run();
+            }
+
+            @Override
+            public void onCancelled() {
+                task.cancel(false);
+            }
+        }, executor);
+
+        return task;
     }
 
     protected HttpResponse performTokenRequest(final GenericTokenRequest request) throws IOException {
+        return performTokenRequest(request, null);
+    }
+
+    protected HttpResponse performTokenRequest(final GenericTokenRequest request,
+                                               @Nullable final CancellationSignal cancellationSignal) throws IOException {
         final String methodName = ":performTokenRequest";
         Logger.verbose(
                 TAG + methodName,
@@ -135,7 +300,8 @@ public abstract class OAuth2Strategy
                 new URL(mTokenEndpoint),
                 headers,
                 requestBody.getBytes(ObjectMapper.ENCODING_SCHEME),
-                TOKEN_REQUEST_CONTENT_TYPE
+                TOKEN_REQUEST_CONTENT_TYPE,
+                cancellationSignal
         );
     }
 
@@ -29,6 +29,7 @@ import com.microsoft.identity.common.internal.cache.ICacheRecord;
 import com.microsoft.identity.common.internal.dto.AccountRecord;
 import com.microsoft.identity.common.internal.dto.Credential;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -61,6 +62,29 @@ public abstract class OAuth2TokenCache
                                       final U request,
                                       final V response) throws ClientException;
 
+    /**
+     * Saves several responses received for the same Account, e.g. the results of redeeming one
+     * multi-resource refresh token for several resources. Subclasses may override this method to
+     * write all of the results at once; by default each response is saved in turn.
+     *
+     * @param oAuth2Strategy The strategy used to create the token requests.
+     * @param requests       The requests used to acquire tokens and credentials.
+     * @param responses      The responses received from the IdP/STS, in the order of requests.
+     * @return The {@link ICacheRecord}s saved to the cache, in the order of requests.
+     * @throws ClientException If tokens cannot be successfully saved.
+     */
+    public List<ICacheRecord> saveAll(final T oAuth2Strategy,
+                                      final List<U> requests,
+                                      final List<V> responses) throws ClientException {
+        final List<ICacheRecord> result = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            result.add(save(oAuth2Strategy, requests.get(i), responses.get(i)));
+        }
+
+        return result;
+    }
+
     /**
      * Loads the tokens for the supplied Account into the result {@link ICacheRecord}.
      *
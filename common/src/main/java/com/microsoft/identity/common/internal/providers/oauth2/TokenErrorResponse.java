@@ -35,6 +35,8 @@ public class TokenErrorResponse {
     @SerializedName("error_uri")
     private String mErrorUri;
 
+    private transient int mStatusCode;
+
     /**
      * @return mError of the token error response.
      */
@@ -77,6 +79,20 @@ public class TokenErrorResponse {
         mErrorUri = errorUri;
     }
 
+    /**
+     * @return mStatusCode the HTTP status code of the response which carried this error.
+     */
+    public int getStatusCode() {
+        return mStatusCode;
+    }
+
+    /**
+     * @param statusCode HTTP status code of the response which carried this error.
+     */
+    public void setStatusCode(final int statusCode) {
+        mStatusCode = statusCode;
+    }
+
     //CHECKSTYLE:OFF
     @Override
     public String toString() {
@@ -84,6 +100,7 @@ public class TokenErrorResponse {
                 "mError='" + mError + '\'' +
                 ", mErrorDescription='" + mErrorDescription + '\'' +
                 ", mErrorUri='" + mErrorUri + '\'' +
+                ", mStatusCode=" + mStatusCode +
                 '}';
     }
     //CHECKSTYLE:ON
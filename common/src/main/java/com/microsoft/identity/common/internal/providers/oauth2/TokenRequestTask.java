@@ -0,0 +1,84 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.providers.oauth2;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.util.CancellationSignal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A token request run on an executor. Cancelling the task cancels its
+ * {@link CancellationSignal}, which disconnects the request in flight.
+ *
+ * @param <GenericTokenResult> The type of token result.
+ */
+class TokenRequestTask<GenericTokenResult extends TokenResult> extends FutureTask<GenericTokenResult> {
+
+    private final CancellationSignal mCancellationSignal;
+
+    private final ITokenRequestCallback<GenericTokenResult> mCallback;
+
+    TokenRequestTask(@NonNull final Callable<GenericTokenResult> callable,
+                     @NonNull final CancellationSignal cancellationSignal,
+                     @Nullable final ITokenRequestCallback<GenericTokenResult> callback) {
+        super(callable);
+        mCancellationSignal = cancellationSignal;
+        mCallback = callback;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+        if (cancelled) {
+            mCancellationSignal.cancel();
+        }
+
+        return cancelled;
+    }
+
+    @Override
+    protected void done() {
+        if (null == mCallback) {
+            return;
+        }
+
+        try {
+            mCallback.onSuccess(get());
+        } catch (final ExecutionException e) {
+            mCallback.onError(e.getCause());
+        } catch (final CancellationException e) {
+            mCallback.onError(e);
+        } catch (final InterruptedException e) {
+            // Not reachable: get() does not block once the task is done
+            Thread.currentThread().interrupt();
+            mCallback.onError(e);
+        }
+    }
+}
@@ -25,6 +25,7 @@ package com.microsoft.identity.common.internal.ui.browser;
 import android.app.Activity;
 import android.content.Intent;
 import android.net.Uri;
+import android.support.annotation.NonNull;
 
 import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.internal.logging.Logger;
@@ -45,6 +46,7 @@ public class BrowserAuthorizationStrategy<GenericOAuth2Strategy extends OAuth2St
     private final static String TAG = BrowserAuthorizationStrategy.class.getSimpleName();
 
     private CustomTabsManager mCustomTabManager;
+    private String mCustomTabsBrowserPackage;
     private WeakReference<Activity> mReferencedActivity;
     private AuthorizationResultFuture mAuthorizationResultFuture;
     private boolean mDisposed;
@@ -55,6 +57,38 @@ public class BrowserAuthorizationStrategy<GenericOAuth2Strategy extends OAuth2St
         mReferencedActivity = new WeakReference<>(activity);
     }
 
+    /**
+     * Binds the custom tabs service of the selected browser ahead of
+     * {@link #requestAuthorization(AuthorizationRequest, OAuth2Strategy)}, so that the browser
+     * is started and the session created by the time the request is made. Call it when the
+     * sign-in UI is shown. Does nothing if the browser does not support custom tabs.
+     *
+     * @throws ClientException if no browser is available.
+     */
+    public void prewarm() throws ClientException {
+        checkNotDisposed();
+        final Browser browser = BrowserSelector.select(mReferencedActivity.get().getApplicationContext());
+        if (browser.isCustomTabsServiceSupported()) {
+            getCustomTabsManager(browser.getPackageName()).prewarm(browser.getPackageName());
+        }
+    }
+
+    /**
+     * As {@link #prewarm()}, and also lets the browser preconnect to and prefetch the
+     * authorization page of the given request.
+     *
+     * @param authorizationRequest The request which is about to be made.
+     * @throws ClientException              if no browser is available.
+     * @throws UnsupportedEncodingException if the request url cannot be built.
+     */
+    public void prewarm(@NonNull final GenericAuthorizationRequest authorizationRequest)
+            throws ClientException, UnsupportedEncodingException {
+        prewarm();
+        if (mCustomTabManager != null) {
+            mCustomTabManager.mayLaunchUrl(authorizationRequest.getAuthorizationRequestAsHttpRequest());
+        }
+    }
+
     @Override
     public Future<AuthorizationResult> requestAuthorization(
             GenericAuthorizationRequest authorizationRequest,
@@ -66,6 +100,7 @@ public class BrowserAuthorizationStrategy<GenericOAuth2Strategy extends OAuth2St
         mAuthorizationRequest = authorizationRequest;
         mAuthorizationResultFuture = new AuthorizationResultFuture();
         final Browser browser = BrowserSelector.select(mReferencedActivity.get().getApplicationContext());
+        final Uri requestUrl = authorizationRequest.getAuthorizationRequestAsHttpRequest();
 
         //ClientException will be thrown if no browser found.
         Intent authIntent;
@@ -74,10 +109,11 @@ public class BrowserAuthorizationStrategy<GenericOAuth2Strategy extends OAuth2St
                     TAG + methodName,
                     "CustomTabsService is supported."
             );
-            //create customTabsIntent
-            mCustomTabManager = new CustomTabsManager(mReferencedActivity.get());
-            mCustomTabManager.bind(browser.getPackageName());
-            authIntent = mCustomTabManager.getCustomTabsIntent().intent;
+            //create customTabsIntent, reusing the connection made by prewarm() if any
+            final CustomTabsManager customTabsManager = getCustomTabsManager(browser.getPackageName());
+            customTabsManager.mayLaunchUrl(requestUrl);
+            customTabsManager.bind(browser.getPackageName());
+            authIntent = customTabsManager.getCustomTabsIntent().intent;
         } else {
             Logger.warn(
                     TAG + methodName,
@@ -88,7 +124,6 @@ public class BrowserAuthorizationStrategy<GenericOAuth2Strategy extends OAuth2St
         }
 
         authIntent.setPackage(browser.getPackageName());
-        final Uri requestUrl = authorizationRequest.getAuthorizationRequestAsHttpRequest();
         authIntent.setData(requestUrl);
         mReferencedActivity.get().startActivityForResult(
                 AuthorizationActivity.createStartIntent(
@@ -102,6 +137,21 @@ public class BrowserAuthorizationStrategy<GenericOAuth2Strategy extends OAuth2St
         return mAuthorizationResultFuture;
     }
 
+    private synchronized CustomTabsManager getCustomTabsManager(@NonNull final String browserPackage) {
+        if (mCustomTabManager != null && !browserPackage.equals(mCustomTabsBrowserPackage)) {
+            // The preferred browser changed since the service was bound.
+            mCustomTabManager.unbind();
+            mCustomTabManager = null;
+        }
+
+        if (mCustomTabManager == null) {
+            mCustomTabManager = new CustomTabsManager(mReferencedActivity.get());
+            mCustomTabsBrowserPackage = browserPackage;
+        }
+
+        return mCustomTabManager;
+    }
+
     private void checkNotDisposed() {
         if (mDisposed) {
             throw new IllegalStateException("Service has been disposed and rendered inoperable");
@@ -22,8 +22,10 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.ui.browser;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
@@ -34,17 +36,45 @@ import android.support.annotation.NonNull;
 import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.exception.ErrorStrings;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Selects the browser used for an authorization flow.
+ * <p>
+ * Querying the package manager for the installed browsers, their signatures and their custom
+ * tabs support takes a number of binder calls, so the result is cached for the lifetime of the
+ * process and dropped whenever a package is added, removed, replaced or changed. Changing the
+ * default browser does not broadcast a package change, so the default browser is resolved on
+ * every call (a single binder call) and the cache is only served while it is unchanged.
+ */
 public class BrowserSelector {
     private static final String TAG = BrowserSelector.class.getSimpleName();
     private static final String SCHEME_HTTP = "http";
     private static final String SCHEME_HTTPS = "https";
+    private static final String SCHEME_PACKAGE = "package";
     private static final String CUSTOM_TABS_SERVICE_ACTION = "android.support.customtabs.action.CustomTabsService";
 
+    private static final Object sLock = new Object();
+    private static final AtomicBoolean sReceiverRegistered = new AtomicBoolean(false);
+
+    /**
+     * Browsers found by the last query of the package manager, or null if none is cached.
+     */
+    private static volatile CachedBrowsers sBrowsers;
+
+    /**
+     * Incremented whenever the cache is invalidated so that a query which raced with a package
+     * change does not cache its (possibly stale) result.
+     */
+    private static long sGeneration;
+
     /**
      * Searches through all browsers for the best match.
      * Browsers are evaluated in the order returned by the package manager,
@@ -72,12 +102,106 @@ public class BrowserSelector {
      * flag set to `true` in one and `false` in the other. The list is in the
      * order returned by the package manager, so indirectly reflects the user's preferences
      * (i.e. their default browser, if set, should be the first entry in the list).
+     * <p>
+     * The list is served from the cache while the default browser is unchanged and cannot be
+     * modified.
      */
     public static List<Browser> getAllBrowsers(final Context context) {
+        final String methodName = ":getAllBrowsers";
+        final String defaultBrowserPackage = resolveDefaultBrowserPackage(context);
+        final CachedBrowsers cachedBrowsers = sBrowsers;
+        if (cachedBrowsers != null && cachedBrowsers.isForDefaultBrowser(defaultBrowserPackage)) {
+            Logger.verbose(TAG + methodName, "Using cached browser list.");
+            return cachedBrowsers.mBrowsers;
+        }
+
+        registerPackageChangeReceiver(context);
+
+        final long generation;
+        synchronized (sLock) {
+            generation = sGeneration;
+        }
+
+        final long startNanos = Metrics.startTimer();
+        final List<Browser> browsers = Collections.unmodifiableList(queryBrowsers(context));
+        Metrics.stopTimer(MetricNames.BROWSER_QUERY_TIME, startNanos);
+
+        synchronized (sLock) {
+            if (generation == sGeneration) {
+                sBrowsers = new CachedBrowsers(browsers, defaultBrowserPackage);
+            }
+        }
+
+        return browsers;
+    }
+
+    /**
+     * Queries the installed browsers on a background thread so that the first interactive
+     * request does not pay for it. Should be called once the application has started.
+     *
+     * @param context {@link Context} to use for accessing {@link PackageManager}.
+     */
+    public static void prefetch(@NonNull final Context context) {
+        final Context applicationContext = context.getApplicationContext();
+        final Thread prefetchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                getAllBrowsers(applicationContext);
+            }
+        }, TAG + "-prefetch");
+        prefetchThread.setDaemon(true);
+        prefetchThread.start();
+    }
+
+    /**
+     * Drops the cached browser list. The next call to {@link #getAllBrowsers(Context)} queries
+     * the package manager again.
+     */
+    public static void invalidate() {
+        synchronized (sLock) {
+            sGeneration++;
+            sBrowsers = null;
+        }
+    }
+
+    private static void registerPackageChangeReceiver(@NonNull final Context context) {
+        if (!sReceiverRegistered.compareAndSet(false, true)) {
+            return;
+        }
+
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme(SCHEME_PACKAGE);
+
+        // Registered for the lifetime of the process, so against the application context.
+        context.getApplicationContext().registerReceiver(new PackageChangeReceiver(), filter);
+    }
+
+    private static Intent createBrowserIntent() {
+        return new Intent(Intent.ACTION_VIEW, Uri.parse("http://www.example.com"));
+    }
+
+    /**
+     * Resolves the package of the user's default browser. This is the system's chooser when no
+     * default is set, and null if nothing handles the intent.
+     */
+    private static String resolveDefaultBrowserPackage(final Context context) {
+        final ResolveInfo defaultBrowser = context.getPackageManager().resolveActivity(
+                createBrowserIntent(),
+                PackageManager.MATCH_DEFAULT_ONLY
+        );
+
+        return defaultBrowser == null || defaultBrowser.activityInfo == null
+                ? null
+                : defaultBrowser.activityInfo.packageName;
+    }
+
+    private static List<Browser> queryBrowsers(final Context context) {
         //get the list of browsers
-        final Intent BROWSER_INTENT = new Intent(
-                Intent.ACTION_VIEW,
-                Uri.parse("http://www.example.com"));
+        final Intent BROWSER_INTENT = createBrowserIntent();
 
         List<Browser> browserList = new ArrayList<>();
         PackageManager pm = context.getPackageManager();
@@ -154,4 +278,34 @@ public class BrowserSelector {
         // at least one of HTTP or HTTPS is not supported
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * The browser list together with the default browser it was queried under.
+     */
+    private static class CachedBrowsers {
+        private final List<Browser> mBrowsers;
+        private final String mDefaultBrowserPackage;
+
+        CachedBrowsers(final List<Browser> browsers, final String defaultBrowserPackage) {
+            mBrowsers = browsers;
+            mDefaultBrowserPackage = defaultBrowserPackage;
+        }
+
+        boolean isForDefaultBrowser(final String defaultBrowserPackage) {
+            return mDefaultBrowserPackage == null
+                    ? defaultBrowserPackage == null
+                    : mDefaultBrowserPackage.equals(defaultBrowserPackage);
+        }
+    }
+
+    /**
+     * Invalidates the cached browsers when the set of installed packages changes.
+     */
+    private static class PackageChangeReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(final Context context, final Intent intent) {
+            Logger.verbose(TAG, "Package change received: " + intent.getAction());
+            invalidate();
+        }
+    }
+}
@@ -24,10 +24,13 @@ package com.microsoft.identity.common.internal.ui.browser;
 
 import android.app.Activity;
 import android.content.ComponentName;
+import android.net.Uri;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.customtabs.CustomTabsClient;
 import android.support.customtabs.CustomTabsIntent;
 import android.support.customtabs.CustomTabsServiceConnection;
+import android.support.customtabs.CustomTabsSession;
 
 import com.microsoft.identity.common.internal.logging.Logger;
 
@@ -38,6 +41,13 @@ import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Hides the details of establishing connections and sessions with custom tabs.
+ * <p>
+ * The service connection is delivered on the main thread, so a {@link #bind(String)} made on the
+ * main thread cannot see it and waits for the full connection timeout. Calling
+ * {@link #prewarm(String)} ahead of the interactive request, e.g. when the sign-in screen is
+ * shown, lets the browser start and the session be created before {@link #bind(String)} is
+ * reached. {@link #mayLaunchUrl(Uri)} additionally lets the browser preconnect to and prefetch
+ * the authorization page.
  */
 public class CustomTabsManager {
     private static final String TAG = CustomTabsManager.class.getSimpleName();
@@ -50,9 +60,21 @@ public class CustomTabsManager {
     private CustomTabsServiceConnection mCustomTabsServiceConnection;
     private final WeakReference<Activity> mActivityRef;
     private final AtomicReference<CustomTabsClient> mCustomTabsClient;
+    private final AtomicReference<CustomTabsSession> mCustomTabsSession;
     private boolean mCustomTabsServiceIsBound;
     private final CountDownLatch mClientLatch;
 
+    /**
+     * Guards {@link #mPendingUrl}. Not the instance lock, which {@link #bind(String)} holds while
+     * it waits for the connection callback.
+     */
+    private final Object mSessionLock = new Object();
+
+    /**
+     * Url passed to {@link #mayLaunchUrl(Uri)} before the session was created.
+     */
+    private Uri mPendingUrl;
+
     /**
      * Wait for at most this amount of time for the browser connection to be established.
      */
@@ -66,14 +88,60 @@ public class CustomTabsManager {
     public CustomTabsManager(@NonNull final Activity activity) {
         mActivityRef = new WeakReference<>(activity);
         mCustomTabsClient = new AtomicReference<>();
+        mCustomTabsSession = new AtomicReference<>();
         mClientLatch = new CountDownLatch(1);
     }
 
+    /**
+     * Starts binding the Browser {@link android.support.customtabs.CustomTabsService} without
+     * waiting for the connection. Once connected the browser is warmed up and a session is
+     * created, which a later {@link #bind(String)} reuses.
+     *
+     * @param browserPackage Package name of the custom tabs supporting browser.
+     */
+    public synchronized void prewarm(@NonNull final String browserPackage) {
+        bindService(browserPackage);
+    }
+
     /**
      * Method to bind Browser {@link android.support.customtabs.CustomTabsService}.
      * Waits until the {@link CustomTabsServiceConnection} is connected.
      */
     public synchronized void bind(@NonNull String browserPackage) {
+        bindService(browserPackage);
+
+        if (mCustomTabsIntent != null) {
+            return;
+        }
+
+        // Create the Intent used to launch the Url
+        final CustomTabsIntent.Builder builder = new CustomTabsIntent.Builder(getSession());
+        mCustomTabsIntent = builder.setShowTitle(true).build();
+        mCustomTabsIntent.intent.setPackage(browserPackage);
+    }
+
+    /**
+     * Tells the browser the url which is likely to be launched, so it can preconnect and
+     * prefetch it. If the service is not connected yet the url is passed on once it is.
+     *
+     * @param url The url likely to be launched, e.g. the authorization request url.
+     */
+    public void mayLaunchUrl(@NonNull final Uri url) {
+        final CustomTabsSession session;
+        synchronized (mSessionLock) {
+            session = mCustomTabsSession.get();
+            if (session == null) {
+                mPendingUrl = url;
+                return;
+            }
+        }
+
+        if (!session.mayLaunchUrl(url, null, null)) {
+            Logger.info(TAG, "Browser did not accept the url to prefetch.");
+        }
+    }
+
+    private void bindService(@NonNull final String browserPackage) {
         if (mCustomTabsServiceConnection != null) {
             return;
         }
@@ -85,6 +153,7 @@ public class CustomTabsManager {
                 client.warmup(0L);
                 mCustomTabsServiceIsBound = true;
                 mCustomTabsClient.set(client);
+                onSessionCreated(client.newSession(null));
                 mClientLatch.countDown();
             }
 
@@ -93,6 +162,7 @@ public class CustomTabsManager {
                 Logger.info(TAG, "CustomTabsService is disconnected");
                 mCustomTabsServiceIsBound = false;
                 mCustomTabsClient.set(null);
+                mCustomTabsSession.set(null);
                 //mClientLatch.countDown();
             }
         };
@@ -103,11 +173,19 @@ public class CustomTabsManager {
             Logger.info(TAG, "Unable to bind custom tabs service");
             mClientLatch.countDown();
         }
+    }
 
-        // Create the Intent used to launch the Url
-        final CustomTabsIntent.Builder builder = new CustomTabsIntent.Builder(getClient().newSession(null));
-        mCustomTabsIntent = builder.setShowTitle(true).build();
-        mCustomTabsIntent.intent.setPackage(browserPackage);
+    private void onSessionCreated(@Nullable final CustomTabsSession session) {
+        final Uri pendingUrl;
+        synchronized (mSessionLock) {
+            mCustomTabsSession.set(session);
+            pendingUrl = mPendingUrl;
+            mPendingUrl = null;
+        }
+
+        if (session != null && pendingUrl != null) {
+            session.mayLaunchUrl(pendingUrl, null, null);
+        }
     }
 
     /**
@@ -116,14 +194,28 @@ public class CustomTabsManager {
      * {@link CustomTabsManager#CUSTOM_TABS_MAX_CONNECTION_TIMEOUT} is timed out.
      */
     public CustomTabsClient getClient() {
+        awaitConnection();
+        return mCustomTabsClient.get();
+    }
+
+    /**
+     * Retrieve the session created when the {@link CustomTabsServiceConnection} was connected,
+     * or null if it did not connect before the
+     * {@link CustomTabsManager#CUSTOM_TABS_MAX_CONNECTION_TIMEOUT} timed out.
+     */
+    @Nullable
+    public CustomTabsSession getSession() {
+        awaitConnection();
+        return mCustomTabsSession.get();
+    }
+
+    private void awaitConnection() {
         try {
             mClientLatch.await(CUSTOM_TABS_MAX_CONNECTION_TIMEOUT, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             Logger.info(TAG, "Interrupted while waiting for browser connection");
             mClientLatch.countDown();
         }
-
-        return mCustomTabsClient.get();
     }
 
     /**
@@ -140,7 +232,8 @@ public class CustomTabsManager {
 
         mCustomTabsServiceIsBound = false;
         mCustomTabsClient.set(null);
+        mCustomTabsSession.set(null);
 
         Logger.info(TAG, "CustomTabsService is unbound.");
     }
-}
\ No newline at end of file
+}
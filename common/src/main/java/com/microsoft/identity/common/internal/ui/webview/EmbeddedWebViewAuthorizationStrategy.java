@@ -25,6 +25,7 @@ package com.microsoft.identity.common.internal.ui.webview;
 import android.app.Activity;
 import android.content.Intent;
 import android.net.Uri;
+import android.support.annotation.NonNull;
 
 import com.microsoft.identity.common.internal.logging.Logger;
 import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationActivity;
@@ -60,6 +61,21 @@ public class EmbeddedWebViewAuthorizationStrategy<GenericOAuth2Strategy extends
         mReferencedActivity = new WeakReference<>(activity);
     }
 
+    /**
+     * Opt-in warm up of the WebView ahead of
+     * {@link #requestAuthorization(AuthorizationRequest, OAuth2Strategy)}: loads the WebView
+     * provider and resolves the host of the authorization endpoint. Call it when the sign-in UI
+     * is shown.
+     *
+     * @param authorizationRequest The request which is about to be made.
+     */
+    public void prewarm(@NonNull final GenericAuthorizationRequest authorizationRequest) {
+        WebViewPrewarmer.prewarm(
+                mReferencedActivity.get().getApplicationContext(),
+                authorizationRequest.getAuthorizationEndpoint()
+        );
+    }
+
     /**
      * RequestAuthorization could not return the authorization result.
      * The activity result is set in Authorization.setResult() and passed to the onActivityResult() of the calling activity.
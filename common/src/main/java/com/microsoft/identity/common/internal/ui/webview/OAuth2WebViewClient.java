@@ -36,6 +36,8 @@ import android.webkit.WebViewClient;
 
 import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
 import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationStrategy;
 import com.microsoft.identity.common.internal.ui.webview.challengehandlers.ChallengeFactory;
 import com.microsoft.identity.common.internal.ui.webview.challengehandlers.IChallengeCompletionCallback;
@@ -47,10 +49,23 @@ import com.microsoft.identity.common.internal.util.StringUtil;
 public abstract class OAuth2WebViewClient extends WebViewClient {
     /* constants */
     private static final String TAG = OAuth2WebViewClient.class.getSimpleName();
+    private static final String BLANK_PAGE = "about:blank";
+    private static final long NANOS_PER_MILLI = 1000000L;
 
     private final IChallengeCompletionCallback mCompletionCallback;
     private final Activity mActivity;
 
+    /**
+     * Creation time of this client, which is made right before the WebView is set up.
+     */
+    private final long mCreatedNanos = System.nanoTime();
+
+    /**
+     * Time the current page started loading, or 0 if no page is loading.
+     */
+    private long mPageStartedNanos;
+    private boolean mFirstPageFinished;
+
     /**
      * @return context
      */
@@ -137,6 +152,7 @@ public abstract class OAuth2WebViewClient extends WebViewClient {
     public void onPageFinished(final WebView view,
                                final String url) {
         super.onPageFinished(view, url);
+        recordPageFinished(url);
         // Once web view is fully loaded,set to visible
         view.setVisibility(View.VISIBLE);
     }
@@ -145,11 +161,32 @@ public abstract class OAuth2WebViewClient extends WebViewClient {
     public void onPageStarted(final WebView view,
                               final String url,
                               final Bitmap favicon) {
+        mPageStartedNanos = System.nanoTime();
         checkStartUrl(url);
         Logger.verbose(TAG, "WebView starts loading.");
         super.onPageStarted(view, url, favicon);
     }
 
+    private void recordPageFinished(final String url) {
+        // WebView callbacks are delivered on the main thread, so no synchronization is needed.
+        if (mPageStartedNanos == 0 || BLANK_PAGE.equals(url)) {
+            return;
+        }
+
+        final long finishedNanos = System.nanoTime();
+        final long pageLoadNanos = finishedNanos - mPageStartedNanos;
+        mPageStartedNanos = 0;
+        Metrics.recordTime(MetricNames.WEBVIEW_PAGE_LOAD_TIME, pageLoadNanos);
+        Logger.verbose(TAG, "Page loaded in " + pageLoadNanos / NANOS_PER_MILLI + " ms.");
+
+        if (!mFirstPageFinished) {
+            mFirstPageFinished = true;
+            final long firstPageNanos = finishedNanos - mCreatedNanos;
+            Metrics.recordTime(MetricNames.WEBVIEW_FIRST_PAGE_TIME, firstPageNanos);
+            Logger.verbose(TAG, "First page loaded " + firstPageNanos / NANOS_PER_MILLI + " ms after the WebView client was created.");
+        }
+    }
+
     private void checkStartUrl(final String url) {
         if (StringUtil.isEmpty(url)) {
             Logger.verbose(TAG, "onPageStarted: Null url for page to load.");
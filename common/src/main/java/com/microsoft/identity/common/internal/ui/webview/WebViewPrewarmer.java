@@ -0,0 +1,123 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.ui.webview;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
+import com.microsoft.identity.common.internal.util.StringUtil;
+
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Opt-in warm up of the embedded WebView used for authorization.
+ * <p>
+ * Loading the WebView provider is the slowest part of showing the first WebView in a process,
+ * so it is done ahead of the interactive request when the caller asks for it. The authority host
+ * can be resolved at the same time; the WebView has its own network stack so no connection can be
+ * shared with it, but the system resolver cache is.
+ */
+public final class WebViewPrewarmer {
+    private static final String TAG = WebViewPrewarmer.class.getSimpleName();
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static final AtomicBoolean sProviderLoaded = new AtomicBoolean(false);
+
+    private WebViewPrewarmer() {
+        // Utility class.
+    }
+
+    /**
+     * Loads the WebView provider on the main thread, once per process, and resolves the host of
+     * the authority on a background thread. Returns without waiting for either.
+     *
+     * @param context      {@link Context} of the application.
+     * @param authorityUrl Url of the authority or authorization endpoint to resolve, or null.
+     */
+    public static void prewarm(@NonNull final Context context, @Nullable final String authorityUrl) {
+        final Context applicationContext = context.getApplicationContext();
+        if (sProviderLoaded.compareAndSet(false, true)) {
+            new Handler(Looper.getMainLooper()).post(new Runnable() {
+                @Override
+                public void run() {
+                    loadProvider(applicationContext);
+                }
+            });
+        }
+
+        if (!StringUtil.isEmpty(authorityUrl)) {
+            final Thread resolveThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    resolveHost(authorityUrl);
+                }
+            }, TAG + "-resolve");
+            resolveThread.setDaemon(true);
+            resolveThread.start();
+        }
+    }
+
+    private static void loadProvider(@NonNull final Context context) {
+        final String methodName = ":loadProvider";
+        final long startNanos = System.nanoTime();
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                WebSettings.getDefaultUserAgent(context);
+            } else {
+                new WebView(context).destroy();
+            }
+        } catch (final RuntimeException e) {
+            // e.g. the WebView package is being updated; the activity will load it later.
+            Logger.warn(TAG + methodName, "Unable to load the WebView provider: " + e.getMessage());
+            sProviderLoaded.set(false);
+            return;
+        }
+
+        final long durationNanos = System.nanoTime() - startNanos;
+        Metrics.recordTime(MetricNames.WEBVIEW_PREWARM_TIME, durationNanos);
+        Logger.verbose(TAG + methodName, "WebView provider loaded in " + durationNanos / NANOS_PER_MILLI + " ms.");
+    }
+
+    private static void resolveHost(@NonNull final String authorityUrl) {
+        final String methodName = ":resolveHost";
+        try {
+            InetAddress.getAllByName(new URL(authorityUrl).getHost());
+            Logger.verbose(TAG + methodName, "Authority host resolved.");
+        } catch (final MalformedURLException | UnknownHostException e) {
+            Logger.warn(TAG + methodName, "Unable to resolve the authority host: " + e.getMessage());
+        }
+    }
+}
@@ -43,6 +43,13 @@ import java.util.Map;
 
 public final class PKeyAuthChallengeHandler implements IChallengeHandler<PKeyAuthChallenge, Void> {
     private static final String TAG = PKeyAuthChallengeHandler.class.getSimpleName();
+    private static final JWSBuilder JWS_BUILDER = new JWSBuilder();
+
+    /**
+     * The constructor of the device certificate proxy class, resolved on the first challenge.
+     */
+    private static volatile Constructor<?> sDeviceCertificateConstructor;
+
     private WebView mWebView;
     private IChallengeCompletionCallback mChallengeCallback;
 
@@ -105,9 +112,9 @@ public final class PKeyAuthChallengeHandler implements IChallengeHandler<PKeyAut
                 if (privateKey == null) {
                     throw new ClientException(ErrorStrings.KEY_CHAIN_PRIVATE_KEY_EXCEPTION);
                 }
-                String jwt = (new JWSBuilder()).generateSignedJWT(pKeyAuthChallenge.getNonce(), pKeyAuthChallenge.getThumbprint(),
+                String jwt = JWS_BUILDER.generateSignedJWT(pKeyAuthChallenge.getNonce(), pKeyAuthChallenge.getThumbprint(),
                         privateKey, deviceCertProxy.getRSAPublicKey(),
-                        deviceCertProxy.getCertificate());
+                        deviceCertProxy.getCertificate(), deviceCertProxy.getThumbPrint());
                 authorizationHeaderValue = String.format(
                         "%s AuthToken=\"%s\",Context=\"%s\",Version=\"%s\"",
                         AuthenticationConstants.Broker.CHALLENGE_RESPONSE_TYPE, jwt,
@@ -126,9 +133,12 @@ public final class PKeyAuthChallengeHandler implements IChallengeHandler<PKeyAut
     private IDeviceCertificate getWPJAPIInstance(Class<IDeviceCertificate> certClazz)
             throws ClientException {
         final IDeviceCertificate deviceCertProxy;
-        final Constructor<?> constructor;
+        Constructor<?> constructor = sDeviceCertificateConstructor;
         try {
-            constructor = certClazz.getDeclaredConstructor();
+            if (constructor == null || constructor.getDeclaringClass() != certClazz) {
+                constructor = certClazz.getDeclaredConstructor();
+                sDeviceCertificateConstructor = constructor;
+            }
             deviceCertProxy = (IDeviceCertificate) constructor.newInstance((Object[]) null);
         } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
                 | IllegalArgumentException | InvocationTargetException e) {
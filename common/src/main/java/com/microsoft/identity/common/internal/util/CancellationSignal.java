@@ -0,0 +1,92 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.util;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Signals the cancellation of an operation in progress, such as an http request.
+ * <p>
+ * Plain Java, unlike {@link android.os.CancellationSignal}, so that the code using it runs in
+ * unit tests without an Android runtime.
+ */
+public final class CancellationSignal {
+
+    private boolean mIsCanceled;
+
+    private OnCancelListener mOnCancelListener;
+
+    /**
+     * Listens for the cancellation of a {@link CancellationSignal}.
+     */
+    public interface OnCancelListener {
+        /**
+         * Called on the thread cancelling the signal.
+         */
+        void onCancel();
+    }
+
+    /**
+     * @return True if the signal has been cancelled.
+     */
+    public synchronized boolean isCanceled() {
+        return mIsCanceled;
+    }
+
+    /**
+     * Cancels the signal and notifies its listener, if any. Does nothing if the signal has already
+     * been cancelled.
+     */
+    public void cancel() {
+        final OnCancelListener listener;
+        synchronized (this) {
+            if (mIsCanceled) {
+                return;
+            }
+            mIsCanceled = true;
+            listener = mOnCancelListener;
+        }
+
+        // Outside the lock, as the listener may block, e.g. to disconnect
+        if (null != listener) {
+            listener.onCancel();
+        }
+    }
+
+    /**
+     * Sets the listener notified when the signal is cancelled. It is notified immediately if the
+     * signal has already been cancelled.
+     *
+     * @param listener The listener, or null to remove the current one.
+     */
+    public void setOnCancelListener(@Nullable final OnCancelListener listener) {
+        synchronized (this) {
+            mOnCancelListener = listener;
+            if (!mIsCanceled || null == listener) {
+                return;
+            }
+        }
+
+        listener.onCancel();
+    }
+}
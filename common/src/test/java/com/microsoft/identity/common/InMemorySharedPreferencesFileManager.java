@@ -0,0 +1,84 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.cache.ISharedPreferencesFileManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An {@link ISharedPreferencesFileManager} backed by a HashMap, so tests and benchmarks measure the
+ * cache rather than the disk. Like SharedPreferences, {@link #getAll()} returns a copy.
+ */
+public class InMemorySharedPreferencesFileManager implements ISharedPreferencesFileManager {
+
+    private final Map<String, String> mEntries = new HashMap<>();
+
+    @Override
+    public synchronized void putString(final String key, final String value) {
+        mEntries.put(key, value);
+    }
+
+    @Override
+    public synchronized void putStrings(final Map<String, String> entries) {
+        mEntries.putAll(entries);
+    }
+
+    @Override
+    public synchronized String getString(final String key) {
+        return mEntries.get(key);
+    }
+
+    @Override
+    public String getSharedPreferencesFileName() {
+        return "com.microsoft.identity.client.account_credential_cache";
+    }
+
+    @Override
+    public synchronized Map<String, String> getAll() {
+        return new HashMap<>(mEntries);
+    }
+
+    @Override
+    public synchronized Set<String> getKeys() {
+        return new HashSet<>(mEntries.keySet());
+    }
+
+    @Override
+    public synchronized boolean contains(final String key) {
+        return mEntries.containsKey(key);
+    }
+
+    @Override
+    public synchronized void clear() {
+        mEntries.clear();
+    }
+
+    @Override
+    public synchronized void remove(final String key) {
+        mEntries.remove(key);
+    }
+}
@@ -0,0 +1,187 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.loadtest;
+
+import android.content.Context;
+
+import com.microsoft.identity.common.InMemorySharedPreferencesFileManager;
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.internal.cache.AccountCredentialCache;
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.CacheRecord;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token cache for one Account backed by an {@link AccountCredentialCache} over an
+ * {@link InMemorySharedPreferencesFileManager}, so the save half of a refresh flow pays for key
+ * generation, serialization and the cache write but not for disk or key store access.
+ * <p>
+ * MsalOAuth2TokenCache cannot be used on a plain JVM, as its adapter decodes client info with
+ * android.util.Base64; the records are built from the response directly instead.
+ */
+public class InMemoryTokenCache
+        extends OAuth2TokenCache<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> {
+
+    private final AccountCredentialCache mAccountCredentialCache;
+    private final AccountRecord mAccount;
+
+    /**
+     * Creates the cache holding the Account and a refresh token for the supplied client id.
+     *
+     * @param context      A Context; only getApplicationContext() is called.
+     * @param account      The Account whose tokens the cache holds.
+     * @param clientId     The client id of the refresh token.
+     * @param refreshToken The secret of the refresh token.
+     */
+    public InMemoryTokenCache(final Context context,
+                              final AccountRecord account,
+                              final String clientId,
+                              final String refreshToken) {
+        super(context);
+        mAccount = account;
+        mAccountCredentialCache = new AccountCredentialCache(
+                new CacheKeyValueDelegate(),
+                new InMemorySharedPreferencesFileManager()
+        );
+
+        final RefreshTokenRecord refreshTokenRecord = new RefreshTokenRecord();
+        setCredentialFields(refreshTokenRecord, CredentialType.RefreshToken, clientId, refreshToken);
+        mAccountCredentialCache.saveAccountsAndCredentials(
+                Collections.singletonList(account),
+                Collections.<Credential>singletonList(refreshTokenRecord)
+        );
+    }
+
+    @Override
+    public ICacheRecord save(final MicrosoftStsOAuth2Strategy oAuth2Strategy,
+                             final MicrosoftStsAuthorizationRequest request,
+                             final MicrosoftStsTokenResponse response) throws ClientException {
+        final long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        setCredentialFields(accessToken, CredentialType.AccessToken, request.getClientId(), response.getAccessToken());
+        accessToken.setRealm(mAccount.getRealm());
+        accessToken.setTarget(response.getScope());
+        accessToken.setCachedAt(String.valueOf(nowSeconds));
+        accessToken.setExpiresOn(String.valueOf(nowSeconds + response.getExpiresIn()));
+        accessToken.setAccessTokenType(response.getTokenType());
+
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        setCredentialFields(refreshToken, CredentialType.RefreshToken, request.getClientId(), response.getRefreshToken());
+        refreshToken.setTarget(response.getScope());
+        refreshToken.setCachedAt(String.valueOf(nowSeconds));
+
+        mAccountCredentialCache.saveAccountsAndCredentials(
+                Collections.singletonList(mAccount),
+                Arrays.<Credential>asList(accessToken, refreshToken)
+        );
+
+        final CacheRecord result = new CacheRecord();
+        result.setAccount(mAccount);
+        result.setAccessToken(accessToken);
+        result.setRefreshToken(refreshToken);
+        return result;
+    }
+
+    @Override
+    public ICacheRecord load(final String clientId, final String target, final AccountRecord account) {
+        final CacheRecord result = new CacheRecord();
+        result.setAccount(account);
+
+        final List<Credential> refreshTokens = mAccountCredentialCache.getCredentialsFilteredBy(
+                account.getHomeAccountId(),
+                account.getEnvironment(),
+                CredentialType.RefreshToken,
+                clientId,
+                null,
+                null
+        );
+        if (!refreshTokens.isEmpty()) {
+            result.setRefreshToken((RefreshTokenRecord) refreshTokens.get(0));
+        }
+
+        final List<Credential> accessTokens = mAccountCredentialCache.getCredentialsFilteredBy(
+                account.getHomeAccountId(),
+                account.getEnvironment(),
+                CredentialType.AccessToken,
+                clientId,
+                account.getRealm(),
+                target
+        );
+        if (!accessTokens.isEmpty()) {
+            result.setAccessToken((AccessTokenRecord) accessTokens.get(0));
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean removeCredential(final Credential credential) {
+        return mAccountCredentialCache.removeCredential(credential);
+    }
+
+    @Override
+    public AccountRecord getAccount(final String environment, final String clientId, final String homeAccountId) {
+        final List<AccountRecord> accounts = mAccountCredentialCache.getAccountsFilteredBy(homeAccountId, environment, null);
+        return accounts.isEmpty() ? null : accounts.get(0);
+    }
+
+    @Override
+    public List<AccountRecord> getAccounts(final String environment, final String clientId) {
+        return Collections.unmodifiableList(
+                new ArrayList<>(mAccountCredentialCache.getAccountsFilteredBy(null, environment, null))
+        );
+    }
+
+    @Override
+    public boolean removeAccount(final String environment, final String clientId, final String homeAccountId) {
+        final AccountRecord account = getAccount(environment, clientId, homeAccountId);
+        return account != null && mAccountCredentialCache.removeAccount(account);
+    }
+
+    private void setCredentialFields(final Credential credential,
+                                     final CredentialType credentialType,
+                                     final String clientId,
+                                     final String secret) {
+        credential.setHomeAccountId(mAccount.getHomeAccountId());
+        credential.setEnvironment(mAccount.getEnvironment());
+        credential.setCredentialType(credentialType.name());
+        credential.setClientId(clientId);
+        credential.setSecret(secret);
+    }
+}
@@ -0,0 +1,163 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a {@link TokenLoadDriver} run.
+ */
+public final class LoadReport {
+
+    private final String mName;
+    private final int mThreadCount;
+    private final long[] mSortedLatencyNanos;
+    private final long mFailureCount;
+    private final long mElapsedNanos;
+    private final long mConnectionCount;
+    private final int mMaxOpenConnectionCount;
+    private final long mServerRequestCount;
+    private final long mThrottledCount;
+    private final long mServerErrorCount;
+    private final Throwable mFirstFailure;
+
+    LoadReport(final String name,
+               final int threadCount,
+               final long[] latencyNanos,
+               final long failureCount,
+               final long elapsedNanos,
+               final long connectionCount,
+               final int maxOpenConnectionCount,
+               final long serverRequestCount,
+               final long throttledCount,
+               final long serverErrorCount,
+               final Throwable firstFailure) {
+        mName = name;
+        mThreadCount = threadCount;
+        mSortedLatencyNanos = latencyNanos.clone();
+        Arrays.sort(mSortedLatencyNanos);
+        mFailureCount = failureCount;
+        mElapsedNanos = elapsedNanos;
+        mConnectionCount = connectionCount;
+        mMaxOpenConnectionCount = maxOpenConnectionCount;
+        mServerRequestCount = serverRequestCount;
+        mThrottledCount = throttledCount;
+        mServerErrorCount = serverErrorCount;
+        mFirstFailure = firstFailure;
+    }
+
+    public int getOperationCount() {
+        return mSortedLatencyNanos.length;
+    }
+
+    public long getFailureCount() {
+        return mFailureCount;
+    }
+
+    /**
+     * @return The first exception thrown by an operation, or null if none failed.
+     */
+    public Throwable getFirstFailure() {
+        return mFirstFailure;
+    }
+
+    /**
+     * @return Completed operations per second, failed ones included.
+     */
+    public double getThroughputPerSecond() {
+        return mElapsedNanos == 0 ? 0 : getOperationCount() * (double) TimeUnit.SECONDS.toNanos(1) / mElapsedNanos;
+    }
+
+    /**
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency of the operation at the supplied percentile (nearest rank) in milliseconds.
+     */
+    public double getLatencyMillis(final double percentile) {
+        if (mSortedLatencyNanos.length == 0) {
+            return 0;
+        }
+
+        final int rank = (int) Math.ceil(percentile / 100 * mSortedLatencyNanos.length);
+        final int index = Math.min(mSortedLatencyNanos.length - 1, Math.max(0, rank - 1));
+        return mSortedLatencyNanos[index] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getP50LatencyMillis() {
+        return getLatencyMillis(50);
+    }
+
+    public double getP99LatencyMillis() {
+        return getLatencyMillis(99);
+    }
+
+    /**
+     * @return The number of connections the stub server accepted during the run.
+     */
+    public long getConnectionCount() {
+        return mConnectionCount;
+    }
+
+    /**
+     * @return The largest number of connections open at the same time since the server started.
+     */
+    public int getMaxOpenConnectionCount() {
+        return mMaxOpenConnectionCount;
+    }
+
+    /**
+     * @return The number of HTTP requests the stub server received during the run, retries included.
+     */
+    public long getServerRequestCount() {
+        return mServerRequestCount;
+    }
+
+    public long getThrottledCount() {
+        return mThrottledCount;
+    }
+
+    public long getServerErrorCount() {
+        return mServerErrorCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%s: %d ops on %d threads, %d failed, %.1f ops/s, p50 %.2f ms, p99 %.2f ms, "
+                        + "%d HTTP requests (%d throttled, %d server errors), %d connections (max %d open)",
+                mName,
+                getOperationCount(),
+                mThreadCount,
+                mFailureCount,
+                getThroughputPerSecond(),
+                getP50LatencyMillis(),
+                getP99LatencyMillis(),
+                mServerRequestCount,
+                mThrottledCount,
+                mServerErrorCount,
+                mConnectionCount,
+                mMaxOpenConnectionCount
+        );
+    }
+}
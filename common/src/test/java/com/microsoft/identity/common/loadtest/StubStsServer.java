@@ -0,0 +1,463 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.loadtest;
+
+import com.nimbusds.jose.util.Base64URL;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for the Microsoft STS serving the token, instance discovery and OpenID
+ * configuration endpoints over plain HTTP on the loopback interface, so token flows can be load
+ * tested offline.
+ * <p>
+ * Latency, server errors (500) and throttling (429 with Retry-After) can be injected. The server
+ * counts the TCP connections it accepts, which shows whether clients reuse connections.
+ */
+public final class StubStsServer implements Closeable {
+
+    public static final String TENANT = "common";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String TOKEN_PATH = "/" + TENANT + "/oAuth2/v2.0/token";
+    private static final String INSTANCE_DISCOVERY_PATH = "/" + TENANT + "/discovery/instance";
+    private static final String OPENID_CONFIGURATION_PATH = "/" + TENANT + "/v2.0/.well-known/openid-configuration";
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final int SOCKET_TIMEOUT_MILLIS = 30000;
+
+    private final ServerSocket mServerSocket;
+    private final ExecutorService mConnectionExecutor;
+    private final Thread mAcceptThread;
+    private final String mTokenResponse;
+
+    private final AtomicLong mConnectionCount = new AtomicLong();
+    private final AtomicInteger mOpenConnectionCount = new AtomicInteger();
+    private final AtomicInteger mMaxOpenConnectionCount = new AtomicInteger();
+    private final AtomicLong mRequestCount = new AtomicLong();
+    private final AtomicLong mErrorCount = new AtomicLong();
+    private final AtomicLong mThrottledCount = new AtomicLong();
+
+    private volatile long mLatencyMillis;
+    private volatile long mLatencyJitterMillis;
+    private volatile double mErrorRate;
+    private volatile double mThrottleRate;
+    private volatile int mRetryAfterSeconds = 1;
+
+    /**
+     * Binds the server to a free port on the loopback interface and starts accepting connections.
+     *
+     * @throws IOException If the port cannot be bound.
+     */
+    public StubStsServer() throws IOException {
+        mServerSocket = new ServerSocket();
+        mServerSocket.bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+        mConnectionExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory());
+        mTokenResponse = createTokenResponse();
+        mAcceptThread = new DaemonThreadFactory().newThread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        });
+        mAcceptThread.start();
+    }
+
+    /**
+     * @return The authority of the server, e.g. http://127.0.0.1:40000/common
+     */
+    public URL getAuthorityUrl() {
+        return getUrl("/" + TENANT);
+    }
+
+    public URL getTokenEndpoint() {
+        return getUrl(TOKEN_PATH);
+    }
+
+    public URL getInstanceDiscoveryEndpoint() {
+        return getUrl(INSTANCE_DISCOVERY_PATH);
+    }
+
+    public URL getOpenIdConfigurationEndpoint() {
+        return getUrl(OPENID_CONFIGURATION_PATH);
+    }
+
+    /**
+     * Delays every response.
+     *
+     * @param latencyMillis       The minimum delay.
+     * @param latencyJitterMillis The maximum random delay added to the minimum.
+     */
+    public void setLatency(final long latencyMillis, final long latencyJitterMillis) {
+        mLatencyMillis = latencyMillis;
+        mLatencyJitterMillis = latencyJitterMillis;
+    }
+
+    /**
+     * @param errorRate The fraction of requests, from 0 to 1, answered with a 500 server error.
+     */
+    public void setErrorRate(final double errorRate) {
+        mErrorRate = errorRate;
+    }
+
+    /**
+     * @param throttleRate The fraction of requests, from 0 to 1, answered with a 429.
+     */
+    public void setThrottleRate(final double throttleRate) {
+        mThrottleRate = throttleRate;
+    }
+
+    /**
+     * @param retryAfterSeconds The Retry-After value sent with 429 responses.
+     */
+    public void setRetryAfterSeconds(final int retryAfterSeconds) {
+        mRetryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return The number of connections accepted since the server started.
+     */
+    public long getConnectionCount() {
+        return mConnectionCount.get();
+    }
+
+    /**
+     * @return The largest number of connections open at the same time.
+     */
+    public int getMaxOpenConnectionCount() {
+        return mMaxOpenConnectionCount.get();
+    }
+
+    /**
+     * @return The number of requests received since the server started.
+     */
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * @return The number of requests answered with an injected 500.
+     */
+    public long getErrorCount() {
+        return mErrorCount.get();
+    }
+
+    /**
+     * @return The number of requests answered with an injected 429.
+     */
+    public long getThrottledCount() {
+        return mThrottledCount.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mServerSocket.close();
+        mConnectionExecutor.shutdownNow();
+        try {
+            mAcceptThread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private URL getUrl(final String path) {
+        try {
+            return new URL("http", "127.0.0.1", mServerSocket.getLocalPort(), path);
+        } catch (final MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void acceptConnections() {
+        while (!mServerSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (final IOException e) {
+                // The server socket was closed
+                return;
+            }
+
+            mConnectionCount.incrementAndGet();
+            final int openConnections = mOpenConnectionCount.incrementAndGet();
+            int maxOpenConnections = mMaxOpenConnectionCount.get();
+            while (openConnections > maxOpenConnections
+                    && !mMaxOpenConnectionCount.compareAndSet(maxOpenConnections, openConnections)) {
+                maxOpenConnections = mMaxOpenConnectionCount.get();
+            }
+
+            mConnectionExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        serveConnection(socket);
+                    } finally {
+                        mOpenConnectionCount.decrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+
+    private void serveConnection(final Socket socket) {
+        try {
+            socket.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            final InputStream inputStream = new BufferedInputStream(socket.getInputStream());
+            final OutputStream outputStream = socket.getOutputStream();
+
+            boolean keepAlive = true;
+            while (keepAlive) {
+                final String requestLine = readLine(inputStream);
+                if (requestLine == null || requestLine.isEmpty()) {
+                    return;
+                }
+
+                final Map<String, String> headers = readHeaders(inputStream);
+                skipBody(inputStream, headers.get("content-length"));
+                keepAlive = !"close".equalsIgnoreCase(headers.get("connection"));
+
+                mRequestCount.incrementAndGet();
+                delay();
+                respond(outputStream, requestLine, keepAlive);
+            }
+        } catch (final SocketException e) {
+            // The client or close() closed the connection
+        } catch (final IOException e) {
+            // Broken request; drop the connection
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                // Nothing left to clean up
+            }
+        }
+    }
+
+    private void delay() throws InterruptedException {
+        final long jitterMillis = mLatencyJitterMillis;
+        final long delayMillis = mLatencyMillis
+                + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+
+        if (delayMillis > 0) {
+            Thread.sleep(delayMillis);
+        }
+    }
+
+    private void respond(final OutputStream outputStream,
+                         final String requestLine,
+                         final boolean keepAlive) throws IOException {
+        final String[] parts = requestLine.split(" ");
+        final String method = parts[0];
+        final String path = parts.length > 1 ? parts[1].split("\\?")[0] : "";
+        final double random = ThreadLocalRandom.current().nextDouble();
+
+        if (random < mThrottleRate) {
+            mThrottledCount.incrementAndGet();
+            writeResponse(outputStream, 429, "Too Many Requests", keepAlive,
+                    "Retry-After: " + mRetryAfterSeconds + "\r\n",
+                    errorResponse("temporarily_unavailable", "AADSTS50196: The server is throttling requests."));
+        } else if (random < mThrottleRate + mErrorRate) {
+            mErrorCount.incrementAndGet();
+            writeResponse(outputStream, 500, "Internal Server Error", keepAlive, "",
+                    errorResponse("server_error", "AADSTS90033: A transient error has occurred."));
+        } else if ("POST".equals(method) && TOKEN_PATH.equals(path)) {
+            writeResponse(outputStream, 200, "OK", keepAlive, "", mTokenResponse);
+        } else if ("GET".equals(method) && INSTANCE_DISCOVERY_PATH.equals(path)) {
+            writeResponse(outputStream, 200, "OK", keepAlive, "", createInstanceDiscoveryResponse());
+        } else if ("GET".equals(method) && OPENID_CONFIGURATION_PATH.equals(path)) {
+            writeResponse(outputStream, 200, "OK", keepAlive, "", createOpenIdConfigurationResponse());
+        } else {
+            writeResponse(outputStream, 404, "Not Found", keepAlive, "",
+                    errorResponse("invalid_request", "Unknown endpoint " + path));
+        }
+    }
+
+    private static void writeResponse(final OutputStream outputStream,
+                                      final int statusCode,
+                                      final String reasonPhrase,
+                                      final boolean keepAlive,
+                                      final String extraHeaders,
+                                      final String body) throws IOException {
+        final byte[] bodyBytes = body.getBytes(UTF8);
+        final String head = "HTTP/1.1 " + statusCode + " " + reasonPhrase + "\r\n"
+                + "Content-Type: application/json; charset=utf-8\r\n"
+                + "Content-Length: " + bodyBytes.length + "\r\n"
+                + "Cache-Control: no-store\r\n"
+                + extraHeaders
+                + "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n"
+                + "\r\n";
+
+        outputStream.write(head.getBytes(UTF8));
+        outputStream.write(bodyBytes);
+        outputStream.flush();
+    }
+
+    private static Map<String, String> readHeaders(final InputStream inputStream) throws IOException {
+        final Map<String, String> headers = new HashMap<>();
+        String line = readLine(inputStream);
+
+        while (line != null && !line.isEmpty()) {
+            final int separator = line.indexOf(':');
+            if (separator > 0) {
+                headers.put(
+                        line.substring(0, separator).trim().toLowerCase(Locale.US),
+                        line.substring(separator + 1).trim()
+                );
+            }
+            line = readLine(inputStream);
+        }
+
+        return headers;
+    }
+
+    private static void skipBody(final InputStream inputStream, final String contentLength) throws IOException {
+        long remaining = contentLength == null ? 0 : Long.parseLong(contentLength);
+
+        while (remaining > 0) {
+            final long skipped = inputStream.skip(remaining);
+            if (skipped <= 0) {
+                if (inputStream.read() < 0) {
+                    throw new IOException("Connection closed while reading the request body.");
+                }
+                remaining--;
+            } else {
+                remaining -= skipped;
+            }
+        }
+    }
+
+    /**
+     * Reads an ASCII line terminated by CRLF, or returns null at the end of the stream.
+     */
+    private static String readLine(final InputStream inputStream) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        int character = inputStream.read();
+
+        while (character >= 0 && character != '\n') {
+            if (character != '\r') {
+                builder.append((char) character);
+            }
+            if (builder.length() > MAX_LINE_LENGTH) {
+                throw new IOException("Request line too long.");
+            }
+            character = inputStream.read();
+        }
+
+        return character < 0 && builder.length() == 0 ? null : builder.toString();
+    }
+
+    private static String errorResponse(final String error, final String errorDescription) {
+        return "{\"error\":\"" + error + "\",\"error_description\":\"" + errorDescription + "\","
+                + "\"error_codes\":[50196],\"timestamp\":\"2018-10-03 04:07:02Z\","
+                + "\"trace_id\":\"fd5c3c5f-b8a1-4b4b-a8c3-2fd1d2a6c100\","
+                + "\"correlation_id\":\"b2f8c6a1-3a53-4b1e-9d0f-4b0c7a9e2d11\"}";
+    }
+
+    private String createInstanceDiscoveryResponse() {
+        return "{\"tenant_discovery_endpoint\":\"" + getOpenIdConfigurationEndpoint() + "\","
+                + "\"api-version\":\"1.1\","
+                + "\"metadata\":[{\"preferred_network\":\"127.0.0.1\",\"preferred_cache\":\"127.0.0.1\","
+                + "\"aliases\":[\"127.0.0.1\"]}]}";
+    }
+
+    private String createOpenIdConfigurationResponse() {
+        final String authority = getAuthorityUrl().toString();
+        return "{\"issuer\":\"" + authority + "/v2.0\","
+                + "\"authorization_endpoint\":\"" + authority + "/oAuth2/v2.0/authorize\","
+                + "\"token_endpoint\":\"" + getTokenEndpoint() + "\","
+                + "\"jwks_uri\":\"" + authority + "/discovery/v2.0/keys\","
+                + "\"response_types_supported\":[\"code\",\"id_token\",\"code id_token\",\"id_token token\"],"
+                + "\"scopes_supported\":[\"openid\",\"profile\",\"email\",\"offline_access\"],"
+                + "\"subject_types_supported\":[\"pairwise\"],"
+                + "\"id_token_signing_alg_values_supported\":[\"RS256\"]}";
+    }
+
+    /**
+     * A token response sized like a production one: tokens of a kilobyte or more and an unsigned
+     * ID token carrying the usual claims.
+     */
+    private static String createTokenResponse() {
+        final String idToken = Base64URL.encode("{\"typ\":\"JWT\",\"alg\":\"none\"}")
+                + "." + Base64URL.encode("{\"aud\":\"4b0db8c2-9f26-4417-8bde-3f0e3656f8e0\","
+                + "\"iss\":\"https://login.microsoftonline.com/72f988bf-86f1-41af-91ab-2d7cd011db47/v2.0\","
+                + "\"iat\":1538538422,\"nbf\":1538538422,\"exp\":1538542322,"
+                + "\"name\":\"Abe Lincoln\",\"oid\":\"00000000-0000-0000-66f3-3332eca7ea81\","
+                + "\"preferred_username\":\"abeli@microsoft.com\","
+                + "\"sub\":\"HKZpfaHyWadeOouYlitjrI-KffTm222X5rrV3xDqfKQ\","
+                + "\"tid\":\"72f988bf-86f1-41af-91ab-2d7cd011db47\",\"ver\":\"2.0\"}")
+                + ".";
+        final String clientInfo = Base64URL.encode(
+                "{\"uid\":\"00000000-0000-0000-66f3-3332eca7ea81\",\"utid\":\"72f988bf-86f1-41af-91ab-2d7cd011db47\"}"
+        ).toString();
+
+        return "{\"token_type\":\"Bearer\",\"scope\":\"User.Read openid profile\","
+                + "\"expires_in\":3599,\"ext_expires_in\":3599,"
+                + "\"access_token\":\"" + filler('a', 1500) + "\","
+                + "\"refresh_token\":\"" + filler('r', 800) + "\","
+                + "\"id_token\":\"" + idToken + "\","
+                + "\"client_info\":\"" + clientInfo + "\"}";
+    }
+
+    private static String filler(final char character, final int length) {
+        final StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(character);
+        }
+        return builder.toString();
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "StubStsServer-" + mThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.loadtest;
+
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.controllers.RefreshTokenRedeemer;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Configuration;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenErrorResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResult;
+
+import java.net.URL;
+
+/**
+ * The token flows driven by {@link TokenLoadDriver}, wired to a {@link StubStsServer}.
+ */
+public final class TokenFlows {
+
+    private TokenFlows() {
+        // Utility class.
+    }
+
+    /**
+     * Creates a strategy which sends its token requests to the supplied server. The configuration
+     * normally derives the endpoint with android.net.Uri, which is not available on a plain JVM.
+     *
+     * @param server The stub server.
+     * @return The strategy.
+     */
+    public static MicrosoftStsOAuth2Strategy createStrategy(final StubStsServer server) {
+        final MicrosoftStsOAuth2Configuration config = new MicrosoftStsOAuth2Configuration() {
+            @Override
+            public URL getTokenEndpoint() {
+                return server.getTokenEndpoint();
+            }
+        };
+        config.setAuthorityUrl(server.getAuthorityUrl());
+
+        return new MicrosoftStsOAuth2Strategy(config);
+    }
+
+    /**
+     * One refresh token grant through {@link MicrosoftStsOAuth2Strategy#requestToken}.
+     *
+     * @param strategy     The strategy to send the request with.
+     * @param clientId     The client id of the request.
+     * @param scope        The scopes of the request.
+     * @param refreshToken The refresh token to redeem.
+     * @return The operation, which fails if the server returns an error.
+     */
+    public static TokenLoadDriver.Operation requestToken(final MicrosoftStsOAuth2Strategy strategy,
+                                                         final String clientId,
+                                                         final String scope,
+                                                         final String refreshToken) {
+        return new TokenLoadDriver.Operation() {
+            @Override
+            public void run() throws Exception {
+                final MicrosoftStsTokenRequest request = new MicrosoftStsTokenRequest();
+                request.setClientId(clientId);
+                request.setScope(scope);
+                request.setGrantType(TokenRequest.GrantTypes.REFRESH_TOKEN);
+                request.setRefreshToken(refreshToken);
+
+                final TokenResult result = strategy.requestToken(request);
+
+                if (!result.getSuccess()) {
+                    final TokenErrorResponse errorResponse = result.getErrorResponse();
+                    throw new ServiceException(
+                            errorResponse.getError(),
+                            errorResponse.getErrorDescription(),
+                            errorResponse.getStatusCode(),
+                            null
+                    );
+                }
+            }
+        };
+    }
+
+    /**
+     * Loads the refresh token from the cache, redeems it and saves the result, as a silent token
+     * request does.
+     *
+     * @param redeemer The redeemer, holding the strategy and the cache.
+     * @param account  The Account whose refresh token is redeemed.
+     * @param request  The request describing the client id and scopes sought.
+     * @return The operation, which fails if the server returns an error.
+     */
+    public static TokenLoadDriver.Operation refreshAndSave(
+            final RefreshTokenRedeemer<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> redeemer,
+            final AccountRecord account,
+            final MicrosoftStsAuthorizationRequest request) {
+        return new TokenLoadDriver.Operation() {
+            @Override
+            public void run() throws Exception {
+                redeemer.redeem(account, request);
+            }
+        };
+    }
+}
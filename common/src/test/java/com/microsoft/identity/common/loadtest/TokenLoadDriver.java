@@ -0,0 +1,150 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs an operation, typically a token flow against a {@link StubStsServer}, a fixed number of
+ * times on several threads and reports throughput, latency percentiles and the connections the
+ * server saw.
+ * <p>
+ * With a target rate the operations are started on a fixed schedule. Latency is then measured from
+ * the scheduled start rather than the actual one, so time spent waiting for a busy thread counts
+ * against the operation as it would for a caller.
+ */
+public final class TokenLoadDriver {
+
+    /**
+     * A single unit of load, such as one token request.
+     */
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    private final int mThreadCount;
+    private final int mOperationCount;
+    private final double mTargetRatePerSecond;
+
+    /**
+     * @param threadCount         The number of threads running operations.
+     * @param operationCount      The total number of operations to run.
+     * @param targetRatePerSecond The rate at which operations are started across all threads, or 0
+     *                            to run them back to back.
+     */
+    public TokenLoadDriver(final int threadCount,
+                           final int operationCount,
+                           final double targetRatePerSecond) {
+        if (threadCount <= 0 || operationCount <= 0 || targetRatePerSecond < 0) {
+            throw new IllegalArgumentException("Invalid load parameters.");
+        }
+
+        mThreadCount = threadCount;
+        mOperationCount = operationCount;
+        mTargetRatePerSecond = targetRatePerSecond;
+    }
+
+    /**
+     * Runs the operation and waits for all of the runs to finish.
+     *
+     * @param name      The name of the run, used in the report.
+     * @param operation The operation to run.
+     * @param server    The server the operation talks to.
+     * @return The report of the run.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public LoadReport run(final String name,
+                          final Operation operation,
+                          final StubStsServer server) throws InterruptedException {
+        final long[] latencyNanos = new long[mOperationCount];
+        final AtomicInteger nextOperation = new AtomicInteger();
+        final AtomicLong failureCount = new AtomicLong();
+        final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        final long intervalNanos = mTargetRatePerSecond == 0
+                ? 0
+                : (long) (TimeUnit.SECONDS.toNanos(1) / mTargetRatePerSecond);
+
+        final long connectionsBefore = server.getConnectionCount();
+        final long requestsBefore = server.getRequestCount();
+        final long throttledBefore = server.getThrottledCount();
+        final long errorsBefore = server.getErrorCount();
+        final long startNanos = System.nanoTime();
+
+        final Thread[] threads = new Thread[mThreadCount];
+        for (int i = 0; i < mThreadCount; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int index = nextOperation.getAndIncrement();
+                    while (index < mOperationCount) {
+                        final long scheduledNanos = startNanos + index * intervalNanos;
+                        waitUntil(scheduledNanos);
+                        final long operationStartNanos = intervalNanos == 0 ? System.nanoTime() : scheduledNanos;
+
+                        try {
+                            operation.run();
+                        } catch (final Exception e) {
+                            failureCount.incrementAndGet();
+                            firstFailure.compareAndSet(null, e);
+                        }
+
+                        // Each index is written by one thread only; join() publishes the array
+                        latencyNanos[index] = System.nanoTime() - operationStartNanos;
+                        index = nextOperation.getAndIncrement();
+                    }
+                }
+            }, "TokenLoadDriver-" + (i + 1));
+            threads[i].start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        return new LoadReport(
+                name,
+                mThreadCount,
+                latencyNanos,
+                failureCount.get(),
+                System.nanoTime() - startNanos,
+                server.getConnectionCount() - connectionsBefore,
+                server.getMaxOpenConnectionCount(),
+                server.getRequestCount() - requestsBefore,
+                server.getThrottledCount() - throttledBefore,
+                server.getErrorCount() - errorsBefore,
+                firstFailure.get()
+        );
+    }
+
+    private static void waitUntil(final long deadlineNanos) {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        while (remainingNanos > 0) {
+            LockSupport.parkNanos(remainingNanos);
+            remainingNanos = deadlineNanos - System.nanoTime();
+        }
+    }
+}
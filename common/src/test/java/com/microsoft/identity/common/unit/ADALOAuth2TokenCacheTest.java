@@ -0,0 +1,303 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import android.content.Context;
+
+import com.google.gson.JsonObject;
+import com.microsoft.identity.common.InMemorySharedPreferencesFileManager;
+import com.microsoft.identity.common.adal.internal.cache.CacheKey;
+import com.microsoft.identity.common.internal.cache.ADALOAuth2TokenCache;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.cache.IShareSingleSignOnState;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftAccount;
+import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftRefreshToken;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class ADALOAuth2TokenCacheTest {
+
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String TENANT_ID = "72f988bf-86f1-41af-91ab-2d7cd011db47";
+    private static final String AUTHORITY = "https://" + ENVIRONMENT + "/" + TENANT_ID;
+    private static final String OTHER_TENANT_AUTHORITY = "https://" + ENVIRONMENT + "/common";
+    private static final String CLIENT_ID = "4b0db8c2-9f26-4417-8bde-3f0e3656f8e0";
+    private static final String OTHER_CLIENT_ID = "9668f2bd-6103-4292-9024-84fa2d1b6fb2";
+    private static final String FAMILY_ID = "1";
+    private static final String RESOURCE = "https://graph.windows.net";
+    private static final String OBJECT_ID = "00000000-0000-0000-66f3-3332eca7ea81";
+    private static final String USERNAME = "Abe.Lincoln@Contoso.com";
+    private static final String ACCESS_TOKEN = "access_token";
+    private static final String REFRESH_TOKEN = "refresh_token";
+    private static final String FAMILY_REFRESH_TOKEN = "family_refresh_token";
+
+    private CountingSharedPreferencesFileManager mStorage;
+    private ADALOAuth2TokenCache mCache;
+
+    @Before
+    public void setUp() {
+        mStorage = new CountingSharedPreferencesFileManager();
+        mCache = new ADALOAuth2TokenCache(
+                Mockito.mock(Context.class),
+                mStorage,
+                Collections.<IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken>>emptyList()
+        );
+    }
+
+    @Test
+    public void testLoad() {
+        saveAsAdal(AUTHORITY, CLIENT_ID, ACCESS_TOKEN, REFRESH_TOKEN, null);
+        // A token of another tenant for the same resource is not preferred
+        saveAsAdal(OTHER_TENANT_AUTHORITY, CLIENT_ID, "other_access_token", "other_refresh_token", null);
+
+        final ICacheRecord record = mCache.load(CLIENT_ID, RESOURCE, createAccount());
+
+        Assert.assertEquals(ACCESS_TOKEN, record.getAccessToken().getSecret());
+        Assert.assertEquals(RESOURCE, record.getAccessToken().getTarget());
+        Assert.assertEquals(TENANT_ID, record.getAccessToken().getRealm());
+        Assert.assertEquals(REFRESH_TOKEN, record.getRefreshToken().getSecret());
+        Assert.assertEquals(CLIENT_ID, record.getRefreshToken().getClientId());
+        Assert.assertEquals(CredentialType.IdToken.name(), record.getIdToken().getCredentialType());
+        Assert.assertNotNull(record.getIdToken().getSecret());
+    }
+
+    @Test
+    public void testLoadOtherResourceUsesMrrt() {
+        saveAsAdal(AUTHORITY, CLIENT_ID, ACCESS_TOKEN, REFRESH_TOKEN, null);
+
+        final ICacheRecord record = mCache.load(CLIENT_ID, "https://outlook.office.com", createAccount());
+
+        Assert.assertNull(record.getAccessToken());
+        Assert.assertEquals(REFRESH_TOKEN, record.getRefreshToken().getSecret());
+    }
+
+    @Test
+    public void testLoadOtherClientUsesFrt() {
+        saveAsAdal(AUTHORITY, CLIENT_ID, ACCESS_TOKEN, FAMILY_REFRESH_TOKEN, FAMILY_ID);
+
+        final ICacheRecord record = mCache.load(OTHER_CLIENT_ID, RESOURCE, createAccount());
+
+        Assert.assertNull(record.getAccessToken());
+        Assert.assertEquals(FAMILY_REFRESH_TOKEN, record.getRefreshToken().getSecret());
+        Assert.assertEquals(OTHER_CLIENT_ID, record.getRefreshToken().getClientId());
+        Assert.assertEquals(FAMILY_ID, ((RefreshTokenRecord) record.getRefreshToken()).getFamilyId());
+    }
+
+    @Test
+    public void testGetAccounts() {
+        saveAsAdal(AUTHORITY, CLIENT_ID, ACCESS_TOKEN, REFRESH_TOKEN, null);
+
+        final List<AccountRecord> accounts = mCache.getAccounts(ENVIRONMENT, CLIENT_ID);
+
+        Assert.assertEquals(1, accounts.size());
+        final AccountRecord account = accounts.get(0);
+        Assert.assertEquals(OBJECT_ID + "." + TENANT_ID, account.getHomeAccountId());
+        Assert.assertEquals(ENVIRONMENT, account.getEnvironment());
+        Assert.assertEquals(TENANT_ID, account.getRealm());
+        Assert.assertEquals(OBJECT_ID, account.getLocalAccountId());
+        Assert.assertEquals(USERNAME, account.getUsername());
+
+        Assert.assertEquals(account, mCache.getAccount(ENVIRONMENT, CLIENT_ID, OBJECT_ID + "." + TENANT_ID));
+        Assert.assertNull(mCache.getAccount(ENVIRONMENT, OTHER_CLIENT_ID, OBJECT_ID + "." + TENANT_ID));
+        Assert.assertTrue(mCache.getAccounts("login.chinacloudapi.cn", CLIENT_ID).isEmpty());
+    }
+
+    @Test
+    public void testRemoveAccountKeepsFrt() {
+        saveAsAdal(AUTHORITY, CLIENT_ID, ACCESS_TOKEN, FAMILY_REFRESH_TOKEN, FAMILY_ID);
+
+        Assert.assertTrue(mCache.removeAccount(ENVIRONMENT, CLIENT_ID, OBJECT_ID + "." + TENANT_ID));
+
+        Assert.assertTrue(mCache.getAccounts(ENVIRONMENT, CLIENT_ID).isEmpty());
+        final ICacheRecord record = mCache.load(CLIENT_ID, RESOURCE, createAccount());
+        Assert.assertNull(record.getAccessToken());
+        Assert.assertEquals(FAMILY_REFRESH_TOKEN, record.getRefreshToken().getSecret());
+        Assert.assertFalse(mCache.removeAccount(ENVIRONMENT, CLIENT_ID, OBJECT_ID + "." + TENANT_ID));
+    }
+
+    @Test
+    public void testRemoveCredential() {
+        saveAsAdal(AUTHORITY, CLIENT_ID, ACCESS_TOKEN, REFRESH_TOKEN, null);
+        final ICacheRecord record = mCache.load(CLIENT_ID, RESOURCE, createAccount());
+
+        Assert.assertTrue(mCache.removeCredential(record.getAccessToken()));
+        Assert.assertNull(mCache.load(CLIENT_ID, RESOURCE, createAccount()).getAccessToken());
+
+        Assert.assertTrue(mCache.removeCredential(record.getRefreshToken()));
+        Assert.assertNull(mCache.load(CLIENT_ID, RESOURCE, createAccount()).getRefreshToken());
+        Assert.assertTrue(mStorage.getAll().isEmpty());
+        Assert.assertFalse(mCache.removeCredential(record.getIdToken()));
+    }
+
+    @Test
+    public void testSeesWritesOfOtherInstances() {
+        saveAsAdal(AUTHORITY, CLIENT_ID, ACCESS_TOKEN, REFRESH_TOKEN, null);
+        final ICacheRecord record = mCache.load(CLIENT_ID, RESOURCE, createAccount());
+        Assert.assertEquals(1, mCache.getAccounts(ENVIRONMENT, CLIENT_ID).size());
+
+        // Another instance over the same file, as ADAL and other components of the app use
+        final ADALOAuth2TokenCache otherCache = new ADALOAuth2TokenCache(
+                Mockito.mock(Context.class),
+                mStorage,
+                Collections.<IShareSingleSignOnState<MicrosoftAccount, MicrosoftRefreshToken>>emptyList()
+        );
+
+        Assert.assertTrue(otherCache.removeCredential(record.getAccessToken()));
+        final ICacheRecord withoutAccessToken = mCache.load(CLIENT_ID, RESOURCE, createAccount());
+        Assert.assertNull(withoutAccessToken.getAccessToken());
+        Assert.assertEquals(REFRESH_TOKEN, withoutAccessToken.getRefreshToken().getSecret());
+
+        Assert.assertTrue(otherCache.removeAccount(ENVIRONMENT, CLIENT_ID, OBJECT_ID + "." + TENANT_ID));
+        Assert.assertNull(mCache.load(CLIENT_ID, RESOURCE, createAccount()).getRefreshToken());
+        Assert.assertNull(mCache.getAccount(ENVIRONMENT, CLIENT_ID, OBJECT_ID + "." + TENANT_ID));
+        Assert.assertTrue(mCache.getAccounts(ENVIRONMENT, CLIENT_ID).isEmpty());
+
+        saveAsAdal(AUTHORITY, CLIENT_ID, "new_access_token", "new_refresh_token", null);
+        final ICacheRecord saved = mCache.load(CLIENT_ID, RESOURCE, createAccount());
+        Assert.assertEquals("new_access_token", saved.getAccessToken().getSecret());
+        Assert.assertEquals("new_refresh_token", saved.getRefreshToken().getSecret());
+    }
+
+    @Test
+    public void testMissDoesNotRebuildIndex() {
+        saveAsAdal(AUTHORITY, CLIENT_ID, ACCESS_TOKEN, REFRESH_TOKEN, null);
+        Assert.assertNotNull(mCache.load(CLIENT_ID, RESOURCE, createAccount()).getAccessToken());
+        final int indexBuilds = mStorage.mGetAllCount;
+
+        final AccountRecord otherAccount = createAccount();
+        otherAccount.setLocalAccountId("00000000-0000-0000-0000-000000000001");
+        otherAccount.setUsername("someone.else@contoso.com");
+        for (int i = 0; i < 3; i++) {
+            Assert.assertNull(mCache.load(CLIENT_ID, RESOURCE, otherAccount).getRefreshToken());
+            Assert.assertNull(mCache.getAccount(ENVIRONMENT, CLIENT_ID, "00000000-0000-0000-0000-000000000001." + TENANT_ID));
+        }
+
+        Assert.assertEquals(indexBuilds, mStorage.mGetAllCount);
+    }
+
+    @Test
+    public void testMissSeesEntriesAddedByOtherWriters() {
+        final AccountRecord account = createAccount();
+        Assert.assertNull(mCache.load(CLIENT_ID, RESOURCE, account).getRefreshToken());
+
+        saveAsAdal(AUTHORITY, CLIENT_ID, ACCESS_TOKEN, REFRESH_TOKEN, null);
+
+        Assert.assertEquals(REFRESH_TOKEN, mCache.load(CLIENT_ID, RESOURCE, account).getRefreshToken().getSecret());
+    }
+
+    private static AccountRecord createAccount() {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(OBJECT_ID + "." + TENANT_ID);
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(TENANT_ID);
+        account.setLocalAccountId(OBJECT_ID);
+        account.setUsername(USERNAME);
+        return account;
+    }
+
+    /**
+     * Writes the entries ADAL writes for a token response: RT, MRRT and, if the refresh token is
+     * a family one, FRT, for each user id and without a user id.
+     */
+    private void saveAsAdal(final String authority,
+                            final String clientId,
+                            final String accessToken,
+                            final String refreshToken,
+                            final String familyId) {
+        final JsonObject rtItem = createItem(authority, clientId, accessToken, refreshToken, familyId);
+        final JsonObject mrrtItem = createItem(authority, clientId, null, refreshToken, familyId);
+        mrrtItem.remove("mResource");
+        final JsonObject frtItem = createItem(authority, null, null, refreshToken, familyId);
+        frtItem.remove("mResource");
+
+        for (final String userId : new String[]{OBJECT_ID, USERNAME, null}) {
+            mStorage.putString(CacheKey.createCacheKeyForRTEntry(authority, RESOURCE, clientId, userId), rtItem.toString());
+            mStorage.putString(CacheKey.createCacheKeyForMRRT(authority, clientId, userId), mrrtItem.toString());
+            if (familyId != null) {
+                mStorage.putString(CacheKey.createCacheKeyForFRT(authority, familyId, userId), frtItem.toString());
+            }
+        }
+    }
+
+    private static JsonObject createItem(final String authority,
+                                         final String clientId,
+                                         final String accessToken,
+                                         final String refreshToken,
+                                         final String familyId) {
+        final JsonObject userInfo = new JsonObject();
+        userInfo.addProperty("mUniqueId", OBJECT_ID);
+        userInfo.addProperty("mDisplayableId", USERNAME);
+        userInfo.addProperty("mGivenName", "Abe");
+        userInfo.addProperty("mFamilyName", "Lincoln");
+
+        final JsonObject item = new JsonObject();
+        item.add("mUserInfo", userInfo);
+        item.addProperty("mResource", RESOURCE);
+        item.addProperty("mAuthority", authority);
+        item.addProperty("mClientId", clientId);
+        item.addProperty("mAccessToken", accessToken);
+        item.addProperty("mRefreshtoken", refreshToken);
+        item.addProperty("mRawIdToken", createRawIdToken());
+        item.addProperty("mIsMultiResourceRefreshToken", true);
+        item.addProperty("mTenantId", TENANT_ID);
+        item.addProperty("mFamilyClientId", familyId);
+        return item;
+    }
+
+    private static String createRawIdToken() {
+        final JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("HKZpfaHyWadeOouYlitjrI-KffTm222X5rrV3xDqfKQ")
+                .audience(CLIENT_ID)
+                .claim("oid", OBJECT_ID)
+                .claim("tid", TENANT_ID)
+                .claim("upn", USERNAME)
+                .build();
+
+        return new PlainJWT(claims).serialize();
+    }
+
+    private static final class CountingSharedPreferencesFileManager extends InMemorySharedPreferencesFileManager {
+        private int mGetAllCount;
+
+        @Override
+        public synchronized Map<String, String> getAll() {
+            mGetAllCount++;
+            return super.getAll();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import android.content.Context;
+
+import com.google.gson.Gson;
+import com.microsoft.identity.common.AllocationMeter;
+import com.microsoft.identity.common.InMemorySharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.AccountCredentialCache;
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.IAccountCredentialAdapter;
+import com.microsoft.identity.common.internal.cache.MsalOAuth2TokenCache;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.logging.ILoggerCallback;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.net.ObjectMapper;
+import com.microsoft.identity.common.internal.providers.oauth2.IDToken;
+import com.microsoft.identity.common.internal.providers.oauth2.JWTPayloadDecoder;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Guards the allocations of per-call paths of the silent token flow. Each absolute budget is
+ * about 1.5x the bytes per call measured on JDK 8 when it was recorded, so it catches a path that
+ * starts allocating a multiple of what it did, such as a regex split per field. Paths that should
+ * barely allocate share a flat budget of 256 bytes.
+ * <p>
+ * Deserializing a cache value is guarded relative to a control measured in the same JVM instead,
+ * because a `new Gson()` per record adds less than 1.5x there.
+ * <p>
+ * If a change legitimately lowers an allocation, lower the budget with it.
+ */
+@RunWith(JUnit4.class)
+public class AllocationBudgetTest {
+
+    private static final String CLIENT_ID = "4b0db8c2-9f26-4417-8bde-3f0e3656f8e0";
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String REALM = "72f988bf-86f1-41af-91ab-2d7cd011db47";
+    private static final String TARGET = "user.read openid profile";
+    private static final int CACHED_ACCOUNTS = 5;
+
+    /**
+     * Loading an Account's tokens from a cache of 5 Accounts (20 records).
+     */
+    private static final long TOKEN_CACHE_LOAD_BUDGET = 2560 * 1024;
+
+    /**
+     * Deserializing one access token cache value, as a multiple of deserializing the same value
+     * with a shared Gson alone. The extra fields lookup makes it about 2.7x; a `new Gson()` per
+     * call makes it over 4x.
+     */
+    private static final double FROM_CACHE_VALUE_RATIO = 3.5;
+
+    /**
+     * Decoding every claim of an ID token.
+     */
+    private static final long DECODE_CLAIMS_BUDGET = 8704;
+
+    /**
+     * Creating an IDToken for a raw token whose claims were already decoded.
+     */
+    private static final long CACHED_ID_TOKEN_BUDGET = 256;
+
+    /**
+     * Formatting and dispatching one log line to the external logger.
+     */
+    private static final long LOG_BUDGET = 3328;
+
+    /**
+     * A log call below the current log level.
+     */
+    private static final long FILTERED_LOG_BUDGET = 256;
+
+    /**
+     * Parsing the query string of an authorization redirect.
+     */
+    private static final long QUERY_STRING_BUDGET = 3840;
+
+    private static final String REDIRECT_QUERY = "code=OAQABAAIAAABHh4kmS_aKT5XrjzxRAtHzkRd"
+            + "&state=YTQ0ODNkNjYtOTg0ZS00NWM2LTk1YmYtOGE3OGFkOTc5OGE1"
+            + "&session_state=f0e3ad7c-3e65-4d8a-a5b4-3bb1d8dd1f16";
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(AllocationMeter.isSupported());
+        Logger.getInstance().setAsyncMode(false);
+        Logger.getInstance().setLogLevel(Logger.LogLevel.VERBOSE);
+        Logger.getInstance().setExternalLogger(new ILoggerCallback() {
+            @Override
+            public void log(String tag, Logger.LogLevel logLevel, String message, boolean containsPII) {
+                // Discard; only the cost of producing the line is measured
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        Logger.getInstance().setExternalLogger(null);
+        Logger.getInstance().setLogLevel(Logger.LogLevel.VERBOSE);
+    }
+
+    @Test
+    public void testTokenCacheLoad() throws Exception {
+        final AccountCredentialCache accountCredentialCache = new AccountCredentialCache(
+                new CacheKeyValueDelegate(),
+                new InMemorySharedPreferencesFileManager()
+        );
+        final List<AccountRecord> accounts = new ArrayList<>();
+        final List<Credential> credentials = new ArrayList<>();
+        for (int i = 0; i < CACHED_ACCOUNTS; i++) {
+            final AccountRecord account = createAccount(i);
+            accounts.add(account);
+            credentials.add(createCredential(new AccessTokenRecord(), account, CredentialType.AccessToken));
+            credentials.add(createCredential(new RefreshTokenRecord(), account, CredentialType.RefreshToken));
+            credentials.add(createCredential(new IdTokenRecord(), account, CredentialType.IdToken));
+        }
+        accountCredentialCache.saveAccountsAndCredentials(accounts, credentials);
+
+        final MsalOAuth2TokenCache tokenCache = new MsalOAuth2TokenCache(
+                Mockito.mock(Context.class),
+                accountCredentialCache,
+                Mockito.mock(IAccountCredentialAdapter.class)
+        );
+        final AccountRecord account = accounts.get(CACHED_ACCOUNTS / 2);
+        Assert.assertNotNull(tokenCache.load(CLIENT_ID, TARGET, account).getAccessToken());
+
+        assertWithinBudget("MsalOAuth2TokenCache.load", TOKEN_CACHE_LOAD_BUDGET, new AllocationMeter.Operation() {
+            @Override
+            public void run() {
+                tokenCache.load(CLIENT_ID, TARGET, account);
+            }
+        });
+    }
+
+    @Test
+    public void testFromCacheValue() throws Exception {
+        final CacheKeyValueDelegate delegate = new CacheKeyValueDelegate();
+        final String cacheValue = delegate.generateCacheValue(
+                createCredential(new AccessTokenRecord(), createAccount(0), CredentialType.AccessToken)
+        );
+
+        final Gson gson = new Gson();
+        final long controlBytes = AllocationMeter.measureBytesPerOperation(new AllocationMeter.Operation() {
+            @Override
+            public void run() {
+                gson.fromJson(cacheValue, AccessTokenRecord.class);
+            }
+        });
+
+        final long budgetBytes = (long) (controlBytes * FROM_CACHE_VALUE_RATIO);
+        assertWithinBudget("CacheKeyValueDelegate.fromCacheValue", budgetBytes, new AllocationMeter.Operation() {
+            @Override
+            public void run() {
+                delegate.fromCacheValue(cacheValue, AccessTokenRecord.class);
+            }
+        });
+    }
+
+    @Test
+    public void testDecodeIdTokenClaims() throws Exception {
+        final String rawIdToken = createRawIdToken();
+
+        assertWithinBudget("JWTPayloadDecoder.decodeClaims", DECODE_CLAIMS_BUDGET, new AllocationMeter.Operation() {
+            @Override
+            public void run() throws Exception {
+                JWTPayloadDecoder.decodeClaims(rawIdToken, null);
+            }
+        });
+    }
+
+    @Test
+    public void testCachedIdToken() throws Exception {
+        final String rawIdToken = createRawIdToken();
+
+        assertWithinBudget("new IDToken (cached claims)", CACHED_ID_TOKEN_BUDGET, new AllocationMeter.Operation() {
+            @Override
+            public void run() throws Exception {
+                new IDToken(rawIdToken).getTokenClaims();
+            }
+        });
+    }
+
+    @Test
+    public void testLog() throws Exception {
+        assertWithinBudget("Logger.verbose", LOG_BUDGET, new AllocationMeter.Operation() {
+            @Override
+            public void run() {
+                Logger.verbose("AllocationBudgetTest", "Found [1] Credentials");
+            }
+        });
+    }
+
+    @Test
+    public void testFilteredLog() throws Exception {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.ERROR);
+
+        assertWithinBudget("Logger.verboseFormat (filtered)", FILTERED_LOG_BUDGET, new AllocationMeter.Operation() {
+            @Override
+            public void run() {
+                Logger.verboseFormat("AllocationBudgetTest", "Found [%s] Credentials", CACHED_ACCOUNTS);
+            }
+        });
+    }
+
+    @Test
+    public void testDeserializeQueryString() throws Exception {
+        assertWithinBudget("ObjectMapper.deserializeQueryStringToMap", QUERY_STRING_BUDGET, new AllocationMeter.Operation() {
+            @Override
+            public void run() {
+                ObjectMapper.deserializeQueryStringToMap(REDIRECT_QUERY);
+            }
+        });
+    }
+
+    private static void assertWithinBudget(final String name,
+                                           final long budgetBytes,
+                                           final AllocationMeter.Operation operation) throws Exception {
+        final long allocatedBytes = AllocationMeter.measureBytesPerOperation(operation);
+
+        Assert.assertTrue(
+                name + " allocated " + allocatedBytes + " bytes per call, over its budget of " + budgetBytes,
+                allocatedBytes <= budgetBytes
+        );
+    }
+
+    private static AccountRecord createAccount(final int index) {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId("0000000" + index + "-0000-0000-66f3-3332eca7ea81." + REALM);
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(REALM);
+        account.setLocalAccountId("0000000" + index + "-0000-0000-66f3-3332eca7ea81");
+        account.setUsername("user" + index + "@contoso.com");
+        account.setAuthorityType("MSSTS");
+        return account;
+    }
+
+    private static <T extends Credential> T createCredential(final T credential,
+                                                             final AccountRecord account,
+                                                             final CredentialType credentialType) {
+        credential.setHomeAccountId(account.getHomeAccountId());
+        credential.setEnvironment(ENVIRONMENT);
+        credential.setCredentialType(credentialType.name());
+        credential.setClientId(CLIENT_ID);
+        credential.setSecret("secret-" + account.getLocalAccountId());
+        credential.setCachedAt("1538538422");
+
+        if (credential instanceof AccessTokenRecord) {
+            ((AccessTokenRecord) credential).setRealm(REALM);
+            ((AccessTokenRecord) credential).setTarget(TARGET);
+            ((AccessTokenRecord) credential).setExpiresOn("1538542322");
+        } else if (credential instanceof RefreshTokenRecord) {
+            ((RefreshTokenRecord) credential).setTarget(TARGET);
+        } else if (credential instanceof IdTokenRecord) {
+            ((IdTokenRecord) credential).setRealm(REALM);
+        }
+
+        return credential;
+    }
+
+    private static String createRawIdToken() {
+        final JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("HKZpfaHyWadeOouYlitjrI-KffTm222X5rrV3xDqfKQ")
+                .issuer("https://login.microsoftonline.com/" + REALM + "/v2.0")
+                .audience(CLIENT_ID)
+                .claim(IDToken.PREFERRED_USERNAME, "abeli@microsoft.com")
+                .claim(IDToken.NAME, "Abe Lincoln")
+                .claim("oid", "00000000-0000-0000-66f3-3332eca7ea81")
+                .claim("tid", REALM)
+                .build();
+
+        return new PlainJWT(claims).serialize();
+    }
+}
@@ -0,0 +1,131 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.internal.logging.ILoggerCallback;
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class AsyncLoggerTest {
+
+    private static final String TAG = "AsyncLoggerTest";
+    private static final long FLUSH_TIMEOUT_MILLIS = 5000;
+
+    private final List<String> mMessages = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> mThreadNames = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.VERBOSE);
+        Logger.getInstance().setOverflowPolicy(Logger.OverflowPolicy.DROP);
+        Logger.getInstance().setExternalLogger(new ILoggerCallback() {
+            @Override
+            public void log(String tag, Logger.LogLevel logLevel, String message, boolean containsPII) {
+                if (TAG.equals(tag)) {
+                    mMessages.add(message);
+                    mThreadNames.add(Thread.currentThread().getName());
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        Logger.getInstance().setAsyncMode(false);
+        Logger.getInstance().setExternalLogger(null);
+    }
+
+    @Test
+    public void testSyncModeLogsOnCallerThread() {
+        Logger.getInstance().setAsyncMode(false);
+        Logger.info(TAG, null, "sync message");
+
+        Assert.assertEquals(1, mMessages.size());
+        Assert.assertTrue(mMessages.get(0).contains("sync message"));
+        Assert.assertEquals(Thread.currentThread().getName(), mThreadNames.get(0));
+    }
+
+    @Test
+    public void testAsyncModeDeliversInOrderOnDispatcherThread() {
+        Logger.getInstance().setAsyncMode(true);
+        for (int i = 0; i < 100; i++) {
+            Logger.info(TAG, null, "message " + i);
+        }
+
+        Assert.assertTrue(Logger.getInstance().flush(FLUSH_TIMEOUT_MILLIS));
+        Assert.assertEquals(100, mMessages.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(mMessages.get(i).contains("message " + i + " "));
+            Assert.assertNotEquals(Thread.currentThread().getName(), mThreadNames.get(i));
+        }
+    }
+
+    @Test
+    public void testDropsWhenBufferIsFull() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Logger.getInstance().setExternalLogger(new ILoggerCallback() {
+            @Override
+            public void log(String tag, Logger.LogLevel logLevel, String message, boolean containsPII) {
+                if (TAG.equals(tag)) {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    mMessages.add(message);
+                }
+            }
+        });
+        Logger.getInstance().setAsyncMode(true);
+
+        final long droppedBefore = Logger.getInstance().getDroppedLogCount();
+        Logger.info(TAG, null, "first");
+        Assert.assertTrue(blocked.await(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        final int extra = 10;
+        for (int i = 0; i < Logger.ASYNC_BUFFER_CAPACITY + extra; i++) {
+            Logger.info(TAG, null, "overflow " + i);
+        }
+
+        Assert.assertEquals(extra, Logger.getInstance().getDroppedLogCount() - droppedBefore);
+
+        release.countDown();
+        Assert.assertTrue(Logger.getInstance().flush(FLUSH_TIMEOUT_MILLIS));
+        Assert.assertEquals(Logger.ASYNC_BUFFER_CAPACITY + 1, mMessages.size());
+    }
+}
@@ -0,0 +1,276 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationErrorResponse;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationResponse;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationResult;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Configuration;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationResult;
+import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationResultFuture;
+import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationStatus;
+import com.microsoft.identity.common.internal.providers.oauth2.IAuthorizationResultListener;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResult;
+import com.microsoft.identity.common.loadtest.StubStsServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class AuthorizationResultFutureTest {
+
+    private static final String CLIENT_ID = "4b0db8c2-9f26-4417-8bde-3f0e3656f8e0";
+    private static final String AUTHORIZATION_CODE = "OAQABAAIAAABHh4kmS_aKT5XrjzxRAtHzkRd";
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(@NonNull final Runnable command) {
+            command.run();
+        }
+    };
+
+    private final ExecutorService mExecutorService = Executors.newSingleThreadExecutor();
+    private StubStsServer mServer;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new StubStsServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.close();
+        mExecutorService.shutdownNow();
+        mExecutorService.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testListenersNotifiedOnCompletion() throws Exception {
+        final AuthorizationResultFuture future = new AuthorizationResultFuture();
+        final RecordingListener before = new RecordingListener();
+        future.addListener(before, DIRECT_EXECUTOR);
+        Assert.assertTrue(before.mResults.isEmpty());
+
+        final AuthorizationResult result = successfulResult();
+        future.setAuthorizationResult(result);
+
+        // A listener added after completion is notified straight away
+        final RecordingListener after = new RecordingListener();
+        future.addListener(after, DIRECT_EXECUTOR);
+
+        Assert.assertSame(result, future.get(0, TimeUnit.SECONDS));
+        Assert.assertEquals(1, before.mResults.size());
+        Assert.assertSame(result, before.mResults.get(0));
+        Assert.assertSame(result, after.mResults.get(0));
+        Assert.assertFalse(future.cancel(false));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final AuthorizationResultFuture future = new AuthorizationResultFuture();
+        final RecordingListener listener = new RecordingListener();
+        future.addListener(listener, DIRECT_EXECUTOR);
+
+        Assert.assertTrue(future.cancel(false));
+        Assert.assertFalse(future.cancel(false));
+        Assert.assertTrue(future.isCancelled());
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(1, listener.mCancellations);
+
+        // The result of an abandoned flow is dropped
+        future.setAuthorizationResult(successfulResult());
+        Assert.assertTrue(listener.mResults.isEmpty());
+
+        try {
+            future.get();
+            Assert.fail("Expected a CancellationException.");
+        } catch (final CancellationException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testRequestTokenWhenAuthorized() throws Exception {
+        final AuthorizationResultFuture authorizationFuture = new AuthorizationResultFuture();
+        final Future<TokenResult> tokenFuture = createStrategy().requestTokenWhenAuthorized(
+                Mockito.mock(MicrosoftStsAuthorizationRequest.class),
+                authorizationFuture,
+                mExecutorService,
+                null
+        );
+        Assert.assertFalse(tokenFuture.isDone());
+        Assert.assertEquals(0, mServer.getRequestCount());
+
+        authorizationFuture.setAuthorizationResult(successfulResult());
+
+        Assert.assertTrue(tokenFuture.get(5, TimeUnit.SECONDS).getSuccess());
+        Assert.assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void testFailedAuthorizationFailsTokenRequest() throws Exception {
+        final AuthorizationResultFuture authorizationFuture = new AuthorizationResultFuture();
+        final Future<TokenResult> tokenFuture = createStrategy().requestTokenWhenAuthorized(
+                Mockito.mock(MicrosoftStsAuthorizationRequest.class),
+                authorizationFuture,
+                mExecutorService,
+                null
+        );
+
+        authorizationFuture.setAuthorizationResult(new MicrosoftStsAuthorizationResult(
+                AuthorizationStatus.USER_CANCEL,
+                (MicrosoftStsAuthorizationErrorResponse) null
+        ));
+
+        try {
+            tokenFuture.get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected an ExecutionException.");
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ClientException);
+            Assert.assertEquals(ErrorStrings.AUTHORIZATION_FAILED, ((ClientException) e.getCause()).getErrorCode());
+        }
+        Assert.assertEquals(0, mServer.getRequestCount());
+    }
+
+    @Test
+    public void testCancelTokenRequestCancelsAuthorization() throws Exception {
+        final AuthorizationResultFuture authorizationFuture = new AuthorizationResultFuture();
+        final Future<TokenResult> tokenFuture = createStrategy().requestTokenWhenAuthorized(
+                Mockito.mock(MicrosoftStsAuthorizationRequest.class),
+                authorizationFuture,
+                mExecutorService,
+                null
+        );
+
+        Assert.assertTrue(tokenFuture.cancel(false));
+        Assert.assertTrue(authorizationFuture.isCancelled());
+
+        authorizationFuture.setAuthorizationResult(successfulResult());
+        mExecutorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                // Drain the executor
+            }
+        }).get(1, TimeUnit.SECONDS);
+        Assert.assertEquals(0, mServer.getRequestCount());
+    }
+
+    @Test
+    public void testCancelAfterAuthorizationDisconnectsTokenRequest() throws Exception {
+        // Long enough that the test times out unless cancelling disconnects the request
+        mServer.setLatency(TimeUnit.SECONDS.toMillis(30), 0);
+        final AuthorizationResultFuture authorizationFuture = new AuthorizationResultFuture();
+        final Future<TokenResult> tokenFuture = createStrategy().requestTokenWhenAuthorized(
+                Mockito.mock(MicrosoftStsAuthorizationRequest.class),
+                authorizationFuture,
+                mExecutorService,
+                null
+        );
+
+        authorizationFuture.setAuthorizationResult(successfulResult());
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (mServer.getRequestCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, mServer.getRequestCount());
+
+        Assert.assertTrue(tokenFuture.cancel(true));
+
+        // The executor thread is only free again once the connection was disconnected
+        mExecutorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                // Drain the executor
+            }
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    private MicrosoftStsOAuth2Strategy createStrategy() {
+        final MicrosoftStsOAuth2Configuration config = new MicrosoftStsOAuth2Configuration() {
+            @Override
+            public URL getTokenEndpoint() {
+                return mServer.getTokenEndpoint();
+            }
+        };
+        config.setAuthorityUrl(mServer.getAuthorityUrl());
+
+        return new MicrosoftStsOAuth2Strategy(config) {
+            // The default builds the PKCE verifier from the request, which needs android.util.Base64
+            @Override
+            public MicrosoftStsTokenRequest createTokenRequest(@NonNull final MicrosoftStsAuthorizationRequest request,
+                                                               @NonNull final MicrosoftStsAuthorizationResponse response) {
+                final MicrosoftStsTokenRequest tokenRequest = new MicrosoftStsTokenRequest();
+                tokenRequest.setGrantType(TokenRequest.GrantTypes.AUTHORIZATION_CODE);
+                tokenRequest.setCode(response.getCode());
+                tokenRequest.setClientId(CLIENT_ID);
+                return tokenRequest;
+            }
+        };
+    }
+
+    private static AuthorizationResult successfulResult() {
+        return new MicrosoftStsAuthorizationResult(
+                AuthorizationStatus.SUCCESS,
+                new MicrosoftStsAuthorizationResponse(AUTHORIZATION_CODE, "state")
+        );
+    }
+
+    private static final class RecordingListener implements IAuthorizationResultListener {
+        private final List<AuthorizationResult> mResults = new ArrayList<>();
+        private int mCancellations;
+
+        @Override
+        public void onAuthorizationResult(final AuthorizationResult result) {
+            mResults.add(result);
+        }
+
+        @Override
+        public void onCancelled() {
+            mCancellations++;
+        }
+    }
+}
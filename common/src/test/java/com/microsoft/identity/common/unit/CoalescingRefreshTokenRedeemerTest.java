@@ -0,0 +1,212 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.internal.cache.CacheRecord;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.controllers.CoalescingRefreshTokenRedeemer;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.metrics.InMemoryMetricsSink;
+import com.microsoft.identity.common.internal.metrics.MetricNames;
+import com.microsoft.identity.common.internal.metrics.Metrics;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class CoalescingRefreshTokenRedeemerTest {
+
+    private static final int CALLER_COUNT = 5;
+    private static final long WAIT_TIMEOUT_SECONDS = 5;
+
+    private AccountRecord mAccount;
+    private BlockingRedeemer mRedeemer;
+    private InMemoryMetricsSink mMetrics;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        mMetrics = new InMemoryMetricsSink();
+        Metrics.setSink(mMetrics);
+
+        mAccount = new AccountRecord();
+        mAccount.setHomeAccountId("uid.utid");
+        mAccount.setEnvironment("login.microsoftonline.com");
+
+        mRedeemer = new BlockingRedeemer(
+                Mockito.mock(MicrosoftStsOAuth2Strategy.class),
+                Mockito.mock(OAuth2TokenCache.class)
+        );
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setSink(null);
+    }
+
+    @Test
+    public void testConcurrentIdenticalRedemptionsShareOneRequest() throws Exception {
+        final List<ICacheRecord> results = redeemConcurrently("User.Read openid", "openid  user.read");
+
+        Assert.assertEquals(1, mRedeemer.mRequestCount.get());
+        Assert.assertEquals(1, mRedeemer.mSaveCount.get());
+        Assert.assertEquals(1, mMetrics.getCount(MetricNames.REFRESH_REDEMPTIONS));
+        Assert.assertEquals(CALLER_COUNT - 1, mMetrics.getCount(MetricNames.REFRESH_COALESCED_WAITERS));
+        Assert.assertEquals(CALLER_COUNT - 1, mMetrics.getHistogram(MetricNames.REFRESH_WAITERS_PER_REDEMPTION).getMax());
+
+        for (final ICacheRecord result : results) {
+            Assert.assertSame(results.get(0), result);
+        }
+    }
+
+    @Test
+    public void testDifferentScopesAreNotCoalesced() throws Exception {
+        mRedeemer.mRelease.countDown();
+
+        mRedeemer.redeem(mAccount, requestFor("user.read"));
+        mRedeemer.redeem(mAccount, requestFor("mail.read"));
+
+        Assert.assertEquals(2, mRedeemer.mRequestCount.get());
+        Assert.assertEquals(0, mMetrics.getCount(MetricNames.REFRESH_COALESCED_WAITERS));
+    }
+
+    @Test
+    public void testFailureIsSharedWithWaiters() throws Exception {
+        mRedeemer.mFailure = new IOException("timeout");
+
+        final List<ICacheRecord> results = redeemConcurrently("user.read", "user.read");
+
+        Assert.assertEquals(1, mRedeemer.mRequestCount.get());
+        Assert.assertEquals(0, mRedeemer.mSaveCount.get());
+        Assert.assertTrue(results.isEmpty());
+        Assert.assertEquals(CALLER_COUNT, mRedeemer.mFailureCount.get());
+    }
+
+    private List<ICacheRecord> redeemConcurrently(final String leaderScopes,
+                                                  final String waiterScopes) throws Exception {
+        final List<ICacheRecord> results = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(CALLER_COUNT);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < CALLER_COUNT; i++) {
+            final MicrosoftStsAuthorizationRequest request = requestFor(i == 0 ? leaderScopes : waiterScopes);
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final ICacheRecord result = mRedeemer.redeem(mAccount, request);
+                        synchronized (results) {
+                            results.add(result);
+                        }
+                    } catch (final Exception e) {
+                        mRedeemer.mFailureCount.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+
+            if (i == 0) {
+                Assert.assertTrue(mRedeemer.mStarted.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+        }
+
+        // Give the waiters time to join the in-flight redemption before it completes
+        while (mMetrics.getCount(MetricNames.REFRESH_COALESCED_WAITERS) < CALLER_COUNT - 1) {
+            Thread.sleep(10);
+        }
+
+        mRedeemer.mRelease.countDown();
+        Assert.assertTrue(done.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        return results;
+    }
+
+    private static MicrosoftStsAuthorizationRequest requestFor(final String scopes) {
+        final MicrosoftStsAuthorizationRequest request = Mockito.mock(MicrosoftStsAuthorizationRequest.class);
+        Mockito.when(request.getClientId()).thenReturn("client-id");
+        Mockito.when(request.getScope()).thenReturn(scopes);
+        return request;
+    }
+
+    private static class BlockingRedeemer
+            extends CoalescingRefreshTokenRedeemer<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> {
+
+        private final CountDownLatch mStarted = new CountDownLatch(1);
+        private final CountDownLatch mRelease = new CountDownLatch(1);
+        private final AtomicInteger mRequestCount = new AtomicInteger();
+        private final AtomicInteger mSaveCount = new AtomicInteger();
+        private final AtomicInteger mFailureCount = new AtomicInteger();
+        private volatile IOException mFailure;
+
+        BlockingRedeemer(final MicrosoftStsOAuth2Strategy strategy,
+                         final OAuth2TokenCache<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> tokenCache) {
+            super(strategy, tokenCache);
+        }
+
+        @Override
+        public MicrosoftStsTokenResponse requestTokens(final AccountRecord account,
+                                                       final MicrosoftStsAuthorizationRequest request)
+                throws IOException {
+            mRequestCount.incrementAndGet();
+            mStarted.countDown();
+
+            try {
+                mRelease.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (null != mFailure) {
+                throw mFailure;
+            }
+
+            return new MicrosoftStsTokenResponse();
+        }
+
+        @Override
+        public ICacheRecord save(final MicrosoftStsAuthorizationRequest request,
+                                 final MicrosoftStsTokenResponse response) {
+            mSaveCount.incrementAndGet();
+            return new CacheRecord();
+        }
+    }
+}
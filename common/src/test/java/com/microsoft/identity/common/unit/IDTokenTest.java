@@ -0,0 +1,83 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.providers.oauth2.IDToken;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class IDTokenTest {
+
+    private static String createRawIdToken(final String subject) {
+        final JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(subject)
+                .claim(IDToken.PREFERRED_USERNAME, "user@contoso.com")
+                .claim(IDToken.ADDRESS, Collections.singletonMap("country", "US"))
+                .build();
+
+        return new PlainJWT(claims).serialize();
+    }
+
+    @Test
+    public void testClaimsAreParsed() throws ServiceException {
+        final IDToken idToken = new IDToken(createRawIdToken("subject-1"));
+        final Map<String, String> claims = idToken.getTokenClaims();
+
+        Assert.assertEquals(3, claims.size());
+        Assert.assertEquals("subject-1", claims.get(IDToken.SUBJECT));
+        Assert.assertEquals("user@contoso.com", claims.get(IDToken.PREFERRED_USERNAME));
+        Assert.assertTrue(claims.get(IDToken.ADDRESS).contains("US"));
+        Assert.assertNull(claims.get(IDToken.EMAIL));
+        Assert.assertEquals("subject-1", claims.entrySet().iterator().next().getValue());
+    }
+
+    @Test
+    public void testSameRawTokenIsDecodedOnce() throws ServiceException {
+        final String rawIdToken = createRawIdToken("subject-2");
+
+        Assert.assertSame(
+                new IDToken(rawIdToken).getTokenClaims(),
+                new IDToken(rawIdToken).getTokenClaims()
+        );
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testClaimsAreUnmodifiable() throws ServiceException {
+        new IDToken(createRawIdToken("subject-3")).getTokenClaims().put(IDToken.SUBJECT, "other");
+    }
+
+    @Test(expected = ServiceException.class)
+    public void testMalformedTokenThrows() throws ServiceException {
+        new IDToken("not-a-jwt");
+    }
+}
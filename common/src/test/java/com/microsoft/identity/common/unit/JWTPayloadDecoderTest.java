@@ -0,0 +1,107 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftIdToken;
+import com.microsoft.identity.common.internal.providers.oauth2.IDToken;
+import com.microsoft.identity.common.internal.providers.oauth2.JWTPayloadDecoder;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class JWTPayloadDecoderTest {
+
+    private static final long EXPIRES_ON = 1538000000L;
+
+    private static final String RAW_ID_TOKEN = new PlainJWT(new JWTClaimsSet.Builder()
+            .subject("subject")
+            .expirationTime(new Date(EXPIRES_ON * 1000))
+            .claim(MicrosoftIdToken.OJBECT_ID, "00000000-0000-0000-66f3-3332eca7ea81")
+            .claim(MicrosoftIdToken.TENANT_ID, "3338040d-6c67-4c5b-b112-36a304b66dad")
+            .claim(IDToken.PREFERRED_USERNAME, "préféré@contoso.com")
+            .claim(IDToken.EMAIL_VERIFIED, true)
+            .claim(IDToken.ADDRESS, Collections.singletonMap("country", "US"))
+            .build()
+    ).serialize();
+
+    @Test
+    public void testRequestedClaimsAreDecoded() throws ServiceException {
+        final Map<String, String> claims = JWTPayloadDecoder.decodeClaims(
+                RAW_ID_TOKEN,
+                new HashSet<>(Arrays.asList(
+                        MicrosoftIdToken.OJBECT_ID,
+                        MicrosoftIdToken.TENANT_ID,
+                        IDToken.PREFERRED_USERNAME,
+                        "exp",
+                        "missing"
+                ))
+        );
+
+        Assert.assertEquals(4, claims.size());
+        Assert.assertEquals("00000000-0000-0000-66f3-3332eca7ea81", claims.get(MicrosoftIdToken.OJBECT_ID));
+        Assert.assertEquals("3338040d-6c67-4c5b-b112-36a304b66dad", claims.get(MicrosoftIdToken.TENANT_ID));
+        Assert.assertEquals("préféré@contoso.com", claims.get(IDToken.PREFERRED_USERNAME));
+        Assert.assertEquals(String.valueOf(EXPIRES_ON), claims.get("exp"));
+    }
+
+    @Test
+    public void testAllClaimsAreDecodedWhenNoneRequested() throws ServiceException {
+        final Map<String, String> claims = JWTPayloadDecoder.decodeClaims(RAW_ID_TOKEN, null);
+
+        Assert.assertEquals(7, claims.size());
+        Assert.assertEquals("true", claims.get(IDToken.EMAIL_VERIFIED));
+        Assert.assertEquals("{\"country\":\"US\"}", claims.get(IDToken.ADDRESS));
+        Assert.assertEquals(
+                IDToken.parseJWT(RAW_ID_TOKEN).get(IDToken.SUBJECT),
+                claims.get(IDToken.SUBJECT)
+        );
+    }
+
+    @Test
+    public void testSingleClaim() throws ServiceException {
+        Assert.assertEquals("subject", JWTPayloadDecoder.decodeClaim(RAW_ID_TOKEN, IDToken.SUBJECT));
+        Assert.assertNull(JWTPayloadDecoder.decodeClaim(RAW_ID_TOKEN, IDToken.PHONE_NUMBER));
+    }
+
+    @Test(expected = ServiceException.class)
+    public void testMissingPayloadThrows() throws ServiceException {
+        JWTPayloadDecoder.decodeClaims("header-only", null);
+    }
+
+    @Test(expected = ServiceException.class)
+    public void testInvalidPayloadThrows() throws ServiceException {
+        JWTPayloadDecoder.decodeClaims("eyJhbGciOiJub25lIn0.not+base64url.", null);
+    }
+}
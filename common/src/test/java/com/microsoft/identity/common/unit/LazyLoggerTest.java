@@ -0,0 +1,107 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.internal.logging.ILogMessageSupplier;
+import com.microsoft.identity.common.internal.logging.ILoggerCallback;
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class LazyLoggerTest {
+
+    private static final String TAG = "LazyLoggerTest";
+
+    private final List<String> mMessages = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Logger.getInstance().setAsyncMode(false);
+        Logger.getInstance().setExternalLogger(new ILoggerCallback() {
+            @Override
+            public void log(String tag, Logger.LogLevel logLevel, String message, boolean containsPII) {
+                if (TAG.equals(tag)) {
+                    mMessages.add(message);
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.VERBOSE);
+        Logger.setAllowPii(false);
+        Logger.getInstance().setExternalLogger(null);
+    }
+
+    @Test
+    public void testSupplierIsNotInvokedBelowLogLevel() {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.INFO);
+        Logger.verbose(TAG, new ILogMessageSupplier() {
+            @Override
+            public String get() {
+                Assert.fail("Supplier invoked for a message that is not logged.");
+                return null;
+            }
+        });
+
+        Logger.info(TAG, new ILogMessageSupplier() {
+            @Override
+            public String get() {
+                return "supplied message";
+            }
+        });
+
+        Assert.assertEquals(1, mMessages.size());
+        Assert.assertTrue(mMessages.get(0).contains("supplied message"));
+    }
+
+    @Test
+    public void testFormatArgumentsAreNotFormattedWithoutPii() {
+        final Object argument = new Object() {
+            @Override
+            public String toString() {
+                Assert.fail("Argument formatted for a PII message while PII is disabled.");
+                return null;
+            }
+        };
+
+        Logger.setAllowPii(false);
+        Logger.verbosePIIFormat(TAG, "key: [%s]", argument);
+        Assert.assertTrue(mMessages.isEmpty());
+
+        Logger.setAllowPii(true);
+        Logger.verbosePIIFormat(TAG, "key: [%s], count: [%d]", "cache-key", 3);
+        Assert.assertEquals(1, mMessages.size());
+        Assert.assertTrue(mMessages.get(0).contains("key: [cache-key], count: [3]"));
+    }
+}
@@ -0,0 +1,125 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.internal.metrics.Histogram;
+import com.microsoft.identity.common.internal.metrics.IMetricsSink;
+import com.microsoft.identity.common.internal.metrics.InMemoryMetricsSink;
+import com.microsoft.identity.common.internal.metrics.Metrics;
+import com.microsoft.identity.common.internal.metrics.NoOpMetricsSink;
+import com.microsoft.identity.common.internal.metrics.Timer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class MetricsTest {
+
+    private static final String COUNTER = "test.counter";
+    private static final String TIMER = "test.timer";
+    private static final String HISTOGRAM = "test.histogram";
+
+    @After
+    public void tearDown() {
+        Metrics.setSink(null);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        Assert.assertSame(NoOpMetricsSink.INSTANCE, Metrics.getSink());
+        Assert.assertFalse(Metrics.isEnabled());
+        Assert.assertEquals(Metrics.TIMER_NOT_STARTED, Metrics.startTimer());
+    }
+
+    @Test
+    public void testInMemorySinkAggregates() {
+        final InMemoryMetricsSink sink = new InMemoryMetricsSink();
+        Metrics.setSink(sink);
+        Assert.assertTrue(Metrics.isEnabled());
+
+        Metrics.increment(COUNTER);
+        Metrics.increment(COUNTER, 2);
+        Metrics.recordTime(TIMER, TimeUnit.MILLISECONDS.toNanos(5));
+        Metrics.recordTime(TIMER, TimeUnit.MILLISECONDS.toNanos(15));
+        Metrics.recordValue(HISTOGRAM, 7);
+
+        Assert.assertEquals(3, sink.getCount(COUNTER));
+
+        final Timer timer = sink.getTimer(TIMER);
+        Assert.assertNotNull(timer);
+        Assert.assertEquals(2, timer.getCount());
+        Assert.assertEquals(20, timer.getTotalTimeMillis());
+        Assert.assertEquals(15, timer.getMaxTimeMillis());
+
+        final Histogram histogram = sink.getHistogram(HISTOGRAM);
+        Assert.assertNotNull(histogram);
+        Assert.assertEquals(1, histogram.getCount());
+        Assert.assertEquals(7, histogram.getMax());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        final Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(1, histogram.getMin());
+        Assert.assertEquals(100, histogram.getMax());
+        Assert.assertEquals(50.5, histogram.getMean(), 0.0001);
+        // Power of two buckets: the 50th value (50) falls in [32, 63].
+        Assert.assertEquals(63, histogram.getPercentile(50));
+        // The 99th value (99) falls in [64, 127], capped at the maximum.
+        Assert.assertEquals(100, histogram.getPercentile(99));
+        Assert.assertEquals(1, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void testCustomSinkReceivesTimer() {
+        final long[] recorded = new long[1];
+        Metrics.setSink(new IMetricsSink() {
+            @Override
+            public void onCount(String name, long delta) {
+            }
+
+            @Override
+            public void onTime(String name, long durationNanos) {
+                recorded[0] = durationNanos;
+            }
+
+            @Override
+            public void onValue(String name, long value) {
+            }
+        });
+
+        final long startTime = Metrics.startTimer();
+        Assert.assertNotEquals(Metrics.TIMER_NOT_STARTED, startTime);
+        Metrics.stopTimer(TIMER, startTime);
+        Assert.assertTrue(recorded[0] >= 0);
+    }
+}
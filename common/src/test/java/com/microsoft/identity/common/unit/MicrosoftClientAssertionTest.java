@@ -0,0 +1,98 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.internal.providers.keys.CertificateCredential;
+import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftClientAssertion;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jwt.SignedJWT;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Collections;
+
+@RunWith(JUnit4.class)
+public class MicrosoftClientAssertionTest {
+
+    private static final String CLIENT_ID = "client-id";
+    private static final String AUDIENCE = "https://login.microsoftonline.com/common/oauth2/v2.0/token";
+
+    private KeyPair mKeyPair;
+    private CertificateCredential mCredential;
+
+    @Before
+    public void setUp() throws Exception {
+        MicrosoftClientAssertion.clearCache();
+
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        mKeyPair = generator.generateKeyPair();
+
+        final X509Certificate certificate = Mockito.mock(X509Certificate.class);
+        Mockito.when(certificate.getEncoded()).thenReturn(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        mCredential = new CertificateCredential.CertificateCredentialBuilder(CLIENT_ID)
+                .certificate(certificate)
+                .privateKey(mKeyPair.getPrivate())
+                .build();
+    }
+
+    @Test
+    public void testAssertionIsSignedAndValid() throws Exception {
+        final SignedJWT jwt = SignedJWT.parse(
+                new MicrosoftClientAssertion(AUDIENCE, mCredential).getClientAssertion()
+        );
+
+        Assert.assertTrue(jwt.verify(new RSASSAVerifier((RSAPublicKey) mKeyPair.getPublic())));
+        Assert.assertEquals(1, jwt.getHeader().getX509CertChain().size());
+        Assert.assertNotNull(jwt.getHeader().getX509CertThumbprint());
+        Assert.assertEquals(Collections.singletonList(AUDIENCE), jwt.getJWTClaimsSet().getAudience());
+        Assert.assertEquals(CLIENT_ID, jwt.getJWTClaimsSet().getIssuer());
+        Assert.assertTrue(jwt.getJWTClaimsSet().getExpirationTime().getTime() > System.currentTimeMillis());
+    }
+
+    @Test
+    public void testAssertionIsReusedForSameAudience() throws Exception {
+        Assert.assertEquals(
+                new MicrosoftClientAssertion(AUDIENCE, mCredential).getClientAssertion(),
+                new MicrosoftClientAssertion(AUDIENCE, mCredential).getClientAssertion()
+        );
+    }
+
+    @Test
+    public void testAssertionIsNotReusedForOtherAudience() throws Exception {
+        Assert.assertNotEquals(
+                new MicrosoftClientAssertion(AUDIENCE, mCredential).getClientAssertion(),
+                new MicrosoftClientAssertion(AUDIENCE + "/other", mCredential).getClientAssertion()
+        );
+    }
+}
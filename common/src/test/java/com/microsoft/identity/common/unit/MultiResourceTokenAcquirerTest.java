@@ -0,0 +1,157 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.cache.CacheRecord;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.controllers.MultiResourceTokenAcquirer;
+import com.microsoft.identity.common.internal.controllers.RefreshTokenRedeemer;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+
+@RunWith(JUnit4.class)
+public class MultiResourceTokenAcquirerTest {
+
+    private RefreshTokenRedeemer<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> mRedeemer;
+    private OAuth2TokenCache<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> mTokenCache;
+    private MultiResourceTokenAcquirer<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> mAcquirer;
+    private AccountRecord mAccount;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        mRedeemer = Mockito.mock(RefreshTokenRedeemer.class);
+        mTokenCache = Mockito.mock(OAuth2TokenCache.class);
+        Mockito.when(mRedeemer.getTokenCache()).thenReturn(mTokenCache);
+        Mockito.when(mTokenCache.saveAll(
+                any(MicrosoftStsOAuth2Strategy.class),
+                anyListOf(MicrosoftStsAuthorizationRequest.class),
+                anyListOf(MicrosoftStsTokenResponse.class))
+        ).thenAnswer(new Answer<List<ICacheRecord>>() {
+            @Override
+            public List<ICacheRecord> answer(final InvocationOnMock invocation) {
+                final List<ICacheRecord> result = new ArrayList<>();
+                for (final Object ignored : (List<?>) invocation.getArguments()[1]) {
+                    result.add(new CacheRecord());
+                }
+                return result;
+            }
+        });
+
+        mAccount = new AccountRecord();
+        mAccount.setHomeAccountId("uid.utid");
+        mAccount.setEnvironment("login.microsoftonline.com");
+
+        mAcquirer = new MultiResourceTokenAcquirer<>(mRedeemer, 3);
+    }
+
+    @After
+    public void tearDown() {
+        mAcquirer.shutdown();
+    }
+
+    @Test
+    public void testRequestsAreSentInParallelAndSavedOnce() throws Exception {
+        final List<MicrosoftStsAuthorizationRequest> requests = requestsFor("a", "b", "c");
+        final CountDownLatch allStarted = new CountDownLatch(requests.size());
+
+        Mockito.when(mRedeemer.requestTokens(any(AccountRecord.class), any(MicrosoftStsAuthorizationRequest.class)))
+                .thenAnswer(new Answer<MicrosoftStsTokenResponse>() {
+                    @Override
+                    public MicrosoftStsTokenResponse answer(final InvocationOnMock invocation) throws Throwable {
+                        // Only completes if every request is in flight at the same time
+                        allStarted.countDown();
+                        Assert.assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+                        return new MicrosoftStsTokenResponse();
+                    }
+                });
+
+        final List<ICacheRecord> result = mAcquirer.acquireTokens(mAccount, requests);
+
+        Assert.assertEquals(requests.size(), result.size());
+        Mockito.verify(mTokenCache, Mockito.times(1)).saveAll(
+                any(MicrosoftStsOAuth2Strategy.class),
+                Mockito.eq(requests),
+                anyListOf(MicrosoftStsTokenResponse.class)
+        );
+    }
+
+    @Test
+    public void testSuccessfulResultsAreSavedWhenOneFails() throws Exception {
+        final List<MicrosoftStsAuthorizationRequest> requests = requestsFor("a", "b");
+        Mockito.when(mRedeemer.requestTokens(mAccount, requests.get(0)))
+                .thenThrow(new ServiceException("invalid_resource", null, 400, null));
+        Mockito.when(mRedeemer.requestTokens(mAccount, requests.get(1)))
+                .thenReturn(new MicrosoftStsTokenResponse());
+
+        try {
+            mAcquirer.acquireTokens(mAccount, requests);
+            Assert.fail("Expected ServiceException");
+        } catch (final ServiceException e) {
+            Assert.assertEquals("invalid_resource", e.getErrorCode());
+        }
+
+        Mockito.verify(mTokenCache).saveAll(
+                any(MicrosoftStsOAuth2Strategy.class),
+                Mockito.eq(Collections.singletonList(requests.get(1))),
+                anyListOf(MicrosoftStsTokenResponse.class)
+        );
+    }
+
+    private static List<MicrosoftStsAuthorizationRequest> requestsFor(final String... scopes) {
+        final List<MicrosoftStsAuthorizationRequest> requests = new ArrayList<>();
+
+        for (final String scope : Arrays.asList(scopes)) {
+            final MicrosoftStsAuthorizationRequest request = Mockito.mock(MicrosoftStsAuthorizationRequest.class);
+            Mockito.when(request.getClientId()).thenReturn("client-id");
+            Mockito.when(request.getScope()).thenReturn(scope);
+            requests.add(request);
+        }
+
+        return requests;
+    }
+}
@@ -0,0 +1,125 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
+import com.microsoft.identity.common.internal.logging.IRequestContext;
+import com.microsoft.identity.common.internal.logging.RequestContext;
+import com.microsoft.identity.common.internal.logging.RequestContextPropagator;
+import com.microsoft.identity.common.internal.logging.TraceSpan;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class RequestContextPropagatorTest {
+
+    private static final String CORRELATION_ID = "b2f8c6a1-3a53-4b1e-9d0f-4b0c7a9e2d11";
+
+    private final ExecutorService mExecutorService = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() throws InterruptedException {
+        DiagnosticContext.clear();
+        mExecutorService.shutdownNow();
+        mExecutorService.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testExecutorPropagatesContext() throws Exception {
+        setCorrelationId(CORRELATION_ID);
+        final Executor executor = RequestContextPropagator.wrap(mExecutorService);
+
+        final String[] seen = new String[2];
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                seen[0] = DiagnosticContext.getRequestContext().get(DiagnosticContext.CORRELATION_ID);
+            }
+        });
+
+        // A task submitted without the wrapper sees the default context afterwards
+        seen[1] = mExecutorService.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return DiagnosticContext.getRequestContext().get(DiagnosticContext.CORRELATION_ID);
+            }
+        }).get(1, TimeUnit.SECONDS);
+
+        Assert.assertEquals(CORRELATION_ID, seen[0]);
+        Assert.assertEquals("UNSET", seen[1]);
+    }
+
+    @Test
+    public void testCallableRestoresPreviousContext() throws Exception {
+        setCorrelationId(CORRELATION_ID);
+        final Callable<String> callable = RequestContextPropagator.wrap(new Callable<String>() {
+            @Override
+            public String call() {
+                return DiagnosticContext.getRequestContext().get(DiagnosticContext.CORRELATION_ID);
+            }
+        });
+
+        setCorrelationId("other");
+        Assert.assertEquals(CORRELATION_ID, callable.call());
+        Assert.assertEquals("other", DiagnosticContext.getRequestContext().get(DiagnosticContext.CORRELATION_ID));
+    }
+
+    @Test
+    public void testSpanParentAcrossThreads() throws Exception {
+        setCorrelationId(CORRELATION_ID);
+        final TraceSpan parent = TraceSpan.start("parent");
+        Assert.assertNull(parent.getParentSpanId());
+
+        final TraceSpan child = mExecutorService.submit(RequestContextPropagator.wrap(new Callable<TraceSpan>() {
+            @Override
+            public TraceSpan call() {
+                final TraceSpan span = TraceSpan.start("child");
+                span.end();
+                return span;
+            }
+        })).get(1, TimeUnit.SECONDS);
+
+        Assert.assertEquals(parent.getSpanId(), child.getParentSpanId());
+        Assert.assertEquals(parent.getSpanId(), DiagnosticContext.getRequestContext().get(DiagnosticContext.SPAN_ID));
+
+        Assert.assertTrue(parent.end() >= 0);
+        Assert.assertEquals(0, parent.end());
+        Assert.assertNull(DiagnosticContext.getRequestContext().get(DiagnosticContext.SPAN_ID));
+    }
+
+    private static void setCorrelationId(final String correlationId) {
+        final IRequestContext requestContext = new RequestContext();
+        requestContext.put(DiagnosticContext.CORRELATION_ID, correlationId);
+        DiagnosticContext.setRequestContext(requestContext);
+    }
+}
@@ -0,0 +1,219 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Configuration;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.ITokenRequestCallback;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResult;
+import com.microsoft.identity.common.loadtest.StubStsServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class RequestTokenAsyncTest {
+
+    private static final String CLIENT_ID = "4b0db8c2-9f26-4417-8bde-3f0e3656f8e0";
+    private static final String REFRESH_TOKEN = "OAQABAAAAAABHh4kmS_aKT5XrjzxRAtHz";
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final ExecutorService mExecutorService = Executors.newSingleThreadExecutor();
+    private StubStsServer mServer;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new StubStsServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.close();
+        mExecutorService.shutdownNow();
+        mExecutorService.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSuccessIsDeliveredToCallback() throws Exception {
+        final RecordingCallback callback = new RecordingCallback();
+        final Future<TokenResult> future = createStrategy().requestTokenAsync(
+                createTokenRequest(),
+                mExecutorService,
+                callback
+        );
+
+        callback.await();
+        Assert.assertTrue(future.isDone());
+        Assert.assertNull(callback.mError);
+        Assert.assertTrue(callback.mResult.getSuccess());
+        Assert.assertSame(callback.mResult, future.get());
+    }
+
+    @Test
+    public void testErrorResponseIsDeliveredAsResult() throws Exception {
+        mServer.setThrottleRate(1);
+        final RecordingCallback callback = new RecordingCallback();
+        createStrategy().requestTokenAsync(createTokenRequest(), mExecutorService, callback);
+
+        callback.await();
+        Assert.assertNull(callback.mError);
+        Assert.assertFalse(callback.mResult.getSuccess());
+        Assert.assertEquals("temporarily_unavailable", callback.mResult.getErrorResponse().getError());
+    }
+
+    @Test
+    public void testFailureIsDeliveredToCallback() throws Exception {
+        final MicrosoftStsOAuth2Strategy strategy = createStrategy();
+        // Nothing is listening on the endpoint any more
+        mServer.close();
+
+        final RecordingCallback callback = new RecordingCallback();
+        strategy.requestTokenAsync(createTokenRequest(), mExecutorService, callback);
+
+        callback.await();
+        Assert.assertNull(callback.mResult);
+        Assert.assertTrue(callback.mError instanceof IOException);
+    }
+
+    @Test
+    public void testCancelBeforeStart() throws Exception {
+        final HeldExecutor executor = new HeldExecutor();
+        final RecordingCallback callback = new RecordingCallback();
+        final Future<TokenResult> future = createStrategy().requestTokenAsync(
+                createTokenRequest(),
+                executor,
+                callback
+        );
+
+        Assert.assertTrue(future.cancel(true));
+        callback.await();
+        Assert.assertTrue(callback.mError instanceof CancellationException);
+        // The callback runs on the cancelling thread
+        Assert.assertSame(Thread.currentThread(), callback.mThread);
+
+        executor.mCommand.run();
+        Assert.assertEquals(0, mServer.getRequestCount());
+    }
+
+    @Test
+    public void testCancelInFlightDisconnects() throws Exception {
+        // Long enough that the test times out unless cancelling disconnects the request
+        mServer.setLatency(TimeUnit.SECONDS.toMillis(30), 0);
+        final RecordingCallback callback = new RecordingCallback();
+        final Future<TokenResult> future = createStrategy().requestTokenAsync(
+                createTokenRequest(),
+                mExecutorService,
+                callback
+        );
+
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (mServer.getRequestCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, mServer.getRequestCount());
+
+        Assert.assertTrue(future.cancel(true));
+        callback.await();
+        Assert.assertTrue(callback.mError instanceof CancellationException);
+
+        // The executor thread is only free again once the connection was disconnected
+        mExecutorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                // Drain the executor
+            }
+        }).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private MicrosoftStsOAuth2Strategy createStrategy() {
+        final MicrosoftStsOAuth2Configuration config = new MicrosoftStsOAuth2Configuration() {
+            @Override
+            public URL getTokenEndpoint() {
+                return mServer.getTokenEndpoint();
+            }
+        };
+        config.setAuthorityUrl(mServer.getAuthorityUrl());
+
+        return new MicrosoftStsOAuth2Strategy(config);
+    }
+
+    private static MicrosoftStsTokenRequest createTokenRequest() {
+        final MicrosoftStsTokenRequest tokenRequest = new MicrosoftStsTokenRequest();
+        tokenRequest.setGrantType(TokenRequest.GrantTypes.REFRESH_TOKEN);
+        tokenRequest.setRefreshToken(REFRESH_TOKEN);
+        tokenRequest.setClientId(CLIENT_ID);
+        return tokenRequest;
+    }
+
+    private static final class HeldExecutor implements Executor {
+        private Runnable mCommand;
+
+        @Override
+        public void execute(@NonNull final Runnable command) {
+            mCommand = command;
+        }
+    }
+
+    private static final class RecordingCallback implements ITokenRequestCallback<TokenResult> {
+        private final CountDownLatch mLatch = new CountDownLatch(1);
+        private volatile TokenResult mResult;
+        private volatile Throwable mError;
+        private volatile Thread mThread;
+
+        @Override
+        public void onSuccess(final TokenResult result) {
+            mResult = result;
+            mThread = Thread.currentThread();
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            mError = throwable;
+            mThread = Thread.currentThread();
+            mLatch.countDown();
+        }
+
+        void await() throws InterruptedException {
+            Assert.assertTrue(mLatch.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        }
+    }
+}
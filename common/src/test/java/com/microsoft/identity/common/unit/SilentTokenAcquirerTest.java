@@ -0,0 +1,243 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.cache.CacheRecord;
+import com.microsoft.identity.common.internal.controllers.RefreshTokenRedeemer;
+import com.microsoft.identity.common.internal.controllers.SilentTokenAcquirer;
+import com.microsoft.identity.common.internal.controllers.SilentTokenResult;
+import com.microsoft.identity.common.internal.controllers.TokenRefreshScheduler;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryOAuth2Configuration;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryTokenRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryTokenResponse;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+import com.microsoft.identity.common.internal.util.CancellationSignal;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+
+@RunWith(JUnit4.class)
+public class SilentTokenAcquirerTest {
+
+    private static final String CLIENT_ID = "client-id";
+    private static final String SCOPES = "user.read";
+
+    private RefreshTokenRedeemer<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> mRedeemer;
+    private TokenRefreshScheduler<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> mScheduler;
+    private SilentTokenAcquirer<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> mAcquirer;
+    private AccountRecord mAccount;
+    private MicrosoftStsAuthorizationRequest mRequest;
+    private CacheRecord mCacheRecord;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        mRedeemer = Mockito.mock(RefreshTokenRedeemer.class);
+        mScheduler = Mockito.mock(TokenRefreshScheduler.class);
+        final OAuth2TokenCache<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> tokenCache =
+                Mockito.mock(OAuth2TokenCache.class);
+        Mockito.when(mRedeemer.getTokenCache()).thenReturn(tokenCache);
+
+        mAccount = new AccountRecord();
+        mAccount.setHomeAccountId("uid.utid");
+        mAccount.setEnvironment("login.microsoftonline.com");
+
+        mRequest = Mockito.mock(MicrosoftStsAuthorizationRequest.class);
+        Mockito.when(mRequest.getClientId()).thenReturn(CLIENT_ID);
+        Mockito.when(mRequest.getScope()).thenReturn(SCOPES);
+
+        mCacheRecord = new CacheRecord();
+        Mockito.when(tokenCache.load(CLIENT_ID, SCOPES, mAccount)).thenReturn(mCacheRecord);
+
+        mAcquirer = new SilentTokenAcquirer<>(mRedeemer, mScheduler);
+    }
+
+    @Test
+    public void testValidTokenIsReturnedFromCache() throws Exception {
+        mCacheRecord.setAccessToken(accessToken(TimeUnit.HOURS.toSeconds(1), TimeUnit.HOURS.toSeconds(2)));
+
+        final SilentTokenResult result = mAcquirer.acquireTokenSilent(mAccount, mRequest);
+
+        Assert.assertSame(mCacheRecord, result.getCacheRecord());
+        Assert.assertFalse(result.isServedFromExtendedLifetime());
+        Mockito.verify(mRedeemer, Mockito.never()).redeem(mAccount, mRequest);
+    }
+
+    @Test
+    public void testTokenWithinExtendedLifetimeIsRefreshed() throws Exception {
+        mCacheRecord.setAccessToken(accessToken(-60, TimeUnit.HOURS.toSeconds(1)));
+        final CacheRecord refreshed = new CacheRecord();
+        Mockito.when(mRedeemer.redeem(mAccount, mRequest)).thenReturn(refreshed);
+
+        final SilentTokenResult result = mAcquirer.acquireTokenSilent(mAccount, mRequest);
+
+        Assert.assertSame(refreshed, result.getCacheRecord());
+        Assert.assertFalse(result.isServedFromExtendedLifetime());
+    }
+
+    @Test
+    public void testFallbackOnServerError() throws Exception {
+        mAcquirer.setExtendedExpiryFallbackEnabled(true);
+        mCacheRecord.setAccessToken(accessToken(-60, TimeUnit.HOURS.toSeconds(1)));
+        Mockito.when(mRedeemer.redeem(mAccount, mRequest))
+                .thenThrow(new ServiceException("temporarily_unavailable", null, 503, null));
+
+        final SilentTokenResult result = mAcquirer.acquireTokenSilent(mAccount, mRequest);
+
+        Assert.assertSame(mCacheRecord, result.getCacheRecord());
+        Assert.assertTrue(result.isServedFromExtendedLifetime());
+        Mockito.verify(mScheduler).scheduleRetry(mCacheRecord.getAccessToken(), mAccount, mRequest);
+    }
+
+    @Test
+    public void testFallbackOnAzureActiveDirectoryServerError() throws Exception {
+        Assert.assertTrue(acquireFromAzureActiveDirectory("{\"error\":\"server_error\"}").isServedFromExtendedLifetime());
+    }
+
+    @Test
+    public void testFallbackOnAzureActiveDirectoryEmptyServerError() throws Exception {
+        Assert.assertTrue(acquireFromAzureActiveDirectory("").isServedFromExtendedLifetime());
+    }
+
+    @Test
+    public void testFallbackOnAzureActiveDirectoryHtmlServerError() throws Exception {
+        Assert.assertTrue(acquireFromAzureActiveDirectory("<html><body>Service Unavailable</body></html>").isServedFromExtendedLifetime());
+    }
+
+    @Test
+    public void testFallbackOnTimeout() throws Exception {
+        mAcquirer.setExtendedExpiryFallbackEnabled(true);
+        mCacheRecord.setAccessToken(accessToken(-60, TimeUnit.HOURS.toSeconds(1)));
+        Mockito.when(mRedeemer.redeem(mAccount, mRequest)).thenThrow(new SocketTimeoutException());
+
+        Assert.assertTrue(mAcquirer.acquireTokenSilent(mAccount, mRequest).isServedFromExtendedLifetime());
+    }
+
+    @Test(expected = ServiceException.class)
+    public void testNoFallbackWhenDisabled() throws Exception {
+        mCacheRecord.setAccessToken(accessToken(-60, TimeUnit.HOURS.toSeconds(1)));
+        Mockito.when(mRedeemer.redeem(mAccount, mRequest))
+                .thenThrow(new ServiceException("temporarily_unavailable", null, 503, null));
+
+        mAcquirer.acquireTokenSilent(mAccount, mRequest);
+    }
+
+    @Test(expected = ServiceException.class)
+    public void testNoFallbackOnClientError() throws Exception {
+        mAcquirer.setExtendedExpiryFallbackEnabled(true);
+        mCacheRecord.setAccessToken(accessToken(-60, TimeUnit.HOURS.toSeconds(1)));
+        Mockito.when(mRedeemer.redeem(mAccount, mRequest))
+                .thenThrow(new ServiceException("invalid_grant", null, 400, null));
+
+        mAcquirer.acquireTokenSilent(mAccount, mRequest);
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void testNoFallbackPastExtendedLifetime() throws Exception {
+        mAcquirer.setExtendedExpiryFallbackEnabled(true);
+        mCacheRecord.setAccessToken(accessToken(-120, -60));
+        Mockito.when(mRedeemer.redeem(mAccount, mRequest)).thenThrow(new SocketTimeoutException());
+
+        try {
+            mAcquirer.acquireTokenSilent(mAccount, mRequest);
+        } finally {
+            Mockito.verify(mScheduler, Mockito.never()).scheduleRetry(
+                    any(AccessTokenRecord.class),
+                    any(AccountRecord.class),
+                    any(MicrosoftStsAuthorizationRequest.class)
+            );
+        }
+    }
+
+    /**
+     * Acquires a token within its extended lifetime through a real {@link RefreshTokenRedeemer}
+     * and AAD strategy whose token endpoint answers 503 with the supplied body.
+     */
+    @SuppressWarnings("unchecked")
+    private SilentTokenResult acquireFromAzureActiveDirectory(final String errorBody) throws Exception {
+        final AzureActiveDirectoryOAuth2Strategy strategy = new AzureActiveDirectoryOAuth2Strategy(
+                new AzureActiveDirectoryOAuth2Configuration()) {
+            @Override
+            public AzureActiveDirectoryTokenRequest createRefreshTokenRequest(final RefreshTokenRecord refreshToken,
+                                                                              final List<String> scopes) {
+                return new AzureActiveDirectoryTokenRequest();
+            }
+
+            @Override
+            protected HttpResponse performTokenRequest(final AzureActiveDirectoryTokenRequest request,
+                                                       final CancellationSignal cancellationSignal) {
+                return new HttpResponse(
+                        HttpURLConnection.HTTP_UNAVAILABLE,
+                        errorBody,
+                        Collections.<String, List<String>>emptyMap()
+                );
+            }
+        };
+
+        final OAuth2TokenCache<AzureActiveDirectoryOAuth2Strategy, AzureActiveDirectoryAuthorizationRequest, AzureActiveDirectoryTokenResponse> tokenCache =
+                Mockito.mock(OAuth2TokenCache.class);
+        final AzureActiveDirectoryAuthorizationRequest request = Mockito.mock(AzureActiveDirectoryAuthorizationRequest.class);
+        Mockito.when(request.getClientId()).thenReturn(CLIENT_ID);
+        Mockito.when(request.getScope()).thenReturn(SCOPES);
+        mCacheRecord.setAccessToken(accessToken(-60, TimeUnit.HOURS.toSeconds(1)));
+        mCacheRecord.setRefreshToken(new RefreshTokenRecord());
+        Mockito.when(tokenCache.load(CLIENT_ID, SCOPES, mAccount)).thenReturn(mCacheRecord);
+
+        final SilentTokenAcquirer<AzureActiveDirectoryOAuth2Strategy, AzureActiveDirectoryAuthorizationRequest, AzureActiveDirectoryTokenResponse> acquirer =
+                new SilentTokenAcquirer<>(new RefreshTokenRedeemer<>(strategy, tokenCache), null);
+        acquirer.setExtendedExpiryFallbackEnabled(true);
+
+        return acquirer.acquireTokenSilent(mAccount, request);
+    }
+
+    private static AccessTokenRecord accessToken(final long expiresInSeconds,
+                                                 final long extendedExpiresInSeconds) {
+        final long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setExpiresOn(String.valueOf(now + expiresInSeconds));
+        accessToken.setExtendedExpiresOn(String.valueOf(now + extendedExpiresInSeconds));
+        return accessToken;
+    }
+}
@@ -0,0 +1,160 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import android.content.Context;
+
+import com.microsoft.identity.common.internal.controllers.RefreshTokenRedeemer;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenResponse;
+import com.microsoft.identity.common.loadtest.InMemoryTokenCache;
+import com.microsoft.identity.common.loadtest.LoadReport;
+import com.microsoft.identity.common.loadtest.StubStsServer;
+import com.microsoft.identity.common.loadtest.TokenFlows;
+import com.microsoft.identity.common.loadtest.TokenLoadDriver;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.util.HashMap;
+
+/**
+ * Small load runs of the token flows against {@link StubStsServer}. The sizes are kept low so the
+ * suite stays fast; larger runs use the same driver with more threads and operations.
+ */
+@RunWith(JUnit4.class)
+public class TokenFlowLoadTest {
+
+    private static final String CLIENT_ID = "4b0db8c2-9f26-4417-8bde-3f0e3656f8e0";
+    private static final String SCOPE = "user.read openid profile offline_access";
+    private static final String REFRESH_TOKEN = "refresh-token";
+    private static final int THREADS = 4;
+
+    private StubStsServer mServer;
+    private MicrosoftStsOAuth2Strategy mStrategy;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new StubStsServer();
+        mServer.setLatency(2, 3);
+        mStrategy = TokenFlows.createStrategy(mServer);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.close();
+    }
+
+    @Test
+    public void testRequestTokenUnderLoad() throws Exception {
+        final LoadReport report = new TokenLoadDriver(THREADS, 200, 0).run(
+                "requestToken",
+                TokenFlows.requestToken(mStrategy, CLIENT_ID, SCOPE, REFRESH_TOKEN),
+                mServer
+        );
+
+        Assert.assertNull(report.getFirstFailure());
+        Assert.assertEquals(200, report.getOperationCount());
+        Assert.assertEquals(200, report.getServerRequestCount());
+        Assert.assertTrue(report.getConnectionCount() > 0);
+        Assert.assertTrue(report.getMaxOpenConnectionCount() <= report.getConnectionCount());
+        Assert.assertTrue(report.getP50LatencyMillis() >= 2);
+        Assert.assertTrue(report.getP99LatencyMillis() >= report.getP50LatencyMillis());
+        Assert.assertTrue(report.getThroughputPerSecond() > 0);
+    }
+
+    @Test
+    public void testRefreshAndSaveAtTargetRate() throws Exception {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId("00000000-0000-0000-66f3-3332eca7ea81.72f988bf-86f1-41af-91ab-2d7cd011db47");
+        account.setEnvironment("login.microsoftonline.com");
+        account.setRealm("72f988bf-86f1-41af-91ab-2d7cd011db47");
+
+        final InMemoryTokenCache tokenCache = new InMemoryTokenCache(
+                Mockito.mock(Context.class),
+                account,
+                CLIENT_ID,
+                REFRESH_TOKEN
+        );
+        final RefreshTokenRedeemer<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> redeemer =
+                new RefreshTokenRedeemer<>(mStrategy, tokenCache);
+
+        final MicrosoftStsAuthorizationRequest request = Mockito.mock(MicrosoftStsAuthorizationRequest.class);
+        Mockito.when(request.getClientId()).thenReturn(CLIENT_ID);
+        Mockito.when(request.getScope()).thenReturn(SCOPE);
+
+        // 100 operations at 250 per second take at least 0.4 seconds
+        final LoadReport report = new TokenLoadDriver(THREADS, 100, 250).run(
+                "refreshAndSave",
+                TokenFlows.refreshAndSave(redeemer, account, request),
+                mServer
+        );
+
+        Assert.assertNull(report.getFirstFailure());
+        Assert.assertEquals(100, report.getServerRequestCount());
+        Assert.assertTrue(report.getThroughputPerSecond() <= 250 * 1.1);
+        Assert.assertNotNull(tokenCache.load(CLIENT_ID, "User.Read openid profile", account).getAccessToken());
+    }
+
+    @Test
+    public void testThrottledRequestsFail() throws Exception {
+        mServer.setThrottleRate(1);
+
+        final LoadReport report = new TokenLoadDriver(THREADS, 20, 0).run(
+                "throttled",
+                TokenFlows.requestToken(mStrategy, CLIENT_ID, SCOPE, REFRESH_TOKEN),
+                mServer
+        );
+
+        // 429 is not retried by HttpRequest
+        Assert.assertEquals(20, report.getFailureCount());
+        Assert.assertEquals(20, report.getThrottledCount());
+        Assert.assertEquals(20, report.getServerRequestCount());
+    }
+
+    @Test
+    public void testDiscoveryEndpoints() throws Exception {
+        final HttpResponse discovery = HttpRequest.sendGet(
+                mServer.getInstanceDiscoveryEndpoint(),
+                new HashMap<String, String>()
+        );
+        Assert.assertEquals(200, discovery.getStatusCode());
+        Assert.assertTrue(discovery.getBody().contains(mServer.getOpenIdConfigurationEndpoint().toString()));
+
+        final HttpResponse openIdConfiguration = HttpRequest.sendGet(
+                mServer.getOpenIdConfigurationEndpoint(),
+                new HashMap<String, String>()
+        );
+        Assert.assertEquals(200, openIdConfiguration.getStatusCode());
+        Assert.assertTrue(openIdConfiguration.getBody().contains(mServer.getTokenEndpoint().toString()));
+    }
+}
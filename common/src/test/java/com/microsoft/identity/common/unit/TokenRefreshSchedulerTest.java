@@ -0,0 +1,190 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.cache.CacheRecord;
+import com.microsoft.identity.common.internal.controllers.RefreshTokenRedeemer;
+import com.microsoft.identity.common.internal.controllers.TokenRefreshScheduler;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+
+@RunWith(JUnit4.class)
+public class TokenRefreshSchedulerTest {
+
+    private static final String CLIENT_ID = "client-id";
+    private static final String SCOPES = "user.read";
+    private static final long VERIFY_TIMEOUT_MILLIS = 2000;
+
+    private RefreshTokenRedeemer<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> mRedeemer;
+    private OAuth2TokenCache<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> mTokenCache;
+    private TokenRefreshScheduler<MicrosoftStsOAuth2Strategy, MicrosoftStsAuthorizationRequest, MicrosoftStsTokenResponse> mScheduler;
+    private AccountRecord mAccount;
+    private MicrosoftStsAuthorizationRequest mRequest;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        mRedeemer = Mockito.mock(RefreshTokenRedeemer.class);
+        mTokenCache = Mockito.mock(OAuth2TokenCache.class);
+        Mockito.when(mRedeemer.getTokenCache()).thenReturn(mTokenCache);
+
+        mAccount = new AccountRecord();
+        mAccount.setHomeAccountId("uid.utid");
+        mAccount.setEnvironment("login.microsoftonline.com");
+
+        mRequest = Mockito.mock(MicrosoftStsAuthorizationRequest.class);
+        Mockito.when(mRequest.getClientId()).thenReturn(CLIENT_ID);
+        Mockito.when(mRequest.getScope()).thenReturn(SCOPES);
+
+        Mockito.when(mRedeemer.requestTokens(mAccount, mRequest))
+                .thenReturn(new MicrosoftStsTokenResponse());
+        Mockito.when(mRedeemer.save(any(MicrosoftStsAuthorizationRequest.class), any(MicrosoftStsTokenResponse.class)))
+                .thenReturn(new CacheRecord());
+        Mockito.when(mRedeemer.redeem(
+                any(AccountRecord.class),
+                any(MicrosoftStsAuthorizationRequest.class),
+                any(RefreshTokenRedeemer.SaveCondition.class)
+        )).thenCallRealMethod();
+
+        // No jitter, refresh anything expiring within the next 5 minutes
+        mScheduler = new TokenRefreshScheduler<>(mRedeemer, TimeUnit.MINUTES.toMillis(5), 0, 1);
+    }
+
+    @After
+    public void tearDown() {
+        mScheduler.shutdown();
+    }
+
+    @Test
+    public void testTokenInsideWindowIsRefreshed() throws Exception {
+        Mockito.when(mTokenCache.getAccount(anyString(), anyString(), anyString())).thenReturn(mAccount);
+
+        mScheduler.schedule(accessTokenExpiringIn(TimeUnit.MINUTES.toSeconds(1)), mAccount, mRequest);
+
+        // Refreshes go through redeem() so that they coalesce with foreground ones
+        Mockito.verify(mRedeemer, Mockito.timeout(VERIFY_TIMEOUT_MILLIS))
+                .redeem(Mockito.eq(mAccount), Mockito.eq(mRequest), any(RefreshTokenRedeemer.SaveCondition.class));
+        Mockito.verify(mRedeemer, Mockito.timeout(VERIFY_TIMEOUT_MILLIS)).requestTokens(mAccount, mRequest);
+        Mockito.verify(mRedeemer, Mockito.timeout(VERIFY_TIMEOUT_MILLIS))
+                .save(any(MicrosoftStsAuthorizationRequest.class), any(MicrosoftStsTokenResponse.class));
+    }
+
+    @Test
+    public void testTokenOutsideWindowIsNotRefreshed() throws Exception {
+        mScheduler.schedule(accessTokenExpiringIn(TimeUnit.HOURS.toSeconds(1)), mAccount, mRequest);
+
+        Thread.sleep(200);
+        Mockito.verify(mRedeemer, Mockito.never()).requestTokens(mAccount, mRequest);
+        Assert.assertEquals(1, mScheduler.getPendingCount());
+    }
+
+    @Test
+    public void testMalformedExpiryIsNotScheduled() throws Exception {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setExpiresOn("not-a-number");
+
+        mScheduler.schedule(accessToken, mAccount, mRequest);
+
+        Assert.assertEquals(0, mScheduler.getPendingCount());
+    }
+
+    @Test
+    public void testMalformedExtendedExpiryIsNotRetried() throws Exception {
+        final AccessTokenRecord accessToken = accessTokenExpiringIn(TimeUnit.MINUTES.toSeconds(1));
+        accessToken.setExtendedExpiresOn("1.5e9");
+
+        mScheduler.scheduleRetry(accessToken, mAccount, mRequest);
+
+        Assert.assertEquals(0, mScheduler.getPendingCount());
+    }
+
+    @Test
+    public void testCancelRemovesPendingRefresh() throws Exception {
+        mScheduler.schedule(accessTokenExpiringIn(TimeUnit.HOURS.toSeconds(1)), mAccount, mRequest);
+
+        Assert.assertEquals(1, mScheduler.cancel(mAccount));
+        Assert.assertEquals(0, mScheduler.getPendingCount());
+    }
+
+    @Test
+    public void testRemovedAccountResultIsDiscarded() throws Exception {
+        Mockito.when(mTokenCache.getAccount(anyString(), anyString(), anyString())).thenReturn(null);
+
+        mScheduler.schedule(accessTokenExpiringIn(TimeUnit.MINUTES.toSeconds(1)), mAccount, mRequest);
+
+        Mockito.verify(mRedeemer, Mockito.timeout(VERIFY_TIMEOUT_MILLIS)).requestTokens(mAccount, mRequest);
+        Thread.sleep(200);
+        Mockito.verify(mRedeemer, Mockito.never())
+                .save(any(MicrosoftStsAuthorizationRequest.class), any(MicrosoftStsTokenResponse.class));
+    }
+
+    @Test
+    public void testInvalidGrantIsNotRetried() throws Exception {
+        Mockito.when(mRedeemer.requestTokens(mAccount, mRequest))
+                .thenThrow(new ServiceException("invalid_grant", "Token revoked", 400, null));
+
+        mScheduler.schedule(accessTokenExpiringIn(TimeUnit.MINUTES.toSeconds(1)), mAccount, mRequest);
+
+        Mockito.verify(mRedeemer, Mockito.timeout(VERIFY_TIMEOUT_MILLIS)).requestTokens(mAccount, mRequest);
+        Thread.sleep(200);
+        Assert.assertEquals(0, mScheduler.getPendingCount());
+    }
+
+    @Test
+    public void testServerErrorIsRetried() throws Exception {
+        Mockito.when(mRedeemer.requestTokens(mAccount, mRequest))
+                .thenThrow(new ServiceException("temporarily_unavailable", "Try again", 503, null));
+
+        mScheduler.schedule(accessTokenExpiringIn(TimeUnit.MINUTES.toSeconds(1)), mAccount, mRequest);
+
+        Mockito.verify(mRedeemer, Mockito.timeout(VERIFY_TIMEOUT_MILLIS)).requestTokens(mAccount, mRequest);
+        Thread.sleep(200);
+        Assert.assertEquals(1, mScheduler.getPendingCount());
+    }
+
+    private static AccessTokenRecord accessTokenExpiringIn(final long seconds) {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setExpiresOn(String.valueOf(
+                TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + seconds
+        ));
+        return accessToken;
+    }
+}